@@ -0,0 +1,44 @@
+package com.podio.sdk;
+
+import android.graphics.Bitmap;
+import android.test.AndroidTestCase;
+
+public class BitmapPoolTest extends AndroidTestCase {
+
+    public void testSmallestLargeEnoughBitmapIsReused() {
+        BitmapPool pool = new BitmapPool(1024 * 1024);
+        Bitmap large = Bitmap.createBitmap(120, 120, Bitmap.Config.ARGB_8888);
+        Bitmap medium = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        assertTrue(pool.put(large));
+        assertTrue(pool.put(medium));
+        assertFalse(pool.put(medium));
+
+        // Far too large buffers aren't handed out for tiny images.
+        assertNull(pool.get(10, 10, Bitmap.Config.ARGB_8888));
+
+        assertSame(medium, pool.get(80, 80, Bitmap.Config.ARGB_8888));
+        assertSame(large, pool.get(80, 80, Bitmap.Config.ARGB_8888));
+        assertNull(pool.get(80, 80, Bitmap.Config.ARGB_8888));
+
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(0, pool.getSizeInBytes());
+    }
+
+    public void testOldestBitmapsAreDroppedWhenFull() {
+        Bitmap first = Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565);
+        Bitmap second = Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565);
+        Bitmap third = Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565);
+
+        BitmapPool pool = new BitmapPool(2 * first.getByteCount());
+        pool.put(first);
+        pool.put(second);
+        pool.put(third);
+        assertFalse(pool.put(Bitmap.createScaledBitmap(first, 10, 10, false)));
+
+        assertEquals(2 * first.getByteCount(), pool.getSizeInBytes());
+        assertSame(second, pool.get(100, 100, Bitmap.Config.RGB_565));
+        assertSame(third, pool.get(100, 100, Bitmap.Config.RGB_565));
+    }
+
+}
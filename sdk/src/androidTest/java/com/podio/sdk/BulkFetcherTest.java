@@ -0,0 +1,167 @@
+package com.podio.sdk;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkFetcherTest extends AndroidTestCase {
+
+    private static final class PendingSource extends BulkFetcher.CountingSource<Integer[], Integer> {
+        private final int totalCount;
+        private final List<PendingRequest<Integer[]>> requests = new ArrayList<PendingRequest<Integer[]>>();
+        private final List<int[]> spans = new ArrayList<int[]>();
+
+        private PendingSource(int totalCount) {
+            this.totalCount = totalCount;
+        }
+
+        @Override
+        protected Request<Integer[]> getPage(int limit, int offset) {
+            PendingRequest<Integer[]> request = new PendingRequest<Integer[]>();
+            requests.add(request);
+            spans.add(new int[] { limit, offset });
+            return request;
+        }
+
+        private void deliver(int requestIndex) {
+            int limit = spans.get(requestIndex)[0];
+            int offset = spans.get(requestIndex)[1];
+            int count = Math.max(0, Math.min(limit, totalCount - offset));
+            Integer[] result = new Integer[count];
+
+            for (int i = 0; i < count; i++) {
+                result[i] = offset + i;
+            }
+
+            requests.get(requestIndex).deliver(result);
+        }
+
+        private void fail(int requestIndex) {
+            requests.get(requestIndex).fail(new PodioError("test"));
+        }
+
+        @Override
+        protected List<Integer> getItems(Integer[] result) {
+            List<Integer> items = new ArrayList<Integer>();
+
+            for (Integer item : result) {
+                items.add(item);
+            }
+
+            return items;
+        }
+
+        @Override
+        protected int getTotalCount(Integer[] result) {
+            return totalCount;
+        }
+    }
+
+    private static final class CollectingListener implements Pager.PageListener<Integer>, BulkFetcher.DoneListener {
+        private final List<Integer> pageIndexes = new ArrayList<Integer>();
+        private final List<Integer> items = new ArrayList<Integer>();
+        private int doneCount = -1;
+
+        @Override
+        public boolean onPageLoaded(int pageIndex, List<Integer> page) {
+            pageIndexes.add(pageIndex);
+            items.addAll(page);
+            return false;
+        }
+
+        @Override
+        public boolean onDone(int itemCount) {
+            doneCount = itemCount;
+            return false;
+        }
+    }
+
+    public void testRemainingPagesAreFetchedUnderParallelismCap() {
+        PendingSource source = new PendingSource(45);
+        BulkFetcher<Integer> fetcher = new BulkFetcher<Integer>(source, 10)
+                .withMaxParallelRequests(2)
+                .start();
+
+        assertEquals(1, source.requests.size());
+        source.deliver(0);
+
+        // Page 0 is delivered, pages 1 and 2 are in flight.
+        assertEquals(3, source.requests.size());
+
+        source.deliver(2);
+        assertEquals(4, source.requests.size());
+        assertFalse(fetcher.isDone());
+    }
+
+    public void testNoPagesAreRequestedBeyondFetchAheadWindow() {
+        PendingSource source = new PendingSource(100);
+        CollectingListener listener = new CollectingListener();
+        BulkFetcher<Integer> fetcher = new BulkFetcher<Integer>(source, 10)
+                .withMaxParallelRequests(4)
+                .withMaxPagesAhead(2)
+                .withPageListener(listener)
+                .start();
+
+        source.deliver(0);
+
+        // Pages 1 through 3 are in the window past page 1, the next page to deliver.
+        assertEquals(4, source.requests.size());
+
+        source.deliver(3);
+        source.deliver(2);
+        assertEquals(4, source.requests.size());
+
+        // The head page arrives and moves the window forward to pages 4 through 6.
+        source.deliver(1);
+        assertEquals(4, listener.pageIndexes.size());
+        assertEquals(7, source.requests.size());
+        assertFalse(fetcher.isDone());
+    }
+
+    public void testPagesAreDeliveredInOrder() {
+        PendingSource source = new PendingSource(45);
+        CollectingListener listener = new CollectingListener();
+        BulkFetcher<Integer> fetcher = new BulkFetcher<Integer>(source, 10)
+                .withMaxParallelRequests(4)
+                .withPageListener(listener)
+                .withDoneListener(listener)
+                .start();
+
+        source.deliver(0);
+        assertEquals(5, source.requests.size());
+
+        source.deliver(4);
+        source.deliver(2);
+        source.deliver(3);
+        assertEquals(1, listener.pageIndexes.size());
+
+        source.deliver(1);
+
+        assertTrue(fetcher.isDone());
+        assertEquals(45, listener.doneCount);
+        assertEquals(5, listener.pageIndexes.size());
+
+        for (int i = 0; i < 45; i++) {
+            assertEquals(Integer.valueOf(i), listener.items.get(i));
+        }
+    }
+
+    public void testErrorStopsFetch() {
+        PendingSource source = new PendingSource(30);
+        CollectingListener listener = new CollectingListener();
+        BulkFetcher<Integer> fetcher = new BulkFetcher<Integer>(source, 10)
+                .withPageListener(listener)
+                .withDoneListener(listener)
+                .start();
+
+        source.deliver(0);
+        source.fail(1);
+        source.deliver(2);
+
+        assertTrue(fetcher.isDone());
+        assertEquals(1, listener.pageIndexes.size());
+        assertEquals(-1, listener.doneCount);
+    }
+
+}
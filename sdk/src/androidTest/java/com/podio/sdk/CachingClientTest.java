@@ -0,0 +1,209 @@
+package com.podio.sdk;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class CachingClientTest extends AndroidTestCase {
+
+    /**
+     * A request that has already delivered its result.
+     */
+    private static final class DeliveredRequest<T> implements Request<T> {
+        private final T result;
+
+        private DeliveredRequest(T result) {
+            this.result = result;
+        }
+
+        @Override
+        public T waitForResult(long maxSeconds) throws PodioError {
+            return result;
+        }
+
+        @Override
+        public Request<T> withResultListener(ResultListener<T> contentListener) {
+            contentListener.onRequestPerformed(result);
+            return this;
+        }
+
+        @Override
+        public Request<T> withErrorListener(ErrorListener errorListener) {
+            return this;
+        }
+
+        @Override
+        public Request<T> withSessionListener(SessionListener sessionListener) {
+            return this;
+        }
+    }
+
+    private static final class PendingClient implements Client {
+        private final List<PendingRequest<String>> requests = new ArrayList<PendingRequest<String>>();
+
+        @Override
+        public Request<Void> authenticateWithUserCredentials(String username, String password) {
+            return new PendingRequest<Void>();
+        }
+
+        @Override
+        public Request<Void> authenticateWithAppCredentials(String appId, String appToken) {
+            return new PendingRequest<Void>();
+        }
+
+        @Override
+        public Request<Void> authenticateWithTransferToken(String transferToken) {
+            return new PendingRequest<Void>();
+        }
+
+        @Override
+        public Request<Void> forceRefreshTokens() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Request<T> request(Request.Method method, Filter filter, Object requestData, Class<T> classOfExpectedResult) {
+            PendingRequest<String> request = new PendingRequest<String>();
+            requests.add(request);
+            return (Request<T>) request;
+        }
+    }
+
+    private static final class MapStore implements Store {
+        private final Map<Object, Object> values = new HashMap<Object, Object>();
+
+        @Override
+        public Request<Void> free() {
+            return new DeliveredRequest<Void>(null);
+        }
+
+        @Override
+        public Request<Void> erase() {
+            values.clear();
+            return new DeliveredRequest<Void>(null);
+        }
+
+        @Override
+        public <T> Request<T> get(Object key, Class<T> classOfValue) {
+            return new DeliveredRequest<T>(classOfValue.cast(values.get(key)));
+        }
+
+        @Override
+        public <T> Request<Map<Object, T>> getAll(Collection<?> keys, Class<T> classOfValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Request<Void> set(Object key, Object value) {
+            values.put(key, value);
+            return new DeliveredRequest<Void>(null);
+        }
+
+        @Override
+        public Request<Void> setAll(Map<?, ?> values) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Request<Void> remove(Object key) {
+            values.remove(key);
+            return new DeliveredRequest<Void>(null);
+        }
+
+        @Override
+        public Request<Void> removeAll(Collection<?> keys) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class RecordingListener implements Request.ResultListener<String> {
+        private final List<String> results = new ArrayList<String>();
+
+        @Override
+        public boolean onRequestPerformed(String content) {
+            results.add(content);
+            return false;
+        }
+    }
+
+    private PendingClient client;
+    private MapStore store;
+    private CachingClient cachingClient;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        client = new PendingClient();
+        store = new MapStore();
+        cachingClient = new CachingClient(client, store, "https", "api.podio.com");
+    }
+
+    public void testCacheThenNetworkDeliversBothResultsToTheSameListener() {
+        cachingClient.request(Request.Method.GET, new Filter("item/1"), null, String.class);
+        client.requests.get(0).deliver("old");
+
+        RecordingListener listener = new RecordingListener();
+        cachingClient.request(Request.Method.GET, new Filter("item/1"), null, String.class, CachePolicy.CACHE_THEN_NETWORK)
+                .withResultListener(listener);
+
+        assertEquals(2, client.requests.size());
+        assertEquals(1, listener.results.size());
+        assertEquals("old", listener.results.get(0));
+
+        client.requests.get(1).deliver("new");
+
+        assertEquals(2, listener.results.size());
+        assertEquals("new", listener.results.get(1));
+        assertEquals("new", store.values.get("https://api.podio.com/item/1"));
+    }
+
+    public void testCacheFirstOnlyFetchesOnMiss() {
+        RecordingListener listener = new RecordingListener();
+        cachingClient.request(Request.Method.GET, new Filter("item/2"), null, String.class, CachePolicy.CACHE_FIRST)
+                .withResultListener(listener);
+
+        assertEquals(1, client.requests.size());
+        client.requests.get(0).deliver("fetched");
+        assertEquals(1, listener.results.size());
+
+        cachingClient.request(Request.Method.GET, new Filter("item/2"), null, String.class, CachePolicy.CACHE_FIRST)
+                .withResultListener(listener);
+
+        assertEquals(1, client.requests.size());
+        assertEquals(2, listener.results.size());
+        assertEquals("fetched", listener.results.get(1));
+    }
+
+    public void testMaxAgeRefetchesStaleResponses() {
+        cachingClient.request(Request.Method.GET, new Filter("item/3"), null, String.class);
+        client.requests.get(0).deliver("cached");
+
+        cachingClient.request(Request.Method.GET, new Filter("item/3"), null, String.class, CachePolicy.maxAge(1, TimeUnit.HOURS));
+        assertEquals(1, client.requests.size());
+
+        store.values.put("fetched_at:https://api.podio.com/item/3", System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+        cachingClient.request(Request.Method.GET, new Filter("item/3"), null, String.class, CachePolicy.maxAge(1, TimeUnit.HOURS));
+        assertEquals(2, client.requests.size());
+    }
+
+    public void testAuthenticationClearsResponsesOfPreviousSession() {
+        cachingClient.request(Request.Method.GET, new Filter("item/4"), null, String.class);
+        cachingClient.request(Request.Method.GET, new Filter("item/5"), null, String.class);
+        client.requests.get(0).deliver("previous user");
+        assertEquals("previous user", store.values.get("https://api.podio.com/item/4"));
+
+        cachingClient.authenticateWithUserCredentials("user", "password");
+        assertTrue(store.values.isEmpty());
+
+        // A response requested before the new session arrives after it.
+        client.requests.get(1).deliver("previous user");
+        assertTrue(store.values.isEmpty());
+    }
+
+}
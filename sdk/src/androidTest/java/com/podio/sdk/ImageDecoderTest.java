@@ -0,0 +1,38 @@
+package com.podio.sdk;
+
+import android.graphics.Bitmap;
+import android.test.AndroidTestCase;
+
+public class ImageDecoderTest extends AndroidTestCase {
+
+    public void testSampleSizeKeepsBitmapAtLeastAsLargeAsTarget() {
+        // A 12 MP camera photo shown as a 200 x 150 thumbnail.
+        assertEquals(16, ImageDecoder.calculateInSampleSize(4000, 3000, 200, 150));
+        assertEquals(8, ImageDecoder.calculateInSampleSize(4000, 3000, 300, 150));
+        assertEquals(1, ImageDecoder.calculateInSampleSize(400, 300, 300, 200));
+        assertEquals(1, ImageDecoder.calculateInSampleSize(100, 100, 200, 200));
+    }
+
+    public void testUnconstrainedDimensionsAreIgnored() {
+        assertEquals(4, ImageDecoder.calculateInSampleSize(4000, 3000, 0, 600));
+        assertEquals(2, ImageDecoder.calculateInSampleSize(4000, 3000, 1500, 0));
+        assertEquals(1, ImageDecoder.calculateInSampleSize(4000, 3000, 0, 0));
+        assertEquals(1, ImageDecoder.calculateInSampleSize(0, 0, 200, 200));
+    }
+
+    public void testLargerVariantIsScaledDownToFit() {
+        Bitmap large = Bitmap.createBitmap(160, 160, Bitmap.Config.RGB_565);
+
+        Bitmap medium = ImageDecoder.scaleToFit(large, 80);
+        assertEquals(80, medium.getWidth());
+        assertEquals(80, medium.getHeight());
+
+        Bitmap wide = ImageDecoder.scaleToFit(Bitmap.createBitmap(160, 120, Bitmap.Config.RGB_565), 32);
+        assertEquals(32, wide.getWidth());
+        assertEquals(24, wide.getHeight());
+
+        assertSame(large, ImageDecoder.scaleToFit(large, 160));
+        assertNull(ImageDecoder.scaleToFit(medium, 160));
+    }
+
+}
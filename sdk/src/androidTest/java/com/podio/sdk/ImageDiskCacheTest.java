@@ -0,0 +1,71 @@
+package com.podio.sdk;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class ImageDiskCacheTest extends AndroidTestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File(System.getProperty("java.io.tmpdir"), "image-disk-cache-test-" + System.nanoTime());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+
+        directory.delete();
+        super.tearDown();
+    }
+
+    private static byte[] bytes(int size, int value) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+
+    public void testLeastRecentlyUsedImagesAreEvicted() {
+        ImageDiskCache cache = new ImageDiskCache(directory, 300);
+        cache.put("https://example.com/a/small", bytes(100, 1));
+        cache.put("https://example.com/b/small", bytes(100, 2));
+        cache.put("https://example.com/c/small", bytes(100, 3));
+
+        // Touching "a" makes "b" the least recently used image.
+        assertNotNull(cache.get("https://example.com/a/small"));
+        cache.put("https://example.com/d/small", bytes(100, 4));
+
+        assertNull(cache.get("https://example.com/b/small"));
+        assertNull(cache.get("https://example.com/c/small"));
+        assertTrue(Arrays.equals(bytes(100, 1), cache.get("https://example.com/a/small")));
+        assertTrue(Arrays.equals(bytes(100, 4), cache.get("https://example.com/d/small")));
+        assertEquals(200, cache.getSizeInBytes());
+    }
+
+    public void testCachedImagesSurviveRestart() {
+        ImageDiskCache cache = new ImageDiskCache(directory, 1024);
+        cache.put("https://example.com/a/large", bytes(100, 1));
+        cache.put("https://example.com/a/small", bytes(10, 2));
+        cache.remove("https://example.com/a/small");
+
+        ImageDiskCache restarted = new ImageDiskCache(directory, 1024);
+
+        assertTrue(Arrays.equals(bytes(100, 1), restarted.get("https://example.com/a/large")));
+        assertNull(restarted.get("https://example.com/a/small"));
+        assertEquals(100, restarted.getSizeInBytes());
+
+        restarted.clear();
+        assertNull(new ImageDiskCache(directory, 1024).get("https://example.com/a/large"));
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.podio.sdk;
+
+import android.test.AndroidTestCase;
+
+import com.podio.sdk.domain.Conversation;
+import com.podio.sdk.domain.File;
+import com.podio.sdk.json.JsonParser;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ImageLinksTest extends AndroidTestCase {
+
+    public void testConversationLinksIncludeCreatorAndParticipantsOnce() {
+        String json = "{conversation_id:1,"
+                + " created_by:{id:1, image:{file_id:10, thumbnail_link:'https://d.podio.com/10'}},"
+                + " participants:["
+                + "  {profile_id:1, image:{file_id:10, thumbnail_link:'https://d.podio.com/10'}},"
+                + "  {profile_id:2, image:{file_id:20, thumbnail_link:'https://d.podio.com/20'}},"
+                + "  {profile_id:3}"
+                + " ]}";
+
+        Conversation conversation = JsonParser.fromJson(json, Conversation.class);
+
+        assertEquals(Arrays.asList("https://d.podio.com/10", "https://d.podio.com/20"),
+                ImageLinks.ofConversations(Collections.singletonList(conversation)));
+    }
+
+    public void testFilesWithoutThumbnailAreSkipped() {
+        File image = JsonParser.fromJson("{file_id:1, thumbnail_link:'https://d.podio.com/1'}", File.class);
+        File document = JsonParser.fromJson("{file_id:2, link:'https://files.podio.com/2'}", File.class);
+
+        assertEquals(Collections.singletonList("https://d.podio.com/1"),
+                ImageLinks.ofFiles(Arrays.asList(image, document, null)));
+    }
+
+}
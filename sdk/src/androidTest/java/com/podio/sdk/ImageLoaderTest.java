@@ -0,0 +1,88 @@
+package com.podio.sdk;
+
+import android.graphics.Bitmap;
+import android.test.AndroidTestCase;
+
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.HurlStack;
+import com.android.volley.toolbox.NoCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ImageLoaderTest extends AndroidTestCase {
+
+    private static final String URL = "https://example.com/image.png";
+
+    private static final ImageLoader.ImageListener IGNORING_LISTENER = new ImageLoader.ImageListener() {
+        @Override
+        public void onImageReady(Bitmap bitmap, String url, boolean isFromCache) {
+        }
+
+        @Override
+        public void onErrorOccurred(PodioError podioError, String url) {
+        }
+    };
+
+    private ImageLoader imageLoader;
+    private RequestQueue requestQueue;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        // The queue is never started, so the requests stay waiting until the test sends them.
+        requestQueue = new RequestQueue(new NoCache(), new BasicNetwork(new HurlStack()));
+        imageLoader = new ImageLoader();
+        imageLoader.setDiskCacheMaxSize(0L);
+        imageLoader.setup(getContext(), null);
+        imageLoader.setRequestQueue(requestQueue);
+    }
+
+    private List<Request<?>> getRequests() {
+        final List<Request<?>> requests = new ArrayList<Request<?>>();
+
+        requestQueue.cancelAll(new RequestQueue.RequestFilter() {
+            @Override
+            public boolean apply(Request<?> request) {
+                requests.add(request);
+                return false;
+            }
+        });
+
+        return requests;
+    }
+
+    public void testJoinedPrefetchStillWaitingIsRequeuedAtNormalPriority() {
+        imageLoader.prefetch(Collections.singletonList(URL), null);
+        List<Request<?>> requests = getRequests();
+        assertEquals(1, requests.size());
+        Request<?> prefetch = requests.get(0);
+        assertEquals(Request.Priority.LOW, prefetch.getPriority());
+
+        imageLoader.loadImage(URL, null, IGNORING_LISTENER);
+
+        requests = getRequests();
+        requests.remove(prefetch);
+        assertTrue(prefetch.isCanceled());
+        assertEquals(1, requests.size());
+        assertEquals(Request.Priority.NORMAL, requests.get(0).getPriority());
+        assertFalse(requests.get(0).isCanceled());
+    }
+
+    public void testJoinedPrefetchAlreadySentIsLeftAlone() throws Exception {
+        imageLoader.prefetch(Collections.singletonList(URL), null);
+        Request<?> prefetch = getRequests().get(0);
+
+        // The HTTP stack asks for the headers when it starts sending the request.
+        prefetch.getHeaders();
+        imageLoader.loadImage(URL, null, IGNORING_LISTENER);
+
+        assertFalse(prefetch.isCanceled());
+        assertEquals(Collections.<Request<?>> singletonList(prefetch), getRequests());
+    }
+
+}
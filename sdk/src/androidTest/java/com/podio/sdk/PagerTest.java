@@ -0,0 +1,143 @@
+package com.podio.sdk;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PagerTest extends AndroidTestCase {
+
+    private static final class PendingSource extends Pager.ArraySource<Integer> {
+        private final List<PendingRequest<Integer[]>> requests = new ArrayList<PendingRequest<Integer[]>>();
+        private final List<Integer> offsets = new ArrayList<Integer>();
+
+        @Override
+        protected Request<Integer[]> getPage(int limit, int offset) {
+            PendingRequest<Integer[]> request = new PendingRequest<Integer[]>();
+            requests.add(request);
+            offsets.add(offset);
+            return request;
+        }
+
+        private void deliver(int requestIndex, int count) {
+            Integer[] result = new Integer[count];
+            int offset = offsets.get(requestIndex);
+
+            for (int i = 0; i < count; i++) {
+                result[i] = offset + i;
+            }
+
+            requests.get(requestIndex).deliver(result);
+        }
+    }
+
+    private static final class IdentifyingSource extends Pager.ArraySource<Integer> {
+        private final List<PendingRequest<Integer[]>> requests = new ArrayList<PendingRequest<Integer[]>>();
+
+        @Override
+        protected Request<Integer[]> getPage(int limit, int offset) {
+            PendingRequest<Integer[]> request = new PendingRequest<Integer[]>();
+            requests.add(request);
+            return request;
+        }
+
+        @Override
+        protected Object getId(Integer item) {
+            return item;
+        }
+    }
+
+    public void testAccessingItemRequestsItsPageOnlyOnce() {
+        PendingSource source = new PendingSource();
+        Pager<Integer> pager = new Pager<Integer>(source, 10).withPrefetchThreshold(0);
+
+        assertNull(pager.getItem(3));
+        assertNull(pager.getItem(4));
+        assertEquals(1, source.requests.size());
+        assertTrue(pager.isLoading(0));
+
+        source.deliver(0, 10);
+
+        assertEquals(Integer.valueOf(4), pager.getItem(4));
+        assertEquals(1, source.requests.size());
+        assertEquals(10, pager.getKnownItemCount());
+    }
+
+    public void testReachingPrefetchThresholdRequestsNextPage() {
+        PendingSource source = new PendingSource();
+        Pager<Integer> pager = new Pager<Integer>(source, 10).withPrefetchThreshold(3);
+
+        pager.getItem(0);
+        source.deliver(0, 10);
+        pager.getItem(6);
+        assertEquals(1, source.requests.size());
+
+        pager.getItem(7);
+        assertEquals(2, source.requests.size());
+        assertTrue(pager.isLoading(1));
+    }
+
+    public void testShortPageMarksEndOfContent() {
+        PendingSource source = new PendingSource();
+        Pager<Integer> pager = new Pager<Integer>(source, 10);
+
+        pager.getItem(0);
+        source.deliver(0, 4);
+
+        assertTrue(pager.isEndReached());
+        assertEquals(4, pager.getKnownItemCount());
+        assertFalse(pager.loadPage(1));
+        assertNull(pager.getItem(5));
+    }
+
+    public void testPagesFurthestAwayAreEvicted() {
+        PendingSource source = new PendingSource();
+        Pager<Integer> pager = new Pager<Integer>(source, 10)
+                .withPrefetchThreshold(0)
+                .withMaxPagesInMemory(2);
+
+        for (int page = 0; page < 3; page++) {
+            pager.getItem(page * 10);
+            source.deliver(page, 10);
+        }
+
+        assertEquals(Integer.valueOf(25), pager.getItem(25));
+        assertEquals(3, source.requests.size());
+
+        // The first page was evicted and must be fetched again.
+        assertNull(pager.getItem(0));
+        assertEquals(4, source.requests.size());
+    }
+
+    public void testResetIgnoresResultsInFlight() {
+        PendingSource source = new PendingSource();
+        Pager<Integer> pager = new Pager<Integer>(source, 10).withPrefetchThreshold(0);
+
+        pager.getItem(0);
+        pager.reset();
+        source.deliver(0, 10);
+
+        assertEquals(0, pager.getKnownItemCount());
+        assertNull(pager.getItem(0));
+        assertEquals(2, source.requests.size());
+    }
+
+    public void testItemsPushedIntoNextPageAreDropped() {
+        IdentifyingSource source = new IdentifyingSource();
+        Pager<Integer> pager = new Pager<Integer>(source, 4).withPrefetchThreshold(0);
+
+        pager.getItem(0);
+        source.requests.get(0).deliver(new Integer[]{ 10, 11, 12, 13 });
+
+        // Two new items arrived at the top, pushing 12 and 13 into the second page.
+        pager.getItem(4);
+        source.requests.get(1).deliver(new Integer[]{ 12, 13, 14, 15 });
+
+        assertEquals(Integer.valueOf(14), pager.getItem(4));
+        assertEquals(Integer.valueOf(15), pager.getItem(5));
+        assertNull(pager.getItem(6));
+        assertFalse(pager.isEndReached());
+        assertEquals(8, pager.getKnownItemCount());
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.podio.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A request that doesn't deliver anything until explicitly told to do so.
+ *
+ * @param <T>
+ *         The type of result the request delivers.
+ */
+public class PendingRequest<T> implements Request<T> {
+    private final List<ResultListener<T>> resultListeners = new ArrayList<ResultListener<T>>();
+    private final List<ErrorListener> errorListeners = new ArrayList<ErrorListener>();
+
+    public void deliver(T result) {
+        for (ResultListener<T> listener : resultListeners) {
+            if (listener.onRequestPerformed(result)) {
+                break;
+            }
+        }
+    }
+
+    public void fail(Throwable cause) {
+        for (ErrorListener listener : errorListeners) {
+            if (listener.onErrorOccurred(cause)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public T waitForResult(long maxSeconds) throws PodioError {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Request<T> withResultListener(ResultListener<T> contentListener) {
+        resultListeners.add(contentListener);
+        return this;
+    }
+
+    @Override
+    public Request<T> withErrorListener(ErrorListener errorListener) {
+        errorListeners.add(errorListener);
+        return this;
+    }
+
+    @Override
+    public Request<T> withSessionListener(SessionListener sessionListener) {
+        return this;
+    }
+}
@@ -0,0 +1,195 @@
+package com.podio.sdk;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+public class QueueClientTest extends AndroidTestCase {
+
+    private static final class SingleThreadClient extends QueueClient {
+        private SingleThreadClient(int queueCapacity, OverflowPolicy overflowPolicy) {
+            super(1, 1, 0L, queueCapacity, overflowPolicy);
+        }
+
+        private SingleThreadClient() {
+            super(1, 1, 0L);
+        }
+    }
+
+    private static FutureTask<Void> newTask(final List<String> log, final String name) {
+        return new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                log.add(name);
+                return null;
+            }
+        });
+    }
+
+    private static FutureTask<Void> newBlockingTask(final CountDownLatch started, final CountDownLatch release) {
+        return new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return null;
+            }
+        });
+    }
+
+    public void testHigherPriorityRequestsArePickedFirst() throws Exception {
+        SingleThreadClient client = new SingleThreadClient(10, QueueClient.OverflowPolicy.REJECT);
+        List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        client.execute(newBlockingTask(started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        client.execute(newTask(log, "sync"), QueueClient.Priority.BACKGROUND_SYNC);
+        client.execute(newTask(log, "prefetch"), QueueClient.Priority.PREFETCH);
+        client.execute(newTask(log, "interactive 1"), QueueClient.Priority.INTERACTIVE);
+        FutureTask<Void> last = newTask(log, "interactive 2");
+        client.execute(last, QueueClient.Priority.INTERACTIVE);
+        FutureTask<Void> trailing = newTask(log, "trailing");
+        client.execute(trailing, QueueClient.Priority.BACKGROUND_SYNC);
+        assertEquals(5, client.getQueueDepth());
+        assertEquals(2, client.getQueueDepth(QueueClient.Priority.INTERACTIVE));
+
+        release.countDown();
+        trailing.get(5, TimeUnit.SECONDS);
+
+        assertEquals(5, log.size());
+        assertEquals("interactive 1", log.get(0));
+        assertEquals("interactive 2", log.get(1));
+        assertEquals("prefetch", log.get(2));
+        assertEquals("sync", log.get(3));
+        assertEquals("trailing", log.get(4));
+        assertEquals(0, client.getQueueDepth());
+    }
+
+    public void testOldestPrefetchIsDroppedWhenQueueIsFull() throws Exception {
+        final SingleThreadClient client = new SingleThreadClient(2, QueueClient.OverflowPolicy.DROP_OLDEST_PREFETCH);
+        List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        client.execute(newBlockingTask(started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        FutureTask<Void> oldPrefetch = newTask(log, "old prefetch");
+        FutureTask<Void> newPrefetch = newTask(log, "new prefetch");
+        FutureTask<Void> interactive = newTask(log, "interactive");
+        final FutureTask<Void> blocked = newTask(log, "blocked");
+
+        assertTrue(client.execute(oldPrefetch, QueueClient.Priority.PREFETCH));
+        assertTrue(client.execute(newPrefetch, QueueClient.Priority.PREFETCH));
+        assertTrue(client.execute(interactive, QueueClient.Priority.INTERACTIVE));
+        assertTrue(oldPrefetch.isCancelled());
+        assertEquals(1, client.getDroppedCount());
+
+        // The remaining prefetch is dropped as well, then there is nothing left to drop and the
+        // caller is blocked until there is room.
+        assertTrue(client.execute(newTask(log, "sync"), QueueClient.Priority.BACKGROUND_SYNC));
+        final CountDownLatch enqueued = new CountDownLatch(1);
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (client.execute(blocked, QueueClient.Priority.INTERACTIVE)) {
+                    enqueued.countDown();
+                }
+            }
+        }).start();
+
+        assertFalse(enqueued.await(200, TimeUnit.MILLISECONDS));
+        assertFalse(blocked.isCancelled());
+
+        release.countDown();
+        assertTrue(enqueued.await(5, TimeUnit.SECONDS));
+        blocked.get(5, TimeUnit.SECONDS);
+        assertFalse(log.contains("old prefetch"));
+        assertTrue(log.contains("blocked"));
+        assertEquals(0, client.getRejectedCount());
+    }
+
+    public void testFullDefaultQueueDropsOldestPrefetch() throws Exception {
+        SingleThreadClient client = new SingleThreadClient();
+        List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        client.execute(newBlockingTask(started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        FutureTask<Void> oldest = newTask(log, "oldest prefetch");
+        assertTrue(client.execute(oldest, QueueClient.Priority.PREFETCH));
+
+        for (int i = 1; i < QueueClient.DEFAULT_QUEUE_CAPACITY; i++) {
+            assertTrue(client.execute(newTask(log, "prefetch"), QueueClient.Priority.PREFETCH));
+        }
+
+        assertEquals(0, client.getDroppedCount());
+
+        FutureTask<Void> interactive = newTask(log, "interactive");
+        assertTrue(client.execute(interactive, QueueClient.Priority.INTERACTIVE));
+        assertTrue(oldest.isCancelled());
+        assertEquals(1, client.getDroppedCount());
+
+        release.countDown();
+        interactive.get(5, TimeUnit.SECONDS);
+        assertFalse(log.contains("oldest prefetch"));
+    }
+
+    public void testRequestsOnSameKeyKeepTheirOrder() throws Exception {
+        SingleThreadClient client = new SingleThreadClient();
+        List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        client.execute(newBlockingTask(started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        client.execute(newTask(log, "write a"), QueueClient.Priority.BACKGROUND_SYNC, Collections.singleton("a"));
+        FutureTask<Void> unrelated = newTask(log, "write b");
+        client.execute(unrelated, QueueClient.Priority.BACKGROUND_SYNC, Collections.singleton("b"));
+        client.execute(newTask(log, "write a, c"), QueueClient.Priority.PREFETCH, Arrays.asList("a", "c"));
+        client.execute(newTask(log, "read c"), QueueClient.Priority.INTERACTIVE, Collections.singleton("c"));
+
+        release.countDown();
+        unrelated.get(5, TimeUnit.SECONDS);
+
+        // Reading c raises the write of a and c, which in turn raises the earlier write of a. The
+        // unrelated write of b keeps its low priority.
+        assertEquals(4, log.size());
+        assertEquals("write a", log.get(0));
+        assertEquals("write a, c", log.get(1));
+        assertEquals("read c", log.get(2));
+        assertEquals("write b", log.get(3));
+    }
+
+    public void testRequestIsRejectedWhenQueueIsFull() throws Exception {
+        SingleThreadClient client = new SingleThreadClient(1, QueueClient.OverflowPolicy.REJECT);
+        List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        client.execute(newBlockingTask(started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(client.execute(newTask(log, "prefetch"), QueueClient.Priority.PREFETCH));
+        FutureTask<Void> rejected = newTask(log, "rejected");
+        assertFalse(client.execute(rejected, QueueClient.Priority.INTERACTIVE));
+        assertTrue(rejected.isCancelled());
+
+        release.countDown();
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.podio.sdk.json;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.podio.sdk.domain.Item;
+import com.podio.sdk.domain.field.CalculationField;
+import com.podio.sdk.domain.field.Field;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+
+/**
+ * Verifies that the streaming {@link Field} type adapter parses a realistic list of items with
+ * many fields each exactly like the JSON tree rewriting deserializer it replaced, and compares how
+ * long the two take. Every fifth field is a calculation field.
+ */
+public class FieldTypeAdapterTest extends AndroidTestCase {
+    private static final String TAG = "FieldTypeAdapterTest";
+
+    private static final int ITEM_COUNT = 20;
+    private static final int BENCHMARK_ITEM_COUNT = 200;
+    private static final int FIELD_COUNT = 50;
+    private static final int ROUNDS = 5;
+
+    /**
+     * The tree based deserializer as it was prior to the streaming type adapter.
+     */
+    private static final class TreeFieldDeserializer implements JsonDeserializer<Field> {
+        private final Gson gson = new Gson();
+
+        @Override
+        public Field deserialize(JsonElement element, Type type, JsonDeserializationContext gsonContext) throws JsonParseException {
+            if (element == null || element.isJsonNull()) {
+                return null;
+            }
+
+            JsonObject jsonObject = element.getAsJsonObject();
+
+            if (!jsonObject.has("values")) {
+                jsonObject.add("values", new JsonArray());
+            }
+
+            Field.Type typeEnum = Field.Type.undefined;
+            JsonElement fieldType = jsonObject.get("type");
+
+            if (fieldType != null && !fieldType.isJsonNull()) {
+                try {
+                    typeEnum = Field.Type.valueOf(fieldType.getAsString());
+                } catch (IllegalArgumentException e) {
+                }
+            }
+
+            if (typeEnum == Field.Type.undefined) {
+                jsonObject.addProperty("type", Field.Type.undefined.name());
+            }
+
+            if (typeEnum == Field.Type.calculation) {
+                JsonArray fieldValues = jsonObject.remove("values").getAsJsonArray();
+                jsonObject.add("values", new JsonArray());
+                Field field = gsonContext.deserialize(jsonObject, typeEnum.getFieldClass());
+                String returnType = jsonObject.get("config").getAsJsonObject().get("settings").getAsJsonObject().get("return_type").getAsString();
+                ArrayList<Field.Value> values = new ArrayList<Field.Value>();
+
+                for (JsonElement jsonFieldValue : fieldValues) {
+                    values.add(gson.fromJson(jsonFieldValue, CalculationField.ReturnType.getReturnType(returnType).getFieldValueClass()));
+                }
+
+                if (!values.isEmpty()) {
+                    field.setValues(values);
+                }
+
+                return field;
+            }
+
+            return gsonContext.deserialize(jsonObject, typeEnum.getFieldClass());
+        }
+    }
+
+    private static String buildField(int index) {
+        switch (index % 5) {
+            case 0:
+                return "{\"type\":\"text\",\"field_id\":" + index + ",\"external_id\":\"text-" + index + "\",\"label\":\"Text\",\"status\":\"active\",\"values\":[{\"value\":\"Some text value " + index + "\"}],\"config\":{\"label\":\"Text\",\"required\":false,\"delta\":" + index + "}}";
+            case 1:
+                return "{\"type\":\"number\",\"field_id\":" + index + ",\"external_id\":\"number-" + index + "\",\"label\":\"Number\",\"status\":\"active\",\"values\":[{\"value\":\"" + index + ".5000\"}],\"config\":{\"label\":\"Number\",\"delta\":" + index + "}}";
+            case 2:
+                return "{\"type\":\"category\",\"field_id\":" + index + ",\"external_id\":\"category-" + index + "\",\"label\":\"Category\",\"status\":\"active\",\"values\":[{\"value\":{\"id\":1,\"text\":\"Option\",\"color\":\"DCEBD8\",\"status\":\"active\"}}],\"config\":{\"label\":\"Category\",\"settings\":{\"multiple\":false,\"display\":\"inline\",\"options\":[{\"id\":1,\"text\":\"Option\",\"color\":\"DCEBD8\",\"status\":\"active\"}]}}}";
+            case 3:
+                return "{\"type\":\"date\",\"field_id\":" + index + ",\"external_id\":\"date-" + index + "\",\"label\":\"Date\",\"status\":\"active\",\"values\":[{\"start\":\"2015-03-01 10:00:00\",\"end\":\"2015-03-01 11:00:00\"}],\"config\":{\"label\":\"Date\",\"settings\":{\"calendar\":true,\"end\":\"enabled\",\"time\":\"enabled\"}}}";
+            default:
+                return "{\"type\":\"calculation\",\"field_id\":" + index + ",\"external_id\":\"calculation-" + index + "\",\"label\":\"Calculation\",\"status\":\"active\",\"config\":{\"label\":\"Calculation\",\"settings\":{\"return_type\":\"number\",\"decimals\":2}},\"values\":[{\"value\":\"" + index + ".0000\"}]}";
+        }
+    }
+
+    private static String buildItemList(int itemCount) {
+        StringBuilder builder = new StringBuilder("{\"filtered\":" + itemCount + ",\"total\":" + itemCount + ",\"items\":[");
+
+        for (int i = 0; i < itemCount; i++) {
+            builder.append(i > 0 ? "," : "")
+                    .append("{\"item_id\":").append(i)
+                    .append(",\"title\":\"Item ").append(i)
+                    .append("\",\"fields\":[");
+
+            for (int j = 0; j < FIELD_COUNT; j++) {
+                builder.append(j > 0 ? "," : "").append(buildField(j));
+            }
+
+            builder.append("]}");
+        }
+
+        return builder.append("]}").toString();
+    }
+
+    private static Gson newTreeGson() {
+        return new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .setDateFormat("yyyy-MM-dd HH:mm:ss")
+                .registerTypeAdapter(Field.class, new TreeFieldDeserializer())
+                .create();
+    }
+
+    public void testStreamingParseMatchesTreeDeserializer() throws Exception {
+        String json = buildItemList(ITEM_COUNT);
+
+        Item.FilterResult treeResult = newTreeGson().fromJson(json, Item.FilterResult.class);
+        Item.FilterResult streamResult = JsonParser.fromJson(json.getBytes("UTF-8"), "UTF-8", Item.FilterResult.class);
+
+        assertEquals(JsonParser.toJson(treeResult), JsonParser.toJson(streamResult));
+    }
+
+    public void testStreamingParseMatchesStringParse() throws Exception {
+        String json = buildItemList(ITEM_COUNT);
+
+        Item.FilterResult stringResult = JsonParser.fromJson(json, Item.FilterResult.class);
+        Item.FilterResult streamResult = JsonParser.fromJson(json.getBytes("UTF-8"), "UTF-8", Item.FilterResult.class);
+
+        assertEquals(JsonParser.toJson(stringResult), JsonParser.toJson(streamResult));
+    }
+
+    public void testBenchmarkStreamingParseAgainstTreeDeserializer() throws Exception {
+        Gson treeGson = newTreeGson();
+        byte[] json = buildItemList(BENCHMARK_ITEM_COUNT).getBytes("UTF-8");
+
+        // Warm up both paths and verify they agree on the result.
+        Item.FilterResult treeResult = treeGson.fromJson(new String(json, "UTF-8"), Item.FilterResult.class);
+        Item.FilterResult streamResult = JsonParser.fromJson(json, "UTF-8", Item.FilterResult.class);
+        assertEquals(JsonParser.toJson(treeResult), JsonParser.toJson(streamResult));
+
+        long treeNanos = 0;
+        long streamNanos = 0;
+
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            treeGson.fromJson(new String(json, "UTF-8"), Item.FilterResult.class);
+            treeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            JsonParser.fromJson(json, "UTF-8", Item.FilterResult.class);
+            streamNanos += System.nanoTime() - start;
+        }
+
+        Log.i(TAG, String.format("%d items x %d fields (%d calculation fields each): tree %d ms, streaming %d ms per parse",
+                BENCHMARK_ITEM_COUNT, FIELD_COUNT, FIELD_COUNT / 5, treeNanos / ROUNDS / 1000000, streamNanos / ROUNDS / 1000000));
+    }
+
+}
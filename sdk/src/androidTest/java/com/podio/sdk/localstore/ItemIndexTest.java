@@ -0,0 +1,132 @@
+package com.podio.sdk.localstore;
+
+import android.test.AndroidTestCase;
+
+import com.podio.sdk.domain.Item;
+import com.podio.sdk.json.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public class ItemIndexTest extends AndroidTestCase {
+
+    private File indexFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        indexFile = new File(System.getProperty("java.io.tmpdir"), "item-index-test-" + System.nanoTime() + ".index");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        indexFile.delete();
+        super.tearDown();
+    }
+
+    private static Item item(long appId, long itemId, String lastEventOn, String status, double amount) {
+        String json = "{app:{app_id:" + appId + "}, item_id:" + itemId + ","
+                + " created_on:'2016-01-0" + itemId + " 10:00:00', last_event_on:'" + lastEventOn + "',"
+                + " fields:["
+                + "  {external_id:'status', type:'text', values:[{value:'" + status + "'}]},"
+                + "  {external_id:'amount', type:'number', values:[{value:'" + amount + "'}]}"
+                + " ]}";
+
+        return JsonParser.fromJson(json, Item.class);
+    }
+
+    private static ItemIndex newIndex() {
+        ItemIndex index = new ItemIndex(Arrays.asList("status", "amount"));
+        index.put("item-1", item(10, 1, "2016-02-03 08:00:00", "open", 30));
+        index.put("item-2", item(10, 2, "2016-02-01 08:00:00", "closed", 10));
+        index.put("item-3", item(10, 3, "2016-02-02 08:00:00", "open", 20));
+        index.put("item-4", item(20, 4, "2016-02-04 08:00:00", "open", 40));
+        return index;
+    }
+
+    public void testQueryFiltersAndSortsItemsOfTheApplication() {
+        ItemIndex index = newIndex();
+
+        assertEquals(Arrays.asList("item-3", "item-2", "item-1"), index.query(new ItemQuery(10)));
+
+        ItemQuery openByAmount = new ItemQuery(10)
+                .addConstraint("status", "open")
+                .setOrderByField("amount", false);
+        assertEquals(Arrays.asList("item-3", "item-1"), index.query(openByAmount));
+
+        Map<String, Object> range = new HashMap<String, Object>();
+        range.put("from", 15);
+        range.put("to", "30");
+        ItemQuery amountRange = new ItemQuery(10)
+                .addConstraint("amount", range)
+                .setOrderByField(ItemQuery.LAST_EVENT_ON, true);
+        assertEquals(Arrays.asList("item-1", "item-3"), index.query(amountRange));
+
+        ItemQuery anyStatus = new ItemQuery(10)
+                .addConstraint("status", Arrays.asList("closed", "pending"));
+        assertEquals(Collections.singletonList("item-2"), index.query(anyStatus));
+
+        Map<String, Object> day = new HashMap<String, Object>();
+        day.put("from", "2016-02-02");
+        day.put("to", "2016-02-02");
+        ItemQuery lastEventDay = new ItemQuery(10).addConstraint(ItemQuery.LAST_EVENT_ON, day);
+        assertEquals(Collections.singletonList("item-3"), index.query(lastEventDay));
+    }
+
+    public void testReplacedAndRemovedItemsAreReindexed() {
+        ItemIndex index = newIndex();
+        index.put("item-1", item(20, 1, "2016-02-03 08:00:00", "open", 30));
+        index.put("item-2", "not an item");
+        index.remove("item-3");
+
+        assertTrue(index.query(new ItemQuery(10)).isEmpty());
+        assertEquals(Arrays.asList("item-4", "item-1"), index.query(new ItemQuery(20)));
+    }
+
+    public void testQueryOnUnindexedFieldIsRejected() {
+        try {
+            newIndex().query(new ItemQuery(10).addConstraint("title", "x"));
+            fail("Expected the query to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    public void testSavedIndexDropsValuesNoLongerStored() throws IOException {
+        ItemIndex index = newIndex();
+        index.load(indexFile, Collections.<String> emptySet());
+        index.save();
+
+        ItemIndex reloaded = new ItemIndex(Arrays.asList("status", "amount"));
+        reloaded.load(indexFile, new HashSet<String>(Arrays.asList("item-1", "item-3")));
+
+        List<Object> keys = reloaded.query(new ItemQuery(10).setOrderByField("amount", true));
+        assertEquals(Arrays.asList("item-1", "item-3"), keys);
+    }
+
+    public void testLongKeysAreReturnedAsStored() throws IOException {
+        ItemIndex index = new ItemIndex(Arrays.asList("status", "amount"));
+        index.put(1L, item(10, 1, "2016-02-03 08:00:00", "open", 30));
+        index.put(2L, item(10, 2, "2016-02-01 08:00:00", "closed", 10));
+
+        ItemQuery byAmount = new ItemQuery(10).setOrderByField("amount", true);
+        assertEquals(Arrays.<Object> asList(1L, 2L), index.query(byAmount));
+
+        index.load(indexFile, Collections.<String> emptySet());
+        index.save();
+
+        ItemIndex reloaded = new ItemIndex(Arrays.asList("status", "amount"));
+        reloaded.load(indexFile, new HashSet<String>(Arrays.asList("1", "2")));
+        assertEquals(Arrays.<Object> asList(1L, 2L), reloaded.query(byAmount));
+
+        reloaded.remove(1L);
+        assertEquals(Collections.<Object> singletonList(2L), reloaded.query(byAmount));
+    }
+
+}
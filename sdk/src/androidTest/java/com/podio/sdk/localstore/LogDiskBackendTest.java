@@ -0,0 +1,167 @@
+package com.podio.sdk.localstore;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LogDiskBackendTest extends AndroidTestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File(System.getProperty("java.io.tmpdir"), "log-disk-backend-test-" + System.nanoTime());
+        assertTrue(directory.mkdirs());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        LocalStoreRequest.deleteDirectoryContent(directory);
+        directory.delete();
+        super.tearDown();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes();
+    }
+
+    private static void assertValue(String expected, byte[] actual) {
+        assertNotNull(actual);
+        assertTrue(Arrays.equals(bytes(expected), actual));
+    }
+
+    public void testValuesSurviveReopening() throws IOException {
+        LogDiskBackend backend = LogDiskBackend.open(directory, 1024);
+        backend.write("a", bytes("first"));
+        backend.write("b", bytes("second"));
+        backend.write("a", bytes("third"));
+        backend.delete("b");
+
+        LogDiskBackend reopened = LogDiskBackend.open(directory, 1024);
+        assertValue("third", reopened.read("a"));
+        assertNull(reopened.read("b"));
+        assertEquals(1, reopened.size());
+    }
+
+    public void testTornWriteIsDiscardedOnRecovery() throws IOException {
+        LogDiskBackend backend = LogDiskBackend.open(directory, 1024);
+        backend.write("a", bytes("intact"));
+        backend.write("b", bytes("torn"));
+
+        File segment = directory.listFiles()[0];
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        file.setLength(file.length() - 2);
+        file.close();
+
+        LogDiskBackend reopened = LogDiskBackend.open(directory, 1024);
+        assertValue("intact", reopened.read("a"));
+        assertNull(reopened.read("b"));
+
+        // The log must still be writable after the torn record has been cut off.
+        reopened.write("c", bytes("appended"));
+        assertValue("appended", LogDiskBackend.open(directory, 1024).read("c"));
+    }
+
+    public void testCompactionReclaimsGarbageSegments() throws IOException {
+        LogDiskBackend backend = LogDiskBackend.open(directory, 64);
+
+        for (int i = 0; i < 10; i++) {
+            backend.write("key", bytes("value " + i));
+        }
+
+        backend.write("kept", bytes("kept value"));
+        backend.write("removed", bytes("removed value"));
+        backend.delete("removed");
+        int segmentCount = backend.getSegmentCount();
+
+        while (backend.needsMaintenance()) {
+            backend.maintain();
+        }
+
+        assertTrue(backend.getSegmentCount() < segmentCount);
+        assertValue("value 9", backend.read("key"));
+        assertValue("kept value", backend.read("kept"));
+
+        LogDiskBackend reopened = LogDiskBackend.open(directory, 64);
+        assertValue("value 9", reopened.read("key"));
+        assertValue("kept value", reopened.read("kept"));
+        assertNull(reopened.read("removed"));
+    }
+
+    public void testClearRemovesAllValues() throws IOException {
+        LogDiskBackend backend = LogDiskBackend.open(directory, 1024);
+        backend.write("a", bytes("value"));
+        backend.clear();
+
+        assertNull(backend.read("a"));
+        backend.write("b", bytes("value"));
+        assertNull(LogDiskBackend.open(directory, 1024).read("a"));
+        assertValue("value", LogDiskBackend.open(directory, 1024).read("b"));
+    }
+
+    public void testBatchesSpanSegmentsAndSurviveReopening() throws IOException {
+        LogDiskBackend backend = LogDiskBackend.open(directory, 64);
+        Map<Object, byte[]> values = new LinkedHashMap<Object, byte[]>();
+
+        for (int i = 0; i < 10; i++) {
+            values.put("key " + i, bytes("value " + i));
+        }
+
+        backend.writeAll(values);
+        backend.deleteAll(Arrays.asList("key 2", "key 5", "missing"));
+        assertTrue(backend.getSegmentCount() > 1);
+
+        LogDiskBackend reopened = LogDiskBackend.open(directory, 64);
+        Map<Object, byte[]> read = reopened.readAll(Arrays.asList("key 1", "key 2", "key 9"));
+        assertEquals(2, read.size());
+        assertValue("value 1", read.get("key 1"));
+        assertValue("value 9", read.get("key 9"));
+        assertEquals(8, reopened.size());
+    }
+
+    public void testConcurrentReadsReturnTheirOwnValues() throws Exception {
+        final LogDiskBackend backend = LogDiskBackend.open(directory, 1024);
+
+        for (int i = 0; i < 20; i++) {
+            backend.write("key " + i, bytes("value " + i));
+        }
+
+        final AtomicInteger failures = new AtomicInteger(0);
+        Thread[] threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int round = 0; round < 50; round++) {
+                            int i = (round + offset) % 20;
+
+                            if (!Arrays.equals(bytes("value " + i), backend.read("key " + i))) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, failures.get());
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.podio.sdk.localstore;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+public class QuotaDiskBackendTest extends AndroidTestCase {
+
+    private File directory;
+    private File metadataFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File(System.getProperty("java.io.tmpdir"), "quota-disk-backend-test-" + System.nanoTime());
+        metadataFile = new File(directory.getPath() + ".access");
+        assertTrue(directory.mkdirs());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        LocalStoreRequest.deleteDirectoryContent(directory);
+        directory.delete();
+        metadataFile.delete();
+        super.tearDown();
+    }
+
+    private QuotaDiskBackend open(long maxBytes, LocalStore.EvictionPolicy policy) throws IOException {
+        return QuotaDiskBackend.open(new FileDiskBackend(directory), metadataFile, maxBytes, policy);
+    }
+
+    private static byte[] bytes(int size) {
+        return new byte[size];
+    }
+
+    public void testLeastRecentlyUsedValuesAreEvicted() throws IOException {
+        QuotaDiskBackend backend = open(300, LocalStore.EvictionPolicy.LEAST_RECENTLY_USED);
+        backend.write("a", bytes(100));
+        backend.write("b", bytes(100));
+        backend.write("c", bytes(100));
+        backend.onAccess("a");
+        backend.write("d", bytes(100));
+
+        assertTrue(backend.needsMaintenance());
+        backend.maintain();
+
+        assertEquals(200, backend.getUsedBytes());
+        assertNotNull(backend.read("a"));
+        assertNull(backend.read("b"));
+        assertNull(backend.read("c"));
+        assertNotNull(backend.read("d"));
+    }
+
+    public void testLeastFrequentlyUsedValuesAreEvicted() throws IOException {
+        QuotaDiskBackend backend = open(250, LocalStore.EvictionPolicy.LEAST_FREQUENTLY_USED);
+        backend.write("a", bytes(100));
+        backend.write("b", bytes(100));
+        backend.onAccess("a");
+        backend.onAccess("a");
+        backend.write("c", bytes(100));
+
+        backend.maintain();
+
+        assertNotNull(backend.read("a"));
+        assertNull(backend.read("b"));
+        assertNotNull(backend.read("c"));
+    }
+
+    public void testExistingValuesAreEvictedAfterReopening() throws IOException {
+        QuotaDiskBackend backend = open(1000, LocalStore.EvictionPolicy.LEAST_RECENTLY_USED);
+        backend.write("a", bytes(100));
+        backend.write("b", bytes(100));
+        backend.write("c", bytes(100));
+        backend.onAccess("a");
+        backend.maintain();
+
+        QuotaDiskBackend reopened = open(250, LocalStore.EvictionPolicy.LEAST_RECENTLY_USED);
+        assertEquals(300, reopened.getUsedBytes());
+        assertTrue(reopened.needsMaintenance());
+        reopened.maintain();
+
+        // The saved access metadata keeps "a" as the most recently used value.
+        assertNotNull(reopened.read("a"));
+        assertNull(reopened.read("b"));
+        assertFalse(reopened.needsMaintenance());
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.podio.sdk.localstore;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+public class ShardedFileDiskBackendTest extends AndroidTestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File(System.getProperty("java.io.tmpdir"), "sharded-disk-backend-test-" + System.nanoTime());
+        assertTrue(directory.mkdirs());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        LocalStoreRequest.deleteDirectoryContent(directory);
+        directory.delete();
+        super.tearDown();
+    }
+
+    public void testLongKeysGetShortShardedFileNames() throws IOException {
+        char[] longKey = new char[1000];
+        Arrays.fill(longKey, 'k');
+        String key = new String(longKey);
+
+        ShardedFileDiskBackend backend = ShardedFileDiskBackend.open(directory);
+        backend.write(key, "value".getBytes());
+
+        assertTrue(Arrays.equals("value".getBytes(), backend.read(key)));
+        assertNull(backend.read("other key"));
+
+        File outerShard = directory.listFiles()[0];
+        File innerShard = outerShard.listFiles()[0];
+        File entry = innerShard.listFiles()[0];
+        assertEquals(2, outerShard.getName().length());
+        assertEquals(2, innerShard.getName().length());
+        assertEquals(40, entry.getName().length());
+    }
+
+    public void testFlatStoreIsMigratedInPlace() throws IOException {
+        FileDiskBackend flat = new FileDiskBackend(directory);
+        flat.write("item/1?x=y", "first".getBytes());
+        flat.write("item 2", "second".getBytes());
+
+        ShardedFileDiskBackend backend = ShardedFileDiskBackend.open(directory);
+
+        assertTrue(Arrays.equals("first".getBytes(), backend.read("item/1?x=y")));
+        assertTrue(Arrays.equals("second".getBytes(), backend.read("item 2")));
+        assertNull(flat.read("item 2"));
+
+        Map<String, Long> sizes = backend.getEntrySizes();
+        assertEquals(2, sizes.size());
+        assertEquals(5L, (long) sizes.get("item/1?x=y"));
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.podio.sdk.localstore;
+
+import android.test.AndroidTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ValueCodecTest extends AndroidTestCase {
+
+    private static final class Item {
+        private String title;
+    }
+
+    private static Item newItem(int titleLength) {
+        Item item = new Item();
+        char[] title = new char[titleLength];
+        Arrays.fill(title, 'a');
+        item.title = new String(title);
+        return item;
+    }
+
+    private static void assertRoundTrip(LocalStore.Compression compression) throws IOException {
+        Item item = newItem(1000);
+        byte[] json = LocalStoreRequest.serializeValue(item);
+        byte[] encoded = new ValueCodec(compression, 100).encode(json);
+
+        assertTrue(encoded.length < json.length);
+        assertEquals(json.length, ValueCodec.getDecodedLength(encoded));
+        assertEquals(item.title, LocalStoreRequest.deserializeValue(encoded, Item.class).title);
+    }
+
+    public void testDeflatedValuesRoundTrip() throws IOException {
+        assertRoundTrip(LocalStore.Compression.DEFLATE);
+    }
+
+    public void testGzippedValuesRoundTrip() throws IOException {
+        assertRoundTrip(LocalStore.Compression.GZIP);
+    }
+
+    public void testValuesBelowThresholdStayPlainJson() throws IOException {
+        byte[] json = LocalStoreRequest.serializeValue(newItem(10));
+        byte[] encoded = new ValueCodec(LocalStore.Compression.GZIP, 100).encode(json);
+
+        assertTrue(Arrays.equals(json, encoded));
+        assertEquals(json.length, ValueCodec.getDecodedLength(encoded));
+        assertEquals(newItem(10).title, LocalStoreRequest.deserializeValue(encoded, Item.class).title);
+    }
+
+}
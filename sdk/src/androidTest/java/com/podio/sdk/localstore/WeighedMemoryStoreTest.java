@@ -0,0 +1,86 @@
+package com.podio.sdk.localstore;
+
+import android.test.AndroidTestCase;
+
+public class WeighedMemoryStoreTest extends AndroidTestCase {
+
+    public void testSerializedSizeIsUsedAsWeight() {
+        WeighedMemoryStore store = new WeighedMemoryStore(100, Weigher.JSON_SIZE);
+        store.put("a", "value a", 40);
+        store.put("b", "value b", 40);
+        assertEquals(80, store.size());
+
+        store.put("c", "value c", 40);
+
+        assertEquals(80, store.size());
+        assertNull(store.get("a"));
+        assertNotNull(store.get("b"));
+        assertNotNull(store.get("c"));
+    }
+
+    public void testReplacedValueIsSubtractedWithItsOwnWeight() {
+        WeighedMemoryStore store = new WeighedMemoryStore(100, Weigher.JSON_SIZE);
+        store.put("a", "small", 10);
+        store.put("a", "large", 60);
+        assertEquals(60, store.size());
+
+        store.remove("a");
+        assertEquals(0, store.size());
+    }
+
+    public void testPerEntryWeigherLimitsEntryCount() {
+        WeighedMemoryStore store = new WeighedMemoryStore(3, new Weigher.PerEntry(1));
+
+        for (int i = 0; i < 5; i++) {
+            store.put("key " + i, "value " + i, 1000);
+        }
+
+        assertEquals(3, store.size());
+        assertNull(store.get("key 1"));
+        assertNotNull(store.get("key 4"));
+    }
+
+    public void testValuesPutWithoutSizeAreWeighedOnce() {
+        WeighedMemoryStore store = new WeighedMemoryStore(1000, Weigher.JSON_SIZE);
+        store.put("a", "abc");
+
+        // The JSON representation of the string includes the quotes.
+        assertEquals(5, store.size());
+        store.evictAll();
+        assertEquals(0, store.size());
+    }
+
+    public void testRePutValueIsWeighedAgain() {
+        WeighedMemoryStore store = new WeighedMemoryStore(1000, Weigher.JSON_SIZE);
+        String value = "value";
+        store.put("a", value, -1);
+        assertEquals(7, store.size());
+
+        store.put("a", value, 40);
+        assertEquals(40, store.size());
+
+        store.remove("a");
+        assertEquals(0, store.size());
+    }
+
+    public void testFallbackWeightIsInUtf8Bytes() {
+        WeighedMemoryStore store = new WeighedMemoryStore(1000, Weigher.JSON_SIZE);
+        store.put("a", "\u00e5\u00e6", -1);
+
+        // Two quotes and two characters of two bytes each.
+        assertEquals(6, store.size());
+    }
+
+    public void testProvisionalWeightIsCorrectedOnRePut() {
+        WeighedMemoryStore store = new WeighedMemoryStore(1000, Weigher.JSON_SIZE);
+        String value = "new value";
+        store.put("a", "old value", 40);
+
+        store.putProvisionally("a", value);
+        assertEquals(40, store.size());
+
+        store.put("a", value, 10);
+        assertEquals(10, store.size());
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.podio.sdk.localstore;
+
+import android.test.AndroidTestCase;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriteBehindBufferTest extends AndroidTestCase {
+
+    public void testRepeatedWritesToSameKeyAreCoalesced() {
+        WriteBehindBuffer buffer = new WriteBehindBuffer(10, 60000L, new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+
+        buffer.put("a", "first");
+        buffer.put("b", "other");
+        buffer.put("a", "second");
+
+        assertEquals(2, buffer.size());
+        assertEquals("second", buffer.get("a"));
+
+        Map<Object, Object> batch = buffer.drain();
+        assertEquals(2, batch.size());
+        assertEquals("second", batch.get("a"));
+        assertEquals(0, buffer.size());
+    }
+
+    public void testFullBatchRequestsFlush() {
+        final AtomicInteger flushes = new AtomicInteger(0);
+        WriteBehindBuffer buffer = new WriteBehindBuffer(3, 60000L, new Runnable() {
+            @Override
+            public void run() {
+                flushes.incrementAndGet();
+            }
+        });
+
+        buffer.put("a", "value");
+        buffer.put("b", "value");
+        assertEquals(0, flushes.get());
+
+        buffer.put("c", "value");
+        assertEquals(1, flushes.get());
+    }
+
+    public void testDelayedFlushIsRequested() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        WriteBehindBuffer buffer = new WriteBehindBuffer(100, 10L, new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+
+        buffer.put("a", "value");
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    public void testRestoreDoesNotOverwriteNewerValues() {
+        WriteBehindBuffer buffer = new WriteBehindBuffer(10, 60000L, new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+
+        buffer.put("a", "old");
+        buffer.put("b", "old");
+        Map<Object, Object> batch = buffer.drain();
+        buffer.put("a", "new");
+        buffer.restore(batch);
+
+        assertEquals("new", buffer.get("a"));
+        assertEquals("old", buffer.get("b"));
+    }
+
+    public void testSwallowedFlushRequestIsRearmed() throws InterruptedException {
+        final Semaphore flushes = new Semaphore(0);
+        WriteBehindBuffer buffer = new WriteBehindBuffer(100, 10L, new Runnable() {
+            @Override
+            public void run() {
+                // Stands in for a flusher with a flush already under way.
+                flushes.release();
+            }
+        });
+
+        buffer.put("a", "value");
+        buffer.drain();
+        buffer.put("b", "value");
+
+        // The timer armed by the first value fires while its flush is under way.
+        assertTrue(flushes.tryAcquire(5, TimeUnit.SECONDS));
+        assertEquals(1, buffer.size());
+
+        buffer.rearm();
+        assertTrue(flushes.tryAcquire(5, TimeUnit.SECONDS));
+    }
+
+    public void testEmptyBufferIsNotRearmed() throws InterruptedException {
+        final Semaphore flushes = new Semaphore(0);
+        WriteBehindBuffer buffer = new WriteBehindBuffer(100, 10L, new Runnable() {
+            @Override
+            public void run() {
+                flushes.release();
+            }
+        });
+
+        buffer.rearm();
+        assertFalse(flushes.tryAcquire(200, TimeUnit.MILLISECONDS));
+    }
+
+}
@@ -20,6 +20,9 @@ import com.podio.sdk.domain.field.ProgressField;
 import com.podio.sdk.domain.field.RelationshipField;
 import com.podio.sdk.domain.field.TextField;
 import com.podio.sdk.domain.field.UndefinedField;
+import com.podio.sdk.domain.notification.CommentNotification;
+import com.podio.sdk.domain.notification.Notification;
+import com.podio.sdk.domain.notification.UnknownNotification;
 import com.podio.sdk.json.JsonParser;
 
 public class JsonParserTest extends AndroidTestCase {
@@ -153,4 +156,63 @@ public class JsonParserTest extends AndroidTestCase {
         assertContent(item, TextField.class, Field.Type.text);
     }
 
+    public void testParseJsonBytesToTextField() throws Exception {
+        byte[] json = "{fields:[{type:'text'}]}".getBytes("UTF-8");
+        Item item = JsonParser.fromJson(json, "UTF-8", Item.class);
+
+        assertContent(item, TextField.class, Field.Type.text);
+    }
+
+    public void testParseJsonBytesToCalculationFieldWhenValuesPrecedeConfig() throws Exception {
+        byte[] json = "{fields:[{type:'calculation',values:[{value:'12.0000'}],config:{settings:{return_type:'number'}}}]}".getBytes("UTF-8");
+        Item item = JsonParser.fromJson(json, "UTF-8", Item.class);
+
+        assertContent(item, CalculationField.class, Field.Type.calculation);
+        CalculationField field = (CalculationField) item.getFields().get(0);
+        assertEquals(1, field.valuesCount());
+        assertEquals(NumberField.Value.class, field.getValue(0).getClass());
+        assertEquals("12.0000", ((NumberField.Value) field.getValue(0)).getValue());
+    }
+
+    public void testParseJsonBytesToCalculationFieldWhenConfigPrecedesValues() throws Exception {
+        byte[] json = "{fields:[{type:'calculation',config:{settings:{return_type:'number'}},values:[{value:'12.0000'}]}]}".getBytes("UTF-8");
+        Item item = JsonParser.fromJson(json, "UTF-8", Item.class);
+
+        assertContent(item, CalculationField.class, Field.Type.calculation);
+        CalculationField field = (CalculationField) item.getFields().get(0);
+        assertEquals(1, field.valuesCount());
+        assertEquals(NumberField.Value.class, field.getValue(0).getClass());
+    }
+
+    public void testParseJsonBytesToCalculationFieldWhenValuesPrecedeType() throws Exception {
+        byte[] json = "{fields:[{values:[{value:'12.0000'}],type:'calculation',config:{settings:{return_type:'number'}}}]}".getBytes("UTF-8");
+        Item item = JsonParser.fromJson(json, "UTF-8", Item.class);
+
+        assertContent(item, CalculationField.class, Field.Type.calculation);
+        CalculationField field = (CalculationField) item.getFields().get(0);
+        assertEquals(NumberField.Value.class, field.getValue(0).getClass());
+    }
+
+    public void testParseEmptyJsonBytesReturnsNull() throws Exception {
+        assertNull(JsonParser.fromJson(new byte[0], "UTF-8", Item.class));
+        assertNull(JsonParser.fromJson((byte[]) null, "UTF-8", Item.class));
+    }
+
+    public void testParseJsonStringToNotificationWhenDataPrecedesType() {
+        String json = "{text:'hi',data:{comment_id:5},type:'comment'}";
+        Notification notification = JsonParser.fromJson(json, Notification.class);
+
+        assertEquals(CommentNotification.class, notification.getClass());
+        assertEquals("hi", notification.getText());
+        assertNotNull(((CommentNotification) notification).getComment());
+    }
+
+    public void testParseJsonStringToUnknownNotificationWhenUnknownType() {
+        String json = "{type:'nonsense',text:'hi'}";
+        Notification notification = JsonParser.fromJson(json, Notification.class);
+
+        assertEquals(UnknownNotification.class, notification.getClass());
+        assertEquals("hi", notification.getText());
+    }
+
 }
@@ -0,0 +1,85 @@
+package com.podio.sdk.volley;
+
+import android.test.AndroidTestCase;
+
+import com.android.volley.NetworkResponse;
+import com.podio.sdk.Request;
+import com.podio.sdk.json.JsonParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CoalescedRequestTest extends AndroidTestCase {
+
+    private static VolleyRequest<Integer[]> newSharedRequest() {
+        return VolleyRequest.newRequest(null, Request.Method.GET, "https://api.podio.com/item/1", null, Integer[].class);
+    }
+
+    private static Request.ResultListener<Integer[]> newResultListener(final List<String> log, final String name, final boolean isConsuming) {
+        return new Request.ResultListener<Integer[]>() {
+            @Override
+            public boolean onRequestPerformed(Integer[] content) {
+                log.add(name + ":" + content.length);
+                return isConsuming;
+            }
+        };
+    }
+
+    private static void respond(VolleyRequest<Integer[]> request, String json) {
+        request.parseNetworkResponse(new NetworkResponse(json.getBytes()));
+        request.deliverResponse(JsonParser.fromJson(json, Integer[].class));
+    }
+
+    public void testEachFollowerDeliversToItsOwnListeners() {
+        VolleyRequest<Integer[]> sharedRequest = newSharedRequest();
+        VolleyRequest<Integer[]> first = sharedRequest.newFollower();
+        VolleyRequest<Integer[]> second = sharedRequest.newFollower();
+        List<String> log = new ArrayList<String>();
+
+        first.withResultListener(newResultListener(log, "first", true))
+                .withResultListener(newResultListener(log, "first, bubbled", false));
+        second.withResultListener(newResultListener(log, "second", false));
+
+        respond(sharedRequest, "[1,2,3]");
+
+        assertEquals(2, log.size());
+        assertEquals("first:3", log.get(0));
+        assertEquals("second:3", log.get(1));
+
+        // Listeners attached once the result has been delivered are called right away.
+        first.withResultListener(newResultListener(log, "late", false));
+        assertEquals("late:3", log.get(2));
+    }
+
+    public void testSharedRequestIsOnlyCanceledByItsLastFollower() {
+        VolleyRequest<Integer[]> sharedRequest = newSharedRequest();
+        VolleyRequest<Integer[]> first = sharedRequest.newFollower();
+        VolleyRequest<Integer[]> second = sharedRequest.newFollower();
+        List<String> log = new ArrayList<String>();
+
+        first.withResultListener(newResultListener(log, "first", false));
+        second.withResultListener(newResultListener(log, "second", false));
+
+        first.cancel();
+        assertTrue(first.isCanceled());
+        assertFalse(sharedRequest.isCanceled());
+
+        respond(sharedRequest, "[1]");
+        assertEquals(1, log.size());
+        assertEquals("second:1", log.get(0));
+
+        second.cancel();
+        assertTrue(sharedRequest.isCanceled());
+    }
+
+    public void testAbandonedRequestTakesNoNewFollowers() {
+        VolleyRequest<Integer[]> sharedRequest = newSharedRequest();
+        VolleyRequest<Integer[]> follower = sharedRequest.newFollower();
+
+        follower.cancel();
+
+        assertTrue(sharedRequest.isCanceled());
+        assertNull(sharedRequest.newFollower());
+    }
+
+}
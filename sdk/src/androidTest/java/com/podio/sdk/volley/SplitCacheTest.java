@@ -0,0 +1,58 @@
+package com.podio.sdk.volley;
+
+import android.test.AndroidTestCase;
+
+import com.android.volley.Cache;
+
+import java.util.HashMap;
+
+public class SplitCacheTest extends AndroidTestCase {
+
+    private static final class MapCache implements Cache {
+        private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+        @Override
+        public Entry get(String key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public void put(String key, Entry entry) {
+            entries.put(key, entry);
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public void invalidate(String key, boolean fullExpire) {
+        }
+
+        @Override
+        public void remove(String key) {
+            entries.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            entries.clear();
+        }
+    }
+
+    public void testClearingApiCacheKeepsOtherEntries() {
+        VolleySplitCache cache = new VolleySplitCache(new MapCache(), new MapCache());
+        String apiKey = VolleySplitCache.API_KEY_PREFIX + "https://api.podio.com/item/1";
+        String imageKey = "https://files.podio.com/1";
+
+        cache.put(apiKey, new Cache.Entry());
+        cache.put(imageKey, new Cache.Entry());
+        assertNotNull(cache.get(apiKey));
+
+        cache.getApiCache().clear();
+
+        assertNull(cache.get(apiKey));
+        assertNotNull(cache.get(imageKey));
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.podio.sdk.volley;
+
+import android.test.AndroidTestCase;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.NetworkResponse;
+import com.podio.sdk.Request;
+import com.podio.sdk.Session;
+import com.podio.sdk.internal.Utils;
+import com.podio.sdk.json.JsonParser;
+
+import java.util.HashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class TokenManagerTest extends AndroidTestCase {
+
+    /**
+     * A client that records the requests it's asked to enqueue rather than sending them.
+     */
+    private static final class RecordingClient extends VolleyClient {
+        private final BlockingQueue<com.android.volley.Request<?>> requests = new LinkedBlockingQueue<com.android.volley.Request<?>>();
+        private final BlockingQueue<VolleyRequest<Void>> refreshes = new LinkedBlockingQueue<VolleyRequest<Void>>();
+
+        @Override
+        protected void addToRequestQueue(com.android.volley.Request<?> request) {
+            requests.add(request);
+        }
+
+        @Override
+        protected void addToRefreshQueue(com.android.volley.Request<?> request) {
+        }
+
+        @Override
+        VolleyRequest<Void> newRefreshRequest() {
+            VolleyRequest<Void> request = VolleyRequest.newAuthRequest(null, "https://api.podio.com/oauth/token", new HashMap<String, String>());
+            refreshes.add(request);
+            return request;
+        }
+    }
+
+    private static VolleyRequest<Integer[]> newRequest() {
+        return VolleyRequest.newRequest(null, Request.Method.GET, "https://api.podio.com/item/1", null, Integer[].class);
+    }
+
+    private static void respond(VolleyRequest<Integer[]> request, String json) {
+        request.parseNetworkResponse(new NetworkResponse(json.getBytes()));
+        request.deliverResponse(JsonParser.fromJson(json, Integer[].class));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Session.set(null, null, 0L);
+        super.tearDown();
+    }
+
+    public void testRequestIsParkedUntilAboutToExpireTokenIsRefreshed() throws Exception {
+        Session.set("old", "refresh", Utils.currentTimeSeconds() + 10);
+        RecordingClient client = new RecordingClient();
+        VolleyTokenManager tokenManager = new VolleyTokenManager(client);
+        VolleyRequest<Integer[]> request = newRequest();
+
+        tokenManager.enqueue(request);
+
+        VolleyRequest<Void> refresh = client.refreshes.poll(5, TimeUnit.SECONDS);
+        assertNotNull(refresh);
+        assertTrue(client.requests.isEmpty());
+
+        Session.set("new", "refresh", Utils.currentTimeSeconds() + 3600);
+        refresh.deliverResponse(null);
+
+        assertSame(request, client.requests.poll(5, TimeUnit.SECONDS));
+    }
+
+    public void testRejectedRequestIsResentAsFreshCopy() throws Exception {
+        Session.set("new", "refresh", Utils.currentTimeSeconds() + 3600);
+        RecordingClient client = new RecordingClient();
+        VolleyTokenManager tokenManager = new VolleyTokenManager(client);
+        VolleyRequest<Integer[]> request = newRequest();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        request.withResultListener(new Request.ResultListener<Integer[]>() {
+            @Override
+            public boolean onRequestPerformed(Integer[] content) {
+                latch.countDown();
+                return false;
+            }
+        });
+
+        tokenManager.enqueue(request);
+        assertSame(request, client.requests.poll(5, TimeUnit.SECONDS));
+
+        // The request was sent without the current access token and is rejected.
+        request.deliverError(request.parseNetworkError(new AuthFailureError()));
+
+        com.android.volley.Request<?> retry = client.requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(retry);
+        assertNotSame(request, retry);
+        assertEquals(request.getUrl(), retry.getUrl());
+
+        // The result of the copy is delivered to the listeners of the rejected request.
+        @SuppressWarnings("unchecked")
+        VolleyRequest<Integer[]> copy = (VolleyRequest<Integer[]>) retry;
+        respond(copy, "[1,2]");
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    public void testClearingParkedRequestsDeliversError() throws Exception {
+        Session.set("old", "refresh", Utils.currentTimeSeconds() + 10);
+        RecordingClient client = new RecordingClient();
+        VolleyTokenManager tokenManager = new VolleyTokenManager(client);
+        VolleyRequest<Integer[]> request = newRequest();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        request.withErrorListener(new Request.ErrorListener() {
+            @Override
+            public boolean onErrorOccurred(Throwable cause) {
+                latch.countDown();
+                return false;
+            }
+        });
+
+        tokenManager.enqueue(request);
+        assertNotNull(client.refreshes.poll(5, TimeUnit.SECONDS));
+
+        tokenManager.clearParkedRequests();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(client.requests.isEmpty());
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.podio.sdk;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A size-bounded pool of mutable bitmaps that are no longer in use, so their memory can be reused
+ * when decoding other images, see {@link android.graphics.BitmapFactory.Options#inBitmap}. This
+ * saves the allocation, and eventually the garbage collection, of a new buffer for each decode.
+ * <p/>
+ * The bitmaps are bucketed by the size of their buffer. From KitKat on, any bitmap with a large
+ * enough buffer can be reused, but a bitmap is never handed out for an image needing less than a
+ * quarter of its buffer. Before KitKat, only a bitmap of the very same dimensions and
+ * configuration can be reused. Once the pool grows too large, the bitmaps that have been pooled
+ * the longest are dropped.
+ *
+ */
+final class BitmapPool {
+
+    // A pooled bitmap may be at most this many times larger than needed.
+    private static final int MAX_SIZE_MULTIPLE = 4;
+
+    /**
+     * Returns the number of bytes per pixel of the given bitmap configuration. The deprecated
+     * ARGB_4444 configuration, which the image loader never decodes to, counts as four bytes.
+     */
+    static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        } else if (config == Bitmap.Config.RGB_565) {
+            return 2;
+        } else {
+            return 4;
+        }
+    }
+
+    private static int getBufferSize(Bitmap bitmap) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT ?
+                bitmap.getAllocationByteCount() :
+                bitmap.getByteCount();
+    }
+
+    private final int maxSizeInBytes;
+
+    // The pooled bitmaps by the size of their buffer, and all of them in the order they were pooled.
+    private final TreeMap<Integer, LinkedList<Bitmap>> bitmapsBySize;
+    private final LinkedList<Bitmap> bitmaps;
+
+    private int sizeInBytes;
+    private int hitCount;
+    private int missCount;
+
+    /**
+     * Creates a new, empty bitmap pool.
+     *
+     * @param maxSizeInBytes
+     *         The max total size of the pooled bitmaps.
+     */
+    BitmapPool(int maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.bitmapsBySize = new TreeMap<Integer, LinkedList<Bitmap>>();
+        this.bitmaps = new LinkedList<Bitmap>();
+        this.sizeInBytes = 0;
+        this.hitCount = 0;
+        this.missCount = 0;
+    }
+
+    /**
+     * Adds the given bitmap to the pool, unless it can't be reused. The bitmap must not be used by
+     * anyone else once it has been pooled.
+     *
+     * @param bitmap
+     *         The bitmap that is no longer in use.
+     *
+     * @return Whether the bitmap was pooled.
+     */
+    synchronized boolean put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmaps.contains(bitmap)) {
+            return false;
+        }
+
+        int size = getBufferSize(bitmap);
+        if (size <= 0 || size > maxSizeInBytes) {
+            return false;
+        }
+
+        LinkedList<Bitmap> bucket = bitmapsBySize.get(size);
+        if (bucket == null) {
+            bucket = new LinkedList<Bitmap>();
+            bitmapsBySize.put(size, bucket);
+        }
+
+        bucket.add(bitmap);
+        bitmaps.add(bitmap);
+        sizeInBytes += size;
+        trim();
+
+        return true;
+    }
+
+    /**
+     * Takes a bitmap that can be reused for decoding an image of the given dimensions and
+     * configuration out of the pool.
+     *
+     * @param width
+     *         The width of the decoded image.
+     * @param height
+     *         The height of the decoded image.
+     * @param config
+     *         The configuration of the decoded image, or null for the platform default.
+     *
+     * @return A reusable bitmap or null if there is none.
+     */
+    synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap.Config decodeConfig = config != null ? config : Bitmap.Config.ARGB_8888;
+        int requiredSize = width * height * getBytesPerPixel(decodeConfig);
+        Bitmap bitmap = null;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            Map.Entry<Integer, LinkedList<Bitmap>> bucket = bitmapsBySize.ceilingEntry(requiredSize);
+
+            if (bucket != null && bucket.getKey() <= (long) requiredSize * MAX_SIZE_MULTIPLE) {
+                bitmap = bucket.getValue().getFirst();
+            }
+        } else {
+            LinkedList<Bitmap> bucket = bitmapsBySize.get(requiredSize);
+
+            if (bucket != null) {
+                for (Bitmap candidate : bucket) {
+                    if (candidate.getWidth() == width && candidate.getHeight() == height && candidate.getConfig() == decodeConfig) {
+                        bitmap = candidate;
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (bitmap != null) {
+            remove(bitmap);
+            hitCount++;
+        } else {
+            missCount++;
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Drops all pooled bitmaps.
+     */
+    synchronized void clear() {
+        bitmapsBySize.clear();
+        bitmaps.clear();
+        sizeInBytes = 0;
+    }
+
+    /**
+     * Returns the number of times a reusable bitmap was found.
+     */
+    synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of times no reusable bitmap was found.
+     */
+    synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the total size of the pooled bitmaps.
+     */
+    synchronized int getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    private void remove(Bitmap bitmap) {
+        int size = getBufferSize(bitmap);
+        LinkedList<Bitmap> bucket = bitmapsBySize.get(size);
+
+        if (bucket != null && bucket.remove(bitmap) && bucket.isEmpty()) {
+            bitmapsBySize.remove(size);
+        }
+
+        bitmaps.remove(bitmap);
+        sizeInBytes -= size;
+    }
+
+    /**
+     * Drops the bitmaps that have been pooled the longest until the rest fit in the max size.
+     */
+    private void trim() {
+        Iterator<Bitmap> iterator = bitmaps.iterator();
+
+        while (sizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            int size = getBufferSize(bitmap);
+            LinkedList<Bitmap> bucket = bitmapsBySize.get(size);
+
+            if (bucket != null && bucket.remove(bitmap) && bucket.isEmpty()) {
+                bitmapsBySize.remove(size);
+            }
+
+            iterator.remove();
+            sizeInBytes -= size;
+        }
+    }
+
+}
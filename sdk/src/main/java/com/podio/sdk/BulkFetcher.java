@@ -0,0 +1,390 @@
+package com.podio.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Fetches the entire content of an offset/limit based API endpoint by fanning out concurrent page
+ * requests. The first page is fetched on its own in order to learn the total number of items, then
+ * the remaining pages are requested in parallel, with at most a configurable number of requests in
+ * flight at any time. Pages are delivered to the page listeners strictly in order, as soon as all
+ * preceding pages have been delivered, so the caller can process the content as a stream.
+ * <p/>
+ * Note that the effective parallelism is also capped by the number of network threads of the
+ * underlying {@link Client}. To bound the number of pages held while waiting for a slow page, no
+ * page further than a configurable number of pages past the next page to deliver is requested
+ * until that page has arrived.
+ * <p/>
+ * The first error cancels the fetch; no further pages are requested or delivered.
+ *
+ * @param <T>
+ *         The type of items the fetcher delivers.
+ *
+ */
+public class BulkFetcher<T> {
+
+    /**
+     * A page source that also knows the total number of items available from the endpoint.
+     *
+     * @param <R>
+     *         The type of the raw API result.
+     * @param <T>
+     *         The type of items in a page.
+     *
+     */
+    public static abstract class CountingSource<R, T> extends Pager.Source<R, T> {
+
+        /**
+         * Extracts the total number of items available from a raw API result.
+         *
+         * @param result
+         *         The result as delivered by the API. May be null.
+         *
+         * @return The total number of items.
+         */
+        protected abstract int getTotalCount(R result);
+
+    }
+
+    /**
+     * Callback interface for the completion event of a bulk fetch.
+     *
+     */
+    public interface DoneListener {
+
+        /**
+         * Called once all pages have been delivered. The implementation must return boolean true
+         * if the event is to be consumed (no subsequent listeners in the chain will be called) or
+         * boolean false to allow bubbling of the event.
+         *
+         * @param itemCount
+         *         The total number of delivered items.
+         *
+         * @return Boolean flag whether the event is to be consumed or not by this implementation.
+         */
+        public boolean onDone(int itemCount);
+
+    }
+
+    private static final int DEFAULT_MAX_PARALLEL_REQUESTS = 4;
+    private static final int DEFAULT_MAX_PAGES_AHEAD = 8;
+
+    private final CountingSource<?, T> source;
+    private final Object deliveryLock;
+    private final int pageSize;
+    private final TreeMap<Integer, List<T>> pendingPages;
+    private final ArrayList<Pager.PageListener<T>> pageListeners;
+    private final ArrayList<Request.ErrorListener> errorListeners;
+    private final ArrayList<DoneListener> doneListeners;
+
+    private int maxParallelRequests;
+    private int maxPagesAhead;
+    private int pageCount;
+    private int nextPageToRequest;
+    private int nextPageToDeliver;
+    private int requestsInFlight;
+    private int deliveredItemCount;
+    private boolean isStarted;
+    private boolean isStopped;
+
+    /**
+     * Creates a new bulk fetcher.
+     *
+     * @param source
+     *         The source to fetch pages from.
+     * @param pageSize
+     *         The number of items to fetch per page.
+     */
+    public BulkFetcher(CountingSource<?, T> source, int pageSize) {
+        if (source == null) {
+            throw new NullPointerException("source mustn't be null");
+        }
+
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be greater than zero");
+        }
+
+        this.source = source;
+        this.deliveryLock = new Object();
+        this.pageSize = pageSize;
+        this.pendingPages = new TreeMap<Integer, List<T>>();
+        this.pageListeners = new ArrayList<Pager.PageListener<T>>();
+        this.errorListeners = new ArrayList<Request.ErrorListener>();
+        this.doneListeners = new ArrayList<DoneListener>();
+        this.maxParallelRequests = DEFAULT_MAX_PARALLEL_REQUESTS;
+        this.maxPagesAhead = DEFAULT_MAX_PAGES_AHEAD;
+        this.pageCount = 1;
+        this.nextPageToRequest = 0;
+        this.nextPageToDeliver = 0;
+        this.requestsInFlight = 0;
+        this.deliveredItemCount = 0;
+        this.isStarted = false;
+        this.isStopped = false;
+    }
+
+    /**
+     * Sets the max number of page requests to have in flight at any time.
+     *
+     * @param requestCount
+     *         The max number of parallel requests. Defaults to four.
+     *
+     * @return This fetcher, to enable convenient chaining.
+     */
+    public synchronized BulkFetcher<T> withMaxParallelRequests(int requestCount) {
+        this.maxParallelRequests = Math.max(1, requestCount);
+        return this;
+    }
+
+    /**
+     * Sets how far ahead of the next page to deliver pages may be requested. Pages that arrive
+     * ahead of that page are held in memory until it arrives, hence this caps the number of
+     * held pages.
+     *
+     * @param pageCount
+     *         The max number of pages past the next page to deliver to request. Defaults to eight.
+     *
+     * @return This fetcher, to enable convenient chaining.
+     */
+    public synchronized BulkFetcher<T> withMaxPagesAhead(int pageCount) {
+        this.maxPagesAhead = Math.max(0, pageCount);
+        return this;
+    }
+
+    /**
+     * Adds a listener that will be called, in order, for each fetched page.
+     *
+     * @param pageListener
+     *         The listener to add.
+     *
+     * @return This fetcher, to enable convenient chaining.
+     */
+    public synchronized BulkFetcher<T> withPageListener(Pager.PageListener<T> pageListener) {
+        if (pageListener != null) {
+            pageListeners.add(pageListener);
+        }
+
+        return this;
+    }
+
+    /**
+     * Adds a listener that will be called if any page fails to load.
+     *
+     * @param errorListener
+     *         The listener to add.
+     *
+     * @return This fetcher, to enable convenient chaining.
+     */
+    public synchronized BulkFetcher<T> withErrorListener(Request.ErrorListener errorListener) {
+        if (errorListener != null) {
+            errorListeners.add(errorListener);
+        }
+
+        return this;
+    }
+
+    /**
+     * Adds a listener that will be called once all pages have been delivered.
+     *
+     * @param doneListener
+     *         The listener to add.
+     *
+     * @return This fetcher, to enable convenient chaining.
+     */
+    public synchronized BulkFetcher<T> withDoneListener(DoneListener doneListener) {
+        if (doneListener != null) {
+            doneListeners.add(doneListener);
+        }
+
+        return this;
+    }
+
+    /**
+     * Starts fetching. Calling this method more than once has no effect.
+     *
+     * @return This fetcher, to enable convenient chaining.
+     */
+    public BulkFetcher<T> start() {
+        synchronized (this) {
+            if (isStarted) {
+                return this;
+            }
+
+            isStarted = true;
+            nextPageToRequest = 1;
+            requestsInFlight = 1;
+        }
+
+        requestPage(source, 0);
+        return this;
+    }
+
+    /**
+     * Stops fetching. Pages already in flight will be ignored once they arrive.
+     */
+    public synchronized void cancel() {
+        isStopped = true;
+        pendingPages.clear();
+    }
+
+    /**
+     * Returns whether this fetch has finished, either by delivering all pages, by failing or by
+     * being canceled.
+     *
+     * @return True if no more pages will be delivered, false otherwise.
+     */
+    public synchronized boolean isDone() {
+        return isStopped;
+    }
+
+    private <R> void requestPage(final CountingSource<R, T> source, final int pageIndex) {
+        source.getPage(pageSize, pageIndex * pageSize)
+                .withResultListener(new Request.ResultListener<R>() {
+                    @Override
+                    public boolean onRequestPerformed(R content) {
+                        onPageLoaded(pageIndex, content);
+                        return false;
+                    }
+                })
+                .withErrorListener(new Request.ErrorListener() {
+                    @Override
+                    public boolean onErrorOccurred(Throwable cause) {
+                        onPageFailed(cause);
+                        return false;
+                    }
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> void onPageLoaded(int pageIndex, R result) {
+        CountingSource<R, T> source = (CountingSource<R, T>) this.source;
+        List<T> items = source.getItems(result);
+
+        synchronized (this) {
+            if (isStopped) {
+                return;
+            }
+
+            requestsInFlight--;
+
+            if (pageIndex == 0) {
+                int totalCount = source.getTotalCount(result);
+                pageCount = Math.max(1, (totalCount + pageSize - 1) / pageSize);
+            }
+
+            pendingPages.put(pageIndex, items);
+        }
+
+        // Delivering first moves the fetch-ahead window forward.
+        deliverPages();
+        requestPages(source);
+    }
+
+    /**
+     * Requests as many of the remaining pages as the parallelism cap and the fetch-ahead window
+     * allow. The next page to deliver is always requested before any later one, so the window
+     * moves forward as soon as that page arrives.
+     */
+    private <R> void requestPages(CountingSource<R, T> source) {
+        ArrayList<Integer> pagesToRequest = new ArrayList<Integer>();
+
+        synchronized (this) {
+            if (isStopped) {
+                return;
+            }
+
+            while (nextPageToRequest < pageCount
+                    && nextPageToRequest <= nextPageToDeliver + maxPagesAhead
+                    && requestsInFlight < maxParallelRequests) {
+
+                pagesToRequest.add(nextPageToRequest);
+                nextPageToRequest++;
+                requestsInFlight++;
+            }
+        }
+
+        for (Integer index : pagesToRequest) {
+            requestPage(source, index);
+        }
+    }
+
+    private void onPageFailed(Throwable cause) {
+        ArrayList<Request.ErrorListener> listeners;
+
+        synchronized (this) {
+            if (isStopped) {
+                return;
+            }
+
+            isStopped = true;
+            pendingPages.clear();
+            listeners = new ArrayList<Request.ErrorListener>(errorListeners);
+        }
+
+        for (Request.ErrorListener listener : listeners) {
+            if (listener.onErrorOccurred(cause)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Delivers all pages that are contiguous with the ones already delivered. The delivery lock
+     * guarantees the page order even if results arrive on several threads.
+     */
+    private void deliverPages() {
+        synchronized (deliveryLock) {
+            ArrayList<Integer> indexes = new ArrayList<Integer>();
+            ArrayList<List<T>> pages = new ArrayList<List<T>>();
+            ArrayList<Pager.PageListener<T>> listeners;
+            boolean isDone;
+
+            synchronized (this) {
+                if (isStopped) {
+                    return;
+                }
+
+                while (pendingPages.containsKey(nextPageToDeliver)) {
+                    List<T> page = pendingPages.remove(nextPageToDeliver);
+                    indexes.add(nextPageToDeliver);
+                    pages.add(page);
+                    deliveredItemCount += page.size();
+                    nextPageToDeliver++;
+                }
+
+                isDone = nextPageToDeliver >= pageCount;
+                isStopped = isDone;
+                listeners = new ArrayList<Pager.PageListener<T>>(pageListeners);
+            }
+
+            for (int i = 0, size = indexes.size(); i < size; i++) {
+                for (Pager.PageListener<T> listener : listeners) {
+                    if (listener.onPageLoaded(indexes.get(i), pages.get(i))) {
+                        break;
+                    }
+                }
+            }
+
+            if (isDone) {
+                deliverDone();
+            }
+        }
+    }
+
+    private void deliverDone() {
+        ArrayList<DoneListener> listeners;
+        int itemCount;
+
+        synchronized (this) {
+            listeners = new ArrayList<DoneListener>(doneListeners);
+            itemCount = deliveredItemCount;
+        }
+
+        for (DoneListener listener : listeners) {
+            if (listener.onDone(itemCount)) {
+                break;
+            }
+        }
+    }
+
+}
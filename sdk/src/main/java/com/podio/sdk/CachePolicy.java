@@ -0,0 +1,61 @@
+package com.podio.sdk;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how a {@link CachingClient} combines the cached response of a GET request with a fresh
+ * one from the network.
+ *
+ */
+public final class CachePolicy {
+
+    enum Mode {
+        NETWORK_ONLY, CACHE_FIRST, CACHE_THEN_NETWORK, MAX_AGE
+    }
+
+    /**
+     * Always fetches the response from the network. The response is still cached, so it can be
+     * served by later requests with another policy.
+     */
+    public static final CachePolicy NETWORK_ONLY = new CachePolicy(Mode.NETWORK_ONLY, 0L);
+
+    /**
+     * Delivers the cached response, regardless of its age, and only fetches the response from the
+     * network if nothing is cached.
+     */
+    public static final CachePolicy CACHE_FIRST = new CachePolicy(Mode.CACHE_FIRST, 0L);
+
+    /**
+     * Delivers the cached response, if any, right away and then fetches the response from the
+     * network. The fresh response is delivered to the same result listeners once it arrives.
+     */
+    public static final CachePolicy CACHE_THEN_NETWORK = new CachePolicy(Mode.CACHE_THEN_NETWORK, 0L);
+
+    /**
+     * Creates a policy that delivers the cached response if it was fetched within the given time,
+     * and otherwise fetches the response from the network.
+     *
+     * @param maxAge
+     *         The max age of a cached response.
+     * @param unit
+     *         The unit of the max age.
+     *
+     * @return The policy.
+     */
+    public static CachePolicy maxAge(long maxAge, TimeUnit unit) {
+        if (maxAge < 0L) {
+            throw new IllegalArgumentException("maxAge mustn't be negative");
+        }
+
+        return new CachePolicy(Mode.MAX_AGE, unit.toMillis(maxAge));
+    }
+
+    final Mode mode;
+    final long maxAgeMillis;
+
+    private CachePolicy(Mode mode, long maxAgeMillis) {
+        this.mode = mode;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+}
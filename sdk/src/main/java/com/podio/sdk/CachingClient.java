@@ -0,0 +1,310 @@
+package com.podio.sdk;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Client} decorator that caches the responses of GET requests in a {@link Store},
+ * typically a {@link com.podio.sdk.localstore.LocalStore}, so screens can be rendered right away
+ * from disk and refreshed in the background. How the cache and the network are combined is decided
+ * per request by a {@link CachePolicy}; requests made through the plain {@link Client} interface
+ * use the default policy of the client.
+ * <p/>
+ * Responses are cached by the URI the filter of the request builds, along with the time they were
+ * fetched. Every successful GET request updates the cache, whatever its policy. A successful
+ * request of any other method drops the cached response of the same URI, as it most likely
+ * changed the resource.
+ * <p/>
+ * A cache that fails for whatever reason is treated as a cache miss. The cache is cleared when a
+ * new session is authenticated, as the cached responses may belong to another user, but it isn't
+ * tied to a session otherwise, so the store should still be erased when the user signs out.
+ *
+ */
+public class CachingClient implements Client {
+
+    private static final String FETCH_TIME_KEY_PREFIX = "fetched_at:";
+
+    // Failing cache writes are of no interest to anyone, the response simply isn't cached.
+    private static final Request.ErrorListener IGNORE_ERROR = new Request.ErrorListener() {
+        @Override
+        public boolean onErrorOccurred(Throwable cause) {
+            return true;
+        }
+    };
+
+    private final Client client;
+    private final Store store;
+    private final String scheme;
+    private final String authority;
+
+    // Bumped each time the cache is cleared, so responses fetched for an earlier session aren't
+    // cached once they arrive.
+    private final AtomicInteger generation;
+
+    private volatile CachePolicy defaultPolicy;
+
+    /**
+     * Creates a new caching client with a {@link CachePolicy#NETWORK_ONLY} default policy.
+     *
+     * @param client
+     *         The client performing the actual requests.
+     * @param store
+     *         The store to cache the responses in.
+     * @param scheme
+     *         The scheme the filters are built with.
+     * @param authority
+     *         The authority the filters are built with.
+     */
+    public CachingClient(Client client, Store store, String scheme, String authority) {
+        if (client == null) {
+            throw new NullPointerException("client mustn't be null");
+        }
+
+        if (store == null) {
+            throw new NullPointerException("store mustn't be null");
+        }
+
+        this.client = client;
+        this.store = store;
+        this.scheme = scheme;
+        this.authority = authority;
+        this.generation = new AtomicInteger(0);
+        this.defaultPolicy = CachePolicy.NETWORK_ONLY;
+    }
+
+    /**
+     * Sets the policy of the requests made without an explicit policy.
+     *
+     * @param policy
+     *         The default policy.
+     *
+     * @return This instance of the caching client, to enable convenient chaining.
+     */
+    public CachingClient withDefaultPolicy(CachePolicy policy) {
+        if (policy == null) {
+            throw new NullPointerException("policy mustn't be null");
+        }
+
+        this.defaultPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Drops all cached responses, e.g. because the session has changed and they may belong to
+     * another user. Responses of requests already under way aren't cached once they arrive.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+
+        try {
+            store.erase().withErrorListener(IGNORE_ERROR);
+        } catch (IllegalStateException e) {
+            // The store is closed, there is nothing to clear.
+        }
+    }
+
+    @Override
+    public Request<Void> authenticateWithUserCredentials(String username, String password) {
+        clear();
+        return client.authenticateWithUserCredentials(username, password);
+    }
+
+    @Override
+    public Request<Void> authenticateWithAppCredentials(String appId, String appToken) {
+        clear();
+        return client.authenticateWithAppCredentials(appId, appToken);
+    }
+
+    @Override
+    public Request<Void> authenticateWithTransferToken(String transferToken) {
+        clear();
+        return client.authenticateWithTransferToken(transferToken);
+    }
+
+    @Override
+    @Deprecated
+    public Request<Void> forceRefreshTokens() {
+        return client.forceRefreshTokens();
+    }
+
+    @Override
+    public <T> Request<T> request(Request.Method method, Filter filter, Object requestData, Class<T> classOfExpectedResult) {
+        return request(method, filter, requestData, classOfExpectedResult, defaultPolicy);
+    }
+
+    /**
+     * Performs a request with the given cache policy. The policy only applies to GET requests.
+     *
+     * @param method
+     *         The request method.
+     * @param filter
+     *         The filter describing the requested resource.
+     * @param requestData
+     *         The data to send, if any.
+     * @param classOfExpectedResult
+     *         The class to parse the response into.
+     * @param policy
+     *         How to combine the cache and the network.
+     *
+     * @return A ticket which the caller can use to identify this request with.
+     */
+    public <T> Request<T> request(Request.Method method, Filter filter, Object requestData, Class<T> classOfExpectedResult, CachePolicy policy) {
+        final String key = filter.buildUri(scheme, authority).toString();
+
+        if (method != Request.Method.GET) {
+            return client.request(method, filter, requestData, classOfExpectedResult)
+                    .withResultListener(new Request.ResultListener<T>() {
+                        @Override
+                        public boolean onRequestPerformed(T content) {
+                            invalidate(key);
+                            return false;
+                        }
+                    });
+        }
+
+        CachePolicy requestPolicy = policy != null ? policy : defaultPolicy;
+
+        if (requestPolicy.mode == CachePolicy.Mode.NETWORK_ONLY) {
+            final int requestGeneration = generation.get();
+
+            return client.request(method, filter, null, classOfExpectedResult)
+                    .withResultListener(new Request.ResultListener<T>() {
+                        @Override
+                        public boolean onRequestPerformed(T content) {
+                            cache(key, content, requestGeneration);
+                            return false;
+                        }
+                    });
+        }
+
+        CachingRequest<T> request = new CachingRequest<T>();
+
+        if (requestPolicy.mode == CachePolicy.Mode.MAX_AGE) {
+            readFreshFromCache(key, filter, classOfExpectedResult, requestPolicy.maxAgeMillis, request);
+        } else {
+            readFromCache(key, filter, classOfExpectedResult, requestPolicy.mode == CachePolicy.Mode.CACHE_THEN_NETWORK, request);
+        }
+
+        return request;
+    }
+
+    /**
+     * Delivers the cached response, if any, and fetches the response from the network if nothing
+     * is cached or if asked to.
+     */
+    private <T> void readFromCache(final String key, final Filter filter, final Class<T> classOfResult, final boolean alwaysFetch, final CachingRequest<T> request) {
+        try {
+            store.get(key, classOfResult)
+                    .withResultListener(new Request.ResultListener<T>() {
+                        @Override
+                        public boolean onRequestPerformed(T content) {
+                            if (content == null) {
+                                fetch(key, filter, classOfResult, request);
+                            } else if (alwaysFetch) {
+                                request.deliverCachedResult(content);
+                                fetch(key, filter, classOfResult, request);
+                            } else {
+                                request.deliverFinalResult(content);
+                            }
+
+                            return false;
+                        }
+                    })
+                    .withErrorListener(new Request.ErrorListener() {
+                        @Override
+                        public boolean onErrorOccurred(Throwable cause) {
+                            fetch(key, filter, classOfResult, request);
+                            return true;
+                        }
+                    });
+        } catch (IllegalStateException e) {
+            // The store is closed.
+            fetch(key, filter, classOfResult, request);
+        }
+    }
+
+    /**
+     * Delivers the cached response if it isn't older than the given max age, otherwise fetches the
+     * response from the network.
+     */
+    private <T> void readFreshFromCache(final String key, final Filter filter, final Class<T> classOfResult, final long maxAgeMillis, final CachingRequest<T> request) {
+        try {
+            store.get(FETCH_TIME_KEY_PREFIX + key, Long.class)
+                    .withResultListener(new Request.ResultListener<Long>() {
+                        @Override
+                        public boolean onRequestPerformed(Long fetchTime) {
+                            long age = fetchTime != null ? System.currentTimeMillis() - fetchTime : -1L;
+
+                            if (age >= 0L && age <= maxAgeMillis) {
+                                readFromCache(key, filter, classOfResult, false, request);
+                            } else {
+                                fetch(key, filter, classOfResult, request);
+                            }
+
+                            return false;
+                        }
+                    })
+                    .withErrorListener(new Request.ErrorListener() {
+                        @Override
+                        public boolean onErrorOccurred(Throwable cause) {
+                            fetch(key, filter, classOfResult, request);
+                            return true;
+                        }
+                    });
+        } catch (IllegalStateException e) {
+            // The store is closed.
+            fetch(key, filter, classOfResult, request);
+        }
+    }
+
+    /**
+     * Fetches the response from the network, caches it and delivers it as the final result.
+     */
+    private <T> void fetch(final String key, Filter filter, Class<T> classOfResult, final CachingRequest<T> request) {
+        if (!request.claimFetch()) {
+            return;
+        }
+
+        final int requestGeneration = generation.get();
+        Request<T> networkRequest = client.request(Request.Method.GET, filter, null, classOfResult);
+        request.attachNetworkRequest(networkRequest);
+
+        networkRequest
+                .withResultListener(new Request.ResultListener<T>() {
+                    @Override
+                    public boolean onRequestPerformed(T content) {
+                        cache(key, content, requestGeneration);
+                        request.deliverFinalResult(content);
+                        return false;
+                    }
+                })
+                .withErrorListener(new Request.ErrorListener() {
+                    @Override
+                    public boolean onErrorOccurred(Throwable cause) {
+                        return request.deliverError(cause);
+                    }
+                });
+    }
+
+    private void cache(String key, Object content, int requestGeneration) {
+        if (content == null || requestGeneration != generation.get()) {
+            return;
+        }
+
+        try {
+            store.set(key, content).withErrorListener(IGNORE_ERROR);
+            store.set(FETCH_TIME_KEY_PREFIX + key, System.currentTimeMillis()).withErrorListener(IGNORE_ERROR);
+        } catch (IllegalStateException e) {
+            // The store is closed, the response simply isn't cached.
+        }
+    }
+
+    private void invalidate(String key) {
+        try {
+            store.remove(key).withErrorListener(IGNORE_ERROR);
+            store.remove(FETCH_TIME_KEY_PREFIX + key).withErrorListener(IGNORE_ERROR);
+        } catch (IllegalStateException e) {
+            // The store is closed, there is nothing to invalidate.
+        }
+    }
+
+}
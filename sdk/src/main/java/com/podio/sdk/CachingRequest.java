@@ -0,0 +1,245 @@
+package com.podio.sdk;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request handed out by a {@link CachingClient}. Unlike other requests it may deliver two
+ * results: a cached one, which is delivered to the result listeners without releasing them, and
+ * then a final one, e.g. fetched from the network. Listeners added after the cached result was
+ * delivered are called with it immediately, and are still called with the final result.
+ * <p/>
+ * Errors are only ever caused by the network request. They're delivered to the error listeners of
+ * this request first, and only bubble on to the global error listeners of the network client if
+ * none of them consumes the error.
+ *
+ * @param <T>
+ *         The type of the result.
+ *
+ */
+class CachingRequest<T> implements Request<T> {
+
+    private final ArrayList<ResultListener<T>> resultListeners;
+    private final ArrayList<ErrorListener> errorListeners;
+    private final ArrayList<SessionListener> sessionListeners;
+
+    private Request<T> networkRequest;
+    private T result;
+    private Throwable error;
+    private boolean hasResult;
+    private boolean isFetching;
+    private boolean isDone;
+
+    CachingRequest() {
+        this.resultListeners = new ArrayList<ResultListener<T>>();
+        this.errorListeners = new ArrayList<ErrorListener>();
+        this.sessionListeners = new ArrayList<SessionListener>();
+        this.hasResult = false;
+        this.isFetching = false;
+        this.isDone = false;
+    }
+
+    @Override
+    public Request<T> withResultListener(ResultListener<T> resultListener) {
+        if (resultListener == null) {
+            return this;
+        }
+
+        T content;
+
+        synchronized (this) {
+            if (!isDone) {
+                resultListeners.add(resultListener);
+            }
+
+            if (!hasResult) {
+                return this;
+            }
+
+            content = result;
+        }
+
+        resultListener.onRequestPerformed(content);
+        return this;
+    }
+
+    @Override
+    public Request<T> withErrorListener(ErrorListener errorListener) {
+        if (errorListener == null) {
+            return this;
+        }
+
+        synchronized (this) {
+            if (!isDone) {
+                errorListeners.add(errorListener);
+                return this;
+            }
+
+            if (error == null) {
+                return this;
+            }
+        }
+
+        errorListener.onErrorOccurred(error);
+        return this;
+    }
+
+    @Override
+    public Request<T> withSessionListener(SessionListener sessionListener) {
+        Request<T> request;
+
+        synchronized (this) {
+            request = networkRequest;
+
+            if (request == null) {
+                sessionListeners.add(sessionListener);
+                return this;
+            }
+        }
+
+        request.withSessionListener(sessionListener);
+        return this;
+    }
+
+    @Override
+    public synchronized T waitForResult(long maxSeconds) throws PodioError {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Math.max(maxSeconds, 0));
+        long remaining = deadline - System.currentTimeMillis();
+
+        try {
+            while (!isDone && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        } catch (InterruptedException e) {
+            throw new PodioError(e);
+        }
+
+        if (error != null) {
+            throw error instanceof PodioError ? (PodioError) error : new PodioError(error);
+        }
+
+        return result;
+    }
+
+    /**
+     * Claims the network fetch of this request, so it's never fetched twice even if the cache
+     * lookup reports both a missing result and an error.
+     *
+     * @return Boolean true if the caller should fetch the result, boolean false if the fetch has
+     * already been claimed.
+     */
+    synchronized boolean claimFetch() {
+        if (isFetching || isDone) {
+            return false;
+        }
+
+        isFetching = true;
+        return true;
+    }
+
+    /**
+     * Hooks this request up with the network request that will deliver its final result or error.
+     * Any session listeners added so far are handed over to the network request.
+     *
+     * @param request
+     *         The network request.
+     */
+    void attachNetworkRequest(Request<T> request) {
+        ArrayList<SessionListener> listeners;
+
+        synchronized (this) {
+            networkRequest = request;
+            listeners = new ArrayList<SessionListener>(sessionListeners);
+            sessionListeners.clear();
+        }
+
+        for (SessionListener listener : listeners) {
+            request.withSessionListener(listener);
+        }
+    }
+
+    /**
+     * Delivers a cached result, keeping the listeners for the final result.
+     *
+     * @param content
+     *         The cached result.
+     */
+    void deliverCachedResult(T content) {
+        deliverResult(content, false);
+    }
+
+    /**
+     * Delivers the final result and releases all listeners.
+     *
+     * @param content
+     *         The final result.
+     */
+    void deliverFinalResult(T content) {
+        deliverResult(content, true);
+    }
+
+    /**
+     * Delivers the error of the network request and releases all listeners.
+     *
+     * @param cause
+     *         The cause of the error.
+     *
+     * @return Boolean true if one of the error listeners consumed the error, boolean false
+     * otherwise.
+     */
+    boolean deliverError(Throwable cause) {
+        ArrayList<ErrorListener> listeners;
+
+        synchronized (this) {
+            if (isDone) {
+                return true;
+            }
+
+            error = cause;
+            isDone = true;
+            listeners = new ArrayList<ErrorListener>(errorListeners);
+            errorListeners.clear();
+            resultListeners.clear();
+            notifyAll();
+        }
+
+        for (ErrorListener listener : listeners) {
+            if (listener.onErrorOccurred(cause)) {
+                // The callback consumed the event, stop the bubbling.
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void deliverResult(T content, boolean isFinal) {
+        ArrayList<ResultListener<T>> listeners;
+
+        synchronized (this) {
+            if (isDone) {
+                return;
+            }
+
+            result = content;
+            hasResult = true;
+            listeners = new ArrayList<ResultListener<T>>(resultListeners);
+
+            if (isFinal) {
+                isDone = true;
+                resultListeners.clear();
+                errorListeners.clear();
+                notifyAll();
+            }
+        }
+
+        for (ResultListener<T> listener : listeners) {
+            if (listener.onRequestPerformed(content)) {
+                // The callback consumed the event, stop the bubbling.
+                break;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+package com.podio.sdk;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+/**
+ * Decodes bitmaps for the {@link ImageLoader}, optionally downsampled to a target size. When a
+ * target size is given, the image is first decoded for its bounds only, and then decoded with the
+ * largest power of two sample size that still keeps the bitmap at least as large as the target.
+ * This way a thumbnail of a large camera photo never allocates the memory of the full resolution
+ * image.
+ * <p/>
+ * A target width or height of zero or less leaves that dimension unconstrained.
+ * <p/>
+ * Images can also be decoded into a bitmap taken from a {@link BitmapPool}, rather than into a
+ * newly allocated one. Such decodes produce mutable bitmaps, which can be pooled in turn once they
+ * are no longer used.
+ *
+ */
+final class ImageDecoder {
+
+    private ImageDecoder() {
+        // Hiding the constructor.
+    }
+
+    /**
+     * Returns the sample size to decode an image of the given size with, in order to fit the given
+     * target size.
+     *
+     * @param width
+     *         The width of the encoded image.
+     * @param height
+     *         The height of the encoded image.
+     * @param targetWidth
+     *         The min width of the decoded bitmap, or zero or less if unconstrained.
+     * @param targetHeight
+     *         The min height of the decoded bitmap, or zero or less if unconstrained.
+     *
+     * @return The power of two sample size, one if the image shouldn't be downsampled.
+     */
+    static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        if (width <= 0 || height <= 0 || !isTargeted(targetWidth, targetHeight)) {
+            return 1;
+        }
+
+        int sampleSize = 1;
+
+        while (fits(width / (sampleSize * 2), targetWidth) && fits(height / (sampleSize * 2), targetHeight)) {
+            sampleSize *= 2;
+        }
+
+        return sampleSize;
+    }
+
+    /**
+     * Returns whether any dimension of the given target size is constrained.
+     */
+    static boolean isTargeted(int targetWidth, int targetHeight) {
+        return targetWidth > 0 || targetHeight > 0;
+    }
+
+    /**
+     * Decodes the given encoded image.
+     *
+     * @param data
+     *         The encoded image.
+     * @param targetWidth
+     *         The target width, or zero or less if unconstrained.
+     * @param targetHeight
+     *         The target height, or zero or less if unconstrained.
+     * @param config
+     *         The preferred bitmap configuration, or null for the platform default.
+     * @param pool
+     *         The pool to take a reusable bitmap from, or null to always allocate a new one.
+     *
+     * @return The decoded bitmap or null if the image couldn't be decoded.
+     */
+    static Bitmap decodeByteArray(byte[] data, int targetWidth, int targetHeight, Bitmap.Config config, BitmapPool pool) {
+        BitmapFactory.Options options = newOptions(config);
+
+        if (isTargeted(targetWidth, targetHeight) || pool != null) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            prepareDecode(options, targetWidth, targetHeight, pool);
+        }
+
+        try {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (IllegalArgumentException e) {
+            if (!releaseReusableBitmap(options, pool)) {
+                throw e;
+            }
+
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+    }
+
+    /**
+     * Decodes the image in the given file.
+     *
+     * @param path
+     *         The local file system path of the image.
+     * @param targetWidth
+     *         The target width, or zero or less if unconstrained.
+     * @param targetHeight
+     *         The target height, or zero or less if unconstrained.
+     * @param pool
+     *         The pool to take a reusable bitmap from, or null to always allocate a new one.
+     *
+     * @return The decoded bitmap or null if the image couldn't be decoded.
+     */
+    static Bitmap decodeFile(String path, int targetWidth, int targetHeight, BitmapPool pool) {
+        BitmapFactory.Options options = newOptions(null);
+
+        if (isTargeted(targetWidth, targetHeight) || pool != null) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(path, options);
+            prepareDecode(options, targetWidth, targetHeight, pool);
+        }
+
+        try {
+            return BitmapFactory.decodeFile(path, options);
+        } catch (IllegalArgumentException e) {
+            if (!releaseReusableBitmap(options, pool)) {
+                throw e;
+            }
+
+            return BitmapFactory.decodeFile(path, options);
+        }
+    }
+
+    /**
+     * Decodes the given drawable resource.
+     *
+     * @param resources
+     *         The resources to decode the drawable from.
+     * @param id
+     *         The id of the drawable resource.
+     * @param targetWidth
+     *         The target width, or zero or less if unconstrained.
+     * @param targetHeight
+     *         The target height, or zero or less if unconstrained.
+     *
+     * @return The decoded bitmap or null if the resource couldn't be decoded.
+     */
+    static Bitmap decodeResource(Resources resources, int id, int targetWidth, int targetHeight) {
+        BitmapFactory.Options options = newOptions(null);
+
+        if (isTargeted(targetWidth, targetHeight)) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeResource(resources, id, options);
+            prepareDecode(options, targetWidth, targetHeight, null);
+        }
+
+        return BitmapFactory.decodeResource(resources, id, options);
+    }
+
+    /**
+     * Scales the given bitmap down so its longer edge gets the given length, keeping its aspect
+     * ratio.
+     *
+     * @param bitmap
+     *         The bitmap to scale.
+     * @param edge
+     *         The length of the longer edge of the scaled bitmap.
+     *
+     * @return A new, scaled bitmap, the given bitmap if it already has the requested size, or null
+     * if it's too small to be scaled down.
+     */
+    static Bitmap scaleToFit(Bitmap bitmap, int edge) {
+        int longerEdge = Math.max(bitmap.getWidth(), bitmap.getHeight());
+
+        if (edge <= 0 || longerEdge < edge) {
+            return null;
+        }
+
+        if (longerEdge == edge) {
+            return bitmap;
+        }
+
+        float scale = (float) edge / longerEdge;
+        int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+
+        return Bitmap.createScaledBitmap(bitmap, width, height, true);
+    }
+
+    private static boolean fits(int sampledSize, int targetSize) {
+        return targetSize <= 0 || sampledSize >= targetSize;
+    }
+
+    private static BitmapFactory.Options newOptions(Bitmap.Config config) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+
+        if (config != null) {
+            options.inPreferredConfig = config;
+        }
+
+        return options;
+    }
+
+    /**
+     * Turns the given options from a bounds-only decode into a downsampled decode, reusing a pooled
+     * bitmap if there is a compatible one.
+     */
+    private static void prepareDecode(BitmapFactory.Options options, int targetWidth, int targetHeight, BitmapPool pool) {
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+
+        if (pool == null || options.outWidth <= 0 || options.outHeight <= 0) {
+            return;
+        }
+
+        options.inMutable = true;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            // Round up, so the reused bitmap is large enough whatever rounding the decoder does.
+            int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+            int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+            options.inBitmap = pool.get(width, height, options.inPreferredConfig);
+        } else if (options.inSampleSize == 1 && ("image/jpeg".equals(options.outMimeType) || "image/png".equals(options.outMimeType))) {
+            // Older platforms only reuse bitmaps for full size JPEG and PNG images.
+            options.inBitmap = pool.get(options.outWidth, options.outHeight, options.inPreferredConfig);
+        }
+    }
+
+    /**
+     * Returns the reusable bitmap of a failed decode to the pool, so the decode can be retried with
+     * a newly allocated bitmap.
+     *
+     * @return Whether there was a reusable bitmap to blame for the failure.
+     */
+    private static boolean releaseReusableBitmap(BitmapFactory.Options options, BitmapPool pool) {
+        if (options.inBitmap == null) {
+            return false;
+        }
+
+        pool.put(options.inBitmap);
+        options.inBitmap = null;
+        return true;
+    }
+
+}
@@ -0,0 +1,237 @@
+package com.podio.sdk;
+
+import com.podio.sdk.internal.DiskCacheUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded disk cache of encoded images, used by the {@link ImageLoader} as a second tier
+ * below its in-memory cache. Each image is stored as is, in a file named after a SHA-1 hash of its
+ * key. Once the total size exceeds the max size, the least recently used images are deleted.
+ * <p/>
+ * The recency of an image is kept as the modification time of its file, so the eviction order
+ * survives the app being restarted. The directory is only scanned on the first access, which
+ * should be made from a worker thread.
+ *
+ */
+final class ImageDiskCache {
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maxSizeInBytes;
+
+    // The sizes of the cached files, by file name, least recently used first.
+    private final LinkedHashMap<String, Long> fileSizes;
+
+    private long sizeInBytes;
+    private boolean isInitialized;
+
+    /**
+     * Creates a new disk cache in the given directory, which is created on demand.
+     *
+     * @param directory
+     *         The directory to store the images in.
+     * @param maxSizeInBytes
+     *         The max total size of the images.
+     */
+    ImageDiskCache(File directory, long maxSizeInBytes) {
+        this.directory = directory;
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.fileSizes = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        this.sizeInBytes = 0L;
+        this.isInitialized = false;
+    }
+
+    /**
+     * Returns the encoded image cached for the given key, marking it as the most recently used.
+     *
+     * @param key
+     *         The key of the image.
+     *
+     * @return The encoded image or null if it isn't cached or couldn't be read.
+     */
+    synchronized byte[] get(String key) {
+        initialize();
+
+        String name = DiskCacheUtils.hash(key);
+        if (fileSizes.get(name) == null) {
+            return null;
+        }
+
+        File file = new File(directory, name);
+
+        try {
+            byte[] data = DiskCacheUtils.readFile(file);
+            if (data.length == 0) {
+                throw new IOException("Empty file: " + file);
+            }
+
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            // The file is broken or gone, forget about it.
+            deleteFile(name);
+            return null;
+        }
+    }
+
+    /**
+     * Caches the given encoded image, evicting the least recently used images if the cache grows
+     * too large. A failing write is ignored, the image simply isn't cached.
+     *
+     * @param key
+     *         The key of the image.
+     * @param data
+     *         The encoded image.
+     */
+    synchronized void put(String key, byte[] data) {
+        if (data == null || data.length == 0 || data.length > maxSizeInBytes) {
+            return;
+        }
+
+        initialize();
+
+        if (!directory.isDirectory()) {
+            return;
+        }
+
+        String name = DiskCacheUtils.hash(key);
+        File file = new File(directory, name);
+        File tempFile = new File(directory, name + TEMP_FILE_SUFFIX);
+
+        try {
+            FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+
+            try {
+                fileOutputStream.write(data);
+            } finally {
+                fileOutputStream.close();
+            }
+
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Couldn't rename " + tempFile + " to " + file);
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            return;
+        }
+
+        Long previousSize = fileSizes.put(name, (long) data.length);
+        sizeInBytes += data.length - (previousSize != null ? previousSize : 0L);
+        trim();
+    }
+
+    /**
+     * Removes the image cached for the given key, if any.
+     *
+     * @param key
+     *         The key of the image.
+     */
+    synchronized void remove(String key) {
+        initialize();
+        deleteFile(DiskCacheUtils.hash(key));
+    }
+
+    /**
+     * Removes all cached images.
+     */
+    synchronized void clear() {
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+
+        fileSizes.clear();
+        sizeInBytes = 0L;
+        isInitialized = false;
+    }
+
+    /**
+     * Returns the total size of the cached images.
+     */
+    synchronized long getSizeInBytes() {
+        initialize();
+        return sizeInBytes;
+    }
+
+    /**
+     * Scans the directory for cached images, ordering them by their modification time. Left over
+     * temporary files from interrupted writes are deleted.
+     */
+    private void initialize() {
+        if (isInitialized) {
+            return;
+        }
+
+        isInitialized = true;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        final Map<File, Long> lastModified = new LinkedHashMap<File, Long>();
+        for (File file : files) {
+            lastModified.put(file, file.lastModified());
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long left = lastModified.get(lhs);
+                long right = lastModified.get(rhs);
+                return left < right ? -1 : (left == right ? 0 : 1);
+            }
+        });
+
+        for (File file : files) {
+            if (!file.isFile()) {
+                continue;
+            }
+
+            if (file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                file.delete();
+            } else {
+                long length = file.length();
+                fileSizes.put(file.getName(), length);
+                sizeInBytes += length;
+            }
+        }
+
+        trim();
+    }
+
+    /**
+     * Deletes the least recently used images until the rest fit in the eviction target.
+     */
+    private void trim() {
+        for (String name : DiskCacheUtils.selectVictims(fileSizes, sizeInBytes, maxSizeInBytes, Integer.MAX_VALUE)) {
+            deleteFile(name);
+        }
+    }
+
+    private void deleteFile(String name) {
+        Long size = fileSizes.remove(name);
+
+        if (size != null) {
+            sizeInBytes -= size;
+        }
+
+        new File(directory, name).delete();
+    }
+
+}
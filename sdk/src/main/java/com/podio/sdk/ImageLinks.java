@@ -0,0 +1,137 @@
+package com.podio.sdk;
+
+import com.podio.sdk.domain.Byline;
+import com.podio.sdk.domain.Conversation;
+import com.podio.sdk.domain.File;
+import com.podio.sdk.domain.Profile;
+import com.podio.sdk.internal.Utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Collects the image links of domain objects, e.g. to prefetch the avatars of a list of
+ * conversations with {@link ImageLoader#prefetch(Collection, ImageLoader.Size)}. The thumbnail
+ * links are used, as they're the ones the API defined image sizes apply to. Each link is only
+ * included once and objects without an image are skipped.
+ *
+ */
+public final class ImageLinks {
+
+    private ImageLinks() {
+        // Hiding the constructor.
+    }
+
+    /**
+     * Returns the avatar links of the given profiles.
+     *
+     * @param profiles
+     *         The profiles, e.g. the participants of a conversation.
+     *
+     * @return The thumbnail links of the profile images.
+     */
+    public static List<String> ofProfiles(Collection<Profile> profiles) {
+        LinkedHashSet<String> links = new LinkedHashSet<String>();
+
+        if (profiles != null) {
+            for (Profile profile : profiles) {
+                if (profile != null) {
+                    add(links, profile.getThumbnailUrl());
+                }
+            }
+        }
+
+        return new ArrayList<String>(links);
+    }
+
+    /**
+     * Returns the avatar links of the given bylines.
+     *
+     * @param bylines
+     *         The bylines, e.g. the creators of stream events or comments.
+     *
+     * @return The thumbnail links of the byline images.
+     */
+    public static List<String> ofBylines(Collection<Byline> bylines) {
+        LinkedHashSet<String> links = new LinkedHashSet<String>();
+
+        if (bylines != null) {
+            for (Byline byline : bylines) {
+                if (byline != null) {
+                    add(links, byline.getImage());
+                }
+            }
+        }
+
+        return new ArrayList<String>(links);
+    }
+
+    /**
+     * Returns the thumbnail links of the given files. Files that have no thumbnail, e.g. most
+     * non-image files, are skipped.
+     *
+     * @param files
+     *         The files, e.g. the attachments of an item or a message.
+     *
+     * @return The thumbnail links of the files.
+     */
+    public static List<String> ofFiles(Collection<File> files) {
+        LinkedHashSet<String> links = new LinkedHashSet<String>();
+
+        if (files != null) {
+            for (File file : files) {
+                add(links, file);
+            }
+        }
+
+        return new ArrayList<String>(links);
+    }
+
+    /**
+     * Returns the avatar links of the creators and the participants of the given conversations.
+     *
+     * @param conversations
+     *         The conversations, e.g. the ones shown in a conversation list.
+     *
+     * @return The thumbnail links of the profile images.
+     */
+    public static List<String> ofConversations(Collection<Conversation> conversations) {
+        LinkedHashSet<String> links = new LinkedHashSet<String>();
+
+        if (conversations != null) {
+            for (Conversation conversation : conversations) {
+                if (conversation == null) {
+                    continue;
+                }
+
+                Byline creator = conversation.getCreator();
+                if (creator != null) {
+                    add(links, creator.getImage());
+                }
+
+                for (Profile participant : conversation.getParticipants()) {
+                    if (participant != null) {
+                        add(links, participant.getThumbnailUrl());
+                    }
+                }
+            }
+        }
+
+        return new ArrayList<String>(links);
+    }
+
+    private static void add(LinkedHashSet<String> links, File file) {
+        if (file != null) {
+            add(links, file.getThumbnailLink());
+        }
+    }
+
+    private static void add(LinkedHashSet<String> links, String link) {
+        if (Utils.notEmpty(link)) {
+            links.add(link);
+        }
+    }
+
+}
@@ -3,36 +3,55 @@ package com.podio.sdk;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.util.DisplayMetrics;
 import android.util.LruCache;
 
-import com.android.volley.Cache;
+import com.android.volley.AuthFailureError;
 import com.android.volley.NetworkResponse;
 import com.android.volley.NoConnectionError;
+import com.android.volley.ParseError;
 import com.android.volley.RequestQueue;
+import com.android.volley.Response;
 import com.android.volley.TimeoutError;
 import com.android.volley.VolleyError;
 import com.android.volley.toolbox.HttpHeaderParser;
-import com.android.volley.toolbox.HurlStack;
-import com.android.volley.toolbox.Volley;
+import com.android.volley.toolbox.ImageRequest;
 import com.podio.sdk.internal.Utils;
+import com.podio.sdk.volley.VolleyTransport;
 
+import java.io.File;
 import java.io.UnsupportedEncodingException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import javax.net.ssl.SSLSocketFactory;
 
 /**
  * This class is responsible for loading and caching images from the Internet. The loader can fetch
- * any image from any url (doesn't have to be one from a Podio CDN). This implementation relies
- * heavily on the Android Volley Image Loader implementation.
+ * any image from any url (doesn't have to be one from a Podio CDN). The images are downloaded
+ * through the Volley request queue shared with the rest of the SDK.
+ * <p/>
+ * Loaded images are cached in two tiers: the decoded bitmaps in memory and the encoded network
+ * images on disk. The disk cache survives the app being restarted, so images that have been seen
+ * before are shown without touching the network.
  *
  */
 public class ImageLoader {
     private static final String LOCAL_RESOURCE_PREFIX = "local.resource.";
+    private static final String DISK_CACHE_DIRECTORY = "podio-images";
+    private static final long DEFAULT_DISK_CACHE_MAX_SIZE_IN_BYTES = 20L * 1024L * 1024L;
+    private static final Bitmap.Config NETWORK_IMAGE_CONFIG = Bitmap.Config.RGB_565;
+
+    // Prefetches are throttled so they never hold up more than a few visible loads.
+    private static final int MAX_ACTIVE_PREFETCHES = 2;
 
     /**
      * The SDK provided image loader callback interface.
@@ -43,10 +62,12 @@ public class ImageLoader {
          * Called when an image was successfully loaded, either from the cache or the network. This
          * method may be called with a null-pointer bitmap to signal that the image wasn't found in
          * the cache, hence, giving an opportunity to the caller to show either some kind of
-         * progress indication or a default image.
+         * progress indication or a default image. If a smaller size variant of the image is
+         * cached, that one is passed instead of the null-pointer, to be shown until the requested
+         * size is loaded.
          *
          * @param bitmap
-         *         The requested bitmap or null if no cache-hit.
+         *         The requested bitmap, a smaller variant of it or null if no cache-hit.
          * @param url
          *         The image identifier that was passed along with the corresponding image load
          *         request. This can be the url, the file path or the resource id (as a string).
@@ -71,40 +92,84 @@ public class ImageLoader {
         public void onErrorOccurred(PodioError podioError, String url);
     }
 
+    /**
+     * A handle to a batch of images being prefetched, see {@link ImageLoader#prefetch(Collection,
+     * Size)}.
+     */
+    public final class Prefetch {
+        private boolean isCancelled;
+
+        private Prefetch() {
+            this.isCancelled = false;
+        }
+
+        /**
+         * Stops prefetching the images of this batch. Images already being loaded for a visible
+         * request are still loaded. This method MUST be called from the main thread.
+         */
+        public void cancel() {
+            if (!isCancelled) {
+                isCancelled = true;
+                cancelPrefetch(this);
+            }
+        }
+
+        /**
+         * Returns whether this batch has been cancelled.
+         */
+        public boolean isCancelled() {
+            return isCancelled;
+        }
+    }
+
     /**
      * This enumeration offers any API approved default sizes of images. The caller should know what
      * type of image is fetched and use the appropriate size - if any - for it. The definitions will
      * give a hint on what type of images they apply to. Further details can be found at <a
      * href="https://developers.podio.com/doc/files">the documentation page</a>.
+     * <p/>
+     * The square sizes are variants of one and the same image, so a cached variant of an image can
+     * stand in for another: a larger one is scaled down rather than fetching the smaller one, and a
+     * smaller one is shown while the larger one is being fetched.
      */
     public static enum Size {
-        DEFAULT("default"),
-        UNSPECIFIED(""),
-        AVATAR_TINY("tiny"),
-        AVATAR_SMALL("small"),
-        AVATAR_MEDIUM("medium"),
-        AVATAR_LARGE("large"),
-        ITEM_MEDIUM("medium"),
-        ITEM_BADGE("badge"),
-        ITEM_EXTRA_LARGE("extra_large"),
-        LOGO_TINY("tiny"),
-        LOGO_LARGE("large");
+        DEFAULT("default", 40),
+        UNSPECIFIED("", 0),
+        AVATAR_TINY("tiny", 16),
+        AVATAR_SMALL("small", 32),
+        AVATAR_MEDIUM("medium", 80),
+        AVATAR_LARGE("large", 160),
+        ITEM_MEDIUM("medium", 80),
+        ITEM_BADGE("badge", 0),
+        ITEM_EXTRA_LARGE("extra_large", 0),
+        LOGO_TINY("tiny", 16),
+        LOGO_LARGE("large", 160);
 
         private final String literal;
 
-        private Size(String literal) {
+        // The edge length of the square, server side scaled image, or zero if not square.
+        private final int squareSize;
+
+        private Size(String literal, int squareSize) {
             this.literal = literal;
+            this.squareSize = squareSize;
         }
 
     }
 
+    // The distinct square variants of an image, smallest first.
+    private static final Size[] SQUARE_VARIANTS = {Size.AVATAR_TINY, Size.AVATAR_SMALL, Size.DEFAULT, Size.AVATAR_MEDIUM, Size.AVATAR_LARGE};
+
     /**
-     * This is the image cache implementation used by the under laying Volley ImageLoader class.
+     * This is the in-memory image cache implementation. Bitmaps removed from the cache are handed
+     * over to the bitmap pool, if any, for reuse by later decodes.
      */
     private static class ImageCache extends LruCache<String, Bitmap> implements com.android.volley.toolbox.ImageLoader.ImageCache {
+        private final BitmapPool bitmapPool;
 
-        public ImageCache(int maxSize) {
+        public ImageCache(int maxSize, BitmapPool bitmapPool) {
             super(maxSize);
+            this.bitmapPool = bitmapPool;
         }
 
         @Override
@@ -123,23 +188,269 @@ public class ImageLoader {
         protected int sizeOf(String key, Bitmap bitmap) {
             return bitmap.getByteCount() / 1024;
         }
+
+        @Override
+        protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+            if (bitmapPool != null && newValue == null) {
+                bitmapPool.put(oldValue);
+            }
+        }
+    }
+
+    /**
+     * A Volley image request that decodes the image downsampled to the target size of the load
+     * and stores the encoded image in the disk cache once it has been successfully decoded. The
+     * image isn't stored in the shared HTTP cache as well.
+     * <p/>
+     * The priority is decided when the request is created, as the request queue only compares
+     * priorities when a request is added. A load that gets listeners while its request is still
+     * waiting in the queue is given a new request instead, see {@link #isWaiting()}.
+     */
+    private static class DiskCachingImageRequest extends ImageRequest {
+        // Decodes are serialized, like in Volley, to limit the concurrent heap usage.
+        private static final Object DECODE_LOCK = new Object();
+
+        private final ImageDiskCache diskCache;
+        private final BitmapPool bitmapPool;
+        private final int targetWidth;
+        private final int targetHeight;
+        private final Priority priority;
+
+        private volatile boolean isTaken;
+
+        private DiskCachingImageRequest(PendingLoad load, ImageDiskCache diskCache, BitmapPool bitmapPool, Response.Listener<Bitmap> listener, Response.ErrorListener errorListener) {
+            super(load.requestUrl, listener, 0, 0, NETWORK_IMAGE_CONFIG, errorListener);
+            this.diskCache = diskCache;
+            this.bitmapPool = bitmapPool;
+            this.targetWidth = load.targetWidth;
+            this.targetHeight = load.targetHeight;
+            // Nobody waits for a pure prefetch, so it yields to the visible loads.
+            this.priority = load.listeners.isEmpty() ? Priority.LOW : Priority.NORMAL;
+            setShouldCache(diskCache == null);
+            this.isTaken = false;
+        }
+
+        @Override
+        public Priority getPriority() {
+            return priority;
+        }
+
+        @Override
+        public Map<String, String> getHeaders() throws AuthFailureError {
+            // The HTTP stack asks for the headers when it starts sending the request.
+            isTaken = true;
+            return super.getHeaders();
+        }
+
+        /**
+         * Returns whether the request was made for a pure prefetch.
+         */
+        private boolean isPrefetch() {
+            return priority == Priority.LOW;
+        }
+
+        /**
+         * Returns whether the request is still waiting to be sent, i.e. it may be canceled and
+         * replaced without throwing away a download in progress. A request counts as sent once
+         * the HTTP stack has asked for its headers.
+         */
+        private boolean isWaiting() {
+            return !isTaken && !isCanceled();
+        }
+
+        @Override
+        protected Response<Bitmap> parseNetworkResponse(NetworkResponse response) {
+            Bitmap bitmap;
+
+            synchronized (DECODE_LOCK) {
+                try {
+                    bitmap = ImageDecoder.decodeByteArray(response.data, targetWidth, targetHeight, NETWORK_IMAGE_CONFIG, bitmapPool);
+                } catch (OutOfMemoryError e) {
+                    return Response.error(new ParseError(e));
+                }
+            }
+
+            if (bitmap == null) {
+                return Response.error(new ParseError(response));
+            }
+
+            if (diskCache != null) {
+                diskCache.put(getUrl(), response.data);
+            }
+
+            return Response.success(bitmap, HttpHeaderParser.parseCacheHeaders(response));
+        }
+    }
+
+    /**
+     * Keeps track of the listeners waiting for a network image to be loaded, so that concurrent
+     * requests for the same image are served by one single load. A load started by a prefetch has
+     * no listeners, unless a visible request for the same image joins it.
+     */
+    private static class PendingLoad {
+        private final String url;
+        private final String requestUrl;
+        private final Size size;
+        private final int targetWidth;
+        private final int targetHeight;
+        private final Prefetch prefetch;
+        private final List<ImageListener> listeners;
+
+        private DiskCachingImageRequest request;
+        private boolean isFinished;
+
+        private PendingLoad(String url, String requestUrl, Size size, int targetWidth, int targetHeight, Prefetch prefetch) {
+            this.url = url;
+            this.requestUrl = requestUrl;
+            this.size = size;
+            this.targetWidth = targetWidth;
+            this.targetHeight = targetHeight;
+            this.prefetch = prefetch;
+            this.listeners = new ArrayList<ImageListener>();
+            this.request = null;
+            this.isFinished = false;
+        }
+    }
+
+    /**
+     * An image waiting to be prefetched.
+     */
+    private static class PrefetchEntry {
+        private final String url;
+        private final Size size;
+        private final int targetWidth;
+        private final int targetHeight;
+        private final Prefetch prefetch;
+
+        private PrefetchEntry(String url, Size size, int targetWidth, int targetHeight, Prefetch prefetch) {
+            this.url = url;
+            this.size = size;
+            this.targetWidth = targetWidth;
+            this.targetHeight = targetHeight;
+            this.prefetch = prefetch;
+        }
+    }
+
+    /**
+     * Returns the sized url to request the given network image with.
+     */
+    private static String getRequestUrl(String url, Size size) {
+        Uri uri = Uri.parse(url);
+        Uri requestUri = (size != null && size != Size.UNSPECIFIED) ? Uri.withAppendedPath(uri, size.literal) : uri;
+        return requestUri.toString();
+    }
+
+    private static boolean isNetworkUrl(String url) {
+        return url.startsWith("http://") || url.startsWith("https://");
+    }
+
+    /**
+     * Returns the edge length of a square variant of the given size, once downsampled to the given
+     * target size, or zero if the size isn't a square variant.
+     */
+    private static int getVariantEdge(Size size, int targetWidth, int targetHeight) {
+        if (size == null || size.squareSize <= 0) {
+            return 0;
+        }
+
+        return size.squareSize / ImageDecoder.calculateInSampleSize(size.squareSize, size.squareSize, targetWidth, targetHeight);
     }
 
     /**
-     * The shared Volley request queue on which the images will be downloaded.
+     * Decodes a larger square variant of the image of the given load from the disk cache, scaled
+     * down to the size of the load.
+     *
+     * @return The scaled bitmap or null if no larger variant is cached on disk.
      */
-    private static RequestQueue volleyImageRequestQueue;
+    private static Bitmap decodeLargerVariant(ImageDiskCache diskCache, PendingLoad load, BitmapPool pool) {
+        int edge = getVariantEdge(load.size, load.targetWidth, load.targetHeight);
+
+        if (edge <= 0) {
+            return null;
+        }
+
+        for (Size variant : SQUARE_VARIANTS) {
+            if (variant.squareSize <= load.size.squareSize) {
+                continue;
+            }
+
+            byte[] data = diskCache.get(getRequestUrl(load.url, variant));
+            Bitmap bitmap = data != null ? ImageDecoder.decodeByteArray(data, edge, edge, NETWORK_IMAGE_CONFIG, pool) : null;
+
+            if (bitmap == null) {
+                continue;
+            }
+
+            Bitmap scaled = ImageDecoder.scaleToFit(bitmap, edge);
+
+            if (scaled != bitmap && pool != null) {
+                // The intermediate bitmap is never handed out.
+                pool.put(bitmap);
+            }
+
+            if (scaled != null) {
+                return scaled;
+            }
+        }
+
+        return null;
+    }
 
     /**
-     * The shared, under laying Volley ImageLoader class that will perform the actual work.
+     * Returns the in-memory cache key of an image decoded from the given source to the given
+     * target size.
      */
-    private static com.android.volley.toolbox.ImageLoader imageLoader;
+    private static String getCacheKey(String source, int targetWidth, int targetHeight) {
+        return ImageDecoder.isTargeted(targetWidth, targetHeight) ?
+                source + "#" + Math.max(0, targetWidth) + "x" + Math.max(0, targetHeight) :
+                source;
+    }
 
     /**
      * The in-memory image cache that will hold the already loaded images.
      */
     private ImageCache imageCache;
 
+    /**
+     * The disk cache that will hold the encoded network images, or null if disabled.
+     */
+    private ImageDiskCache imageDiskCache;
+
+    /**
+     * The max size of the disk cache.
+     */
+    private long diskCacheMaxSizeInBytes = DEFAULT_DISK_CACHE_MAX_SIZE_IN_BYTES;
+
+    /**
+     * The pool of bitmaps removed from the in-memory cache, or null if disabled.
+     */
+    private BitmapPool bitmapPool;
+
+    /**
+     * The max size of the bitmap pool.
+     */
+    private int bitmapPoolMaxSizeInBytes = 0;
+
+    /**
+     * The queue to fetch the network images through, or null to use the shared transport.
+     */
+    private volatile RequestQueue requestQueue;
+
+    /**
+     * The network image loads in progress, by cache key. Only accessed from the main thread.
+     */
+    private final HashMap<String, PendingLoad> pendingLoads = new HashMap<String, PendingLoad>();
+
+    /**
+     * The images waiting to be prefetched, in order. Only accessed from the main thread.
+     */
+    private final LinkedList<PrefetchEntry> prefetchQueue = new LinkedList<PrefetchEntry>();
+
+    /**
+     * The number of loads started by a prefetch that haven't finished yet.
+     */
+    private int activePrefetchCount = 0;
+
     /**
      * Attempts to load the requested image with the given size. If it already exists in the cache,
      * it will be loaded from there, otherwise the underlying storage infrastructure ("cloud" or
@@ -148,10 +459,11 @@ public class ImageLoader {
      * The given callback interface will be invoked with a null pointer bitmap if the cache doesn't
      * hold the requested image yet. The caller can then decide to show some sort of default image
      * or a progress indication. The same callback interface will be called a second time when the
-     * corresponding storage query has completed.
+     * corresponding storage query has completed. If the cache holds a smaller square variant of the
+     * image, see {@link Size}, the first call is made with that bitmap rather than a null pointer.
      * <p>
-     * If the cache already holds the requested image, the callback will only be called once and
-     * then with a non-null bitmap.
+     * If the cache already holds the requested image, or a larger square variant of it which is
+     * then scaled down, the callback will only be called once and then with a non-null bitmap.
      *
      * @param url
      *         The url to fetch the bitmap from if it doesn't exist in the cache. The url will also
@@ -168,14 +480,41 @@ public class ImageLoader {
      *         If the url or the image listener is null.
      */
     public void loadImage(final String url, Size size, final ImageListener listener) throws NullPointerException {
+        loadImage(url, size, 0, 0, listener);
+    }
+
+    /**
+     * Exactly the same behaviour as {@link com.podio.sdk.ImageLoader#loadImage(String,
+     * com.podio.sdk.ImageLoader.Size, com.podio.sdk.ImageLoader.ImageListener)}, but the image is
+     * decoded downsampled to roughly the given target size, which saves a lot of memory when e.g.
+     * showing a thumbnail of a camera photo. The delivered bitmap is never smaller than the target
+     * size, but may be up to twice as large. Each target size of an image is cached separately.
+     *
+     * @param url
+     *         The url or the local file system path to load the bitmap from.
+     * @param size
+     *         An API defined size notation that can optionally be given. Only applicable for
+     *         network resources.
+     * @param targetWidth
+     *         The width the image is shown in, or zero if unconstrained.
+     * @param targetHeight
+     *         The height the image is shown in, or zero if unconstrained.
+     * @param listener
+     *         The callback implementation that will be invoked on bitmap delivery or if an error
+     *         occurs.
+     *
+     * @throws NullPointerException
+     *         If the url or the image listener is null.
+     */
+    public void loadImage(final String url, Size size, int targetWidth, int targetHeight, final ImageListener listener) throws NullPointerException {
         if (url == null || listener == null) {
             throw new NullPointerException("Neither url nor listener can be null");
         }
 
-        if (url.startsWith("http://") || url.startsWith("https://")) {
-            loadNetworkImage(url, size, listener);
+        if (isNetworkUrl(url)) {
+            loadNetworkImage(url, size, targetWidth, targetHeight, listener);
         } else {
-            loadLocalImage(url, listener);
+            loadLocalImage(url, targetWidth, targetHeight, listener);
         }
     }
 
@@ -194,7 +533,28 @@ public class ImageLoader {
      *         occurs.
      */
     public void loadImage(Context context, final int resourceId, final ImageListener listener) {
-        loadDrawableResource(context, resourceId, listener);
+        loadDrawableResource(context, resourceId, 0, 0, listener);
+    }
+
+    /**
+     * Exactly the same behaviour as {@link com.podio.sdk.ImageLoader#loadImage(android.content.Context,
+     * int, com.podio.sdk.ImageLoader.ImageListener)}, but the drawable resource is decoded
+     * downsampled to roughly the given target size.
+     *
+     * @param context
+     *         The context to load the drawable resource from (if not already in the cache).
+     * @param resourceId
+     *         The id of the drawable resource to load.
+     * @param targetWidth
+     *         The width the image is shown in, or zero if unconstrained.
+     * @param targetHeight
+     *         The height the image is shown in, or zero if unconstrained.
+     * @param listener
+     *         The callback implementation that will be invoked on bitmap delivery or if an error
+     *         occurs.
+     */
+    public void loadImage(Context context, final int resourceId, int targetWidth, int targetHeight, final ImageListener listener) {
+        loadDrawableResource(context, resourceId, targetWidth, targetHeight, listener);
     }
 
     /**
@@ -210,49 +570,116 @@ public class ImageLoader {
      * @return The local drawable resource with the given id as a bitmap or null.
      */
     public Bitmap loadImage(Context context, int resourceId) {
-        Bitmap bitmap = imageCache.getBitmap(LOCAL_RESOURCE_PREFIX + resourceId);
+        return loadImage(context, resourceId, 0, 0);
+    }
+
+    /**
+     * The synchronous version of {@link com.podio.sdk.ImageLoader#loadImage(android.content.Context,
+     * int, int, int, com.podio.sdk.ImageLoader.ImageListener)}.
+     *
+     * @param context
+     *         The context to load the drawable resource from (if not already in the cache).
+     * @param resourceId
+     *         The id of the drawable resource to load.
+     * @param targetWidth
+     *         The width the image is shown in, or zero if unconstrained.
+     * @param targetHeight
+     *         The height the image is shown in, or zero if unconstrained.
+     *
+     * @return The local drawable resource with the given id as a bitmap or null.
+     */
+    public Bitmap loadImage(Context context, int resourceId, int targetWidth, int targetHeight) {
+        String key = getCacheKey(LOCAL_RESOURCE_PREFIX + resourceId, targetWidth, targetHeight);
+        Bitmap bitmap = imageCache.getBitmap(key);
 
         if (bitmap == null) {
-            bitmap = BitmapFactory.decodeResource(context.getResources(), resourceId);
+            bitmap = ImageDecoder.decodeResource(context.getResources(), resourceId, targetWidth, targetHeight);
 
             if (bitmap != null) {
-                imageCache.putBitmap(LOCAL_RESOURCE_PREFIX + resourceId, bitmap);
+                imageCache.putBitmap(key, bitmap);
             }
         }
 
         return bitmap;
     }
 
+    /**
+     * Loads the given network images into the in-memory and disk caches in the background, e.g.
+     * the avatars of a list of profiles before they're scrolled into view, see {@link ImageLinks}.
+     * No listeners are called. The prefetch yields to the visible loads: only a couple of images
+     * are fetched at a time and with a lower priority. Images that are already cached in memory
+     * and urls that aren't network urls are skipped. This method MUST be called from the main
+     * thread.
+     *
+     * @param urls
+     *         The urls of the images to prefetch.
+     * @param size
+     *         The API defined size to prefetch the images in.
+     *
+     * @return A handle to cancel the prefetch with.
+     */
+    public Prefetch prefetch(Collection<String> urls, Size size) {
+        return prefetch(urls, size, 0, 0);
+    }
+
+    /**
+     * Exactly the same behaviour as {@link com.podio.sdk.ImageLoader#prefetch(Collection,
+     * com.podio.sdk.ImageLoader.Size)}, but the images are decoded downsampled to roughly the
+     * given target size. Use the target size the images will be loaded with when shown.
+     *
+     * @param urls
+     *         The urls of the images to prefetch.
+     * @param size
+     *         The API defined size to prefetch the images in.
+     * @param targetWidth
+     *         The width the images are shown in, or zero if unconstrained.
+     * @param targetHeight
+     *         The height the images are shown in, or zero if unconstrained.
+     *
+     * @return A handle to cancel the prefetch with.
+     */
+    public Prefetch prefetch(Collection<String> urls, Size size, int targetWidth, int targetHeight) {
+        Prefetch prefetch = new Prefetch();
+
+        if (urls != null) {
+            for (String url : urls) {
+                if (Utils.notEmpty(url) && isNetworkUrl(url)) {
+                    prefetchQueue.add(new PrefetchEntry(url, size, targetWidth, targetHeight, prefetch));
+                }
+            }
+        }
+
+        startPrefetches();
+        return prefetch;
+    }
+
     /**
      * Initializes the image loader to its default state. This method MUST be called prior to any
      * further interaction with the image loader.
      *
+     * The images are downloaded through the network transport shared with the rest of the SDK,
+     * which isn't started until the first request is made. The in-memory cache is cleared, but the
+     * image disk cache is left untouched, see {@link #clearDiskCache()}.
+     *
      * @param context
      *         The context used to create and initialize the network request queue.
      * @param sslSocketFactory
      *         An optional SSL socket factory to use for the network requests.
      */
     public synchronized void setup(Context context, SSLSocketFactory sslSocketFactory) {
-        // Ensure the expected request queues exists.
-        if (volleyImageRequestQueue == null) {
-            volleyImageRequestQueue = (sslSocketFactory != null) ?
-                    Volley.newRequestQueue(context, new HurlStack(null, sslSocketFactory)) :
-                    Volley.newRequestQueue(context);
-            volleyImageRequestQueue.start();
-        }
+        VolleyTransport.setup(context, sslSocketFactory);
 
-        // Clear out any and all queued requests.
-        volleyImageRequestQueue.cancelAll(new RequestQueue.RequestFilter() {
+        // Clear out any and all queued image requests.
+        VolleyTransport.cancelAll(new RequestQueue.RequestFilter() {
             @Override
             public boolean apply(com.android.volley.Request<?> request) {
-                return true;
+                return request instanceof ImageRequest;
             }
         });
 
-        // Clear out any cached content in the request queues.
-        Cache requestCache = volleyImageRequestQueue.getCache();
-        if (requestCache != null) {
-            requestCache.clear();
+        // Ensure the expected bitmap pool exists, unless disabled.
+        if (bitmapPool == null && bitmapPoolMaxSizeInBytes > 0) {
+            bitmapPool = new BitmapPool(bitmapPoolMaxSizeInBytes);
         }
 
         // Ensure the expected image cache exists.
@@ -261,43 +688,407 @@ public class ImageLoader {
             int width = displayMetrics.widthPixels;
             int height = displayMetrics.heightPixels;
             int maxSizeKb = width * height * 4 * 3 / 1024; // * 4 = magic unicorn,  * 3 = 3 full screens worth of memory
-            imageCache = new ImageCache(maxSizeKb);
+            imageCache = new ImageCache(maxSizeKb, bitmapPool);
+        }
+
+        for (PendingLoad load : pendingLoads.values()) {
+            load.isFinished = true;
+        }
+
+        pendingLoads.clear();
+        prefetchQueue.clear();
+        activePrefetchCount = 0;
+
+        // Ensure the expected disk cache exists, unless disabled.
+        if (imageDiskCache == null && diskCacheMaxSizeInBytes > 0L) {
+            File directory = new File(context.getCacheDir(), DISK_CACHE_DIRECTORY);
+            imageDiskCache = new ImageDiskCache(directory, diskCacheMaxSizeInBytes);
         }
 
-        // Clear out any and all cached images.
+        // Clear out any and all images cached in memory.
         imageCache.evictAll();
 
-        if (imageLoader == null) {
-            imageLoader = new com.android.volley.toolbox.ImageLoader(volleyImageRequestQueue, imageCache);
+    }
+
+    /**
+     * Sets the max size of the disk cache holding the encoded network images. This method MUST be
+     * called prior to {@link #setup(Context, SSLSocketFactory)}.
+     *
+     * @param maxSizeInBytes
+     *         The max size of the disk cache. Zero or less disables the disk cache. Defaults to 20
+     *         MB.
+     */
+    public synchronized void setDiskCacheMaxSize(long maxSizeInBytes) {
+        diskCacheMaxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * Sets the max size of the pool of bitmaps to reuse when decoding images. Bitmaps removed from
+     * the in-memory cache are kept in the pool, and new images are decoded into them whenever
+     * possible, which saves allocations and garbage collection pauses when e.g. scrolling a long
+     * list of avatars. This method MUST be called prior to {@link #setup(Context,
+     * SSLSocketFactory)}.
+     * <p/>
+     * Note that a pooled bitmap is overwritten by a later decode, so with the pool enabled, the
+     * caller MUST NOT keep showing a delivered bitmap once it could have been removed from the
+     * in-memory cache, but should load the image again when needed, e.g. when a list item is bound.
+     *
+     * @param maxSizeInBytes
+     *         The max size of the bitmap pool. Zero or less disables the pool, which is the
+     *         default.
+     */
+    public synchronized void setBitmapPoolMaxSize(int maxSizeInBytes) {
+        bitmapPoolMaxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * Makes the image loader fetch its network images through the given queue rather than the
+     * network transport shared with the rest of the SDK.
+     *
+     * @param requestQueue
+     *         The queue to add the image requests to, or null to use the shared transport.
+     */
+    void setRequestQueue(RequestQueue requestQueue) {
+        this.requestQueue = requestQueue;
+    }
+
+    /**
+     * Returns the number of decodes that reused a pooled bitmap.
+     *
+     * @return The number of pool hits, zero if the pool is disabled.
+     */
+    public synchronized int getBitmapPoolHitCount() {
+        return bitmapPool != null ? bitmapPool.getHitCount() : 0;
+    }
+
+    /**
+     * Returns the number of decodes that found no reusable bitmap in the pool and had to allocate
+     * a new one.
+     *
+     * @return The number of pool misses, zero if the pool is disabled.
+     */
+    public synchronized int getBitmapPoolMissCount() {
+        return bitmapPool != null ? bitmapPool.getMissCount() : 0;
+    }
+
+    /**
+     * Removes all images from the disk cache, e.g. when the user signs out. The file system
+     * operation is performed on a worker thread.
+     */
+    public synchronized void clearDiskCache() {
+        final ImageDiskCache diskCache = imageDiskCache;
+
+        if (diskCache != null) {
+            VolleyTransport.getExecutorService().execute(new Runnable() {
+                @Override
+                public void run() {
+                    diskCache.clear();
+                }
+            });
         }
     }
 
     /**
-     * Delegates the loading of the requested network image to the Volley image loader
-     * infrastructure, that will handle the entire cache checking and populating etc.
+     * Returns a previously decoded bitmap from the in-memory cache, or tries to decode the encoded
+     * image from the disk cache on a worker thread if not found in memory. If not found on disk
+     * either, the image is fetched from the network and stored in both caches.
      *
      * @param url
-     *         The url to fetch the bitmap from if it doesn't exist in the cache. The url will also
-     *         serve as a cache key once the bitmap is fetched.
+     *         The url to fetch the bitmap from if it doesn't exist in the cache.
+     * @param size
+     *         The API defined size to request. The url extended with the size serves as disk cache
+     *         key and, along with the target size, as in-memory cache key.
+     * @param targetWidth
+     *         The width to downsample the image to, or zero if unconstrained.
+     * @param targetHeight
+     *         The height to downsample the image to, or zero if unconstrained.
      * @param listener
      *         The callback implementation that will be invoked on bitmap delivery or if an error
      *         occurs.
      */
-    private void loadNetworkImage(final String url, Size size, final ImageListener listener) {
-        Uri uri = Uri.parse(url);
-        Uri requestUri = (size != null && size != Size.UNSPECIFIED) ? Uri.withAppendedPath(uri, size.literal) : uri;
+    private void loadNetworkImage(final String url, Size size, int targetWidth, int targetHeight, final ImageListener listener) {
+        String requestUrl = getRequestUrl(url, size);
+        String key = getCacheKey(requestUrl, targetWidth, targetHeight);
+
+        Bitmap bitmap = imageCache.getBitmap(key);
+
+        if (bitmap == null) {
+            bitmap = cacheScaledLargerVariant(key, url, size, targetWidth, targetHeight);
+        }
+
+        if (bitmap != null) {
+            listener.onImageReady(bitmap, url, true);
+            return;
+        }
+
+        // Show the best smaller variant, if any, until this one is loaded.
+        listener.onImageReady(getSmallerVariant(url, size, targetWidth, targetHeight), url, true);
+
+        PendingLoad pendingLoad = pendingLoads.get(key);
+
+        if (pendingLoad != null) {
+            pendingLoad.listeners.add(listener);
+            raisePrefetchPriority(key, pendingLoad);
+            return;
+        }
+
+        PendingLoad load = new PendingLoad(url, requestUrl, size, targetWidth, targetHeight, null);
+        load.listeners.add(listener);
+        startNetworkLoad(key, load);
+    }
+
+    /**
+     * Makes a load started by a prefetch compete with the visible loads, now that a visible request
+     * has joined it. A request still waiting in the queue is replaced by one with a normal
+     * priority; a request already sent is left alone. A load still looking in the disk cache gets
+     * a request with a normal priority anyway.
+     *
+     * @param key
+     *         The in-memory cache key of the image.
+     * @param load
+     *         The load that has been joined.
+     */
+    private void raisePrefetchPriority(String key, PendingLoad load) {
+        DiskCachingImageRequest request = load.request;
+
+        if (request != null && request.isPrefetch() && request.isWaiting()) {
+            request.cancel();
+            fetchNetworkImage(key, load);
+        }
+    }
+
+    /**
+     * Scales the smallest larger square variant of the given image in the in-memory cache down to
+     * the given size, and caches the result under the given key.
+     *
+     * @return The scaled bitmap or null if the size isn't square or no larger variant is cached.
+     */
+    private Bitmap cacheScaledLargerVariant(String key, String url, Size size, int targetWidth, int targetHeight) {
+        int edge = getVariantEdge(size, targetWidth, targetHeight);
+
+        if (edge <= 0) {
+            return null;
+        }
+
+        for (Size variant : SQUARE_VARIANTS) {
+            if (variant.squareSize > size.squareSize) {
+                Bitmap bitmap = imageCache.getBitmap(getCacheKey(getRequestUrl(url, variant), targetWidth, targetHeight));
+                Bitmap scaled = bitmap != null ? ImageDecoder.scaleToFit(bitmap, edge) : null;
+
+                if (scaled != null) {
+                    // A bitmap cached under two keys could be pooled while still in use.
+                    if (scaled != bitmap) {
+                        imageCache.putBitmap(key, scaled);
+                    }
+
+                    return scaled;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the largest smaller square variant of the given image in the in-memory cache, as is.
+     *
+     * @return The bitmap or null if the size isn't square or no smaller variant is cached.
+     */
+    private Bitmap getSmallerVariant(String url, Size size, int targetWidth, int targetHeight) {
+        if (size == null || size.squareSize <= 0) {
+            return null;
+        }
+
+        for (int i = SQUARE_VARIANTS.length - 1; i >= 0; i--) {
+            Size variant = SQUARE_VARIANTS[i];
+
+            if (variant.squareSize < size.squareSize) {
+                Bitmap bitmap = imageCache.getBitmap(getCacheKey(getRequestUrl(url, variant), targetWidth, targetHeight));
+
+                if (bitmap != null) {
+                    return bitmap;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Tries to decode the encoded image of the given load from the disk cache on a worker thread,
+     * or fetches it from the network if not found on disk. A larger square variant found on disk is
+     * scaled down rather than fetching the image.
+     *
+     * @param key
+     *         The in-memory cache key of the image.
+     * @param load
+     *         The listeners waiting for the image.
+     */
+    private void startNetworkLoad(final String key, final PendingLoad load) {
+        pendingLoads.put(key, load);
+
+        final ImageDiskCache diskCache = imageDiskCache;
+        final BitmapPool pool = bitmapPool;
+
+        if (diskCache == null) {
+            fetchNetworkImage(key, load);
+            return;
+        }
+
+        new AsyncTask<Void, Void, Bitmap>() {
+            @Override
+            protected Bitmap doInBackground(Void... nothing) {
+                byte[] data = diskCache.get(load.requestUrl);
+
+                if (data == null) {
+                    return decodeLargerVariant(diskCache, load, pool);
+                }
+
+                Bitmap bitmap = ImageDecoder.decodeByteArray(data, load.targetWidth, load.targetHeight, NETWORK_IMAGE_CONFIG, pool);
+
+                if (bitmap == null) {
+                    // The cached image is broken, fetch it again.
+                    diskCache.remove(load.requestUrl);
+                }
+
+                return bitmap;
+            }
 
-        imageLoader.get(requestUri.toString(), new com.android.volley.toolbox.ImageLoader.ImageListener() {
             @Override
-            public void onResponse(com.android.volley.toolbox.ImageLoader.ImageContainer response, boolean isImmediate) {
-                listener.onImageReady(response.getBitmap(), url, isImmediate);
+            protected void onPostExecute(Bitmap bitmap) {
+                if (load.isFinished) {
+                    // The load was cancelled by a new setup or the prefetch being cancelled.
+                    return;
+                }
+
+                if (bitmap == null) {
+                    fetchNetworkImage(key, load);
+                } else {
+                    imageCache.putBitmap(key, bitmap);
+                    deliverNetworkImage(key, load, bitmap, true);
+                }
             }
+        }.executeOnExecutor(VolleyTransport.getExecutorService());
+    }
 
+    /**
+     * Fetches the image with the given cache key from the network, adding it to the in-memory
+     * cache and, if enabled, to the disk cache.
+     *
+     * @param key
+     *         The in-memory cache key of the image.
+     * @param load
+     *         The listeners waiting for the image.
+     */
+    private void fetchNetworkImage(final String key, final PendingLoad load) {
+        load.request = new DiskCachingImageRequest(load, imageDiskCache, bitmapPool, new Response.Listener<Bitmap>() {
+            @Override
+            public void onResponse(Bitmap bitmap) {
+                imageCache.putBitmap(key, bitmap);
+                deliverNetworkImage(key, load, bitmap, false);
+            }
+        }, new Response.ErrorListener() {
             @Override
             public void onErrorResponse(VolleyError error) {
-                listener.onErrorOccurred(parseVolleyError(error), url);
+                finishNetworkLoad(key, load);
+
+                PodioError podioError = parseVolleyError(error);
+
+                for (ImageListener listener : load.listeners) {
+                    listener.onErrorOccurred(podioError, load.url);
+                }
             }
         });
+
+        RequestQueue queue = requestQueue;
+        (queue != null ? queue : VolleyTransport.getRequestQueue()).add(load.request);
+    }
+
+    /**
+     * Delivers a loaded network image to all listeners waiting for it.
+     */
+    private void deliverNetworkImage(String key, PendingLoad load, Bitmap bitmap, boolean isFromCache) {
+        finishNetworkLoad(key, load);
+
+        for (ImageListener listener : load.listeners) {
+            listener.onImageReady(bitmap, load.url, isFromCache);
+        }
+    }
+
+    /**
+     * Marks the given load as finished, making room for the next prefetch if the load was started
+     * by one.
+     */
+    private void finishNetworkLoad(String key, PendingLoad load) {
+        if (pendingLoads.get(key) == load) {
+            pendingLoads.remove(key);
+        }
+
+        if (!load.isFinished) {
+            load.isFinished = true;
+
+            if (load.prefetch != null) {
+                activePrefetchCount--;
+                startPrefetches();
+            }
+        }
+    }
+
+    /**
+     * Starts loading the next queued images to prefetch, as long as there is room for them. Images
+     * that are already cached in memory or being loaded are skipped.
+     */
+    private void startPrefetches() {
+        while (activePrefetchCount < MAX_ACTIVE_PREFETCHES && !prefetchQueue.isEmpty()) {
+            PrefetchEntry entry = prefetchQueue.removeFirst();
+
+            if (entry.prefetch.isCancelled) {
+                continue;
+            }
+
+            String requestUrl = getRequestUrl(entry.url, entry.size);
+            String key = getCacheKey(requestUrl, entry.targetWidth, entry.targetHeight);
+
+            if (imageCache.getBitmap(key) == null && !pendingLoads.containsKey(key) &&
+                    cacheScaledLargerVariant(key, entry.url, entry.size, entry.targetWidth, entry.targetHeight) == null) {
+                activePrefetchCount++;
+                startNetworkLoad(key, new PendingLoad(entry.url, requestUrl, entry.size, entry.targetWidth, entry.targetHeight, entry.prefetch));
+            }
+        }
+    }
+
+    /**
+     * Drops the queued images of the given prefetch and cancels its loads in progress, unless a
+     * visible request has joined them.
+     */
+    private void cancelPrefetch(Prefetch prefetch) {
+        Iterator<PrefetchEntry> queued = prefetchQueue.iterator();
+
+        while (queued.hasNext()) {
+            if (queued.next().prefetch == prefetch) {
+                queued.remove();
+            }
+        }
+
+        HashMap<String, PendingLoad> cancelledLoads = new HashMap<String, PendingLoad>();
+
+        for (Map.Entry<String, PendingLoad> active : pendingLoads.entrySet()) {
+            PendingLoad load = active.getValue();
+
+            if (load.prefetch == prefetch && load.listeners.isEmpty()) {
+                cancelledLoads.put(active.getKey(), load);
+            }
+        }
+
+        for (Map.Entry<String, PendingLoad> cancelled : cancelledLoads.entrySet()) {
+            PendingLoad load = cancelled.getValue();
+
+            if (load.request != null) {
+                load.request.cancel();
+            }
+
+            finishNetworkLoad(cancelled.getKey(), load);
+        }
     }
 
     /**
@@ -307,13 +1098,19 @@ public class ImageLoader {
      *
      * @param path
      *         The local file system path to decode the bitmap from if it doesn't exist in the
-     *         cache. The path will also serve as a cache key once the bitmap is decoded.
+     *         cache. The path will also serve as part of the cache key once the bitmap is decoded.
+     * @param targetWidth
+     *         The width to downsample the image to, or zero if unconstrained.
+     * @param targetHeight
+     *         The height to downsample the image to, or zero if unconstrained.
      * @param listener
      *         The callback implementation that will be invoked on bitmap delivery or if an error
      *         occurs.
      */
-    private void loadLocalImage(final String path, final ImageListener listener) {
-        Bitmap bitmap = imageCache.getBitmap(path);
+    private void loadLocalImage(final String path, final int targetWidth, final int targetHeight, final ImageListener listener) {
+        final String key = getCacheKey(path, targetWidth, targetHeight);
+        final BitmapPool pool = bitmapPool;
+        Bitmap bitmap = imageCache.getBitmap(key);
 
         if (bitmap != null) {
             listener.onImageReady(bitmap, path, true);
@@ -329,7 +1126,7 @@ public class ImageLoader {
             @Override
             protected Bitmap doInBackground(Void... nothing) {
                 return Utils.notEmpty(path) ?
-                        BitmapFactory.decodeFile(path) :
+                        ImageDecoder.decodeFile(path, targetWidth, targetHeight, pool) :
                         null;
             }
 
@@ -338,7 +1135,7 @@ public class ImageLoader {
                 if (bitmap == null) {
                     listener.onErrorOccurred(new PodioError(new NullPointerException("Couldn't load image: " + path)), path);
                 } else {
-                    imageCache.putBitmap(path, bitmap);
+                    imageCache.putBitmap(key, bitmap);
                     listener.onImageReady(bitmap, path, false);
                 }
             }
@@ -355,12 +1152,17 @@ public class ImageLoader {
      * @param id
      *         The id of the drawable resource to decode if it doesn't already exist in the cache.
      *         The id will also serve as part of the cache key once the bitmap is decoded.
+     * @param targetWidth
+     *         The width to downsample the image to, or zero if unconstrained.
+     * @param targetHeight
+     *         The height to downsample the image to, or zero if unconstrained.
      * @param listener
      *         The callback implementation that will be invoked on bitmap delivery or if an error
      *         occurs.
      */
-    private void loadDrawableResource(final Context context, final int id, final ImageListener listener) {
-        Bitmap bitmap = imageCache.getBitmap(LOCAL_RESOURCE_PREFIX + id);
+    private void loadDrawableResource(final Context context, final int id, final int targetWidth, final int targetHeight, final ImageListener listener) {
+        final String key = getCacheKey(LOCAL_RESOURCE_PREFIX + id, targetWidth, targetHeight);
+        Bitmap bitmap = imageCache.getBitmap(key);
 
         if (bitmap != null) {
             listener.onImageReady(bitmap, Integer.toString(id), true);
@@ -376,7 +1178,7 @@ public class ImageLoader {
             @Override
             protected Bitmap doInBackground(Void... nothing) {
                 return (context != null && id > 0) ?
-                        BitmapFactory.decodeResource(context.getResources(), id) :
+                        ImageDecoder.decodeResource(context.getResources(), id, targetWidth, targetHeight) :
                         null;
             }
 
@@ -385,7 +1187,7 @@ public class ImageLoader {
                 if (bitmap == null) {
                     listener.onErrorOccurred(new PodioError(new NullPointerException("Couldn't load resource: " + id)), Integer.toString(id));
                 } else {
-                    imageCache.putBitmap(LOCAL_RESOURCE_PREFIX + id, bitmap);
+                    imageCache.putBitmap(key, bitmap);
                     listener.onImageReady(bitmap, Integer.toString(id), false);
                 }
             }
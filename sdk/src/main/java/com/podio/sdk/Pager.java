@@ -0,0 +1,524 @@
+package com.podio.sdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Pages through the content of an offset/limit based API endpoint. The pager fetches pages on
+ * demand as items are accessed and, once a configurable threshold of items from the end of the
+ * loaded content is reached, prefetches the next page(s) in the background so that a scrolling
+ * list never has to wait on the network.
+ * <p/>
+ * Each page is only requested once at a time; accessing items in a page that is already loaded or
+ * already being loaded will not trigger a new request. Only a bounded window of pages is kept in
+ * memory, pages furthest away from the most recently accessed one are evicted first and will be
+ * fetched again if accessed later on.
+ * <p/>
+ * Endpoints that list the most recent content first (streams, conversations, notifications) shift
+ * their content as new items arrive, pushing items from one page into the next. If the {@link
+ * Source} can tell the id of an item, through {@link Source#getId(Object)}, an item that is already
+ * present in an adjacent loaded page is dropped from the page that arrives later. A page may then
+ * hold fewer items than the page size; the remaining items move up within their page, and {@link
+ * #getItem(int)} returns null for the freed positions at its end. Sources that don't tell any ids
+ * are not deduplicated.
+ * <p/>
+ * The pages are fetched through a {@link Source}, which for most endpoints in this SDK is a thin
+ * wrapper around a provider method. Several providers offer ready-made pagers, e.g. {@link
+ * com.podio.sdk.provider.ConversationProvider#getConversationsPager(int)}, but any paged endpoint
+ * can be used:
+ * <p/>
+ * <pre>
+ * Pager&lt;Task&gt; pager = new Pager&lt;Task&gt;(new Pager.ArraySource&lt;Task&gt;() {
+ *
+ *     &#64;Override
+ *     protected Request&lt;Task[]&gt; getPage(int limit, int offset) {
+ *         return Podio.task.getTasks(new GetTaskFilter().space(spaceId).limit(limit).offset(offset));
+ *     }
+ *
+ * }, 20);
+ * </pre>
+ * This class is thread safe. All listener callbacks are delivered on the thread the underlying
+ * {@link Request} delivers its result on.
+ *
+ * @param <T>
+ *         The type of items the pager delivers.
+ *
+ */
+public class Pager<T> {
+
+    /**
+     * Fetches single pages of content from a paged API endpoint.
+     *
+     * @param <R>
+     *         The type of the raw API result.
+     * @param <T>
+     *         The type of items in a page.
+     *
+     */
+    public static abstract class Source<R, T> {
+
+        /**
+         * Requests a single page of content from the API.
+         *
+         * @param limit
+         *         The max number of items to fetch.
+         * @param offset
+         *         The zero-based offset of the first item to fetch.
+         *
+         * @return A ticket which the pager can attach its listeners to.
+         */
+        protected abstract Request<R> getPage(int limit, int offset);
+
+        /**
+         * Extracts the page items from the raw API result.
+         *
+         * @param result
+         *         The result as delivered by the API. May be null.
+         *
+         * @return The items of the page, never null.
+         */
+        protected abstract List<T> getItems(R result);
+
+        /**
+         * Returns the id of the given item, which the pager uses to drop items that turn up in two
+         * adjacent pages. The default implementation returns null.
+         *
+         * @param item
+         *         The item to identify.
+         *
+         * @return An object with proper equals and hash code implementations identifying the item,
+         * or null if the item can't be identified, in which case it's never considered a
+         * duplicate.
+         */
+        protected Object getId(T item) {
+            return null;
+        }
+
+    }
+
+    /**
+     * A page source for the (majority of) API endpoints that deliver their pages as arrays.
+     *
+     * @param <T>
+     *         The type of items in a page.
+     *
+     */
+    public static abstract class ArraySource<T> extends Source<T[], T> {
+
+        @Override
+        protected List<T> getItems(T[] result) {
+            return result != null ? Arrays.asList(result) : Collections.<T> emptyList();
+        }
+
+    }
+
+    /**
+     * Callback interface for page load events.
+     *
+     * @param <T>
+     *         The type of items in the page.
+     *
+     */
+    public interface PageListener<T> {
+
+        /**
+         * Delivers a newly loaded page. The implementation must return boolean true if the event
+         * is to be consumed (no subsequent listeners in the chain will be called) or boolean false
+         * to allow bubbling of the event.
+         *
+         * @param pageIndex
+         *         The zero-based index of the page.
+         * @param items
+         *         The items in the page.
+         *
+         * @return Boolean flag whether the event is to be consumed or not by this implementation.
+         */
+        public boolean onPageLoaded(int pageIndex, List<T> items);
+
+    }
+
+    private static final int DEFAULT_MAX_PAGES_IN_MEMORY = 10;
+    private static final int DEFAULT_PREFETCH_PAGE_COUNT = 1;
+
+    private final Source<?, T> source;
+    private final int pageSize;
+    private final TreeMap<Integer, List<T>> pages;
+    private final Set<Integer> loadingPages;
+    private final ArrayList<PageListener<T>> pageListeners;
+    private final ArrayList<Request.ErrorListener> errorListeners;
+
+    private int prefetchThreshold;
+    private int prefetchPageCount;
+    private int maxPagesInMemory;
+
+    private int lastAccessedPageIndex;
+    private int lastPageIndex;
+    private int knownItemCount;
+    private int generation;
+
+    /**
+     * Creates a new pager with a prefetch threshold of half a page.
+     *
+     * @param source
+     *         The source to fetch pages from.
+     * @param pageSize
+     *         The number of items to fetch per page.
+     */
+    public Pager(Source<?, T> source, int pageSize) {
+        if (source == null) {
+            throw new NullPointerException("source mustn't be null");
+        }
+
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be greater than zero");
+        }
+
+        this.source = source;
+        this.pageSize = pageSize;
+        this.pages = new TreeMap<Integer, List<T>>();
+        this.loadingPages = new HashSet<Integer>();
+        this.pageListeners = new ArrayList<PageListener<T>>();
+        this.errorListeners = new ArrayList<Request.ErrorListener>();
+        this.prefetchThreshold = pageSize / 2;
+        this.prefetchPageCount = DEFAULT_PREFETCH_PAGE_COUNT;
+        this.maxPagesInMemory = DEFAULT_MAX_PAGES_IN_MEMORY;
+        this.lastAccessedPageIndex = 0;
+        this.lastPageIndex = -1;
+        this.knownItemCount = 0;
+        this.generation = 0;
+    }
+
+    /**
+     * Sets how close to the end of a page, counted in items, an accessed item must be in order to
+     * trigger a prefetch of the following page(s).
+     *
+     * @param itemCount
+     *         The threshold in number of items. Zero disables prefetching.
+     *
+     * @return This pager, to enable convenient chaining.
+     */
+    public synchronized Pager<T> withPrefetchThreshold(int itemCount) {
+        this.prefetchThreshold = Math.max(0, itemCount);
+        return this;
+    }
+
+    /**
+     * Sets how many pages ahead of the accessed page to prefetch once the prefetch threshold is
+     * reached.
+     *
+     * @param pageCount
+     *         The number of pages to prefetch. Defaults to one.
+     *
+     * @return This pager, to enable convenient chaining.
+     */
+    public synchronized Pager<T> withPrefetchPageCount(int pageCount) {
+        this.prefetchPageCount = Math.max(1, pageCount);
+        return this;
+    }
+
+    /**
+     * Sets the max number of pages to keep in memory. Must be big enough to hold the accessed page
+     * and the prefetched ones.
+     *
+     * @param pageCount
+     *         The max number of pages. Defaults to ten.
+     *
+     * @return This pager, to enable convenient chaining.
+     */
+    public synchronized Pager<T> withMaxPagesInMemory(int pageCount) {
+        this.maxPagesInMemory = Math.max(1, pageCount);
+        evictPages();
+        return this;
+    }
+
+    /**
+     * Adds a listener that will be called whenever a page has been loaded.
+     *
+     * @param pageListener
+     *         The listener to add.
+     *
+     * @return This pager, to enable convenient chaining.
+     */
+    public synchronized Pager<T> withPageListener(PageListener<T> pageListener) {
+        if (pageListener != null) {
+            pageListeners.add(pageListener);
+        }
+
+        return this;
+    }
+
+    /**
+     * Adds a listener that will be called whenever a page failed to load. A failed page can be
+     * fetched again by accessing any of its items.
+     *
+     * @param errorListener
+     *         The listener to add.
+     *
+     * @return This pager, to enable convenient chaining.
+     */
+    public synchronized Pager<T> withErrorListener(Request.ErrorListener errorListener) {
+        if (errorListener != null) {
+            errorListeners.add(errorListener);
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the item at the given position. If the item isn't loaded yet, the page holding it is
+     * requested and null is returned; the page listeners will be notified once the page arrives.
+     * Accessing an item close to the end of a page will also prefetch the following page(s).
+     *
+     * @param position
+     *         The zero-based position of the item.
+     *
+     * @return The item or null if it's not loaded (yet) or if the position is out of bounds.
+     */
+    public T getItem(int position) {
+        if (position < 0) {
+            return null;
+        }
+
+        int pageIndex = position / pageSize;
+        int positionInPage = position % pageSize;
+        int prefetchFromPosition;
+        int prefetchPages;
+        T item = null;
+
+        synchronized (this) {
+            prefetchFromPosition = prefetchThreshold > 0 ? pageSize - prefetchThreshold : pageSize;
+            prefetchPages = prefetchPageCount;
+            lastAccessedPageIndex = pageIndex;
+            List<T> page = pages.get(pageIndex);
+
+            if (page != null && positionInPage < page.size()) {
+                item = page.get(positionInPage);
+            }
+        }
+
+        loadPage(pageIndex);
+
+        if (positionInPage >= prefetchFromPosition) {
+            for (int i = 1; i <= prefetchPages; i++) {
+                loadPage(pageIndex + i);
+            }
+        }
+
+        return item;
+    }
+
+    /**
+     * Requests the page with the given index, unless it's already loaded, currently being loaded
+     * or known to be beyond the end of the content.
+     *
+     * @param pageIndex
+     *         The zero-based index of the page to load.
+     *
+     * @return True if a new request was issued, false otherwise.
+     */
+    public boolean loadPage(int pageIndex) {
+        int requestGeneration;
+
+        synchronized (this) {
+            if (pageIndex < 0
+                    || (lastPageIndex >= 0 && pageIndex > lastPageIndex)
+                    || pages.containsKey(pageIndex)
+                    || loadingPages.contains(pageIndex)) {
+
+                return false;
+            }
+
+            loadingPages.add(pageIndex);
+            requestGeneration = generation;
+        }
+
+        requestPage(source, pageIndex, requestGeneration);
+        return true;
+    }
+
+    /**
+     * Returns the number of items known to exist so far. Until the last page has been loaded, this
+     * is the number of items up to and including the furthest loaded page.
+     *
+     * @return The known number of items.
+     */
+    public synchronized int getKnownItemCount() {
+        return knownItemCount;
+    }
+
+    /**
+     * Returns whether the last page of the content has been loaded.
+     *
+     * @return True if the end of the content is known, false otherwise.
+     */
+    public synchronized boolean isEndReached() {
+        return lastPageIndex >= 0;
+    }
+
+    /**
+     * Returns whether the page with the given index is currently being loaded.
+     *
+     * @param pageIndex
+     *         The zero-based index of the page.
+     *
+     * @return True if there is a pending request for the page, false otherwise.
+     */
+    public synchronized boolean isLoading(int pageIndex) {
+        return loadingPages.contains(pageIndex);
+    }
+
+    /**
+     * Forgets all loaded pages. Results of any requests still in flight will be ignored.
+     */
+    public synchronized void reset() {
+        pages.clear();
+        loadingPages.clear();
+        lastAccessedPageIndex = 0;
+        lastPageIndex = -1;
+        knownItemCount = 0;
+        generation++;
+    }
+
+    private <R> void requestPage(final Source<R, T> source, final int pageIndex, final int requestGeneration) {
+        Request<R> request;
+
+        try {
+            request = source.getPage(pageSize, pageIndex * pageSize);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loadingPages.remove(pageIndex);
+            }
+
+            throw e;
+        }
+
+        request.withResultListener(new Request.ResultListener<R>() {
+            @Override
+            public boolean onRequestPerformed(R content) {
+                onPageLoaded(pageIndex, requestGeneration, source.getItems(content));
+                return false;
+            }
+        }).withErrorListener(new Request.ErrorListener() {
+            @Override
+            public boolean onErrorOccurred(Throwable cause) {
+                onPageFailed(pageIndex, requestGeneration, cause);
+                return false;
+            }
+        });
+    }
+
+    private void onPageLoaded(int pageIndex, int requestGeneration, List<T> items) {
+        ArrayList<PageListener<T>> listeners;
+
+        synchronized (this) {
+            if (requestGeneration != generation) {
+                return;
+            }
+
+            loadingPages.remove(pageIndex);
+            int itemCount = items.size();
+            items = dropDuplicates(pageIndex, items);
+            pages.put(pageIndex, items);
+
+            // The end of the content is told by the page as delivered, not by what's left of it.
+            if (itemCount < pageSize) {
+                lastPageIndex = pageIndex;
+                knownItemCount = pageIndex * pageSize + itemCount;
+
+                // Drop any pages that turned out to be beyond the end of the content.
+                pages.tailMap(pageIndex, false).clear();
+            } else if (lastPageIndex < 0) {
+                knownItemCount = Math.max(knownItemCount, (pageIndex + 1) * pageSize);
+            }
+
+            evictPages();
+            listeners = new ArrayList<PageListener<T>>(pageListeners);
+        }
+
+        for (PageListener<T> listener : listeners) {
+            if (listener.onPageLoaded(pageIndex, items)) {
+                break;
+            }
+        }
+    }
+
+    private void onPageFailed(int pageIndex, int requestGeneration, Throwable cause) {
+        ArrayList<Request.ErrorListener> listeners;
+
+        synchronized (this) {
+            if (requestGeneration != generation) {
+                return;
+            }
+
+            loadingPages.remove(pageIndex);
+            listeners = new ArrayList<Request.ErrorListener>(errorListeners);
+        }
+
+        for (Request.ErrorListener listener : listeners) {
+            if (listener.onErrorOccurred(cause)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Removes the items that are already present in the loaded pages right before and after the
+     * page with the given index. Must be called while holding the lock on this pager.
+     */
+    private List<T> dropDuplicates(int pageIndex, List<T> items) {
+        Set<Object> neighbourIds = new HashSet<Object>();
+        addIds(pages.get(pageIndex - 1), neighbourIds);
+        addIds(pages.get(pageIndex + 1), neighbourIds);
+
+        if (neighbourIds.isEmpty()) {
+            return items;
+        }
+
+        List<T> unique = new ArrayList<T>(items.size());
+
+        for (T item : items) {
+            Object id = source.getId(item);
+
+            if (id == null || !neighbourIds.contains(id)) {
+                unique.add(item);
+            }
+        }
+
+        return unique.size() < items.size() ? unique : items;
+    }
+
+    private void addIds(List<T> page, Set<Object> ids) {
+        if (page != null) {
+            for (T item : page) {
+                Object id = source.getId(item);
+
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts the pages furthest away from the most recently accessed page until the page window
+     * fits in memory. Must be called while holding the lock on this pager.
+     */
+    private void evictPages() {
+        while (pages.size() > maxPagesInMemory) {
+            int first = pages.firstKey();
+            int last = pages.lastKey();
+
+            if (lastAccessedPageIndex - first >= last - lastAccessedPageIndex) {
+                pages.remove(first);
+            } else {
+                pages.remove(last);
+            }
+        }
+    }
+
+}
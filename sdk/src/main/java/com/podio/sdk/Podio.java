@@ -33,6 +33,7 @@ import com.podio.sdk.provider.UserProvider;
 import com.podio.sdk.provider.ViewProvider;
 import com.podio.sdk.volley.VolleyClient;
 import com.podio.sdk.volley.VolleyRequest;
+import com.podio.sdk.volley.VolleyTransport;
 
 import javax.net.ssl.SSLSocketFactory;
 
@@ -48,6 +49,10 @@ public class Podio {
 
     protected static AndroidAsyncHttpClient androidAsyncHttpRestClient = new AndroidAsyncHttpClient();
 
+    private static Store responseCache;
+    private static CachePolicy responseCachePolicy;
+    private static CachingClient cachingClient;
+
     /**
      * Enables means of easy operating on the Application API end point.
      */
@@ -266,31 +271,94 @@ public class Podio {
     public static void setup(Context context, String scheme, String authority, String clientId, String clientSecret, String userAgent, SSLSocketFactory volleySslSocketFactory, cz.msebera.android.httpclient.conn.ssl.SSLSocketFactory androidAsyncHttpSslSocketFactory) {
         volleytRestClient.setup(context, scheme, authority, clientId, clientSecret, userAgent, volleySslSocketFactory);
         androidAsyncHttpRestClient.setup(context, scheme, authority, userAgent, androidAsyncHttpSslSocketFactory);
+        cachingClient = responseCache != null ?
+                new CachingClient(volleytRestClient, responseCache, scheme, authority).withDefaultPolicy(responseCachePolicy) :
+                null;
+        Client restClient = cachingClient != null ? cachingClient : volleytRestClient;
+
         // Providers relying on a rest client in order to operate properly.
-        application.setClient(volleytRestClient);
-        calendar.setClient(volleytRestClient);
-        client.setClient(volleytRestClient);
-        contact.setClient(volleytRestClient);
-        conversation.setClient(volleytRestClient);
+        application.setClient(restClient);
+        calendar.setClient(restClient);
+        client.setClient(restClient);
+        contact.setClient(restClient);
+        conversation.setClient(restClient);
         file.setClient(androidAsyncHttpRestClient);
-        attach.setClient(volleytRestClient);
-        item.setClient(volleytRestClient);
-        organization.setClient(volleytRestClient);
-        user.setClient(volleytRestClient);
-        view.setClient(volleytRestClient);
-        task.setClient(volleytRestClient);
-        notification.setClient(volleytRestClient);
-        stream.setClient(volleytRestClient);
-        comment.setClient(volleytRestClient);
-        rating.setClient(volleytRestClient);
-        grant.setClient(volleytRestClient);
-        location.setClient(volleytRestClient);
-        embed.setClient(volleytRestClient);
-        reference.setClient(volleytRestClient);
-        status.setClient(volleytRestClient);
-        linkedAccount.setClient(volleytRestClient);
-        reminder.setClient(volleytRestClient);
-        recurrence.setClient(volleytRestClient);
+        attach.setClient(restClient);
+        item.setClient(restClient);
+        organization.setClient(restClient);
+        user.setClient(restClient);
+        view.setClient(restClient);
+        task.setClient(restClient);
+        notification.setClient(restClient);
+        stream.setClient(restClient);
+        comment.setClient(restClient);
+        rating.setClient(restClient);
+        grant.setClient(restClient);
+        location.setClient(restClient);
+        embed.setClient(restClient);
+        reference.setClient(restClient);
+        status.setClient(restClient);
+        linkedAccount.setClient(restClient);
+        reminder.setClient(restClient);
+        recurrence.setClient(restClient);
+    }
+
+    /**
+     * Enables a persistent HTTP cache for all GET requests made through the Podio facade. Cached
+     * responses are revalidated with the API on each request (through ETag and Last-Modified
+     * validators) and only downloaded again if they have changed. This method MUST be called before
+     * {@link #setup(Context, String, String)}.
+     *
+     * @param maxSizeInBytes
+     *         The maximum size of the cache on disk. Zero or less disables the cache.
+     */
+    public static void setHttpCacheMaxSize(int maxSizeInBytes) {
+        volleytRestClient.setHttpCacheMaxSize(maxSizeInBytes);
+    }
+
+    /**
+     * Enables or disables the sharing of identical, concurrently pending GET requests made through
+     * the Podio facade. Each caller still gets a request of its own, with its own listeners, and
+     * canceling it doesn't affect the other callers. Enabled by default.
+     *
+     * @param enabled
+     *         Whether to coalesce identical GET requests or not.
+     *
+     * @see VolleyClient#setRequestCoalescingEnabled(boolean)
+     */
+    public static void setRequestCoalescingEnabled(boolean enabled) {
+        volleytRestClient.setRequestCoalescingEnabled(enabled);
+    }
+
+    /**
+     * Caches the responses of all GET requests made through the Podio facade in the given store,
+     * see {@link CachingClient}. Unlike the HTTP cache, the store can deliver a cached response
+     * without asking the API at all, as the given policy decides. Some providers also take a policy
+     * per request. This method MUST be called before {@link #setup(Context, String, String)}.
+     * <p/>
+     * The cache is cleared when a session is authenticated, or restored in place of another one,
+     * but it outlives the app, so the store should be erased when the user signs out.
+     *
+     * @param store
+     *         The store to cache the responses in, e.g. a {@link com.podio.sdk.localstore.LocalStore}.
+     *         Null disables the cache.
+     * @param defaultPolicy
+     *         The policy of the requests made without an explicit policy.
+     */
+    public static void setResponseCache(Store store, CachePolicy defaultPolicy) {
+        responseCache = store;
+        responseCachePolicy = defaultPolicy != null ? defaultPolicy : CachePolicy.NETWORK_ONLY;
+    }
+
+    /**
+     * Sets the number of network threads shared by the API requests, the image downloads and the
+     * file uploads. This method MUST be called before the first request is made.
+     *
+     * @param threadCount
+     *         The number of threads. Defaults to four.
+     */
+    public static void setNetworkThreadCount(int threadCount) {
+        VolleyTransport.setDispatcherCount(threadCount);
     }
 
     /**
@@ -299,6 +367,10 @@ public class Podio {
      * caller to persist the session and avoid an unnecessary re-authentication. NOTE! The server
      * may very well invalidate both the access and refresh tokens, which would require a
      * re-authentication anyway.
+     * <p/>
+     * If another session is already in place, the response cache is cleared, as the cached
+     * responses may belong to another user. A session restored when the app starts keeps the
+     * cache of the previous run, see {@link #setResponseCache(Store, CachePolicy)}.
      *
      * @param accessToken
      *         The previously stored access token.
@@ -308,7 +380,27 @@ public class Podio {
      *         The previously stored expire time stamp (in seconds).
      */
     public static void restoreSession(String accessToken, String refreshToken, long expires) {
+        String currentRefreshToken = Session.refreshToken();
+        CachingClient currentCachingClient = cachingClient;
+
+        if (currentCachingClient != null && currentRefreshToken != null && !currentRefreshToken.equals(refreshToken)) {
+            currentCachingClient.clear();
+        }
+
         Session.set(accessToken, refreshToken, expires);
+        volleytRestClient.scheduleTokenRefresh();
+    }
+
+    /**
+     * Sets how long before the access token expires it should be refreshed. Any requests issued
+     * within this margin are held back until the refresh has finished. Defaults to ten minutes.
+     *
+     * @param marginSeconds
+     *         The margin in seconds. Zero or less disables the proactive refresh, in which case
+     *         the access token is only refreshed once the API rejects it.
+     */
+    public static void setTokenRefreshMargin(long marginSeconds) {
+        volleytRestClient.setTokenRefreshMargin(marginSeconds);
     }
 
 }
@@ -25,6 +25,20 @@ public abstract class Provider {
         return client.request(Request.Method.GET, filter, null, classOfResult);
     }
 
+    /**
+     * Performs a GET request with the given cache policy. The policy is ignored unless the client
+     * of this provider is a {@link CachingClient}.
+     */
+    protected <T> Request<T> get(Filter filter, Class<T> classOfResult, CachePolicy policy) {
+        validateClient();
+
+        if (client instanceof CachingClient) {
+            return ((CachingClient) client).request(Request.Method.GET, filter, null, classOfResult, policy);
+        }
+
+        return client.request(Request.Method.GET, filter, null, classOfResult);
+    }
+
     protected <T> Request<T> post(Filter filter, Object item, Class<T> classOfItem) {
         validateClient();
         return client.request(Request.Method.POST, filter, item, classOfItem);
@@ -1,25 +1,462 @@
 
 package com.podio.sdk;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.FutureTask;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * A client that performs its requests on a pool of worker threads. Requests waiting for a worker
+ * are held in a queue and picked in order of their {@link Priority}; requests of the same priority
+ * are picked in the order they were enqueued. Requests that declare the keys they touch are never
+ * overtaken by later requests touching any of the same keys, see {@link #execute(FutureTask,
+ * Priority, Collection)}.
+ * <p/>
+ * The queue holds {@link #DEFAULT_QUEUE_CAPACITY} requests unless another capacity is given. The
+ * {@link OverflowPolicy} of the client decides what happens to a request that doesn't fit; by
+ * default the oldest queued {@link Priority#PREFETCH} request is dropped to make room, and the
+ * caller is blocked if there is none. Requests that are dropped or rejected are canceled, hence
+ * their callers will be notified through the request itself.
+ */
 public abstract class QueueClient {
 
+    /**
+     * The priority classes of a request. Requests of a higher priority are always picked before
+     * requests of a lower priority.
+     */
+    public enum Priority {
+        /**
+         * Work the user is actively waiting for.
+         */
+        INTERACTIVE,
+
+        /**
+         * Speculative work that may be dropped if the queue is full.
+         */
+        PREFETCH,
+
+        /**
+         * Work that should be done eventually, but that no one is waiting for.
+         */
+        BACKGROUND_SYNC
+    }
+
+    /**
+     * Describes what to do with a new request when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drops the oldest queued {@link Priority#PREFETCH} request to make room for the new
+         * request. If there is no such request, the calling thread is blocked as with {@link
+         * #BLOCK}.
+         */
+        DROP_OLDEST_PREFETCH,
+
+        /**
+         * Blocks the calling thread until there is room in the queue. A request enqueued by one of
+         * the worker threads of the client itself is rejected instead, as blocking the worker
+         * could leave nobody to make room.
+         */
+        BLOCK,
+
+        /**
+         * Rejects the new request.
+         */
+        REJECT
+    }
+
+    /**
+     * The default max number of requests waiting for a worker thread.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 512;
+
+    /**
+     * A queued request, ordered by priority and enqueue order. The priority may only be changed
+     * while the task isn't in the queue.
+     */
+    private final class ScheduledTask implements Runnable, Comparable<ScheduledTask> {
+        private final FutureTask<?> request;
+        private final Set<Object> keys;
+        private final long sequence;
+        private final long enqueuedAtNanos;
+        private volatile Priority priority;
+
+        private ScheduledTask(FutureTask<?> request, Priority priority, Set<Object> keys) {
+            this.request = request;
+            this.priority = priority;
+            this.keys = keys;
+            this.sequence = sequenceGenerator.getAndIncrement();
+            this.enqueuedAtNanos = System.nanoTime();
+        }
+
+        /**
+         * Returns whether this task and the given one may touch the same key. Tasks without keys
+         * don't conflict with anything, whereas tasks touching all keys conflict with any task
+         * with keys.
+         */
+        private boolean conflictsWith(ScheduledTask another) {
+            if (keys == NO_KEYS || another.keys == NO_KEYS) {
+                return false;
+            }
+
+            if (keys == null || another.keys == null) {
+                return true;
+            }
+
+            return !Collections.disjoint(keys, another.keys);
+        }
+
+        @Override
+        public void run() {
+            onDequeued(this);
+            recordWaitTime(priority, System.nanoTime() - enqueuedAtNanos);
+            isWorkerThread.set(Boolean.TRUE);
+
+            try {
+                request.run();
+            } finally {
+                isWorkerThread.remove();
+            }
+        }
+
+        @Override
+        public int compareTo(ScheduledTask another) {
+            int result = priority.compareTo(another.priority);
+
+            if (result == 0) {
+                result = sequence < another.sequence ? -1 : (sequence == another.sequence ? 0 : 1);
+            }
+
+            return result;
+        }
+    }
+
+    private static final Set<Object> NO_KEYS = Collections.emptySet();
+
     /**
      * The queue executor service that manages the request queue.
      */
     private ExecutorService executorService;
 
+    private final PriorityBlockingQueue<ScheduledTask> queue;
+    private final Semaphore queuePermits;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong sequenceGenerator;
+    private final Object orderingLock;
+
+    private final AtomicIntegerArray queueDepths;
+    private final AtomicLongArray waitCounts;
+    private final AtomicLongArray totalWaitNanos;
+    private final AtomicLongArray maxWaitNanos;
+    private final AtomicLong droppedCount;
+    private final AtomicLong rejectedCount;
+    private final ThreadLocal<Boolean> isWorkerThread;
+
     protected QueueClient(int corePoolSize, int maxPoolSize, long waitTimeSeconds) {
-        executorService = new ThreadPoolExecutor(corePoolSize, maxPoolSize, waitTimeSeconds, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(Integer.MAX_VALUE));
+        this(corePoolSize, maxPoolSize, waitTimeSeconds, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.DROP_OLDEST_PREFETCH);
+    }
+
+    /**
+     * @param queueCapacity
+     *         The max number of requests waiting for a worker thread.
+     * @param overflowPolicy
+     *         What to do with new requests when the queue is full.
+     */
+    protected QueueClient(int corePoolSize, int maxPoolSize, long waitTimeSeconds, int queueCapacity, OverflowPolicy overflowPolicy) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be greater than zero");
+        }
+
+        if (overflowPolicy == null) {
+            throw new NullPointerException("overflowPolicy mustn't be null");
+        }
+
+        int priorityCount = Priority.values().length;
+
+        this.queue = new PriorityBlockingQueue<ScheduledTask>();
+        this.queuePermits = new Semaphore(queueCapacity, true);
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.sequenceGenerator = new AtomicLong();
+        this.orderingLock = new Object();
+        this.queueDepths = new AtomicIntegerArray(priorityCount);
+        this.waitCounts = new AtomicLongArray(priorityCount);
+        this.totalWaitNanos = new AtomicLongArray(priorityCount);
+        this.maxWaitNanos = new AtomicLongArray(priorityCount);
+        this.droppedCount = new AtomicLong();
+        this.rejectedCount = new AtomicLong();
+        this.isWorkerThread = new ThreadLocal<Boolean>();
+
+        // The pool never grows beyond the core size as the queue is unbounded from the executor's
+        // point of view; the capacity is enforced by the queue permits instead.
+        @SuppressWarnings("unchecked")
+        PriorityBlockingQueue<Runnable> workQueue = (PriorityBlockingQueue<Runnable>) (PriorityBlockingQueue<?>) queue;
+        executorService = new ThreadPoolExecutor(corePoolSize, maxPoolSize, waitTimeSeconds, TimeUnit.SECONDS, workQueue);
+    }
+
+    /**
+     * Enqueues the request with {@link Priority#INTERACTIVE} priority.
+     *
+     * @see #execute(FutureTask, Priority)
+     */
+    protected boolean execute(FutureTask<?> request) {
+        return execute(request, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Enqueues the request with the given priority. The request is assumed not to conflict with
+     * any other request, hence it's ordered by its priority alone.
+     *
+     * @see #execute(FutureTask, Priority, Collection)
+     */
+    protected boolean execute(FutureTask<?> request, Priority priority) {
+        return execute(request, priority, NO_KEYS);
+    }
+
+    /**
+     * Enqueues the request with the given priority. The request is never picked ahead of an
+     * earlier request touching any of the same keys; should such a request have a lower priority,
+     * it's raised to the priority of this one. If the queue is full the overflow policy of this
+     * client decides what happens. A request that is rejected is canceled.
+     *
+     * @param request
+     *         The request to enqueue.
+     * @param priority
+     *         The priority of the request.
+     * @param keys
+     *         The keys the request reads or writes, or null if it may touch any key.
+     *
+     * @return Boolean true if the request was enqueued, boolean false if it was rejected.
+     */
+    protected boolean execute(FutureTask<?> request, Priority priority, Collection<?> keys) {
+        if (priority == null) {
+            priority = Priority.INTERACTIVE;
+        }
+
+        if (!acquireQueuePermit()) {
+            rejectedCount.incrementAndGet();
+            request.cancel(false);
+            return false;
+        }
+
+        Set<Object> keySet = keys == NO_KEYS ? NO_KEYS : keys != null ? new HashSet<Object>(keys) : null;
+        ScheduledTask task = new ScheduledTask(request, priority, keySet);
+        queueDepths.incrementAndGet(priority.ordinal());
+
+        try {
+            if (keySet == NO_KEYS) {
+                executorService.execute(task);
+            } else {
+                // Conflicting requests are raised and enqueued atomically, so that no other
+                // request can slip in between.
+                synchronized (orderingLock) {
+                    raiseConflictingTasks(task);
+                    executorService.execute(task);
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            onDequeued(task);
+            rejectedCount.incrementAndGet();
+            request.cancel(false);
+            return false;
+        }
+
+        return true;
     }
 
-    protected void execute(FutureTask<?> request) {
-        executorService.execute(request);
+    /**
+     * @return The number of requests currently waiting for a worker thread.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+
+        for (int i = 0, size = queueDepths.length(); i < size; i++) {
+            depth += queueDepths.get(i);
+        }
+
+        return depth;
+    }
+
+    /**
+     * @return The number of requests of the given priority currently waiting for a worker thread.
+     */
+    public int getQueueDepth(Priority priority) {
+        return queueDepths.get(priority.ordinal());
+    }
+
+    /**
+     * @return The max number of requests waiting for a worker thread.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return The average time, in milliseconds, requests of the given priority have waited for a
+     * worker thread.
+     */
+    public long getAverageWaitTimeMillis(Priority priority) {
+        long count = waitCounts.get(priority.ordinal());
+        return count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get(priority.ordinal()) / count) : 0L;
+    }
+
+    /**
+     * @return The longest time, in milliseconds, any request of the given priority has waited for a
+     * worker thread.
+     */
+    public long getMaxWaitTimeMillis(Priority priority) {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get(priority.ordinal()));
+    }
+
+    /**
+     * @return The number of prefetch requests dropped to make room for newer requests.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return The number of requests rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private boolean acquireQueuePermit() {
+        if (queuePermits.tryAcquire()) {
+            return true;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                return acquireQueuePermitBlocking();
+            case DROP_OLDEST_PREFETCH:
+                // The permit of the dropped request is handed over to the new one.
+                if (dropOldestPrefetch() || queuePermits.tryAcquire()) {
+                    return true;
+                }
+
+                return acquireQueuePermitBlocking();
+            case REJECT:
+            default:
+                return false;
+        }
+    }
+
+    private boolean acquireQueuePermitBlocking() {
+        if (isWorkerThread.get() != null) {
+            return false;
+        }
+
+        try {
+            queuePermits.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Raises the priority of any queued task that conflicts with the given one, and that would
+     * otherwise be picked after it, to the priority of the given task. Tasks conflicting with a
+     * raised task are raised as well, keeping every pair of conflicting tasks in enqueue order.
+     */
+    private void raiseConflictingTasks(ScheduledTask task) {
+        List<ScheduledTask> earlier = new ArrayList<ScheduledTask>();
+
+        for (ScheduledTask queued : queue) {
+            if (queued.sequence < task.sequence) {
+                earlier.add(queued);
+            }
+        }
+
+        // Walk backwards from the newest task, so that raised tasks can raise older ones.
+        Collections.sort(earlier, new Comparator<ScheduledTask>() {
+            @Override
+            public int compare(ScheduledTask lhs, ScheduledTask rhs) {
+                return lhs.sequence > rhs.sequence ? -1 : (lhs.sequence == rhs.sequence ? 0 : 1);
+            }
+        });
+
+        List<ScheduledTask> raised = new ArrayList<ScheduledTask>();
+        raised.add(task);
+
+        for (ScheduledTask queued : earlier) {
+            if (queued.priority.compareTo(task.priority) <= 0) {
+                continue;
+            }
+
+            for (ScheduledTask later : raised) {
+                if (queued.conflictsWith(later)) {
+                    // The task may have been picked by a worker since we found it.
+                    if (queue.remove(queued)) {
+                        queueDepths.decrementAndGet(queued.priority.ordinal());
+                        queued.priority = task.priority;
+                        queueDepths.incrementAndGet(queued.priority.ordinal());
+                        queue.add(queued);
+                        raised.add(queued);
+                    }
+
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean dropOldestPrefetch() {
+        while (true) {
+            ScheduledTask oldest = null;
+
+            for (ScheduledTask task : queue) {
+                if (task.priority == Priority.PREFETCH && (oldest == null || task.sequence < oldest.sequence)) {
+                    oldest = task;
+                }
+            }
+
+            if (oldest == null) {
+                return false;
+            }
+
+            // The task may have been picked by a worker since we found it.
+            if (queue.remove(oldest)) {
+                queueDepths.decrementAndGet(oldest.priority.ordinal());
+                droppedCount.incrementAndGet();
+                oldest.request.cancel(false);
+                return true;
+            }
+        }
+    }
+
+    private void onDequeued(ScheduledTask task) {
+        queueDepths.decrementAndGet(task.priority.ordinal());
+        queuePermits.release();
+    }
+
+    private void recordWaitTime(Priority priority, long waitNanos) {
+        int index = priority.ordinal();
+        waitCounts.incrementAndGet(index);
+        totalWaitNanos.addAndGet(index, waitNanos);
+
+        long max = maxWaitNanos.get(index);
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(index, max, waitNanos)) {
+            max = maxWaitNanos.get(index);
+        }
     }
 
 }
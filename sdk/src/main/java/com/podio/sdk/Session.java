@@ -8,10 +8,11 @@ import org.json.JSONObject;
 
 public class Session {
 
-    private static String accessToken;
-    private static String refreshToken;
-    private static String transferToken;
-    private static long expires;
+    // The tokens are read by the network threads of all HTTP clients.
+    private static volatile String accessToken;
+    private static volatile String refreshToken;
+    private static volatile String transferToken;
+    private static volatile long expires;
 
     public static String accessToken() {
         return accessToken;
@@ -29,7 +30,7 @@ public class Session {
         return transferToken;
     }
 
-    public static void set(String jsonString) {
+    public static synchronized void set(String jsonString) {
         JSONObject jsonObject = null;
 
         try {
@@ -59,7 +60,7 @@ public class Session {
         set(accessToken, refreshToken, null, expires);
     }
 
-    public static void set(String accessToken, String refreshToken, String transferToken, long expires) {
+    public static synchronized void set(String accessToken, String refreshToken, String transferToken, long expires) {
         Session.accessToken = accessToken;
         Session.refreshToken = refreshToken;
         Session.transferToken = transferToken;
@@ -1,6 +1,9 @@
 
 package com.podio.sdk;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Definition of capabilities for a Store object.
  * 
@@ -32,6 +35,20 @@ public interface Store {
      */
     public <T> Request<T> get(Object key, Class<T> classOfValue);
 
+    /**
+     * Enables means of retrieving several objects from the store in one
+     * operation.
+     * 
+     * @param keys
+     *        The keys of the objects to retrieve.
+     * @param classOfValue
+     *        The Class definition of any disk persisted JSON.
+     * @return The future task which enables hooking in callback listeners. It
+     *         delivers the found objects by key; keys without an object are
+     *         left out.
+     */
+    public <T> Request<Map<Object, T>> getAll(Collection<?> keys, Class<T> classOfValue);
+
     /**
      * Enables means of adding or replacing an item with the given key in the
      * store.
@@ -44,6 +61,16 @@ public interface Store {
      */
     public Request<Void> set(Object key, Object value);
 
+    /**
+     * Enables means of adding or replacing several items in the store in one
+     * operation.
+     * 
+     * @param values
+     *        The objects to cache by key.
+     * @return The future task which enables hooking in callback listeners.
+     */
+    public Request<Void> setAll(Map<?, ?> values);
+
     /**
      * Enables means of removing an object with the given key from the store.
      * 
@@ -53,4 +80,14 @@ public interface Store {
      */
     public Request<Void> remove(Object key);
 
+    /**
+     * Enables means of removing several objects from the store in one
+     * operation.
+     * 
+     * @param keys
+     *        The keys of the objects to remove.
+     * @return The future task which enables hooking in callback listeners.
+     */
+    public Request<Void> removeAll(Collection<?> keys);
+
 }
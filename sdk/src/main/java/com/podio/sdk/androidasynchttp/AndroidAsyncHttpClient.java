@@ -8,6 +8,7 @@ import com.podio.sdk.Client;
 import com.podio.sdk.Filter;
 import com.podio.sdk.Request;
 import com.podio.sdk.provider.FileProvider;
+import com.podio.sdk.volley.VolleyTransport;
 
 import java.io.File;
 
@@ -15,11 +16,18 @@ import cz.msebera.android.httpclient.conn.ssl.SSLSocketFactory;
 
 public class AndroidAsyncHttpClient implements Client {
 
+    /**
+     * Uploads are few and far between; there is no point in keeping more connections than that.
+     */
+    private static final int MAX_CONNECTIONS = 2;
+
     protected String scheme;
     protected String authority;
 
     private AsyncHttpClient client;
     private Context context;
+    private String userAgent;
+    private SSLSocketFactory sslSocketFactory;
 
     @Override
     public Request<Void> authenticateWithUserCredentials(String username, String password) {
@@ -46,7 +54,7 @@ public class AndroidAsyncHttpClient implements Client {
     public <T> Request<T> request(Request.Method method, Filter filter, Object item, Class<T> classOfResult) {
         if (filter instanceof FileProvider.FileFilter && method == Request.Method.POST && item instanceof File) {
             String url = filter.buildUri(scheme, authority).toString();
-            AndroidAsyncHttpRequest<T> request = new AndroidAsyncHttpRequest<>(client, context, url, (File) item, classOfResult);
+            AndroidAsyncHttpRequest<T> request = new AndroidAsyncHttpRequest<>(getClient(), context, url, (File) item, classOfResult);
             request.performRequest();
             return request;
         } else {
@@ -58,15 +66,32 @@ public class AndroidAsyncHttpClient implements Client {
         this.context = context;
         this.scheme = scheme;
         this.authority = authority;
+        this.userAgent = userAgent;
+        this.sslSocketFactory = sslSocketFactory;
 
-        client = new AsyncHttpClient();
-        client.setTimeout(CLIENT_DEFAULT_TIMEOUT_MS);
-        if (userAgent != null) {
-            client.setUserAgent(userAgent);
-        }
-        if (sslSocketFactory != null) {
-            client.setSSLSocketFactory(sslSocketFactory);
+        // The HTTP client is created on the first upload.
+        client = null;
+    }
+
+    /**
+     * Returns the HTTP client, creating it on the first call. The client runs its requests on the
+     * worker thread pool shared with the rest of the SDK rather than on a pool of its own.
+     */
+    private synchronized AsyncHttpClient getClient() {
+        if (client == null) {
+            client = new AsyncHttpClient();
+            client.setThreadPool(VolleyTransport.getExecutorService());
+            client.setMaxConnections(MAX_CONNECTIONS);
+            client.setTimeout(CLIENT_DEFAULT_TIMEOUT_MS);
+            if (userAgent != null) {
+                client.setUserAgent(userAgent);
+            }
+            if (sslSocketFactory != null) {
+                client.setSSLSocketFactory(sslSocketFactory);
+            }
         }
+
+        return client;
     }
 
 }
@@ -5,7 +5,7 @@ import android.content.Context;
 
 import com.google.gson.JsonSyntaxException;
 import com.loopj.android.http.AsyncHttpClient;
-import com.loopj.android.http.BaseJsonHttpResponseHandler;
+import com.loopj.android.http.AsyncHttpResponseHandler;
 import com.loopj.android.http.RequestParams;
 import com.podio.sdk.ApiError;
 import com.podio.sdk.ConnectionError;
@@ -19,6 +19,7 @@ import com.podio.sdk.json.JsonParser;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.UnsupportedEncodingException;
 import java.net.SocketTimeoutException;
 import java.util.Calendar;
 import java.util.concurrent.TimeUnit;
@@ -103,43 +104,83 @@ public class AndroidAsyncHttpRequest<T> implements Request<T>, Request.SessionLi
     public void performRequest() {
         if (isSessionAboutToExpire() && !attemptedReauth) {
             attemptedReauth = true;
-            Podio.client.forceRefreshTokens().withSessionListener(this);
+            refreshSessionAndRunRequest();
         } else {
             runRequest();
         }
     }
 
+    /**
+     * Joins the token refresh shared by all clients (or starts it if none is pending) and runs
+     * the request once it has finished. If the refresh fails, the request is run anyway and will
+     * fail on its own if the access token isn't valid.
+     */
+    private void refreshSessionAndRunRequest() {
+        Request<Void> refreshRequest = Podio.client.forceRefreshTokens();
+
+        if (refreshRequest == null) {
+            runRequest();
+            return;
+        }
+
+        refreshRequest.withSessionListener(this).withErrorListener(new ErrorListener() {
+            @Override
+            public boolean onErrorOccurred(Throwable cause) {
+                runRequest();
+                return false;
+            }
+        });
+    }
+
     private void runRequest() {
         try {
             RequestParams params = new RequestParams();
             params.put("source", file);
             params.put("filename", file.getName());
-            client.post(context, url, getHeaders(), params, null
-                    , new BaseJsonHttpResponseHandler<T>() {
+            client.post(context, url, getHeaders(), params, null, new AsyncHttpResponseHandler() {
 
                 @Override
-                protected T parseResponse(String rawJsonData, boolean isFailure) throws Throwable {
-                    T result;
-                    if (isFailure || classOfResult == null || classOfResult == Void.class) {
-                        result = null;
+                public void onSuccess(int statusCode, Header[] headers, final byte[] responseBody) {
+                    // Parse the raw response bytes on a worker thread and deliver the result on the
+                    // thread this handler was created on.
+                    Runnable parser = new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                result = parseResponse(responseBody, getCharset());
+                                postRunnable(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        deliverResponse();
+                                    }
+                                });
+                            } catch (final Throwable throwable) {
+                                postRunnable(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        error = new PodioError(throwable);
+                                        deliverError();
+                                    }
+                                });
+                            }
+                        }
+                    };
+
+                    if (!getUseSynchronousMode() && !getUsePoolThread()) {
+                        new Thread(parser).start();
                     } else {
-                        result = JsonParser.fromJson(rawJsonData, classOfResult);
+                        parser.run();
                     }
-                    return result;
-                }
-
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, String rawJsonResponse, T response) {
-                    result = response;
-                    deliverResponse();
                 }
 
                 @Override
-                public void onFailure(int statusCode, Header[] headers, Throwable throwable, String rawJsonData, T errorResponse) {
+                public void onFailure(int statusCode, Header[] headers, byte[] responseBody, Throwable throwable) {
                     if (statusCode == HttpStatus.SC_UNAUTHORIZED && !attemptedReauth) {
                         attemptedReauth = true;
-                        Podio.client.forceRefreshTokens().withSessionListener(AndroidAsyncHttpRequest.this);
+                        refreshSessionAndRunRequest();
                     } else {
+                        String rawJsonData = getResponseString(responseBody, getCharset());
+
                         if (throwable instanceof ConnectTimeoutException || throwable instanceof SocketTimeoutException) {
                             error = new NoResponseError(throwable);
                         } else if (rawJsonData != null) {
@@ -161,6 +202,23 @@ public class AndroidAsyncHttpRequest<T> implements Request<T>, Request.SessionLi
         }
     }
 
+    private T parseResponse(byte[] responseBody, String charset) throws UnsupportedEncodingException {
+        if (classOfResult == null || classOfResult == Void.class) {
+            return null;
+        }
+
+        // Parse straight from the raw bytes to avoid an intermediate copy of the body.
+        return JsonParser.fromJson(responseBody, charset, classOfResult);
+    }
+
+    private static String getResponseString(byte[] responseBody, String charset) {
+        try {
+            return responseBody != null ? new String(responseBody, charset) : null;
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
     private void deliverError() {
         isDone = true;
         callbackManager.deliverError(this.error);
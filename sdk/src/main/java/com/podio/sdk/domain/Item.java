@@ -10,6 +10,7 @@ import com.podio.sdk.internal.Utils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -42,6 +43,23 @@ public class Item implements Data {
             this.sort_nulls_last = false;
         }
 
+        /**
+         * Creates a copy of the given filter data, which can be changed without affecting the
+         * original.
+         *
+         * @param source
+         *         The filter data to copy.
+         */
+        public FilterData(FilterData source) {
+            this.filters = new HashMap<String, Object>(source.filters);
+            this.sort_desc = source.sort_desc;
+            this.limit = source.limit;
+            this.offset = source.offset;
+            this.remember = source.remember;
+            this.sort_by = source.sort_by;
+            this.sort_nulls_last = source.sort_nulls_last;
+        }
+
         public void addConstraint(String key, Object value) {
             if (Utils.notEmpty(key) && value != null) {
                 filters.put(key, value);
@@ -52,6 +70,10 @@ public class Item implements Data {
             return filters.get(key);
         }
 
+        public Map<String, Object> getConstraints() {
+            return Collections.unmodifiableMap(filters);
+        }
+
         public boolean getDoRemember() {
             return Utils.getNative(remember, false);
         }
@@ -60,6 +82,10 @@ public class Item implements Data {
             return Utils.getNative(sort_desc, false);
         }
 
+        public boolean getDoSortNullLast() {
+            return Utils.getNative(sort_nulls_last, false);
+        }
+
         public int getLimit() {
             return Utils.getNative(limit, 0);
         }
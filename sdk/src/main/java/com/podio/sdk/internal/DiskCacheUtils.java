@@ -0,0 +1,136 @@
+package com.podio.sdk.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers shared by the disk caches of the SDK, i.e. the image disk cache and the disk store of the
+ * local store.
+ *
+ */
+public final class DiskCacheUtils {
+
+    /**
+     * Once a cache has outgrown its max size, eviction continues until the rest fits in this share
+     * of the max size. The headroom keeps a cache that is full from evicting on every write.
+     */
+    public static final float EVICTION_TARGET_RATIO = 0.9f;
+
+    private static final Charset KEY_CHARSET = Charset.forName("UTF-8");
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private DiskCacheUtils() {
+    }
+
+    /**
+     * Picks the entries to evict from a cache that has outgrown its max size, in the given order,
+     * until the rest fits in the eviction target.
+     *
+     * @param sizes
+     *         The sizes of the cached entries, in bytes, by key. Iterated in eviction order, i.e.
+     *         least used first.
+     * @param sizeInBytes
+     *         The total size of the cached entries.
+     * @param maxSizeInBytes
+     *         The max size of the cache.
+     * @param maxCount
+     *         The max number of entries to pick.
+     *
+     * @return The keys of the entries to evict, in eviction order. Empty if the cache fits.
+     *
+     * @see #EVICTION_TARGET_RATIO
+     */
+    public static <K> List<K> selectVictims(Map<K, Long> sizes, long sizeInBytes, long maxSizeInBytes, int maxCount) {
+        if (sizeInBytes <= maxSizeInBytes) {
+            return Collections.emptyList();
+        }
+
+        long targetSize = (long) (maxSizeInBytes * EVICTION_TARGET_RATIO);
+        long remainingSize = sizeInBytes;
+        List<K> victims = new ArrayList<K>();
+
+        for (Map.Entry<K, Long> entry : sizes.entrySet()) {
+            if (remainingSize <= targetSize || victims.size() >= maxCount) {
+                break;
+            }
+
+            victims.add(entry.getKey());
+            remainingSize -= entry.getValue();
+        }
+
+        return victims;
+    }
+
+    /**
+     * Hashes the given key into a file name. The name is the SHA-1 hash of the UTF-8 bytes of the
+     * key, as 40 lower case hex digits.
+     *
+     * @param key
+     *         The key to hash.
+     *
+     * @return The file name.
+     */
+    public static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(KEY_CHARSET));
+            char[] hex = new char[digest.length * 2];
+
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+                hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0f];
+            }
+
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the entire content of the given file.
+     *
+     * @param file
+     *         The file to read.
+     *
+     * @return The content of the file, possibly empty.
+     *
+     * @throws IOException
+     *         If the file can't be read, or turns out shorter than its length said.
+     */
+    public static byte[] readFile(File file) throws IOException {
+        long length = file.length();
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("Unexpected file length: " + length);
+        }
+
+        byte[] bytes = new byte[(int) length];
+        FileInputStream fileInputStream = new FileInputStream(file);
+
+        try {
+            int offset = 0;
+            int count;
+
+            while (offset < bytes.length && (count = fileInputStream.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += count;
+            }
+
+            if (offset < bytes.length) {
+                throw new IOException("Unexpected end of file: " + file);
+            }
+        } finally {
+            fileInputStream.close();
+        }
+
+        return bytes;
+    }
+
+}
@@ -1,11 +1,13 @@
 package com.podio.sdk.json;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.podio.sdk.domain.Application;
 import com.podio.sdk.domain.DataReference;
 import com.podio.sdk.domain.File;
@@ -18,14 +20,17 @@ import com.podio.sdk.domain.data.Data;
 import com.podio.sdk.domain.data.UnknownData;
 import com.podio.sdk.internal.DefaultHashMap;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.Map;
 
 /**
- * Resolves the reference object received in a URL resolver API call in the references API area
+ * Resolves the reference object received in a URL resolver API call in the references API area.
+ * The "data" object is streamed straight into the data class matching the reference type, unless
+ * it precedes the "type" property in the JSON, in which case it's buffered until the type is
+ * known.
  *
  */
-public class DataReferenceDeserializer implements JsonDeserializer<DataReference> {
+public class DataReferenceDeserializer implements TypeAdapterFactory {
 
     private Map<ReferenceType, Class<? extends Data>> dataClassesMap;
 
@@ -40,21 +45,83 @@ public class DataReferenceDeserializer implements JsonDeserializer<DataReference
     }
 
     @Override
-    public DataReference deserialize(JsonElement element, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-
-        if (element == null || element.isJsonNull()) {
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != DataReference.class) {
             return null;
         }
 
-        JsonObject jsonObject = element.getAsJsonObject();
-        ReferenceType referenceType = ReferenceType.getType(jsonObject.get("type").getAsString());
-        String title = jsonObject.get("title").getAsString();
-        long id = jsonObject.get("id").getAsLong();
-        Gson gson = new Gson();
-        Data data = gson.fromJson(jsonObject.get("data"), dataClassesMap.get(referenceType));
+        TypeAdapter<DataReference> delegate = gson.getDelegateAdapter(this, TypeToken.get(DataReference.class));
+        return (TypeAdapter<T>) new DataReferenceTypeAdapter(delegate, gson.getAdapter(JsonElement.class));
+    }
+
+    private final class DataReferenceTypeAdapter extends TypeAdapter<DataReference> {
+        private final TypeAdapter<DataReference> delegate;
+        private final TypeAdapter<JsonElement> elementAdapter;
+
+        // The data objects have always been parsed with a default Gson configuration.
+        private final Gson dataGson;
+
+        private DataReferenceTypeAdapter(TypeAdapter<DataReference> delegate, TypeAdapter<JsonElement> elementAdapter) {
+            this.delegate = delegate;
+            this.elementAdapter = elementAdapter;
+            this.dataGson = new Gson();
+        }
+
+        @Override
+        public DataReference read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            ReferenceType referenceType = null;
+            String title = null;
+            long id = -1L;
+            Data data = null;
+            JsonElement bufferedData = null;
+
+            in.beginObject();
 
-        DataReference reference = new DataReference(title, data, referenceType.name(), id);
+            while (in.hasNext()) {
+                String name = in.nextName();
 
-        return reference;
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else if ("type".equals(name)) {
+                    referenceType = ReferenceType.getType(in.nextString());
+                } else if ("title".equals(name)) {
+                    title = in.nextString();
+                } else if ("id".equals(name)) {
+                    id = in.nextLong();
+                } else if ("data".equals(name)) {
+                    if (referenceType != null) {
+                        data = dataGson.getAdapter(dataClassesMap.get(referenceType)).read(in);
+                    } else {
+                        bufferedData = elementAdapter.read(in);
+                    }
+                } else {
+                    in.skipValue();
+                }
+            }
+
+            in.endObject();
+
+            if (referenceType == null) {
+                referenceType = ReferenceType.unknown;
+            }
+
+            if (bufferedData != null) {
+                data = dataGson.getAdapter(dataClassesMap.get(referenceType)).fromJsonTree(bufferedData);
+            }
+
+            return new DataReference(title, data, referenceType.name(), id);
+        }
+
+        @Override
+        public void write(JsonWriter out, DataReference value) throws IOException {
+            delegate.write(out, value);
+        }
     }
+
 }
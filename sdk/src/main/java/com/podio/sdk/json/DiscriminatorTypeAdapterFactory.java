@@ -0,0 +1,150 @@
+package com.podio.sdk.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A base class for type adapter factories handling polymorphic domain models where the concrete
+ * class is decided by a single discriminator property, e.g. "type". The created type adapter only
+ * buffers the properties preceding the discriminator. As soon as the discriminator is read, the
+ * concrete class is looked up in the given registry and all remaining properties are streamed
+ * straight into the regular Gson type adapter of it, see {@link ReplayingJsonReader}.
+ * <p/>
+ * Serialization is performed with the regular Gson type adapter of the runtime class of the value.
+ *
+ * @param <B>
+ *         The polymorphic base type.
+ * @param <K>
+ *         The type of the registry keys, typically an enumeration.
+ *
+ */
+abstract class DiscriminatorTypeAdapterFactory<B, K> implements TypeAdapterFactory {
+
+    /**
+     * Returns the string value of the given JSON element, or null if it isn't a JSON primitive.
+     *
+     * @param element
+     *         The element to read the string value of.
+     *
+     * @return The string value or null.
+     */
+    protected static String getAsString(JsonElement element) {
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    private final Class<B> baseType;
+    private final String discriminatorName;
+    private final Map<K, Class<? extends B>> classesMap;
+
+    /**
+     * Creates a new factory for the given polymorphic base type.
+     *
+     * @param baseType
+     *         The base type this factory creates a type adapter for.
+     * @param discriminatorName
+     *         The name of the JSON property deciding the concrete class.
+     * @param classesMap
+     *         The registry of concrete classes. A {@link com.podio.sdk.internal.DefaultHashMap
+     *         DefaultHashMap} is recommended in order to handle unknown discriminators gracefully.
+     */
+    protected DiscriminatorTypeAdapterFactory(Class<B> baseType, String discriminatorName, Map<K, Class<? extends B>> classesMap) {
+        this.baseType = baseType;
+        this.discriminatorName = discriminatorName;
+        this.classesMap = classesMap;
+    }
+
+    /**
+     * Translates the discriminator property value into a registry key.
+     *
+     * @param discriminator
+     *         The discriminator value, or null if the JSON object didn't have one.
+     *
+     * @return The registry key of the concrete class to create.
+     */
+    protected abstract K getKey(JsonElement discriminator);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        return type.getRawType() == baseType ?
+                (TypeAdapter<T>) new DiscriminatorTypeAdapter(gson) :
+                null;
+    }
+
+    private final class DiscriminatorTypeAdapter extends TypeAdapter<B> {
+        private final Gson gson;
+        private final TypeAdapter<JsonElement> elementAdapter;
+        private final HashMap<Class<? extends B>, TypeAdapter<B>> delegates;
+
+        private DiscriminatorTypeAdapter(Gson gson) {
+            this.gson = gson;
+            this.elementAdapter = gson.getAdapter(JsonElement.class);
+            this.delegates = new HashMap<Class<? extends B>, TypeAdapter<B>>();
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized TypeAdapter<B> getDelegate(Class<? extends B> classOfValue) {
+            TypeAdapter<B> delegate = delegates.get(classOfValue);
+
+            if (delegate == null) {
+                TypeAdapterFactory skipPast = DiscriminatorTypeAdapterFactory.this;
+                delegate = (TypeAdapter<B>) gson.getDelegateAdapter(skipPast, TypeToken.get(classOfValue));
+                delegates.put(classOfValue, delegate);
+            }
+
+            return delegate;
+        }
+
+        @Override
+        public B read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            in.beginObject();
+
+            // Buffer anything preceding the discriminator, including the discriminator itself.
+            JsonObject readAhead = new JsonObject();
+            JsonElement discriminator = null;
+
+            while (discriminator == null && in.hasNext()) {
+                String name = in.nextName();
+                JsonElement value = elementAdapter.read(in);
+                readAhead.add(name, value);
+
+                if (discriminatorName.equals(name)) {
+                    discriminator = value;
+                }
+            }
+
+            // Stream the remaining properties straight into the concrete instance.
+            TypeAdapter<B> delegate = getDelegate(classesMap.get(getKey(discriminator)));
+            return ReplayingJsonReader.read(in, readAhead, delegate, elementAdapter);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void write(JsonWriter out, B value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            TypeAdapter<B> adapter = (TypeAdapter<B>) gson.getAdapter(value.getClass());
+            adapter.write(out, value);
+        }
+    }
+
+}
@@ -1,13 +1,7 @@
 
 package com.podio.sdk.json;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
 import com.podio.sdk.domain.ReferenceType;
 import com.podio.sdk.domain.stream.EventActivity;
 import com.podio.sdk.domain.stream.FileEventActivity;
@@ -22,7 +16,6 @@ import com.podio.sdk.domain.stream.UnknownEventActivity;
 import com.podio.sdk.domain.stream.VoteEventActivity;
 import com.podio.sdk.internal.DefaultHashMap;
 
-import java.lang.reflect.Type;
 import java.util.Map;
 
 /**
@@ -31,37 +24,27 @@ import java.util.Map;
  * we are handling.
  *
  */
-class EventActivityDeserializerSerializer implements JsonDeserializer<EventActivity>, JsonSerializer<EventActivity> {
+class EventActivityDeserializerSerializer extends DiscriminatorTypeAdapterFactory<EventActivity, ReferenceType> {
 
-    private Map<ReferenceType, Class<? extends EventActivity>> mEventActivityClassesMap;
-
-    public EventActivityDeserializerSerializer() {
-        mEventActivityClassesMap = new DefaultHashMap<ReferenceType, Class<? extends EventActivity>>(UnknownEventActivity.class);
-        mEventActivityClassesMap.put(ReferenceType.grant, GrantEventActivity.class);
-        mEventActivityClassesMap.put(ReferenceType.item, ItemEventActivity.class);
-        mEventActivityClassesMap.put(ReferenceType.item_participation, ItemParticipationEventActivity.class);
-        mEventActivityClassesMap.put(ReferenceType.question_answer, QuestionAnswerEventActivity.class);
-        mEventActivityClassesMap.put(ReferenceType.rating, RatingEventActivity.class);
-        mEventActivityClassesMap.put(ReferenceType.task_action, TaskActionEventActivity.class);
-        mEventActivityClassesMap.put(ReferenceType.task, TaskEventActivity.class);
-        mEventActivityClassesMap.put(ReferenceType.vote, VoteEventActivity.class);
-        mEventActivityClassesMap.put(ReferenceType.file, FileEventActivity.class);
+    EventActivityDeserializerSerializer() {
+        this(new DefaultHashMap<ReferenceType, Class<? extends EventActivity>>(UnknownEventActivity.class));
     }
 
-    @Override
-    public EventActivity deserialize(JsonElement element, Type type, JsonDeserializationContext gsonContext) throws JsonParseException {
-        if (element == null || element.isJsonNull()) {
-            return null;
-        }
-
-        JsonObject jsonObject = element.getAsJsonObject();
-        ReferenceType referenceType = ReferenceType.getType(jsonObject.get("type").getAsString());
-
-        return gsonContext.deserialize(jsonObject, mEventActivityClassesMap.get(referenceType));
+    private EventActivityDeserializerSerializer(Map<ReferenceType, Class<? extends EventActivity>> classesMap) {
+        super(EventActivity.class, "type", classesMap);
+        classesMap.put(ReferenceType.grant, GrantEventActivity.class);
+        classesMap.put(ReferenceType.item, ItemEventActivity.class);
+        classesMap.put(ReferenceType.item_participation, ItemParticipationEventActivity.class);
+        classesMap.put(ReferenceType.question_answer, QuestionAnswerEventActivity.class);
+        classesMap.put(ReferenceType.rating, RatingEventActivity.class);
+        classesMap.put(ReferenceType.task_action, TaskActionEventActivity.class);
+        classesMap.put(ReferenceType.task, TaskEventActivity.class);
+        classesMap.put(ReferenceType.vote, VoteEventActivity.class);
+        classesMap.put(ReferenceType.file, FileEventActivity.class);
     }
 
     @Override
-    public JsonElement serialize(EventActivity eventActivity, Type typeOfSrc, JsonSerializationContext gsonContext) {
-        return gsonContext.serialize(eventActivity, mEventActivityClassesMap.get(eventActivity.getType()));
+    protected ReferenceType getKey(JsonElement discriminator) {
+        return ReferenceType.getType(getAsString(discriminator));
     }
 }
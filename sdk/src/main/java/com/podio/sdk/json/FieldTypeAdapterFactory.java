@@ -0,0 +1,202 @@
+package com.podio.sdk.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.podio.sdk.domain.field.CalculationField;
+import com.podio.sdk.domain.field.Field;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Creates a streaming type adapter for the polymorphic {@link Field} domain model. The concrete
+ * field class is decided by the "type" property. All properties preceding the type are buffered,
+ * everything after it is streamed straight into the regular Gson type adapter of the concrete field
+ * class, see {@link ReplayingJsonReader}.
+ * <p/>
+ * Calculation fields have values of different types depending on the "return_type" setting in the
+ * field configuration, which may come before or after the values in the JSON. Calculation fields
+ * are therefore read into a JSON tree, and their values are parsed once the configuration is
+ * known.
+ *
+ */
+class FieldTypeAdapterFactory implements TypeAdapterFactory {
+    private static final String TYPE = "type";
+    private static final String VALUES = "values";
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        return type.getRawType() == Field.class ?
+                (TypeAdapter<T>) new FieldTypeAdapter(gson, this) :
+                null;
+    }
+
+    private static final class FieldTypeAdapter extends TypeAdapter<Field<?>> {
+        private final Gson gson;
+        private final Gson valueGson;
+        private final TypeAdapterFactory skipPast;
+        private final TypeAdapter<JsonElement> elementAdapter;
+        private final EnumMap<Field.Type, TypeAdapter<Field<?>>> delegates;
+
+        private FieldTypeAdapter(Gson gson, TypeAdapterFactory skipPast) {
+            this.gson = gson;
+            this.skipPast = skipPast;
+            this.elementAdapter = gson.getAdapter(JsonElement.class);
+            this.delegates = new EnumMap<Field.Type, TypeAdapter<Field<?>>>(Field.Type.class);
+
+            // Calculation values have always been parsed with a default Gson configuration.
+            this.valueGson = new Gson();
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized TypeAdapter<Field<?>> getDelegate(Field.Type type) {
+            TypeAdapter<Field<?>> delegate = delegates.get(type);
+
+            if (delegate == null) {
+                Class<?> classOfField = type.getFieldClass();
+                delegate = (TypeAdapter<Field<?>>) gson.getDelegateAdapter(skipPast, TypeToken.get(classOfField));
+                delegates.put(type, delegate);
+            }
+
+            return delegate;
+        }
+
+        @Override
+        public Field<?> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            in.beginObject();
+
+            // Buffer anything preceding the type discriminator.
+            JsonObject readAhead = new JsonObject();
+            Field.Type type = null;
+
+            while (type == null && in.hasNext()) {
+                String name = in.nextName();
+
+                if (TYPE.equals(name)) {
+                    type = readType(in);
+                } else {
+                    readAhead.add(name, elementAdapter.read(in));
+                }
+            }
+
+            if (type == null) {
+                type = Field.Type.undefined;
+            }
+
+            // Unknown types are explicitly stated as undefined rather than null.
+            readAhead.addProperty(TYPE, type.name());
+
+            if (type == Field.Type.calculation) {
+                return readCalculationField(in, readAhead, getDelegate(type));
+            }
+
+            // Ensure that we always have a "values" list, even if it's empty, as this is needed
+            // when creating new items. Any values later in the stream replace the empty list.
+            if (!readAhead.has(VALUES)) {
+                readAhead.add(VALUES, new JsonArray());
+            }
+
+            return ReplayingJsonReader.read(in, readAhead, getDelegate(type), elementAdapter);
+        }
+
+        @Override
+        public void write(JsonWriter out, Field<?> field) throws IOException {
+            if (field == null) {
+                out.nullValue();
+                return;
+            }
+
+            Field.Type type = field.getType();
+            TypeAdapter<Field<?>> delegate = getDelegate(type);
+
+            if (type != Field.Type.calculation) {
+                delegate.write(out, field);
+                return;
+            }
+
+            CalculationField calculationField = (CalculationField) field;
+            Class<? extends Field.Value> classOfValue = getReturnType(calculationField).getFieldValueClass();
+            JsonObject json = delegate.toJsonTree(field).getAsJsonObject();
+            JsonArray values = new JsonArray();
+
+            for (Field.Value value : calculationField.getValues()) {
+                values.add(valueGson.toJsonTree(value, classOfValue));
+            }
+
+            json.add(VALUES, values);
+            elementAdapter.write(out, json);
+        }
+
+        /**
+         * Reads the rest of a calculation field into the given JSON tree and parses its values
+         * into value objects of subclass type NumberField.Value, DateField.Value or
+         * TextField.Value, based on the return type in the configuration.
+         * <p/>
+         * Unlike the other field types, a calculation field is still read into a tree, as its
+         * values may precede the configuration holding their return type.
+         */
+        private Field<?> readCalculationField(JsonReader in, JsonObject json, TypeAdapter<Field<?>> delegate) throws IOException {
+            while (in.hasNext()) {
+                json.add(in.nextName(), elementAdapter.read(in));
+            }
+
+            in.endObject();
+
+            // Calculation values are parsed separately and added to an initially empty list.
+            JsonElement jsonValues = json.remove(VALUES);
+            json.add(VALUES, new JsonArray());
+            CalculationField field = (CalculationField) delegate.fromJsonTree(json);
+
+            if (jsonValues != null && jsonValues.isJsonArray()) {
+                List<Field.Value> values = new ArrayList<Field.Value>();
+                TypeAdapter<? extends Field.Value> valueAdapter = valueGson.getAdapter(getReturnType(field).getFieldValueClass());
+
+                for (JsonElement jsonValue : jsonValues.getAsJsonArray()) {
+                    values.add(valueAdapter.fromJsonTree(jsonValue));
+                }
+
+                if (!values.isEmpty()) {
+                    field.setValues(values);
+                }
+            }
+
+            return field;
+        }
+
+        private static Field.Type readType(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return Field.Type.undefined;
+            }
+
+            try {
+                return Field.Type.valueOf(in.nextString());
+            } catch (IllegalArgumentException e) {
+                return Field.Type.undefined;
+            }
+        }
+
+        private static CalculationField.ReturnType getReturnType(CalculationField field) {
+            CalculationField.Configuration configuration = field.getConfiguration();
+            CalculationField.ReturnType returnType = configuration != null ? configuration.getReturnType() : null;
+            return returnType != null ? returnType : CalculationField.ReturnType.undefined;
+        }
+    }
+
+}
@@ -4,29 +4,28 @@ package com.podio.sdk.json;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
-import com.podio.sdk.domain.DataReference;
-import com.podio.sdk.domain.TaskAction;
-import com.podio.sdk.domain.field.Field;
-import com.podio.sdk.domain.notification.Notification;
-import com.podio.sdk.domain.notification.NotificationContext;
-import com.podio.sdk.domain.reference.ReferenceGroup;
-import com.podio.sdk.domain.stream.EventActivity;
-import com.podio.sdk.domain.stream.EventContext;
+import com.google.gson.stream.JsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
 
 public class JsonParser {
 
     private static final Gson GSON = new GsonBuilder()
             .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
             .setDateFormat("yyyy-MM-dd HH:mm:ss")
-            .registerTypeAdapter(Field.class, new FieldDeserializerSerializer())
-            .registerTypeAdapter(Notification.class, new NotificationDeserializerSerializer())
-            .registerTypeAdapter(NotificationContext.class, new NotificationContextDeserializerSerializer())
-            .registerTypeAdapter(EventContext.class, new EventContextDeserializerSerializer())
-            .registerTypeAdapter(EventActivity.class, new EventActivityDeserializerSerializer())
-            .registerTypeAdapter(TaskAction.class, new TaskActionDeserializerSerializer())
-            .registerTypeAdapter(ReferenceGroup.class, new ReferenceGroupDeserializerSerializer())
-            .registerTypeAdapter(DataReference.class, new DataReferenceDeserializer())
+            .registerTypeAdapterFactory(new FieldTypeAdapterFactory())
+            .registerTypeAdapterFactory(new NotificationDeserializerSerializer())
+            .registerTypeAdapterFactory(new NotificationContextDeserializerSerializer())
+            .registerTypeAdapterFactory(new EventContextDeserializerSerializer())
+            .registerTypeAdapterFactory(new EventActivityDeserializerSerializer())
+            .registerTypeAdapterFactory(new TaskActionDeserializerSerializer())
+            .registerTypeAdapterFactory(new ReferenceGroupDeserializerSerializer())
+            .registerTypeAdapterFactory(new DataReferenceDeserializer())
             .disableHtmlEscaping()
             .serializeNulls()
             .create();
@@ -41,6 +40,61 @@ public class JsonParser {
         }
     }
 
+    /**
+     * Parses the given JSON bytes into an object of the given type. The bytes are decoded and
+     * parsed as a stream, which means that no intermediate {@link String} copy of the entire
+     * content is ever created.
+     *
+     * @param json
+     *         The raw JSON bytes.
+     * @param charsetName
+     *         The name of the charset the bytes are encoded with.
+     * @param classOfResult
+     *         The type to parse the JSON into.
+     *
+     * @return The parsed object, or null if there was no content.
+     *
+     * @throws UnsupportedEncodingException
+     *         If the given charset isn't supported.
+     */
+    public static <T> T fromJson(byte[] json, String charsetName, Class<T> classOfResult) throws UnsupportedEncodingException {
+        if (json == null || json.length == 0) {
+            return null;
+        }
+
+        return fromJson(new ByteArrayInputStream(json), charsetName, classOfResult);
+    }
+
+    /**
+     * Parses the JSON content of the given stream into an object of the given type. The stream is
+     * read as the parsing progresses, but it's not closed by this method.
+     *
+     * @param json
+     *         The stream providing the raw JSON.
+     * @param charsetName
+     *         The name of the charset the stream content is encoded with.
+     * @param classOfResult
+     *         The type to parse the JSON into.
+     *
+     * @return The parsed object, or null if there was no content.
+     *
+     * @throws UnsupportedEncodingException
+     *         If the given charset isn't supported.
+     */
+    public static <T> T fromJson(InputStream json, String charsetName, Class<T> classOfResult) throws UnsupportedEncodingException {
+        JsonReader jsonReader = new ReplayingJsonReader(new InputStreamReader(json, charsetName));
+
+        try {
+            return GSON.fromJson(jsonReader, classOfResult);
+        } catch (JsonSyntaxException e) {
+            throw new JsonSyntaxException("Couldn't parse json stream into " + classOfResult.getName(), e);
+        } catch (JsonIOException e) {
+            throw new JsonIOException("Couldn't read json stream into " + classOfResult.getName(), e);
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException("Couldn't parse json stream into " + classOfResult.getName(), e);
+        }
+    }
+
     public static <T> String toJson(T item) {
         return GSON.toJson(item);
     }
@@ -1,13 +1,7 @@
 package com.podio.sdk.json;
 
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
 import com.podio.sdk.domain.notification.CommentNotification;
 import com.podio.sdk.domain.notification.GrantNotification;
 import com.podio.sdk.domain.notification.Notification;
@@ -17,7 +11,6 @@ import com.podio.sdk.domain.notification.UnknownNotification;
 import com.podio.sdk.domain.notification.VoteNotification;
 import com.podio.sdk.internal.DefaultHashMap;
 
-import java.lang.reflect.Type;
 import java.util.Map;
 
 /**
@@ -26,34 +19,23 @@ import java.util.Map;
  * notification we are handling.
  *
  */
-class NotificationDeserializerSerializer implements JsonDeserializer<Notification>, JsonSerializer<Notification> {
+class NotificationDeserializerSerializer extends DiscriminatorTypeAdapterFactory<Notification, Notification.NotificationType> {
 
-    private Map<Notification.NotificationType, Class<? extends Notification>> mNotificationClassesMap;
-
-    public NotificationDeserializerSerializer() {
-        mNotificationClassesMap = new DefaultHashMap<Notification.NotificationType, Class<? extends Notification>>(UnknownNotification.class);
-        mNotificationClassesMap.put(Notification.NotificationType.comment, CommentNotification.class);
-        mNotificationClassesMap.put(Notification.NotificationType.rating, RatingNotification.class);
-        mNotificationClassesMap.put(Notification.NotificationType.participation, ParticipationNotification.class);
-        mNotificationClassesMap.put(Notification.NotificationType.vote, VoteNotification.class);
-        mNotificationClassesMap.put(Notification.NotificationType.grant_create, GrantNotification.class);
+    NotificationDeserializerSerializer() {
+        this(new DefaultHashMap<Notification.NotificationType, Class<? extends Notification>>(UnknownNotification.class));
     }
 
-    @Override
-    public Notification deserialize(JsonElement element, Type type, JsonDeserializationContext gsonContext) throws JsonParseException {
-        if (element == null || element.isJsonNull()) {
-            return null;
-        }
-
-        JsonObject jsonObject = element.getAsJsonObject();
-
-        Notification.NotificationType notificationType = Notification.NotificationType.getType(jsonObject.get("type").getAsString());
-
-        return gsonContext.deserialize(jsonObject, mNotificationClassesMap.get(notificationType));
+    private NotificationDeserializerSerializer(Map<Notification.NotificationType, Class<? extends Notification>> classesMap) {
+        super(Notification.class, "type", classesMap);
+        classesMap.put(Notification.NotificationType.comment, CommentNotification.class);
+        classesMap.put(Notification.NotificationType.rating, RatingNotification.class);
+        classesMap.put(Notification.NotificationType.participation, ParticipationNotification.class);
+        classesMap.put(Notification.NotificationType.vote, VoteNotification.class);
+        classesMap.put(Notification.NotificationType.grant_create, GrantNotification.class);
     }
 
     @Override
-    public JsonElement serialize(Notification notification, Type typeOfSrc, JsonSerializationContext gsonContext) {
-        return gsonContext.serialize(notification, mNotificationClassesMap.get(notification.getType()));
+    protected Notification.NotificationType getKey(JsonElement discriminator) {
+        return Notification.NotificationType.getType(getAsString(discriminator));
     }
 }
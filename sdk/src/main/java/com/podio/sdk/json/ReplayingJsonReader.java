@@ -0,0 +1,238 @@
+package com.podio.sdk.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Map;
+
+/**
+ * The JSON reader the {@link JsonParser} parses streams with. It enables the polymorphic type
+ * adapters in this package to hand an object over to the regular Gson type adapter of its concrete
+ * class, after having read ahead to the property deciding that class. The properties read ahead are
+ * replayed first, after which the concrete type adapter continues with the rest of the object
+ * straight from the stream.
+ * <p/>
+ * Only properties without nested JSON objects can be replayed, as Gson reads objects with map
+ * semantics through reader internals that aren't overridable. If the properties read ahead can't
+ * be replayed, or the reader isn't a replaying one, the rest of the object is read into a JSON tree
+ * instead.
+ *
+ */
+final class ReplayingJsonReader extends JsonReader {
+
+    /**
+     * Reads the rest of the current object with the given type adapter, replaying the given
+     * properties that have already been read from it. The reader must be positioned inside the
+     * object, i.e. the object must have been begun, but not ended.
+     *
+     * @param in
+     *         The reader positioned inside the object.
+     * @param readAhead
+     *         The properties of the object that have already been read.
+     * @param delegate
+     *         The type adapter of the concrete class to read the object into.
+     * @param elementAdapter
+     *         The type adapter to read the rest of the object with, should it have to be read into
+     *         a JSON tree.
+     *
+     * @return The read object.
+     *
+     * @throws IOException
+     *         If the object couldn't be read.
+     */
+    static <T> T read(JsonReader in, JsonObject readAhead, TypeAdapter<T> delegate, TypeAdapter<JsonElement> elementAdapter) throws IOException {
+        if (in instanceof ReplayingJsonReader && canReplay(readAhead)) {
+            ((ReplayingJsonReader) in).replay(readAhead);
+            return delegate.read(in);
+        }
+
+        while (in.hasNext()) {
+            readAhead.add(in.nextName(), elementAdapter.read(in));
+        }
+
+        in.endObject();
+
+        return delegate.fromJsonTree(readAhead);
+    }
+
+    private static boolean canReplay(JsonObject properties) {
+        for (Map.Entry<String, JsonElement> property : properties.entrySet()) {
+            if (!canReplay(property.getValue())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean canReplay(JsonElement element) {
+        if (element.isJsonObject()) {
+            return false;
+        }
+
+        if (element.isJsonArray()) {
+            for (JsonElement item : (JsonArray) element) {
+                if (!canReplay(item)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private JsonReader replayReader;
+    private int replayDepth;
+
+    ReplayingJsonReader(Reader in) {
+        super(in);
+    }
+
+    /**
+     * Makes the next call to {@link #beginObject()} begin a synthetic object with the given
+     * properties. Once they have been read, the reader continues inside the object it was
+     * positioned in, so that ending the synthetic object ends that object.
+     */
+    private void replay(JsonObject properties) {
+        replayReader = new JsonReader(new StringReader(properties.toString()));
+        replayDepth = 0;
+    }
+
+    /**
+     * Returns the reader to replay from, or null if there is nothing left to replay.
+     */
+    private JsonReader getReplayReader() throws IOException {
+        if (replayReader != null && replayDepth == 1 && replayReader.peek() == JsonToken.END_OBJECT) {
+            // The closing brace of the synthetic object is left for the actual object to provide.
+            replayReader = null;
+        }
+
+        return replayReader;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        JsonReader replayed = getReplayReader();
+
+        if (replayed == null) {
+            super.beginArray();
+        } else {
+            replayed.beginArray();
+            replayDepth++;
+        }
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        JsonReader replayed = getReplayReader();
+
+        if (replayed == null) {
+            super.endArray();
+        } else {
+            replayed.endArray();
+            replayDepth--;
+        }
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        JsonReader replayed = getReplayReader();
+
+        if (replayed == null) {
+            super.beginObject();
+        } else {
+            replayed.beginObject();
+            replayDepth++;
+        }
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        JsonReader replayed = getReplayReader();
+
+        if (replayed == null) {
+            super.endObject();
+        } else {
+            replayed.endObject();
+            replayDepth--;
+        }
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        JsonReader replayed = getReplayReader();
+        return replayed == null ? super.hasNext() : replayed.hasNext();
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        JsonReader replayed = getReplayReader();
+        return replayed == null ? super.peek() : replayed.peek();
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        JsonReader replayed = getReplayReader();
+        return replayed == null ? super.nextName() : replayed.nextName();
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        JsonReader replayed = getReplayReader();
+        return replayed == null ? super.nextString() : replayed.nextString();
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        JsonReader replayed = getReplayReader();
+        return replayed == null ? super.nextBoolean() : replayed.nextBoolean();
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        JsonReader replayed = getReplayReader();
+
+        if (replayed == null) {
+            super.nextNull();
+        } else {
+            replayed.nextNull();
+        }
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        JsonReader replayed = getReplayReader();
+        return replayed == null ? super.nextDouble() : replayed.nextDouble();
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        JsonReader replayed = getReplayReader();
+        return replayed == null ? super.nextLong() : replayed.nextLong();
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        JsonReader replayed = getReplayReader();
+        return replayed == null ? super.nextInt() : replayed.nextInt();
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        JsonReader replayed = getReplayReader();
+
+        if (replayed == null) {
+            super.skipValue();
+        } else {
+            replayed.skipValue();
+        }
+    }
+
+}
@@ -1,19 +1,12 @@
 package com.podio.sdk.json;
 
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
 import com.podio.sdk.domain.AssignTaskAction;
 import com.podio.sdk.domain.TaskAction;
 import com.podio.sdk.domain.TextTaskAction;
 import com.podio.sdk.internal.DefaultHashMap;
 
-import java.lang.reflect.Type;
 import java.util.Map;
 
 /**
@@ -22,30 +15,19 @@ import java.util.Map;
  * notification we are handling.
  *
  */
-class TaskActionDeserializerSerializer implements JsonDeserializer<TaskAction>, JsonSerializer<TaskAction> {
+class TaskActionDeserializerSerializer extends DiscriminatorTypeAdapterFactory<TaskAction, TaskAction.TaskActionType> {
 
-    private Map<TaskAction.TaskActionType, Class<? extends TaskAction>> mTaskActionClassesMap;
-
-    public TaskActionDeserializerSerializer() {
-        mTaskActionClassesMap = new DefaultHashMap<TaskAction.TaskActionType, Class<? extends TaskAction>>(TextTaskAction.class);
-        mTaskActionClassesMap.put(TaskAction.TaskActionType.assign, AssignTaskAction.class);
+    TaskActionDeserializerSerializer() {
+        this(new DefaultHashMap<TaskAction.TaskActionType, Class<? extends TaskAction>>(TextTaskAction.class));
     }
 
-    @Override
-    public TaskAction deserialize(JsonElement element, Type type, JsonDeserializationContext gsonContext) throws JsonParseException {
-        if (element == null || element.isJsonNull()) {
-            return null;
-        }
-
-        JsonObject jsonObject = element.getAsJsonObject();
-
-        TaskAction.TaskActionType taskActionType = TaskAction.TaskActionType.getType(jsonObject.get("type").getAsString());
-
-        return gsonContext.deserialize(jsonObject, mTaskActionClassesMap.get(taskActionType));
+    private TaskActionDeserializerSerializer(Map<TaskAction.TaskActionType, Class<? extends TaskAction>> classesMap) {
+        super(TaskAction.class, "type", classesMap);
+        classesMap.put(TaskAction.TaskActionType.assign, AssignTaskAction.class);
     }
 
     @Override
-    public JsonElement serialize(TaskAction taskAction, Type typeOfSrc, JsonSerializationContext gsonContext) {
-        return gsonContext.serialize(taskAction, mTaskActionClassesMap.get(taskAction.getType()));
+    protected TaskAction.TaskActionType getKey(JsonElement discriminator) {
+        return TaskAction.TaskActionType.getType(getAsString(discriminator));
     }
 }
@@ -0,0 +1,118 @@
+package com.podio.sdk.localstore;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Describes how the disk store of a {@link LocalStore} persists its entries. The backend deals with
+ * raw, already serialized, values only; parsing the JSON is left to the requests. All methods are
+ * called on the worker threads of the local store.
+ *
+ */
+interface DiskBackend {
+
+    /**
+     * Reads the serialized value associated with the given key.
+     *
+     * @param key
+     *         The key of the value.
+     *
+     * @return The serialized value, or null if there is no value for the key.
+     *
+     * @throws IOException
+     *         If the file system access fails for some reason.
+     */
+    byte[] read(Object key) throws IOException;
+
+    /**
+     * Persists the serialized value for the given key, silently overwriting any previous value.
+     *
+     * @param key
+     *         The key of the value.
+     * @param data
+     *         The serialized value.
+     *
+     * @throws IOException
+     *         If the file system access fails for some reason.
+     */
+    void write(Object key, byte[] data) throws IOException;
+
+    /**
+     * Removes the value associated with the given key, if any.
+     *
+     * @param key
+     *         The key of the value.
+     *
+     * @throws IOException
+     *         If the file system access fails for some reason.
+     */
+    void delete(Object key) throws IOException;
+
+    /**
+     * Reads the serialized values associated with the given keys in one go.
+     *
+     * @param keys
+     *         The keys of the values.
+     *
+     * @return The serialized values by key. Keys without a value are left out.
+     *
+     * @throws IOException
+     *         If the file system access fails for some reason.
+     */
+    Map<Object, byte[]> readAll(Collection<?> keys) throws IOException;
+
+    /**
+     * Persists the given serialized values in one go, silently overwriting any previous values.
+     *
+     * @param values
+     *         The serialized values by key.
+     *
+     * @throws IOException
+     *         If the file system access fails for some reason.
+     */
+    void writeAll(Map<?, byte[]> values) throws IOException;
+
+    /**
+     * Removes the values associated with the given keys in one go.
+     *
+     * @param keys
+     *         The keys of the values.
+     *
+     * @throws IOException
+     *         If the file system access fails for some reason.
+     */
+    void deleteAll(Collection<?> keys) throws IOException;
+
+    /**
+     * Lists the sizes of all values in the backend.
+     *
+     * @return The size in bytes of each value, by the string representation of its key.
+     *
+     * @throws IOException
+     *         If the file system access fails for some reason.
+     */
+    Map<String, Long> getEntrySizes() throws IOException;
+
+    /**
+     * Removes all values from the backend, leaving it empty but ready for use.
+     */
+    void clear();
+
+    /**
+     * Returns whether the backend has some background maintenance to do, like compacting its
+     * files. If so, {@link #maintain()} should be scheduled with a low priority.
+     *
+     * @return Boolean true if maintenance is due, boolean false otherwise.
+     */
+    boolean needsMaintenance();
+
+    /**
+     * Performs a bounded portion of any due background maintenance.
+     *
+     * @throws IOException
+     *         If the file system access fails for some reason.
+     */
+    void maintain() throws IOException;
+
+}
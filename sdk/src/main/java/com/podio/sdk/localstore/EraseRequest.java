@@ -29,25 +29,19 @@ final class EraseRequest extends LocalStoreRequest<Void> {
     }
 
     /**
-     * Recursively removes all files in the given directory and tries to remove the directory as
-     * well.
+     * Removes all values from the disk store. If there is no disk store backend, all files in the
+     * disk store directory are removed instead.
      *
+     * @param diskBackend
+     *         The disk store backend to clear, may be null.
      * @param diskStore
-     *         The disk cache to clear.
+     *         The disk store directory to clear.
      */
-    private static void destroyDiskStore(File diskStore) {
-        if (isWritableDirectory(diskStore)) {
-            File[] files = diskStore.listFiles();
-
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        destroyDiskStore(file);
-                    } else if (file.isFile()) {
-                        file.delete();
-                    }
-                }
-            }
+    private static void destroyDiskStore(DiskBackend diskBackend, File diskStore) {
+        if (diskBackend != null) {
+            diskBackend.clear();
+        } else {
+            deleteDirectoryContent(diskStore);
         }
     }
 
@@ -61,13 +55,19 @@ final class EraseRequest extends LocalStoreRequest<Void> {
         super(new Callable<Void>() {
             @Override
             public Void call() throws Exception {
-                destroyMemoryStore(storeEnabler.getMemoryStore());
+                StripedLock locks = storeEnabler.getDiskStoreLocks();
+                locks.lockAll();
+
+                try {
+                    destroyMemoryStore(storeEnabler.getMemoryStore());
+                    destroyDiskStore(storeEnabler.getDiskBackend(), storeEnabler.getDiskStore());
+                } finally {
+                    locks.unlockAll();
+                }
 
-                // We have to synchronize at this point as the destroyDiskStore method is recursive
-                // and we would otherwise cause a deadlock if synchronizing on the same lock inside
-                // the method itself.
-                synchronized (storeEnabler.getDiskStoreLock()) {
-                    destroyDiskStore(storeEnabler.getDiskStore());
+                ItemIndex itemIndex = storeEnabler.getItemIndex();
+                if (itemIndex != null) {
+                    itemIndex.clear();
                 }
                 return null;
             }
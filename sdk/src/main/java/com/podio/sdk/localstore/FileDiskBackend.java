@@ -0,0 +1,127 @@
+package com.podio.sdk.localstore;
+
+import com.podio.sdk.internal.DiskCacheUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The default {@link DiskBackend} implementation. Each value is stored in a file of its own,
+ * named after the URL encoded string representation of its key.
+ *
+ */
+final class FileDiskBackend implements DiskBackend {
+
+    private final File directory;
+
+    /**
+     * @param directory
+     *         The existing directory to store the files in.
+     */
+    FileDiskBackend(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public byte[] read(Object key) throws IOException {
+        File file = new File(directory, LocalStoreRequest.getFileName(key));
+
+        if (!LocalStoreRequest.isReadableFile(file)) {
+            return null;
+        }
+
+        return DiskCacheUtils.readFile(file);
+    }
+
+    @Override
+    public void write(Object key, byte[] data) throws IOException {
+        if (!LocalStoreRequest.isWritableDirectory(directory)) {
+            return;
+        }
+
+        File file = new File(directory, LocalStoreRequest.getFileName(key));
+        FileOutputStream fileOutputStream = new FileOutputStream(file);
+
+        try {
+            fileOutputStream.write(data);
+        } finally {
+            fileOutputStream.close();
+        }
+    }
+
+    @Override
+    public void delete(Object key) throws IOException {
+        if (LocalStoreRequest.isReadableDirectory(directory)) {
+            new File(directory, LocalStoreRequest.getFileName(key)).delete();
+        }
+    }
+
+    @Override
+    public Map<Object, byte[]> readAll(Collection<?> keys) throws IOException {
+        // One file per key leaves nothing to batch.
+        Map<Object, byte[]> values = new LinkedHashMap<Object, byte[]>();
+
+        for (Object key : keys) {
+            byte[] data = read(key);
+
+            if (data != null) {
+                values.put(key, data);
+            }
+        }
+
+        return values;
+    }
+
+    @Override
+    public void writeAll(Map<?, byte[]> values) throws IOException {
+        for (Map.Entry<?, byte[]> entry : values.entrySet()) {
+            write(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<?> keys) throws IOException {
+        for (Object key : keys) {
+            delete(key);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getEntrySizes() throws IOException {
+        Map<String, Long> sizes = new HashMap<String, Long>();
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile()) {
+                    sizes.put(URLDecoder.decode(file.getName(), Charset.defaultCharset().name()), file.length());
+                }
+            }
+        }
+
+        return sizes;
+    }
+
+    @Override
+    public void clear() {
+        LocalStoreRequest.deleteDirectoryContent(directory);
+    }
+
+    @Override
+    public boolean needsMaintenance() {
+        return false;
+    }
+
+    @Override
+    public void maintain() throws IOException {
+        // Nothing to maintain.
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.podio.sdk.localstore;
+
+import android.util.LruCache;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * A specific {@link LocalStoreRequest} implementation, writing the values collected by a {@link
+ * WriteBehindBuffer} to the disk store in one batch. The whole disk store is locked once for the
+ * entire batch rather than once per value.
+ *
+ */
+final class FlushRequest extends LocalStoreRequest<Void> {
+
+    /**
+     * Writes all dirty values of the given buffer to the disk store in one batch. If the write
+     * fails, the values are put back in the buffer, unless they have been superseded since.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param buffer
+     *         The buffer holding the dirty values.
+     *
+     * @throws IOException
+     *         If the file system operation fails for some reason.
+     */
+    private static void flushValues(RuntimeStoreEnabler storeEnabler, WriteBehindBuffer buffer) throws IOException {
+        StripedLock locks = storeEnabler.getDiskStoreLocks();
+        DiskBackend diskBackend;
+        locks.lockAll();
+
+        try {
+            Map<Object, Object> batch = buffer.drain();
+            LruCache<Object, Object> memoryStore = storeEnabler.getMemoryStore();
+            diskBackend = storeEnabler.getDiskBackend();
+            ValueCodec valueCodec = storeEnabler.getValueCodec();
+            Map<Object, byte[]> data = new LinkedHashMap<Object, byte[]>();
+
+            try {
+                for (Map.Entry<Object, Object> entry : batch.entrySet()) {
+                    byte[] json = serializeValue(entry.getValue());
+                    data.put(entry.getKey(), valueCodec.encode(json));
+
+                    // Re-putting the value weighs it again, now that the length of its JSON is
+                    // known, and replaces any older value a concurrent read may have put back.
+                    if (memoryStore != null) {
+                        putInMemoryStore(memoryStore, entry.getKey(), entry.getValue(), json.length);
+                    }
+                }
+
+                if (diskBackend != null && !data.isEmpty()) {
+                    diskBackend.writeAll(data);
+                }
+            } catch (IOException e) {
+                buffer.restore(batch);
+                throw e;
+            }
+        } finally {
+            locks.unlockAll();
+        }
+
+        if (diskBackend != null) {
+            storeEnabler.onDiskStoreModified();
+        }
+    }
+
+    /**
+     * Creates a new Request for flushing the given buffer to the disk store.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param buffer
+     *         The buffer to flush, may be null in which case nothing is written.
+     */
+    FlushRequest(final RuntimeStoreEnabler storeEnabler, final WriteBehindBuffer buffer) {
+        super(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if (buffer != null) {
+                    flushValues(storeEnabler, buffer);
+                }
+
+                return null;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.podio.sdk.localstore;
+
+import android.util.LruCache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * A specific {@link LocalStoreRequest} implementation, targeting the "get values" operation. This
+ * implementation looks for all the requested values in the memory cache first and then reads all
+ * values not found there from the disk store in one go, putting them in the memory cache before
+ * returning them to the caller.
+ *
+ */
+final class GetAllRequest<T> extends LocalStoreRequest<Map<Object, T>> {
+
+    /**
+     * Retrieves the values associated with the given keys. Values not found in the memory cache
+     * are read from the disk store, with the keys locked once for all of them.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param keys
+     *         The keys of the values to fetch.
+     * @param knownValues
+     *         Values already known by the caller, which don't have to be looked up.
+     * @param classOfValue
+     *         The {@link Class} template to parse the disk store JSON to.
+     *
+     * @return The values by key, in the order of the given keys. Keys without a value are left
+     * out.
+     *
+     * @throws IOException
+     *         If reading from disk store failed for some reason.
+     */
+    @SuppressWarnings("unchecked")
+    static <E> Map<Object, E> getValues(RuntimeStoreEnabler storeEnabler, Collection<?> keys, Map<Object, Object> knownValues, Class<E> classOfValue) throws IOException {
+        LruCache<Object, Object> memoryStore = storeEnabler.getMemoryStore();
+        if (memoryStore == null) {
+            throw new IllegalStateException("You're trying to fetch content from a closed store.");
+        }
+
+        Map<Object, E> values = new LinkedHashMap<Object, E>();
+        List<Object> missingKeys = new ArrayList<Object>();
+
+        for (Object key : keys) {
+            Object value = knownValues.containsKey(key) ? knownValues.get(key) : memoryStore.get(key);
+
+            if (value != null) {
+                values.put(key, (E) value);
+            } else {
+                missingKeys.add(key);
+            }
+        }
+
+        if (!missingKeys.isEmpty() && isValidTemplate(classOfValue)) {
+            StripedLock locks = storeEnabler.getDiskStoreLocks();
+            locks.lock(missingKeys);
+
+            try {
+                // Writes to some of the keys may have completed while we were waiting for the lock.
+                List<Object> diskKeys = new ArrayList<Object>(missingKeys.size());
+
+                for (Object key : missingKeys) {
+                    Object value = memoryStore.get(key);
+
+                    if (value != null) {
+                        values.put(key, (E) value);
+                    } else {
+                        diskKeys.add(key);
+                    }
+                }
+
+                DiskBackend diskBackend = storeEnabler.getDiskBackend();
+
+                if (diskBackend != null && !diskKeys.isEmpty()) {
+                    Map<Object, byte[]> data = diskBackend.readAll(diskKeys);
+
+                    for (Map.Entry<Object, byte[]> entry : data.entrySet()) {
+                        E value = deserializeValue(entry.getValue(), classOfValue);
+
+                        if (value != null) {
+                            putInMemoryStore(memoryStore, entry.getKey(), value, ValueCodec.getDecodedLength(entry.getValue()));
+                            values.put(entry.getKey(), value);
+                        }
+                    }
+                }
+            } finally {
+                locks.unlock(missingKeys);
+            }
+        }
+
+        // Restore the order of the given keys.
+        Map<Object, E> result = new LinkedHashMap<Object, E>();
+
+        for (Object key : keys) {
+            E value = values.get(key);
+
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a new Request for retrieving several values from the local store.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param keys
+     *         The keys of the values.
+     * @param knownValues
+     *         Values already known by the caller, which don't have to be looked up.
+     * @param classOfValue
+     *         The type to parse the files into (if needed).
+     */
+    GetAllRequest(final RuntimeStoreEnabler storeEnabler, final Collection<?> keys, final Map<Object, Object> knownValues, final Class<T> classOfValue) {
+        super(new Callable<Map<Object, T>>() {
+            @Override
+            public Map<Object, T> call() throws Exception {
+                return getValues(storeEnabler, keys, knownValues, classOfValue);
+            }
+        });
+    }
+}
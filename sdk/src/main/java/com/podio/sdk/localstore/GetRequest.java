@@ -3,7 +3,6 @@ package com.podio.sdk.localstore;
 
 import android.util.LruCache;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.Callable;
 
@@ -48,21 +47,30 @@ final class GetRequest<T> extends LocalStoreRequest<T> {
         E value = (E) memoryStore.get(key);
 
         // If nothing found in the memory cache, try to read from disk.
-        if (value == null) {
-            // Make sure we wait for the disk store to be ready before we start accessing it.
-            synchronized (storeEnabler.getDiskStoreLock()) {
-                File diskStore = storeEnabler.getDiskStore();
-                if (isReadableDirectory(diskStore) && isValidTemplate(classOfValue)) {
+        if (value == null && isValidTemplate(classOfValue)) {
+            // Make sure we wait for the disk store to be ready before we start accessing it. Only
+            // this key is locked, so reads of other keys may proceed in parallel.
+            StripedLock locks = storeEnabler.getDiskStoreLocks();
+            locks.lock(key);
+
+            try {
+                // A write to the same key may have completed while we were waiting for the lock.
+                value = (E) memoryStore.get(key);
+
+                if (value == null) {
+                    DiskBackend diskBackend = storeEnabler.getDiskBackend();
+
                     // Read object from disk...
-                    String fileName = getFileName(key);
-                    File file = new File(diskStore, fileName);
-                    value = readObjectFromDisk(file, classOfValue);
+                    byte[] data = diskBackend != null ? diskBackend.read(key) : null;
+                    value = deserializeValue(data, classOfValue);
 
                     // ...and also update in memory.
                     if (value != null) {
-                        memoryStore.put(key, value);
+                        putInMemoryStore(memoryStore, key, value, ValueCodec.getDecodedLength(data));
                     }
                 }
+            } finally {
+                locks.unlock(key);
             }
         }
 
@@ -5,10 +5,8 @@ import android.util.LruCache;
 
 import com.podio.sdk.internal.Utils;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.concurrent.Callable;
 
 /**
@@ -22,6 +20,9 @@ import java.util.concurrent.Callable;
  */
 final class InitRequest extends LocalStoreRequest<Void> {
 
+    private static final String ACCESS_METADATA_SUFFIX = ".access";
+    private static final String ITEM_INDEX_SUFFIX = ".index";
+
     /**
      * Returns a {@link java.io.File File} handle to the provided file path string. If no directory
      * is found with the given name, then an attempt to create it will be made. If anything goes
@@ -48,38 +49,88 @@ final class InitRequest extends LocalStoreRequest<Void> {
         }
     }
 
+    /**
+     * Returns the backend persisting values in the given disk store directory, in the configured
+     * format and within any configured quota. If the backend can't be opened, null is returned.
+     *
+     * @param diskStore
+     *         The disk store directory.
+     * @param options
+     *         The configuration of the store, deciding the format and quota of the disk store.
+     *
+     * @return The disk store backend.
+     */
+    private static DiskBackend createNewDiskBackend(File diskStore, LocalStore.Options options) {
+        if (diskStore == null) {
+            return null;
+        }
+
+        try {
+            DiskBackend diskBackend;
+
+            switch (options.diskFormat) {
+                case SEGMENT_LOG:
+                    diskBackend = LogDiskBackend.open(diskStore, LogDiskBackend.DEFAULT_MAX_SEGMENT_SIZE);
+                    break;
+                case SHARDED_FILES:
+                    diskBackend = ShardedFileDiskBackend.open(diskStore);
+                    break;
+                case FILE_PER_KEY:
+                default:
+                    diskBackend = new FileDiskBackend(diskStore);
+                    break;
+            }
+
+            if (options.diskQuotaInBytes > 0L) {
+                // The metadata lives next to the store directory, so it can't collide with a value.
+                File metadataFile = new File(diskStore.getPath() + ACCESS_METADATA_SUFFIX);
+                diskBackend = QuotaDiskBackend.open(diskBackend, metadataFile, options.diskQuotaInBytes, options.evictionPolicy);
+            }
+
+            return diskBackend;
+        } catch (IOException e) {
+            // The store is unusable, continue with the memory store only.
+            return null;
+        }
+    }
+
+    /**
+     * Loads the saved item index of the given disk store, if items are indexed.
+     *
+     * @param itemIndex
+     *         The index to load, may be null.
+     * @param diskStore
+     *         The disk store directory.
+     * @param diskBackend
+     *         The disk store backend, listing the values still in the store.
+     */
+    private static void loadItemIndex(ItemIndex itemIndex, File diskStore, DiskBackend diskBackend) {
+        if (itemIndex == null || diskBackend == null) {
+            return;
+        }
+
+        try {
+            // The index lives next to the store directory, so it can't collide with a value.
+            File indexFile = new File(diskStore.getPath() + ITEM_INDEX_SUFFIX);
+            itemIndex.load(indexFile, diskBackend.getEntrySizes().keySet());
+        } catch (IOException e) {
+            // Intentionally consume this exception, the items are indexed again as they're stored.
+        }
+    }
+
     /**
      * Returns a {@link android.util.LruCache LruCache} providing the in-memory store.
      *
      * @param maxMemoryInKiloBytes
      *         The maximum allowed size of the memory cache.
+     * @param weigher
+     *         Decides the weight of each value in the memory cache.
      *
      * @return The memory store.
      */
-    private static LruCache<Object, Object> createNewMemoryStore(int maxMemoryInKiloBytes) {
-        return new LruCache<Object, Object>(maxMemoryInKiloBytes) {
-            @Override
-            protected int sizeOf(Object key, Object value) {
-                try {
-                    // This will only calculate the size of the object itself. The size of any
-                    // referenced objects are not included in that figure.
-                    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-                    ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
-                    objectOutputStream.writeObject(value);
-                    objectOutputStream.flush();
-
-                    byte[] byteArray = byteArrayOutputStream.toByteArray();
-                    objectOutputStream.close();
-
-                    return byteArray.length / 1024;
-                } catch (NullPointerException e) {
-                    return 0;
-                } catch (IOException e) {
-                    // We don't know anything about the size, assume worst case scenario.
-                    return Integer.MAX_VALUE;
-                }
-            }
-        };
+    private static LruCache<Object, Object> createNewMemoryStore(int maxMemoryInKiloBytes, Weigher weigher) {
+        long maxMemoryInBytes = Math.min(Integer.MAX_VALUE, maxMemoryInKiloBytes * 1024L);
+        return new WeighedMemoryStore((int) maxMemoryInBytes, weigher);
     }
 
     /**
@@ -90,16 +141,26 @@ final class InitRequest extends LocalStoreRequest<Void> {
      *         The absolute path to the disk cache.
      * @param maxMemoryInKiloBytes
      *         The maximum allowed size of the memory cache.
+     * @param options
+     *         The configuration of the store.
      * @param storePersister
      *         The callback interface to deliver created stores through.
      */
-    InitRequest(final String storePath, final int maxMemoryInKiloBytes, final LocalStore.RuntimeStorePersister storePersister) {
+    InitRequest(final String storePath, final int maxMemoryInKiloBytes, final LocalStore.Options options, final LocalStore.RuntimeStorePersister storePersister) {
         super(new Callable<Void>() {
             @Override
             public Void call() throws Exception {
-                storePersister.setMemoryStore(createNewMemoryStore(maxMemoryInKiloBytes));
-                synchronized (storePersister.getDiskStoreLock()) {
-                    storePersister.setDiskStore(createNewDiskStore(storePath));
+                storePersister.setMemoryStore(createNewMemoryStore(maxMemoryInKiloBytes, options.weigher));
+                StripedLock locks = storePersister.getDiskStoreLocks();
+                locks.lockAll();
+
+                try {
+                    File diskStore = createNewDiskStore(storePath);
+                    DiskBackend diskBackend = createNewDiskBackend(diskStore, options);
+                    loadItemIndex(storePersister.getItemIndex(), diskStore, diskBackend);
+                    storePersister.setDiskStore(diskStore, diskBackend);
+                } finally {
+                    locks.unlockAll();
                 }
                 return null;
             }
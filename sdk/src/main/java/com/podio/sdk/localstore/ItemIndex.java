@@ -0,0 +1,636 @@
+package com.podio.sdk.localstore;
+
+import com.podio.sdk.domain.Application;
+import com.podio.sdk.domain.Item;
+import com.podio.sdk.domain.field.Field;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A secondary index over the {@link Item Items} in a {@link LocalStore}, enabling {@link
+ * ItemQuery queries} without reading every value in the store. For each item the index holds the
+ * application id, the creation and last event dates and the values of the configured fields. Keys
+ * are told apart by their string representation, like the disk store does, but queries return the
+ * key objects the items were stored with.
+ * <p/>
+ * The index is kept in memory and saved to a file of its own every now and then, as part of the
+ * background maintenance. When loaded, entries of values that are no longer in the disk store are
+ * dropped. Only string, long and integer keys are saved. Items with other keys, or written shortly
+ * before the app was killed, may be missing from the index until they're written again.
+ *
+ */
+final class ItemIndex {
+
+    // The index is saved after this many changes.
+    private static final int SAVE_INTERVAL = 32;
+
+    private static final int FORMAT_VERSION = 2;
+
+    // Longer strings don't fit the file format; entries holding them aren't saved.
+    private static final int MAX_SAVED_STRING_LENGTH = 8 * 1024;
+
+    private static final byte TYPE_NUMBER = 0;
+    private static final byte TYPE_TEXT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_INTEGER = 3;
+
+    private static final class Entry {
+        private Object key;
+        private long applicationId;
+        private long itemId;
+        private String createdOn;
+        private String lastEventOn;
+        private final Map<String, List<Object>> fieldValues = new HashMap<String, List<Object>>();
+    }
+
+    /**
+     * Converts the given value into its indexed form: numbers, and strings holding numbers, become
+     * doubles, anything else a string.
+     */
+    private static Object normalize(Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+
+        String string = value.toString();
+
+        try {
+            double number = Double.parseDouble(string.trim());
+
+            if (!Double.isNaN(number) && !Double.isInfinite(number)) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Not a number, index it as a string.
+        }
+
+        return string;
+    }
+
+    /**
+     * Compares two indexed values. Numbers are ordered before strings.
+     */
+    private static int compareValues(Object a, Object b) {
+        if (a instanceof Double && b instanceof Double) {
+            return Double.compare((Double) a, (Double) b);
+        }
+
+        if (a instanceof String && b instanceof String) {
+            return ((String) a).compareTo((String) b);
+        }
+
+        return a instanceof Double ? -1 : 1;
+    }
+
+    /**
+     * Returns the indexed form of a field value: the "value" of its create data, or the "start" of
+     * a date.
+     */
+    private static Object getIndexedValue(Field.Value value) {
+        Map<String, Object> data = value != null ? value.getCreateData() : null;
+
+        if (data == null) {
+            return null;
+        }
+
+        return normalize(data.containsKey("value") ? data.get("value") : data.get("start"));
+    }
+
+    private static boolean matches(List<Object> values, Object constraint) {
+        if (values == null || values.isEmpty()) {
+            return false;
+        }
+
+        if (constraint instanceof Collection) {
+            for (Object candidate : (Collection<?>) constraint) {
+                Object wanted = normalize(candidate);
+
+                for (Object value : values) {
+                    if (wanted != null && compareValues(value, wanted) == 0) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        if (constraint instanceof Map && (((Map<?, ?>) constraint).containsKey("from") || ((Map<?, ?>) constraint).containsKey("to"))) {
+            Object from = normalize(((Map<?, ?>) constraint).get("from"));
+            Object to = normalize(((Map<?, ?>) constraint).get("to"));
+
+            for (Object value : values) {
+                boolean isAfterFrom = from == null || compareValues(value, from) >= 0;
+                // A date "to" bound includes the whole day, i.e. any date time starting with it.
+                boolean isBeforeTo = to == null || compareValues(value, to) <= 0
+                        || (value instanceof String && to instanceof String && ((String) value).startsWith((String) to));
+
+                if (isAfterFrom && isBeforeTo) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        Object wanted = normalize(constraint);
+
+        for (Object value : values) {
+            if (compareValues(value, wanted) == 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void writeValue(DataOutputStream output, Object value) throws IOException {
+        if (value instanceof Double) {
+            output.writeByte(TYPE_NUMBER);
+            output.writeDouble((Double) value);
+        } else {
+            output.writeByte(TYPE_TEXT);
+            output.writeUTF((String) value);
+        }
+    }
+
+    private static Object readValue(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+
+        switch (type) {
+            case TYPE_NUMBER:
+                return input.readDouble();
+            case TYPE_TEXT:
+                return input.readUTF();
+            default:
+                throw new IOException("Unknown value type in item index: " + type);
+        }
+    }
+
+    private static void writeKey(DataOutputStream output, Object key) throws IOException {
+        if (key instanceof Long) {
+            output.writeByte(TYPE_LONG);
+            output.writeLong((Long) key);
+        } else if (key instanceof Integer) {
+            output.writeByte(TYPE_INTEGER);
+            output.writeInt((Integer) key);
+        } else {
+            output.writeByte(TYPE_TEXT);
+            output.writeUTF((String) key);
+        }
+    }
+
+    private static Object readKey(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+
+        switch (type) {
+            case TYPE_TEXT:
+                return input.readUTF();
+            case TYPE_LONG:
+                return input.readLong();
+            case TYPE_INTEGER:
+                return input.readInt();
+            default:
+                throw new IOException("Unknown key type in item index: " + type);
+        }
+    }
+
+    private static void writeOptionalString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readOptionalString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static boolean isSavable(Entry entry) {
+        boolean isSavableKey = entry.key instanceof Long || entry.key instanceof Integer
+                || (entry.key instanceof String && ((String) entry.key).length() <= MAX_SAVED_STRING_LENGTH);
+
+        if (!isSavableKey
+                || (entry.createdOn != null && entry.createdOn.length() > MAX_SAVED_STRING_LENGTH)
+                || (entry.lastEventOn != null && entry.lastEventOn.length() > MAX_SAVED_STRING_LENGTH)) {
+            return false;
+        }
+
+        for (List<Object> values : entry.fieldValues.values()) {
+            for (Object value : values) {
+                if (value instanceof String && ((String) value).length() > MAX_SAVED_STRING_LENGTH) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private final Set<String> fields;
+    private final HashMap<String, Entry> entries;
+    private final HashMap<Long, Set<String>> keysByApplication;
+
+    private File file;
+    private int unsavedChanges;
+
+    /**
+     * @param fieldExternalIds
+     *         The external ids of the fields to index, on top of the application and dates.
+     */
+    ItemIndex(Collection<String> fieldExternalIds) {
+        this.fields = Collections.unmodifiableSet(new LinkedHashSet<String>(fieldExternalIds));
+        this.entries = new HashMap<String, Entry>();
+        this.keysByApplication = new HashMap<Long, Set<String>>();
+        this.unsavedChanges = 0;
+    }
+
+    /**
+     * Indexes the given value if it's an item, otherwise drops any index entry of the key.
+     *
+     * @param key
+     *         The key of the value.
+     * @param value
+     *         The value being stored.
+     */
+    void put(Object key, Object value) {
+        Application application = value instanceof Item ? ((Item) value).getApplication() : null;
+
+        if (application == null) {
+            remove(key);
+            return;
+        }
+
+        Item item = (Item) value;
+        Entry entry = new Entry();
+        entry.key = key;
+        entry.applicationId = application.getAppId();
+        entry.itemId = item.getId();
+        entry.createdOn = item.getCreatedDateString();
+        entry.lastEventOn = item.getLastEventDateString();
+
+        for (Field<?> field : item.getFields()) {
+            if (fields.contains(field.getExternalId())) {
+                List<Object> values = new ArrayList<Object>();
+
+                for (Field.Value fieldValue : field.getValues()) {
+                    Object indexedValue = getIndexedValue(fieldValue);
+
+                    if (indexedValue != null) {
+                        values.add(indexedValue);
+                    }
+                }
+
+                entry.fieldValues.put(field.getExternalId(), values);
+            }
+        }
+
+        synchronized (entries) {
+            insert(key.toString(), entry);
+            unsavedChanges++;
+        }
+    }
+
+    /**
+     * Drops the index entry of the given key, if any.
+     *
+     * @param key
+     *         The key of the removed value.
+     */
+    void remove(Object key) {
+        synchronized (entries) {
+            if (delete(key.toString())) {
+                unsavedChanges++;
+            }
+        }
+    }
+
+    /**
+     * Drops all index entries.
+     */
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+            keysByApplication.clear();
+            // Make sure the emptied index is saved.
+            unsavedChanges = SAVE_INTERVAL;
+        }
+    }
+
+    /**
+     * Verifies that all keys the given query refers to are indexed.
+     *
+     * @param query
+     *         The query to verify.
+     *
+     * @throws IllegalArgumentException
+     *         If the query refers to a key that isn't indexed.
+     */
+    void validate(ItemQuery query) {
+        for (String key : query.constraints.keySet()) {
+            if (!isIndexed(key)) {
+                throw new IllegalArgumentException("The item index has no field with the external id: " + key);
+            }
+        }
+
+        if (!isIndexed(query.sortKey)) {
+            throw new IllegalArgumentException("The item index has no field with the external id: " + query.sortKey);
+        }
+    }
+
+    /**
+     * Finds the keys of all items matching the given query, sorted as requested. The offset and
+     * limit of the query aren't applied.
+     *
+     * @param query
+     *         The query to match.
+     *
+     * @return The keys of the matching items, as they were stored.
+     *
+     * @throws IllegalArgumentException
+     *         If the query refers to a key that isn't indexed.
+     */
+    List<Object> query(final ItemQuery query) {
+        validate(query);
+        List<Map.Entry<String, Entry>> matches = new ArrayList<Map.Entry<String, Entry>>();
+
+        synchronized (entries) {
+            Set<String> keys = keysByApplication.get(query.applicationId);
+
+            if (keys == null) {
+                return Collections.emptyList();
+            }
+
+            for (String key : keys) {
+                Entry entry = entries.get(key);
+                boolean isMatch = true;
+
+                for (Map.Entry<String, Object> constraint : query.constraints.entrySet()) {
+                    if (!matches(getValues(entry, constraint.getKey()), constraint.getValue())) {
+                        isMatch = false;
+                        break;
+                    }
+                }
+
+                if (isMatch) {
+                    // Entries are replaced rather than modified, so they can be sorted unlocked.
+                    matches.add(new AbstractMap.SimpleImmutableEntry<String, Entry>(key, entry));
+                }
+            }
+        }
+
+        Collections.sort(matches, new Comparator<Map.Entry<String, Entry>>() {
+            @Override
+            public int compare(Map.Entry<String, Entry> a, Map.Entry<String, Entry> b) {
+                Object valueA = getFirstValue(a.getValue(), query.sortKey);
+                Object valueB = getFirstValue(b.getValue(), query.sortKey);
+                int result;
+
+                if (valueA == null || valueB == null) {
+                    if (valueA != valueB) {
+                        return (valueA == null) == query.sortNullLast ? 1 : -1;
+                    }
+
+                    result = 0;
+                } else {
+                    result = compareValues(valueA, valueB);
+                }
+
+                if (result == 0) {
+                    long itemIdA = a.getValue().itemId;
+                    long itemIdB = b.getValue().itemId;
+                    result = itemIdA < itemIdB ? -1 : (itemIdA == itemIdB ? 0 : 1);
+                }
+
+                return query.sortDescending ? -result : result;
+            }
+        });
+
+        List<Object> keys = new ArrayList<Object>(matches.size());
+
+        for (Map.Entry<String, Entry> match : matches) {
+            keys.add(match.getValue().key);
+        }
+
+        return keys;
+    }
+
+    /**
+     * Returns whether enough has changed for the index to be saved.
+     */
+    boolean needsSave() {
+        synchronized (entries) {
+            return file != null && unsavedChanges >= SAVE_INTERVAL;
+        }
+    }
+
+    /**
+     * Reads a saved index, dropping the entries of values that are no longer in the disk store.
+     * Entries of values stored since the store was opened are kept as they are. A broken index
+     * file is ignored.
+     *
+     * @param indexFile
+     *         The file the index is saved in, from now on.
+     * @param storedKeys
+     *         The keys of the values in the disk store.
+     *
+     * @throws IOException
+     *         If the file can't be opened.
+     */
+    void load(File indexFile, Set<String> storedKeys) throws IOException {
+        synchronized (entries) {
+            file = indexFile;
+        }
+
+        if (!indexFile.isFile()) {
+            return;
+        }
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+
+        try {
+            if (input.readInt() != FORMAT_VERSION) {
+                return;
+            }
+
+            int count = input.readInt();
+
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry();
+                entry.key = readKey(input);
+                entry.applicationId = input.readLong();
+                entry.itemId = input.readLong();
+                entry.createdOn = readOptionalString(input);
+                entry.lastEventOn = readOptionalString(input);
+                int fieldCount = input.readInt();
+
+                for (int j = 0; j < fieldCount; j++) {
+                    String field = input.readUTF();
+                    int valueCount = input.readInt();
+                    List<Object> values = new ArrayList<Object>(valueCount);
+
+                    for (int k = 0; k < valueCount; k++) {
+                        values.add(readValue(input));
+                    }
+
+                    // Fields that are no longer indexed are dropped.
+                    if (fields.contains(field)) {
+                        entry.fieldValues.put(field, values);
+                    }
+                }
+
+                String id = entry.key.toString();
+
+                synchronized (entries) {
+                    if (!storedKeys.contains(id)) {
+                        unsavedChanges++;
+                    } else if (!entries.containsKey(id)) {
+                        insert(id, entry);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Intentionally consume this exception, the items are indexed again as they're stored.
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Saves the index. The file is replaced in one go, so a crash leaves either the old or the new
+     * index behind.
+     *
+     * @throws IOException
+     *         If the index can't be saved.
+     */
+    void save() throws IOException {
+        File indexFile;
+        List<Entry> savedEntries = new ArrayList<Entry>();
+
+        synchronized (entries) {
+            indexFile = file;
+
+            for (Entry entry : entries.values()) {
+                if (isSavable(entry)) {
+                    savedEntries.add(entry);
+                }
+            }
+
+            unsavedChanges = 0;
+        }
+
+        if (indexFile == null) {
+            return;
+        }
+
+        File temporaryFile = new File(indexFile.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+
+        try {
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(savedEntries.size());
+
+            for (Entry entry : savedEntries) {
+                writeKey(output, entry.key);
+                output.writeLong(entry.applicationId);
+                output.writeLong(entry.itemId);
+                writeOptionalString(output, entry.createdOn);
+                writeOptionalString(output, entry.lastEventOn);
+                output.writeInt(entry.fieldValues.size());
+
+                for (Map.Entry<String, List<Object>> field : entry.fieldValues.entrySet()) {
+                    output.writeUTF(field.getKey());
+                    output.writeInt(field.getValue().size());
+
+                    for (Object value : field.getValue()) {
+                        writeValue(output, value);
+                    }
+                }
+            }
+        } finally {
+            output.close();
+        }
+
+        if (!temporaryFile.renameTo(indexFile)) {
+            throw new IOException("Couldn't save the item index: " + indexFile);
+        }
+    }
+
+    private List<Object> getValues(Entry entry, String key) {
+        if (ItemQuery.CREATED_ON.equals(key)) {
+            return entry.createdOn != null ? Collections.<Object> singletonList(entry.createdOn) : null;
+        }
+
+        if (ItemQuery.LAST_EVENT_ON.equals(key)) {
+            return entry.lastEventOn != null ? Collections.<Object> singletonList(entry.lastEventOn) : null;
+        }
+
+        return entry.fieldValues.get(key);
+    }
+
+    private boolean isIndexed(String key) {
+        return ItemQuery.CREATED_ON.equals(key) || ItemQuery.LAST_EVENT_ON.equals(key) || fields.contains(key);
+    }
+
+    private Object getFirstValue(Entry entry, String key) {
+        List<Object> values = getValues(entry, key);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    private void insert(String key, Entry entry) {
+        delete(key);
+        entries.put(key, entry);
+        Set<String> keys = keysByApplication.get(entry.applicationId);
+
+        if (keys == null) {
+            keys = new HashSet<String>();
+            keysByApplication.put(entry.applicationId, keys);
+        }
+
+        keys.add(key);
+    }
+
+    private boolean delete(String key) {
+        Entry entry = entries.remove(key);
+
+        if (entry == null) {
+            return false;
+        }
+
+        Set<String> keys = keysByApplication.get(entry.applicationId);
+
+        if (keys != null) {
+            keys.remove(key);
+
+            if (keys.isEmpty()) {
+                keysByApplication.remove(entry.applicationId);
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.podio.sdk.localstore;
+
+import com.podio.sdk.domain.Item;
+import com.podio.sdk.internal.Utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Describes a query for the {@link Item Items} of an application in a {@link LocalStore} with an
+ * item index, see {@link LocalStore.Options#withItemIndex(String...)}. The query mirrors the
+ * {@link Item.FilterData} of the API, so a filtered view can be shown from the store while offline.
+ * <p/>
+ * Constraints and sorting apply to the indexed fields, referred to by their external ids, as well
+ * as to {@link #CREATED_ON} and {@link #LAST_EVENT_ON}. A constraint value is matched as follows:
+ * <ul>
+ * <li>A {@link java.util.Collection} matches items having any of the given values, e.g. a set of
+ * category option ids.</li>
+ * <li>A {@link Map} with a "from" and/or a "to" key matches items with a value in that range,
+ * both ends included. A date range matches the entire "to" day.</li>
+ * <li>Any other value matches items having that very value.</li>
+ * </ul>
+ * Items with several values for a field match if any of them does. Numbers are compared by their
+ * numeric value, regardless of whether they're given as numbers or strings.
+ *
+ */
+public final class ItemQuery {
+
+    /**
+     * The key to constrain or sort the items by their creation date.
+     */
+    public static final String CREATED_ON = "created_on";
+
+    /**
+     * The key to constrain or sort the items by the date of their latest event.
+     */
+    public static final String LAST_EVENT_ON = "last_event_on";
+
+    /**
+     * Creates a query equivalent to the given API filter.
+     *
+     * @param applicationId
+     *         The id of the application to query the items of.
+     * @param filterData
+     *         The filter to mirror.
+     *
+     * @return The query.
+     */
+    public static ItemQuery fromFilterData(long applicationId, Item.FilterData filterData) {
+        ItemQuery query = new ItemQuery(applicationId)
+                .setLimit(filterData.getLimit())
+                .setOffset(filterData.getOffset())
+                .setSortNullLast(filterData.getDoSortNullLast());
+
+        if (Utils.notEmpty(filterData.getSortKey())) {
+            query.setOrderByField(filterData.getSortKey(), filterData.getDoSortDescending());
+        } else {
+            query.sortDescending = filterData.getDoSortDescending();
+        }
+
+        for (Map.Entry<String, Object> constraint : filterData.getConstraints().entrySet()) {
+            query.addConstraint(constraint.getKey(), constraint.getValue());
+        }
+
+        return query;
+    }
+
+    final long applicationId;
+    final Map<String, Object> constraints;
+
+    String sortKey;
+    boolean sortDescending;
+    boolean sortNullLast;
+    int limit;
+    int offset;
+
+    /**
+     * Creates a query for the items of the given application, sorted by creation date, newest
+     * first.
+     *
+     * @param applicationId
+     *         The id of the application to query the items of.
+     */
+    public ItemQuery(long applicationId) {
+        this.applicationId = applicationId;
+        this.constraints = new HashMap<String, Object>();
+        this.sortKey = CREATED_ON;
+        this.sortDescending = true;
+        this.sortNullLast = false;
+        this.limit = Item.FilterData.DEFAULT_LIMIT;
+        this.offset = Item.FilterData.DEFAULT_OFFSET;
+    }
+
+    /**
+     * Returns a copy of this query, which isn't affected by later changes to this one.
+     */
+    ItemQuery copy() {
+        ItemQuery copy = new ItemQuery(applicationId);
+        copy.constraints.putAll(constraints);
+        copy.sortKey = sortKey;
+        copy.sortDescending = sortDescending;
+        copy.sortNullLast = sortNullLast;
+        copy.limit = limit;
+        copy.offset = offset;
+        return copy;
+    }
+
+    /**
+     * Only matches items with a value of the given key matching the given value.
+     *
+     * @param key
+     *         The external id of an indexed field, {@link #CREATED_ON} or {@link #LAST_EVENT_ON}.
+     * @param value
+     *         The value to match, see {@link ItemQuery}.
+     *
+     * @return This query, to enable convenient chaining.
+     */
+    public ItemQuery addConstraint(String key, Object value) {
+        if (Utils.notEmpty(key) && value != null) {
+            constraints.put(key, value);
+        }
+
+        return this;
+    }
+
+    /**
+     * Sorts the items by the given key. Items with several values for a field are sorted by the
+     * first one.
+     *
+     * @param key
+     *         The external id of an indexed field, {@link #CREATED_ON} or {@link #LAST_EVENT_ON}.
+     * @param doSortDescending
+     *         Whether to sort the items in descending order.
+     *
+     * @return This query, to enable convenient chaining.
+     */
+    public ItemQuery setOrderByField(String key, boolean doSortDescending) {
+        this.sortKey = Utils.notEmpty(key) ? key : CREATED_ON;
+        this.sortDescending = doSortDescending;
+        return this;
+    }
+
+    /**
+     * Sets whether items without a value to sort by are placed last, rather than first.
+     *
+     * @param sortNullLast
+     *         Whether to place items without a value last.
+     *
+     * @return This query, to enable convenient chaining.
+     */
+    public ItemQuery setSortNullLast(boolean sortNullLast) {
+        this.sortNullLast = sortNullLast;
+        return this;
+    }
+
+    /**
+     * Sets the max number of items to deliver.
+     *
+     * @param limit
+     *         The max number of items.
+     *
+     * @return This query, to enable convenient chaining.
+     */
+    public ItemQuery setLimit(int limit) {
+        this.limit = Math.max(0, limit);
+        return this;
+    }
+
+    /**
+     * Sets the number of matching items to skip.
+     *
+     * @param offset
+     *         The zero-based offset of the first item to deliver.
+     *
+     * @return This query, to enable convenient chaining.
+     */
+    public ItemQuery setOffset(int offset) {
+        this.offset = Math.max(0, offset);
+        return this;
+    }
+
+}
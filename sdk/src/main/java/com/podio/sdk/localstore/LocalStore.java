@@ -7,26 +7,35 @@ import android.util.LruCache;
 import com.podio.sdk.QueueClient;
 import com.podio.sdk.Request;
 import com.podio.sdk.Store;
+import com.podio.sdk.domain.Item;
 import com.podio.sdk.internal.Utils;
 import com.podio.sdk.json.JsonParser;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A {@link Store} implementation modeling a memory-cache backed by persistent disk storage. The
  * memory cache heavily relies on the Android {@link LruCache} while the disk store is a basic
- * directory in the internal cache directory of the app. The actual contents are saved as JSON files
- * in sub-directories.
+ * directory in the internal cache directory of the app. How the contents are laid out in that
+ * directory is chosen through {@link Options#withDiskFormat(DiskFormat)}: one JSON file per key, a
+ * few segment files that values are appended to, or files named after a hash of the key and
+ * sharded over sub-directories, see {@link DiskFormat}. The values may also be compressed before
+ * they're written, see {@link Options#withCompression(Compression, int)}.
  * <p>
  * The {@link Store} interface enables means of adding, removing, and fetching content to and from
  * the store. Further more the caller can choose to close the store to free up memory. This will
@@ -46,13 +55,250 @@ import java.util.Set;
 public class LocalStore extends QueueClient implements Store, LocalStoreRequest.RuntimeStoreEnabler {
     private static final String LOCAL_STORES_DIRECTORY = "stores";
 
+    /**
+     * Describes how the disk store persists its values. Apart from {@link #FILE_PER_KEY} stores
+     * being migrated to {@link #SHARDED_FILES}, the formats aren't converted into each other;
+     * changing the format of an existing store leaves it empty.
+     */
+    public enum DiskFormat {
+        /**
+         * Each value is stored as a JSON file of its own, named after the key.
+         */
+        FILE_PER_KEY,
+
+        /**
+         * All values are appended to a few segment files, which are compacted in the background.
+         * This scales better to large numbers of entries.
+         */
+        SEGMENT_LOG,
+
+        /**
+         * Each value is stored in a file of its own, named after a hash of the key and spread
+         * over two levels of sub-directories. This avoids long file names and large directories.
+         * An existing {@link #FILE_PER_KEY} store is migrated in place when opened.
+         */
+        SHARDED_FILES
+    }
+
+    /**
+     * Describes how values are compressed in the disk store. Values are always readable, whatever
+     * compression they were written with.
+     */
+    public enum Compression {
+        /**
+         * Values are stored as plain JSON.
+         */
+        NONE,
+
+        /**
+         * Values are compressed with the deflate algorithm, in the zlib format.
+         */
+        DEFLATE,
+
+        /**
+         * Values are compressed in the gzip format.
+         */
+        GZIP
+    }
+
+    /**
+     * Decides which values are evicted first when the disk store exceeds its quota.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evicts the values that haven't been requested for the longest time.
+         */
+        LEAST_RECENTLY_USED,
+
+        /**
+         * Evicts the values that have been requested the fewest times, and among those the least
+         * recently requested.
+         */
+        LEAST_FREQUENTLY_USED
+    }
+
+    /**
+     * Optional configuration of a local store.
+     */
+    public static final class Options {
+        int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST_PREFETCH;
+        DiskFormat diskFormat = DiskFormat.FILE_PER_KEY;
+        Weigher weigher = Weigher.JSON_SIZE;
+        int readThreadCount = 0;
+        int writeBehindBatchSize = 0;
+        long writeBehindDelayMillis = 0L;
+        long diskQuotaInBytes = 0L;
+        EvictionPolicy evictionPolicy = EvictionPolicy.LEAST_RECENTLY_USED;
+        ValueCodec valueCodec = ValueCodec.PLAIN;
+        List<String> itemIndexFields = null;
+
+        /**
+         * Bounds the queue of operations waiting to be performed. By default the queue holds
+         * {@link QueueClient#DEFAULT_QUEUE_CAPACITY} operations and drops the oldest prefetch
+         * operation to make room for a new one, blocking the caller if there is none.
+         *
+         * @param queueCapacity
+         *         The max number of operations waiting to be performed.
+         * @param overflowPolicy
+         *         What to do with new operations when the queue is full.
+         *
+         * @return These options, to enable convenient chaining.
+         */
+        public Options withQueue(int queueCapacity, OverflowPolicy overflowPolicy) {
+            this.queueCapacity = queueCapacity;
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Sets how the disk store persists its values. Defaults to {@link DiskFormat#FILE_PER_KEY}.
+         *
+         * @param diskFormat
+         *         The format of the disk store.
+         *
+         * @return These options, to enable convenient chaining.
+         */
+        public Options withDiskFormat(DiskFormat diskFormat) {
+            this.diskFormat = diskFormat != null ? diskFormat : DiskFormat.FILE_PER_KEY;
+            return this;
+        }
+
+        /**
+         * Sets how the weight of the values in the memory store is estimated. The memory budget
+         * given to {@link LocalStore#open(Context, String, int, Options)} is the max total weight.
+         * Defaults to {@link Weigher#JSON_SIZE}.
+         *
+         * @param weigher
+         *         The weigher to use.
+         *
+         * @return These options, to enable convenient chaining.
+         */
+        public Options withWeigher(Weigher weigher) {
+            this.weigher = weigher != null ? weigher : Weigher.JSON_SIZE;
+            return this;
+        }
+
+        /**
+         * Enables concurrent reads. By default all operations are performed one at a time, in the
+         * order they were issued. With concurrent reads enabled, reads are performed by a pool of
+         * the given number of threads, locking only the key they read, while writes are still
+         * performed one at a time. Reads of values found in the memory store are served right
+         * away, without being queued at all. A read issued after a write to the same key, that
+         * hasn't completed yet, always waits for the write.
+         *
+         * @param readThreadCount
+         *         The number of threads reading from the disk store, or zero to perform reads along
+         *         with writes (the default).
+         *
+         * @return These options, to enable convenient chaining.
+         */
+        public Options withConcurrentReads(int readThreadCount) {
+            this.readThreadCount = Math.max(0, readThreadCount);
+            return this;
+        }
+
+        /**
+         * Enables write-behind. By default each value set is written to the disk store by a
+         * request of its own. In write-behind mode a value set is put in the memory store right
+         * away, while the write to the disk store is deferred and batched with other writes. Only
+         * the latest value of a key is written, if it's set several times before the batch is
+         * written. Call {@link LocalStore#flush()} to write any deferred values, e.g. before the
+         * app is shut down.
+         *
+         * @param maxBatchSize
+         *         The number of deferred values that triggers a write, or zero to disable
+         *         write-behind (the default).
+         * @param maxDelayMillis
+         *         The max time a value is deferred.
+         *
+         * @return These options, to enable convenient chaining.
+         */
+        public Options withWriteBehind(int maxBatchSize, long maxDelayMillis) {
+            this.writeBehindBatchSize = Math.max(0, maxBatchSize);
+            this.writeBehindDelayMillis = Math.max(0L, maxDelayMillis);
+            return this;
+        }
+
+        /**
+         * Limits the total size of the values in the disk store. Once the quota is exceeded, the
+         * least used values are evicted from the disk store in the background, until the values
+         * fit comfortably again. This is also done right after the store is opened. By default the
+         * disk store has no quota.
+         *
+         * @param maxBytes
+         *         The max total size of the values in the disk store, or zero for no quota.
+         * @param evictionPolicy
+         *         Decides which values are evicted first.
+         *
+         * @return These options, to enable convenient chaining.
+         */
+        public Options withDiskQuota(long maxBytes, EvictionPolicy evictionPolicy) {
+            this.diskQuotaInBytes = Math.max(0L, maxBytes);
+            this.evictionPolicy = evictionPolicy != null ? evictionPolicy : EvictionPolicy.LEAST_RECENTLY_USED;
+            return this;
+        }
+
+        /**
+         * Compresses the values written to the disk store. Values shorter than the threshold are
+         * left as they are, as are values that don't get any smaller. This saves disk space and
+         * reading time, at the expense of some processing on the worker thread. By default values
+         * aren't compressed.
+         *
+         * @param compression
+         *         How to compress values.
+         * @param thresholdBytes
+         *         The length, in bytes, of the JSON representation from which values are
+         *         compressed.
+         *
+         * @return These options, to enable convenient chaining.
+         */
+        public Options withCompression(Compression compression, int thresholdBytes) {
+            this.valueCodec = new ValueCodec(compression, thresholdBytes);
+            return this;
+        }
+
+        /**
+         * Indexes the {@link Item Items} in the store, so they can be queried by application,
+         * dates and the given fields, see {@link LocalStore#query(ItemQuery)}. The index is kept
+         * in memory and saved along with the disk store. By default items aren't indexed.
+         *
+         * @param fieldExternalIds
+         *         The external ids of the fields to query the items by, on top of the dates.
+         *
+         * @return These options, to enable convenient chaining.
+         */
+        public Options withItemIndex(String... fieldExternalIds) {
+            this.itemIndexFields = fieldExternalIds != null ?
+                    Arrays.asList(fieldExternalIds) :
+                    Collections.<String> emptyList();
+            return this;
+        }
+    }
+
+    /**
+     * The queue of reads when concurrent reads are enabled.
+     */
+    private static final class ReadQueue extends QueueClient {
+
+        private ReadQueue(int threadCount, int queueCapacity, OverflowPolicy overflowPolicy) {
+            super(threadCount, threadCount, 0L, queueCapacity, overflowPolicy);
+        }
+
+        private boolean enqueue(FutureTask<?> request, Priority priority) {
+            return execute(request, priority);
+        }
+    }
+
     interface RuntimeStorePersister {
 
         void setMemoryStore(LruCache<Object, Object> memoryStore);
 
-        void setDiskStore(File diskStore);
+        void setDiskStore(File diskStore, DiskBackend diskBackend);
+
+        StripedLock getDiskStoreLocks();
 
-        Object getDiskStoreLock();
+        ItemIndex getItemIndex();
     }
 
     /**
@@ -77,12 +323,32 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
             }
 
             @Override
-            public Object getDiskStoreLock() {
-                return new Object();
+            public DiskBackend getDiskBackend() {
+                return null;
+            }
+
+            @Override
+            public StripedLock getDiskStoreLocks() {
+                return new StripedLock();
+            }
+
+            @Override
+            public ValueCodec getValueCodec() {
+                return ValueCodec.PLAIN;
+            }
+
+            @Override
+            public ItemIndex getItemIndex() {
+                return null;
+            }
+
+            @Override
+            public void onDiskStoreModified() {
+                // Nothing to maintain.
             }
         });
 
-        LocalStore store = new LocalStore();
+        LocalStore store = new LocalStore(new Options());
         store.execute(request);
         return request;
     }
@@ -99,6 +365,48 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
      *         The memory size constraint.
      */
     public static Store open(final Context context, final String name, int maxMemoryInKiloBytes) {
+        return open(context, name, maxMemoryInKiloBytes, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.DROP_OLDEST_PREFETCH);
+    }
+
+    /**
+     * Creates a new instance of this class with a custom operation queue.
+     *
+     * @param context
+     *         Used to fetch the disk storage folder.
+     * @param name
+     *         The name of the store.
+     * @param maxMemoryInKiloBytes
+     *         The memory size constraint.
+     * @param queueCapacity
+     *         The max number of operations waiting to be performed.
+     * @param overflowPolicy
+     *         What to do with new operations when the queue is full.
+     *
+     * @see #open(Context, String, int)
+     */
+    public static Store open(final Context context, final String name, int maxMemoryInKiloBytes, int queueCapacity, OverflowPolicy overflowPolicy) {
+        return open(context, name, maxMemoryInKiloBytes, new Options().withQueue(queueCapacity, overflowPolicy));
+    }
+
+    /**
+     * Creates a new instance of this class with the given configuration.
+     *
+     * @param context
+     *         Used to fetch the disk storage folder.
+     * @param name
+     *         The name of the store.
+     * @param maxMemoryInKiloBytes
+     *         The memory size constraint.
+     * @param options
+     *         The configuration of the store.
+     *
+     * @see #open(Context, String, int)
+     */
+    public static Store open(final Context context, final String name, int maxMemoryInKiloBytes, Options options) {
+        if (options == null) {
+            options = new Options();
+        }
+
         String directoryName;
 
         try {
@@ -110,8 +418,8 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
         String systemCachePath = context.getCacheDir().getPath();
         String storePath = systemCachePath + File.separator + LOCAL_STORES_DIRECTORY + File.separator + directoryName;
 
-        final LocalStore store = new LocalStore();
-        InitRequest request = LocalStoreRequest.newInitRequest(storePath, maxMemoryInKiloBytes,
+        final LocalStore store = new LocalStore(options);
+        InitRequest request = LocalStoreRequest.newInitRequest(storePath, maxMemoryInKiloBytes, options,
                 new RuntimeStorePersister() {
                     @Override
                     public void setMemoryStore(LruCache<Object, Object> memoryStore) {
@@ -120,16 +428,27 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
                     }
 
                     @Override
-                    public void setDiskStore(File diskStore) {
+                    public void setDiskStore(File diskStore, DiskBackend diskBackend) {
                         // This callback is executed on the worker thread.
                         store.diskStore = diskStore;
+                        store.diskBackend = diskBackend;
                         copyMemoryStoreToDiskStore(store);
+                        store.isInitialized = true;
+
+                        // Evict anything exceeding the disk quota since the store was last open.
+                        store.onDiskStoreModified();
+                    }
+
+                    @Override
+                    public StripedLock getDiskStoreLocks() {
+                        // This callback is executed on the worker thread.
+                        return store.getDiskStoreLocks();
                     }
 
                     @Override
-                    public Object getDiskStoreLock() {
+                    public ItemIndex getItemIndex() {
                         // This callback is executed on the worker thread.
-                        return store.getDiskStoreLock();
+                        return store.getItemIndex();
                     }
 
                 }
@@ -140,37 +459,6 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
         return store;
     }
 
-    /**
-     * Writes the object to a {@code ByteArrayOutputStream} and counts the number of bytes in the
-     * output. This value will then be converted to KB and returned as the size of the object.
-     *
-     * @param object
-     *         The object to calculate the size of.
-     *
-     * @return The size of the object expressed in kilobytes.
-     */
-
-    private static int calculateKiloByteSizeOfObject(Object object) {
-        try {
-            // This will only calculate the size of the object itself. The size of any
-            // referenced objects are not included in that figure.
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
-            objectOutputStream.writeObject(object);
-            objectOutputStream.flush();
-
-            byte[] byteArray = byteArrayOutputStream.toByteArray();
-            objectOutputStream.close();
-
-            return byteArray.length / 1024;
-        } catch (NullPointerException e) {
-            return 0;
-        } catch (IOException e) {
-            // We don't know anything about the size, assume worst case scenario.
-            return Integer.MAX_VALUE;
-        }
-    }
-
     /**
      * Writes all entries currently in the memory cache to the disk cache. Note that this method
      * performs file system operations on the calling thread.
@@ -179,29 +467,16 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
      *         The local store object holding the memory and disk caches.
      */
     private static void copyMemoryStoreToDiskStore(LocalStore store) {
-        if (store != null) {
+        if (store != null && store.diskBackend != null) {
             Map<Object, Object> snapshot = store.memoryStore.snapshot();
             Set<Map.Entry<Object, Object>> entries = snapshot.entrySet();
 
             for (Map.Entry<Object, Object> entry : entries) {
-                FileOutputStream fileOutputStream = null;
-                String fileName;
-
                 try {
-                    String key = entry.getKey().toString();
-                    fileName = URLEncoder.encode(key, Charset.defaultCharset().name());
-                    File file = new File(store.diskStore, fileName);
                     String json = JsonParser.toJson(entry.getValue());
-                    fileOutputStream = new FileOutputStream(file);
-                    fileOutputStream.write(json.getBytes());
-                } catch (UnsupportedEncodingException e) {
-                    break;
-                } catch (FileNotFoundException e) {
-                    // Intentionally consume this exception.
+                    store.diskBackend.write(entry.getKey(), store.valueCodec.encode(json.getBytes()));
                 } catch (IOException e) {
                     // Intentionally consume this exception.
-                } finally {
-                    Utils.closeSilently(fileOutputStream);
                 }
             }
         }
@@ -248,17 +523,162 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
 
     }
 
-    private final Object diskStoreLock;
+    private final StripedLock diskStoreLocks;
+    private final ValueCodec valueCodec;
+    private final AtomicBoolean isMaintenanceScheduled;
+    private final ReadQueue readQueue;
+    private final Map<Object, Integer> pendingWrites;
+    private final WriteBehindBuffer writeBehindBuffer;
+    private final AtomicBoolean isFlushScheduled;
+    private final ItemIndex itemIndex;
 
-    private LruCache<Object, Object> memoryStore;
-    private File diskStore;
+    private volatile LruCache<Object, Object> memoryStore;
+    private volatile File diskStore;
+    private volatile DiskBackend diskBackend;
+    private volatile boolean isInitialized;
+    private int pendingErases;
 
     /**
      * Hidden constructor.
      */
-    private LocalStore() {
-        super(1, 1, 0L);
-        diskStoreLock = new Object();
+    private LocalStore(Options options) {
+        super(1, 1, 0L, options.queueCapacity, options.overflowPolicy);
+        diskStoreLocks = new StripedLock();
+        valueCodec = options.valueCodec;
+        isMaintenanceScheduled = new AtomicBoolean(false);
+        readQueue = options.readThreadCount > 0 ?
+                new ReadQueue(options.readThreadCount, options.queueCapacity, options.overflowPolicy) :
+                null;
+        pendingWrites = new HashMap<Object, Integer>();
+        isInitialized = false;
+        pendingErases = 0;
+        isFlushScheduled = new AtomicBoolean(false);
+        writeBehindBuffer = options.writeBehindBatchSize > 0 ?
+                new WriteBehindBuffer(options.writeBehindBatchSize, options.writeBehindDelayMillis, new Runnable() {
+                    @Override
+                    public void run() {
+                        scheduleFlush();
+                    }
+                }) :
+                null;
+        itemIndex = options.itemIndexFields != null ?
+                new ItemIndex(options.itemIndexFields) :
+                null;
+    }
+
+    /**
+     * Queues a flush of the write-behind buffer, unless one is already queued.
+     */
+    private void scheduleFlush() {
+        if (!isFlushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        FlushRequest request = LocalStoreRequest.newFlushRequest(this, writeBehindBuffer);
+        request.setCompletionHook(new Runnable() {
+            @Override
+            public void run() {
+                // Also called if the flush is rejected, as the request is then canceled. Values
+                // deferred while the flush was queued or under way may have had their flush
+                // request swallowed, and failed values are put back, so make sure the buffer
+                // asks for another flush.
+                isFlushScheduled.set(false);
+                writeBehindBuffer.rearm();
+            }
+        });
+
+        execute(request, Priority.BACKGROUND_SYNC);
+    }
+
+    /**
+     * Counts writes to the given keys as pending until the request has completed. Reads of keys
+     * with pending writes are queued behind the writes, rather than performed concurrently. Only
+     * needed when concurrent reads are enabled.
+     *
+     * @param keys
+     *         The keys being written, or null if the whole store is being erased.
+     * @param request
+     *         The request performing the writes.
+     */
+    private void trackPendingWrites(final Collection<?> keys, LocalStoreRequest<?> request) {
+        if (readQueue == null) {
+            return;
+        }
+
+        synchronized (pendingWrites) {
+            if (keys == null) {
+                pendingErases++;
+            } else {
+                for (Object key : keys) {
+                    Integer count = pendingWrites.get(key);
+                    pendingWrites.put(key, count == null ? 1 : count + 1);
+                }
+            }
+        }
+
+        request.setCompletionHook(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (pendingWrites) {
+                    if (keys == null) {
+                        pendingErases--;
+                    } else {
+                        for (Object key : keys) {
+                            Integer count = pendingWrites.remove(key);
+                            if (count != null && count > 1) {
+                                pendingWrites.put(key, count - 1);
+                            }
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Records a request for the values of the given keys, deciding what to evict first if the disk
+     * store exceeds its quota.
+     *
+     * @param keys
+     *         The keys being read.
+     */
+    private void recordAccess(Collection<?> keys) {
+        DiskBackend backend = diskBackend;
+
+        if (backend instanceof QuotaDiskBackend) {
+            for (Object key : keys) {
+                ((QuotaDiskBackend) backend).onAccess(key);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a read of the given keys may be performed concurrently with the writes.
+     *
+     * @param keys
+     *         The keys to read.
+     *
+     * @return True if concurrent reads are enabled, the store is initialized and there are no
+     * pending writes to any of the keys, false otherwise.
+     */
+    private boolean canReadConcurrently(Collection<?> keys) {
+        if (readQueue == null || !isInitialized) {
+            return false;
+        }
+
+        synchronized (pendingWrites) {
+            if (pendingErases > 0) {
+                return false;
+            }
+
+            for (Object key : keys) {
+                if (pendingWrites.containsKey(key)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
     }
 
     /**
@@ -283,7 +703,27 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
      */
     @Override
     public Request<Void> erase() {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.discardAll();
+        }
+
         EraseRequest request = LocalStoreRequest.newEraseRequest(this);
+        trackPendingWrites(null, request);
+        execute(request, Priority.INTERACTIVE, null);
+        return request;
+    }
+
+    /**
+     * Writes any values deferred by write-behind to the disk store. The returned request completes
+     * once they're written. If write-behind isn't enabled there is nothing to write, but the
+     * request still completes only after all writes queued before it.
+     *
+     * @return A request to wait for, e.g. before the app is shut down.
+     *
+     * @see Options#withWriteBehind(int, long)
+     */
+    public Request<Void> flush() {
+        FlushRequest request = LocalStoreRequest.newFlushRequest(this, writeBehindBuffer);
         execute(request);
         return request;
     }
@@ -298,8 +738,107 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
      */
     @Override
     public <T> Request<T> get(Object key, Class<T> classOfValue) throws IllegalStateException {
+        return get(key, classOfValue, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Retrieves an object with the given key from the local store, queuing the operation with the
+     * given priority. Operations on the same key are always performed in the order they were
+     * issued, whatever their priority. A {@link Priority#PREFETCH} operation may be dropped if the
+     * queue is bounded and full. If concurrent reads are enabled and the value is found in the
+     * memory store, the returned request has already completed.
+     *
+     * @see #get(Object, Class)
+     * @see Options#withConcurrentReads(int)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Request<T> get(Object key, Class<T> classOfValue, Priority priority) throws IllegalStateException {
         GetRequest<T> request = LocalStoreRequest.newGetRequest(this, key, classOfValue);
-        execute(request);
+        recordAccess(Collections.singleton(key));
+        Object deferred = writeBehindBuffer != null ? writeBehindBuffer.get(key) : null;
+
+        if (deferred != null) {
+            // The latest value hasn't reached the disk store yet, and may be gone from memory.
+            request.complete((T) deferred);
+        } else if (canReadConcurrently(Collections.singleton(key))) {
+            LruCache<Object, Object> memory = memoryStore;
+            Object cached = memory != null ? memory.get(key) : null;
+
+            if (cached != null) {
+                // Serve memory hits right away, without touching the disk store.
+                request.complete((T) cached);
+            } else {
+                readQueue.enqueue(request, priority);
+            }
+        } else {
+            execute(request, priority, Collections.singleton(key));
+        }
+
+        return request;
+    }
+
+    /**
+     * Retrieves several objects from the local store in one request. Objects not found in memory
+     * are looked for on disk in one go.
+     *
+     * @throws IllegalStateException
+     *         If neither in-memory store, nor disk store has a valid handle.
+     */
+    @Override
+    public <T> Request<Map<Object, T>> getAll(Collection<?> keys, Class<T> classOfValue) throws IllegalStateException {
+        return getAll(keys, classOfValue, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Retrieves several objects from the local store, queuing the operation with the given
+     * priority.
+     *
+     * @see #getAll(Collection, Class)
+     * @see #get(Object, Class, Priority)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Request<Map<Object, T>> getAll(Collection<?> keys, Class<T> classOfValue, Priority priority) throws IllegalStateException {
+        List<Object> keyList = new ArrayList<Object>(keys);
+        recordAccess(keyList);
+        Map<Object, Object> knownValues = new HashMap<Object, Object>();
+
+        if (writeBehindBuffer != null) {
+            for (Object key : keyList) {
+                Object deferred = writeBehindBuffer.get(key);
+
+                if (deferred != null) {
+                    knownValues.put(key, deferred);
+                }
+            }
+        }
+
+        GetAllRequest<T> request = LocalStoreRequest.newGetAllRequest(this, keyList, knownValues, classOfValue);
+
+        if (canReadConcurrently(keyList)) {
+            LruCache<Object, Object> memory = memoryStore;
+            Map<Object, T> values = new LinkedHashMap<Object, T>();
+
+            for (Object key : keyList) {
+                Object value = knownValues.containsKey(key) ? knownValues.get(key) : memory != null ? memory.get(key) : null;
+
+                if (value == null) {
+                    values = null;
+                    break;
+                }
+
+                values.put(key, (T) value);
+            }
+
+            if (values != null) {
+                // Serve memory hits right away, without touching the disk store.
+                request.complete(values);
+            } else {
+                readQueue.enqueue(request, priority);
+            }
+        } else {
+            execute(request, priority, keyList);
+        }
+
         return request;
     }
 
@@ -314,13 +853,75 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
     }
 
     /**
-     * Provides a lock to synchronize any disk operations on.
+     * Provides the backend persisting the values of the disk store.
+     *
+     * @return A reference to the current disk store backend, or null if there is no disk store.
+     */
+    @Override
+    public DiskBackend getDiskBackend() {
+        return diskBackend;
+    }
+
+    /**
+     * Schedules background maintenance of the disk store, if it's due and not already scheduled.
+     * The maintenance is performed a portion at a time, with the lowest priority.
+     */
+    @Override
+    public void onDiskStoreModified() {
+        DiskBackend backend = diskBackend;
+
+        boolean isDue = backend != null && (backend.needsMaintenance() || (itemIndex != null && itemIndex.needsSave()));
+
+        if (!isDue || !isMaintenanceScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        final MaintenanceRequest request = LocalStoreRequest.newMaintenanceRequest(this);
+        request.setCompletionHook(new Runnable() {
+            @Override
+            public void run() {
+                // This hook is executed on the worker thread. Continue with any remaining
+                // maintenance, unless this portion failed, in which case it's retried after the
+                // next write.
+                isMaintenanceScheduled.set(false);
+
+                if (request.isSuccessful()) {
+                    onDiskStoreModified();
+                }
+            }
+        });
+
+        execute(request, Priority.BACKGROUND_SYNC);
+    }
+
+    /**
+     * Provides the locks to guard any disk operations with.
+     *
+     * @return The "Disk-store-ready" locks.
+     */
+    @Override
+    public StripedLock getDiskStoreLocks() {
+        return diskStoreLocks;
+    }
+
+    /**
+     * Provides the codec encoding values before they're written to the disk store.
+     *
+     * @return The configured value codec.
+     */
+    @Override
+    public ValueCodec getValueCodec() {
+        return valueCodec;
+    }
+
+    /**
+     * Provides the index of the items in the store.
      *
-     * @return The "Disk-store-ready" lock object.
+     * @return The item index, or null if items aren't indexed.
      */
     @Override
-    public Object getDiskStoreLock() {
-        return diskStoreLock;
+    public ItemIndex getItemIndex() {
+        return itemIndex;
     }
 
     /**
@@ -333,6 +934,45 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
         return memoryStore;
     }
 
+    /**
+     * Finds the {@link Item Items} in the store matching the given query. The matching items are
+     * looked up in the item index, so only the items of the requested page are read.
+     *
+     * @param query
+     *         The query to match.
+     *
+     * @return A request delivering the matching items of the requested page.
+     *
+     * @throws IllegalStateException
+     *         If items aren't indexed.
+     * @throws IllegalArgumentException
+     *         If the query refers to a field that isn't indexed.
+     * @see Options#withItemIndex(String...)
+     */
+    public Request<List<Item>> query(ItemQuery query) throws IllegalStateException, IllegalArgumentException {
+        return query(query, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Finds the items in the store matching the given query, queuing the operation with the given
+     * priority.
+     *
+     * @see #query(ItemQuery)
+     */
+    public Request<List<Item>> query(ItemQuery query, Priority priority) throws IllegalStateException, IllegalArgumentException {
+        if (itemIndex == null) {
+            throw new IllegalStateException("Items aren't indexed in this store.");
+        }
+
+        // Fail early on keys that aren't indexed, rather than through the request.
+        ItemQuery snapshot = query.copy();
+        itemIndex.validate(snapshot);
+
+        QueryRequest request = LocalStoreRequest.newQueryRequest(this, itemIndex, snapshot, writeBehindBuffer);
+        execute(request, priority, null);
+        return request;
+    }
+
     /**
      * Removes an object with the given key from the local store. If the removed value was found in
      * the memory store, then it will be returned, else if it exists in the disk store and a {@link
@@ -343,8 +983,55 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
      */
     @Override
     public Request<Void> remove(Object key) throws IllegalStateException {
+        return remove(key, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Removes an object with the given key from the local store, queuing the operation with the
+     * given priority.
+     *
+     * @see #remove(Object)
+     */
+    public Request<Void> remove(Object key, Priority priority) throws IllegalStateException {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.discard(key);
+        }
+
         RemoveRequest request = LocalStoreRequest.newRemoveRequest(this, key);
-        execute(request);
+        trackPendingWrites(Collections.singleton(key), request);
+        execute(request, priority, Collections.singleton(key));
+        return request;
+    }
+
+    /**
+     * Removes several objects from the local store in one request.
+     *
+     * @throws IllegalStateException
+     *         If neither in-memory store, nor disk store has a valid handle.
+     */
+    @Override
+    public Request<Void> removeAll(Collection<?> keys) throws IllegalStateException {
+        return removeAll(keys, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Removes several objects from the local store, queuing the operation with the given
+     * priority.
+     *
+     * @see #removeAll(Collection)
+     */
+    public Request<Void> removeAll(Collection<?> keys, Priority priority) throws IllegalStateException {
+        List<Object> keyList = new ArrayList<Object>(keys);
+
+        if (writeBehindBuffer != null) {
+            for (Object key : keyList) {
+                writeBehindBuffer.discard(key);
+            }
+        }
+
+        RemoveAllRequest request = LocalStoreRequest.newRemoveAllRequest(this, keyList);
+        trackPendingWrites(keyList, request);
+        execute(request, priority, keyList);
         return request;
     }
 
@@ -357,8 +1044,90 @@ public class LocalStore extends QueueClient implements Store, LocalStoreRequest.
      */
     @Override
     public Request<Void> set(Object key, Object value) throws IllegalStateException {
+        return set(key, value, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Adds or updates a value with the given key in the local store, queuing the operation with
+     * the given priority. Operations on the same key are always performed in the order they were
+     * issued, whatever their priority. A {@link Priority#PREFETCH} operation may be dropped if the
+     * queue is bounded and full. In write-behind mode the value is put in the memory store right
+     * away, the returned request has already completed and the priority doesn't apply.
+     *
+     * @see #set(Object, Object)
+     * @see Options#withWriteBehind(int, long)
+     */
+    public Request<Void> set(Object key, Object value, Priority priority) throws IllegalStateException {
         SetRequest request = LocalStoreRequest.newSetRequest(this, key, value);
-        execute(request);
+
+        if (writeBehindBuffer != null) {
+            // The write is done as far as the caller is concerned, so the item is indexed right
+            // away. Otherwise it's indexed by the request once written.
+            if (itemIndex != null) {
+                itemIndex.put(key, value);
+            }
+
+            LruCache<Object, Object> memory = memoryStore;
+
+            if (memory != null) {
+                LocalStoreRequest.putInMemoryStoreProvisionally(memory, key, value);
+            }
+
+            writeBehindBuffer.put(key, value);
+            request.complete(null);
+            return request;
+        }
+
+        trackPendingWrites(Collections.singleton(key), request);
+        execute(request, priority, Collections.singleton(key));
+        return request;
+    }
+
+    /**
+     * Adds or updates several values in the local store in one request, silently overwriting any
+     * previous values.
+     *
+     * @throws IllegalStateException
+     *         If neither in-memory store, nor disk store has a valid handle.
+     */
+    @Override
+    public Request<Void> setAll(Map<?, ?> values) throws IllegalStateException {
+        return setAll(values, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Adds or updates several values in the local store, queuing the operation with the given
+     * priority.
+     *
+     * @see #setAll(Map)
+     * @see #set(Object, Object, Priority)
+     */
+    public Request<Void> setAll(Map<?, ?> values, Priority priority) throws IllegalStateException {
+        Map<Object, Object> valueMap = new LinkedHashMap<Object, Object>(values);
+        SetAllRequest request = LocalStoreRequest.newSetAllRequest(this, valueMap);
+
+        if (writeBehindBuffer != null) {
+            if (itemIndex != null) {
+                for (Map.Entry<Object, Object> entry : valueMap.entrySet()) {
+                    itemIndex.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            LruCache<Object, Object> memory = memoryStore;
+
+            if (memory != null) {
+                for (Map.Entry<Object, Object> entry : valueMap.entrySet()) {
+                    LocalStoreRequest.putInMemoryStoreProvisionally(memory, entry.getKey(), entry.getValue());
+                }
+            }
+
+            writeBehindBuffer.putAll(valueMap);
+            request.complete(null);
+            return request;
+        }
+
+        trackPendingWrites(valueMap.keySet(), request);
+        execute(request, priority, valueMap.keySet());
         return request;
     }
 
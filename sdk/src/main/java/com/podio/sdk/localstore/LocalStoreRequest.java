@@ -8,13 +8,15 @@ import com.podio.sdk.internal.CallbackManager;
 import com.podio.sdk.json.JsonParser;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
@@ -37,7 +39,24 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
 
         File getDiskStore();
 
-        Object getDiskStoreLock();
+        DiskBackend getDiskBackend();
+
+        StripedLock getDiskStoreLocks();
+
+        /**
+         * Provides the codec encoding values before they're written to the disk store.
+         */
+        ValueCodec getValueCodec();
+
+        /**
+         * Provides the index of the items in the store, or null if items aren't indexed.
+         */
+        ItemIndex getItemIndex();
+
+        /**
+         * Called on the worker thread after the disk store has been written to.
+         */
+        void onDiskStoreModified();
 
     }
 
@@ -66,6 +85,21 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
         return new FreeRequest(memoryStore);
     }
 
+    /**
+     * Creates a new Request for writing the dirty values of a write-behind buffer to the disk
+     * store.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param buffer
+     *         The buffer to flush, may be null.
+     *
+     * @return A request ready for being enqueued in a queue.
+     */
+    static FlushRequest newFlushRequest(RuntimeStoreEnabler storeEnabler, WriteBehindBuffer buffer) {
+        return new FlushRequest(storeEnabler, buffer);
+    }
+
     /**
      * Creates a new Request for retrieving a value from the local store. The request will deliver
      * the requested object, or a null-pointer if no object is found by the given key.
@@ -83,6 +117,25 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
         return new GetRequest<E>(storeEnabler, key, classOfValue);
     }
 
+    /**
+     * Creates a new Request for retrieving several values from the local store. The request will
+     * deliver the found values by key.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param keys
+     *         The keys of the values.
+     * @param knownValues
+     *         Values already known by the caller, which don't have to be looked up.
+     * @param classOfValue
+     *         The type to parse the files into (if needed).
+     *
+     * @return A request ready for being enqueued in a queue.
+     */
+    static <E> GetAllRequest<E> newGetAllRequest(RuntimeStoreEnabler storeEnabler, Collection<?> keys, Map<Object, Object> knownValues, Class<E> classOfValue) {
+        return new GetAllRequest<E>(storeEnabler, keys, knownValues, classOfValue);
+    }
+
     /**
      * Creates a new Request for initializing the memory and disk stores for a local store.
      *
@@ -90,13 +143,46 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
      *         The absolute path of the local store to initialize.
      * @param maxMemoryInKiloBytes
      *         The maximum allowed size of the memory cache.
+     * @param options
+     *         The configuration of the store.
      * @param storePersister
      *         The callback interface to deliver created stores through.
      *
      * @return A request ready for being enqueued in a queue.
      */
-    static InitRequest newInitRequest(String path, int maxMemoryInKiloBytes, LocalStore.RuntimeStorePersister storePersister) {
-        return new InitRequest(path, maxMemoryInKiloBytes, storePersister);
+    static InitRequest newInitRequest(String path, int maxMemoryInKiloBytes, LocalStore.Options options, LocalStore.RuntimeStorePersister storePersister) {
+        return new InitRequest(path, maxMemoryInKiloBytes, options, storePersister);
+    }
+
+    /**
+     * Creates a new Request performing background maintenance on the disk store.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the disk store.
+     *
+     * @return A request ready for being enqueued in a queue.
+     */
+    static MaintenanceRequest newMaintenanceRequest(RuntimeStoreEnabler storeEnabler) {
+        return new MaintenanceRequest(storeEnabler);
+    }
+
+    /**
+     * Creates a new Request for querying the items in the local store. The request will deliver
+     * the matching items of the requested page.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param itemIndex
+     *         The index to find the items in.
+     * @param query
+     *         The query to match.
+     * @param buffer
+     *         The write-behind buffer holding values not yet written to disk, may be null.
+     *
+     * @return A request ready for being enqueued in a queue.
+     */
+    static QueryRequest newQueryRequest(RuntimeStoreEnabler storeEnabler, ItemIndex itemIndex, ItemQuery query, WriteBehindBuffer buffer) {
+        return new QueryRequest(storeEnabler, itemIndex, query, buffer);
     }
 
     /**
@@ -113,6 +199,20 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
         return new RemoveRequest(storeEnabler, key);
     }
 
+    /**
+     * Creates a new Request for removing several values from the local store.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param keys
+     *         The keys of the values.
+     *
+     * @return A request ready for being enqueued in a queue.
+     */
+    static RemoveAllRequest newRemoveAllRequest(RuntimeStoreEnabler storeEnabler, Collection<?> keys) {
+        return new RemoveAllRequest(storeEnabler, keys);
+    }
+
     /**
      * Creates a new request for storing a given value. The request will deliver the previous value
      * if an overwrite has occurred, or a null-pointer if no object is previously stored by the
@@ -131,6 +231,20 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
         return new SetRequest(storeEnabler, key, value);
     }
 
+    /**
+     * Creates a new request for storing several values in one go.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param values
+     *         The values by key.
+     *
+     * @return A request ready for being enqueued in a queue.
+     */
+    static SetAllRequest newSetAllRequest(RuntimeStoreEnabler storeEnabler, Map<?, ?> values) {
+        return new SetAllRequest(storeEnabler, values);
+    }
+
     /**
      * URL encodes the string format of the given key, so it can be used as a file name.
      *
@@ -203,70 +317,108 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
     }
 
     /**
-     * Reads the content of a file and tries to parse it as JSON into an object.
+     * Recursively removes all files and sub directories in the given directory, leaving the
+     * directory itself in place.
      *
-     * @param file
-     *         The file on disk to read from.
+     * @param directory
+     *         The directory to clear.
+     */
+    protected static void deleteDirectoryContent(File directory) {
+        if (isWritableDirectory(directory)) {
+            File[] files = directory.listFiles();
+
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isDirectory()) {
+                        deleteDirectoryContent(file);
+                        file.delete();
+                    } else if (file.isFile()) {
+                        file.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Serializes the given value to JSON, in the form it's persisted in the disk store.
+     *
+     * @param value
+     *         The value to serialize.
+     *
+     * @return The JSON representation of the value as bytes.
+     */
+    protected static byte[] serializeValue(Object value) {
+        String json = JsonParser.toJson(value);
+        return json.getBytes();
+    }
+
+    /**
+     * Parses a value read from the disk store. Compressed values are decompressed and parsed as a
+     * stream, without an intermediate copy of the entire JSON.
+     *
+     * @param data
+     *         The value as stored on disk, see {@link ValueCodec}.
      * @param classOfValue
      *         The class definition that the JSON should be parsed into.
      *
-     * @return The object stored in the file.
+     * @return The parsed value, or null if there is no data.
      *
      * @throws IOException
-     *         If anything went wrong during file access.
+     *         If the value can't be decoded.
      */
-    protected static <E> E readObjectFromDisk(File file, Class<E> classOfValue) throws IOException {
-        // Validate file.
-        if (!isReadableFile(file)) {
+    protected static <E> E deserializeValue(byte[] data, Class<E> classOfValue) throws IOException {
+        if (data == null || data.length == 0 || !isValidTemplate(classOfValue)) {
             return null;
         }
 
-        if (classOfValue == null || classOfValue.equals(Void.class)) {
-            return null;
-        }
-
-        long length = file.length();
-        if (length < 0 || length > Integer.MAX_VALUE) {
-            return null;
-        }
-
-        // Read from disk.
-        byte[] bytes = new byte[(int) length];
-        FileInputStream fileInputStream = new FileInputStream(file);
+        InputStream json = ValueCodec.openDecoded(data);
 
         try {
-            fileInputStream.read(bytes);
+            return JsonParser.fromJson(json, Charset.defaultCharset().name(), classOfValue);
         } finally {
-            fileInputStream.close();
+            json.close();
         }
-
-        // Parse JSON to object.
-        String json = new String(bytes);
-        E result = JsonParser.fromJson(json, classOfValue);
-        return result;
     }
 
     /**
-     * Tries to write the value to the disk store. An attempt will be made to parse the value to
-     * JSON and on success it will be written to a file with the same name as the key. The key will
-     * be transformed to the file name by calling the <code>toString()</code> method on it (pick
-     * your keys with great care).
+     * Puts a value in the memory store. If the memory store weighs its values, the length of the
+     * JSON representation of the value is passed on, so it doesn't have to be serialized again.
      *
-     * @param file
-     *         The {@link File} pointing at the desired destination file on disk.
+     * @param memoryStore
+     *         The memory store to put the value in.
+     * @param key
+     *         The key of the value.
      * @param value
-     *         The value that will be serialized to JSON and saved as a file.
-     *
-     * @throws IOException
+     *         The value.
+     * @param serializedSize
+     *         The length, in bytes, of the JSON representation of the value, or -1 if unknown.
      */
-    protected static void writeObjectToDisk(File file, Object value) throws IOException {
-        String json = JsonParser.toJson(value);
-        FileOutputStream fileOutputStream = new FileOutputStream(file);
+    protected static void putInMemoryStore(LruCache<Object, Object> memoryStore, Object key, Object value, int serializedSize) {
+        if (memoryStore instanceof WeighedMemoryStore) {
+            ((WeighedMemoryStore) memoryStore).put(key, value, serializedSize);
+        } else {
+            memoryStore.put(key, value);
+        }
+    }
 
-        try {
-            fileOutputStream.write(json.getBytes());
-        } finally {
-            fileOutputStream.close();
+    /**
+     * Puts a value in the memory store without weighing it, e.g. because the caller isn't on the
+     * worker thread. The value is given a provisional weight, which is corrected once the value is
+     * put again with the length of its JSON representation.
+     *
+     * @param memoryStore
+     *         The memory store to put the value in.
+     * @param key
+     *         The key of the value.
+     * @param value
+     *         The value.
+     */
+    protected static void putInMemoryStoreProvisionally(LruCache<Object, Object> memoryStore, Object key, Object value) {
+        if (memoryStore instanceof WeighedMemoryStore) {
+            ((WeighedMemoryStore) memoryStore).putProvisionally(key, value);
+        } else {
+            memoryStore.put(key, value);
         }
     }
 
@@ -298,6 +450,11 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
      */
     private Throwable error;
 
+    /**
+     * Called on the completing thread before any listeners are notified.
+     */
+    private volatile Runnable completionHook;
+
     /**
      * Initializes the listener containers.
      *
@@ -318,6 +475,11 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
     protected void done() {
         super.done();
 
+        Runnable hook = completionHook;
+        if (hook != null) {
+            hook.run();
+        }
+
         try {
             result = get();
             error = null;
@@ -330,9 +492,58 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
             result = null;
             error = e;
             callbackManager.deliverErrorOnMainThread(error);
+        } catch (CancellationException e) {
+            // The request was dropped or rejected by the queue.
+            result = null;
+            error = e;
+            callbackManager.deliverErrorOnMainThread(error);
+        }
+    }
+
+    /**
+     * Sets a hook to run as soon as this request has completed, was cancelled or failed. Unlike the
+     * result and error listeners, the hook runs on the thread that completed the request and
+     * before any of the listeners are called.
+     *
+     * @param completionHook
+     *         The hook to run.
+     */
+    void setCompletionHook(Runnable completionHook) {
+        this.completionHook = completionHook;
+    }
+
+    /**
+     * Returns whether this request has completed without being cancelled or failing.
+     *
+     * @return Boolean true if a result was delivered, boolean false otherwise.
+     */
+    boolean isSuccessful() {
+        if (!isDone() || isCancelled()) {
+            return false;
+        }
+
+        try {
+            get();
+            return true;
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
+    /**
+     * Completes this request with the given result without performing it, e.g. when the result is
+     * already known.
+     *
+     * @param result
+     *         The result to deliver.
+     */
+    void complete(T result) {
+        set(result);
+    }
+
     @Override
     public synchronized T waitForResult(long maxSeconds) {
         try {
@@ -343,6 +554,8 @@ class LocalStoreRequest<T> extends FutureTask<T> implements Request<T> {
             callbackManager.deliverError(e);
         } catch (TimeoutException e) {
             callbackManager.deliverError(e);
+        } catch (CancellationException e) {
+            callbackManager.deliverError(e);
         }
 
         return null;
@@ -0,0 +1,663 @@
+package com.podio.sdk.localstore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link DiskBackend} implementation keeping all values in a few append-only segment files
+ * rather than in one file per key. Each write appends a record to the active segment, and an in
+ * memory index maps each key to the position of its latest record. Removing a value appends a
+ * "tombstone" record.
+ * <p/>
+ * Each record carries a checksum. When the backend is opened, the segments are replayed in order
+ * to rebuild the index, and a segment is truncated at the first record that is incomplete or
+ * corrupt, as happens if the app is killed in the middle of a write.
+ * <p/>
+ * Overwritten and removed values leave garbage behind in the segments. Once a sealed segment is
+ * mostly garbage, the remaining live records are copied to the active segment and the old segment
+ * is deleted. This is done as background maintenance, one segment at a time.
+ * <p/>
+ * Reads use positional file access and only share a read lock with each other, so values can be
+ * read concurrently. Writes and maintenance lock the log exclusively.
+ *
+ */
+final class LogDiskBackend implements DiskBackend {
+
+    /**
+     * The default size at which the active segment is sealed and a new one started.
+     */
+    static final long DEFAULT_MAX_SEGMENT_SIZE = 4L * 1024L * 1024L;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Charset KEY_CHARSET = Charset.forName("UTF-8");
+
+    // The record header: magic, key length, value length and checksum.
+    private static final int RECORD_MAGIC = 0x50534c31;
+    private static final int HEADER_SIZE = 16;
+    private static final int TOMBSTONE = -1;
+
+    // A sealed segment is compacted once at least this share of it is garbage.
+    private static final float COMPACTION_GARBAGE_RATIO = 0.5f;
+
+    private static final class Segment {
+        private final long id;
+        private final File file;
+        private RandomAccessFile handle;
+        private long size;
+        private long liveBytes;
+
+        private Segment(long id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+
+        private synchronized RandomAccessFile getHandle() throws IOException {
+            if (handle == null) {
+                handle = new RandomAccessFile(file, "rw");
+            }
+
+            return handle;
+        }
+
+        private synchronized void close() {
+            if (handle != null) {
+                try {
+                    handle.close();
+                } catch (IOException e) {
+                    // Intentionally consume this exception.
+                }
+
+                handle = null;
+            }
+        }
+    }
+
+    private static final class Location {
+        private final Segment segment;
+        private final long offset;
+        private final int keyLength;
+        private final int valueLength;
+
+        private Location(Segment segment, long offset, int keyLength, int valueLength) {
+            this.segment = segment;
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+        }
+
+        private int getRecordLength() {
+            return HEADER_SIZE + keyLength + Math.max(0, valueLength);
+        }
+    }
+
+    /**
+     * A record as read back from a segment.
+     */
+    private static final class Record {
+        private final String key;
+        private final int keyLength;
+        private final byte[] value;
+        private final int length;
+
+        private Record(String key, int keyLength, byte[] value, int length) {
+            this.key = key;
+            this.keyLength = keyLength;
+            this.value = value;
+            this.length = length;
+        }
+
+        private int getValueLength() {
+            return value != null ? value.length : TOMBSTONE;
+        }
+    }
+
+    /**
+     * Opens the log in the given directory, replaying any existing segments.
+     *
+     * @param directory
+     *         The existing directory holding the segments.
+     * @param maxSegmentSize
+     *         The size at which the active segment is sealed.
+     *
+     * @return The opened backend.
+     *
+     * @throws IOException
+     *         If the segments can't be read.
+     */
+    static LogDiskBackend open(File directory, long maxSegmentSize) throws IOException {
+        LogDiskBackend backend = new LogDiskBackend(directory, maxSegmentSize);
+        backend.recover();
+        return backend;
+    }
+
+    /**
+     * Returns whether the given file name is the name of a segment file.
+     *
+     * @param fileName
+     *         The name to check.
+     *
+     * @return Boolean true if the name is a segment file name, boolean false otherwise.
+     */
+    static boolean isSegmentFile(String fileName) {
+        return parseSegmentId(fileName) >= 0;
+    }
+
+    private static long parseSegmentId(String fileName) {
+        if (fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX)) {
+            try {
+                return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                return -1L;
+            }
+        }
+
+        return -1L;
+    }
+
+    private static int checksum(int keyLength, int valueLength, byte[] key, byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putInt(keyLength).putInt(valueLength).array());
+        crc.update(key);
+
+        if (value != null) {
+            crc.update(value);
+        }
+
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encodeRecord(byte[] key, byte[] value) {
+        int valueLength = value != null ? value.length : TOMBSTONE;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + key.length + Math.max(0, valueLength));
+        buffer.putInt(RECORD_MAGIC);
+        buffer.putInt(key.length);
+        buffer.putInt(valueLength);
+        buffer.putInt(checksum(key.length, valueLength, key, value));
+        buffer.put(key);
+
+        if (value != null) {
+            buffer.put(value);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Reads the record at the given offset, or returns null if there is no complete and intact
+     * record there.
+     */
+    private static Record readRecord(RandomAccessFile handle, long offset, long size) throws IOException {
+        if (offset + HEADER_SIZE > size) {
+            return null;
+        }
+
+        byte[] header = new byte[HEADER_SIZE];
+        handle.seek(offset);
+        handle.readFully(header);
+
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        int magic = buffer.getInt();
+        int keyLength = buffer.getInt();
+        int valueLength = buffer.getInt();
+        int checksum = buffer.getInt();
+
+        if (magic != RECORD_MAGIC || keyLength < 0 || valueLength < TOMBSTONE) {
+            return null;
+        }
+
+        long length = (long) HEADER_SIZE + keyLength + Math.max(0, valueLength);
+        if (offset + length > size) {
+            return null;
+        }
+
+        byte[] key = new byte[keyLength];
+        byte[] value = valueLength != TOMBSTONE ? new byte[valueLength] : null;
+        handle.readFully(key);
+
+        if (value != null) {
+            handle.readFully(value);
+        }
+
+        if (checksum(keyLength, valueLength, key, value) != checksum) {
+            return null;
+        }
+
+        return new Record(new String(key, KEY_CHARSET), keyLength, value, (int) length);
+    }
+
+    private final File directory;
+    private final long maxSegmentSize;
+    private final HashMap<String, Location> index;
+    private final TreeMap<Long, Segment> segments;
+
+    private final ReentrantReadWriteLock lock;
+
+    private Segment activeSegment;
+
+    private LogDiskBackend(File directory, long maxSegmentSize) {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize > 0 ? maxSegmentSize : DEFAULT_MAX_SEGMENT_SIZE;
+        this.index = new HashMap<String, Location>();
+        this.segments = new TreeMap<Long, Segment>();
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    @Override
+    public byte[] read(Object key) throws IOException {
+        lock.readLock().lock();
+
+        try {
+            return readValue(index.get(key.toString()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Object, byte[]> readAll(Collection<?> keys) throws IOException {
+        lock.readLock().lock();
+
+        try {
+            Map<Object, byte[]> values = new LinkedHashMap<Object, byte[]>();
+
+            for (Object key : keys) {
+                byte[] value = readValue(index.get(key.toString()));
+
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+
+            return values;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void write(Object key, byte[] data) throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            append(key.toString(), data);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void writeAll(Map<?, byte[]> values) throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            List<String> keys = new ArrayList<String>(values.size());
+            List<byte[]> data = new ArrayList<byte[]>(values.size());
+
+            for (Map.Entry<?, byte[]> entry : values.entrySet()) {
+                keys.add(entry.getKey().toString());
+                data.add(entry.getValue());
+            }
+
+            appendAll(keys, data);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Object key) throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            String stringKey = key.toString();
+
+            if (index.containsKey(stringKey)) {
+                append(stringKey, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<?> keys) throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            List<String> existingKeys = new ArrayList<String>(keys.size());
+            List<byte[]> tombstones = new ArrayList<byte[]>(keys.size());
+
+            for (Object key : keys) {
+                String stringKey = key.toString();
+
+                if (index.containsKey(stringKey) && !existingKeys.contains(stringKey)) {
+                    existingKeys.add(stringKey);
+                    tombstones.add(null);
+                }
+            }
+
+            appendAll(existingKeys, tombstones);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Long> getEntrySizes() {
+        lock.readLock().lock();
+
+        try {
+            Map<String, Long> sizes = new HashMap<String, Long>();
+
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                sizes.put(entry.getKey(), (long) entry.getValue().valueLength);
+            }
+
+            return sizes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+
+        try {
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+
+            segments.clear();
+            index.clear();
+            activeSegment = null;
+            LocalStoreRequest.deleteDirectoryContent(directory);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean needsMaintenance() {
+        lock.readLock().lock();
+
+        try {
+            return findCompactionCandidate() != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void maintain() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            Segment segment = findCompactionCandidate();
+
+            if (segment != null) {
+                compact(segment);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of live values in the log.
+     */
+    int size() {
+        lock.readLock().lock();
+
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of segment files in the log.
+     */
+    int getSegmentCount() {
+        lock.readLock().lock();
+
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                long id = parseSegmentId(file.getName());
+
+                if (id >= 0) {
+                    segments.put(id, new Segment(id, file));
+                }
+            }
+        }
+
+        for (Segment segment : segments.values()) {
+            RandomAccessFile handle = segment.getHandle();
+            long length = handle.length();
+            long offset = 0L;
+            Record record;
+
+            while ((record = readRecord(handle, offset, length)) != null) {
+                apply(record.key, new Location(segment, offset, record.keyLength, record.getValueLength()));
+                offset += record.length;
+            }
+
+            // Anything beyond the last intact record is the remains of an interrupted write.
+            if (offset < length) {
+                handle.setLength(offset);
+            }
+
+            segment.size = offset;
+        }
+
+        if (!segments.isEmpty()) {
+            Segment last = segments.lastEntry().getValue();
+
+            if (last.size < maxSegmentSize) {
+                activeSegment = last;
+            }
+        }
+    }
+
+    /**
+     * Reads the value at the given location. Positional reads don't move the shared file pointer,
+     * so concurrent reads are safe.
+     */
+    private byte[] readValue(Location location) throws IOException {
+        if (location == null) {
+            return null;
+        }
+
+        ByteBuffer value = ByteBuffer.allocate(location.valueLength);
+        FileChannel channel = location.segment.getHandle().getChannel();
+        long position = location.offset + HEADER_SIZE + location.keyLength;
+
+        while (value.hasRemaining()) {
+            int count = channel.read(value, position + value.position());
+
+            if (count < 0) {
+                throw new EOFException("Unexpected end of segment: " + location.segment.file);
+            }
+        }
+
+        return value.array();
+    }
+
+    /**
+     * Appends a value, or a tombstone if the value is null, to the active segment and updates the
+     * index accordingly.
+     */
+    private void append(String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(KEY_CHARSET);
+        byte[] record = encodeRecord(keyBytes, value);
+        Segment segment = getActiveSegment(record.length);
+
+        RandomAccessFile handle = segment.getHandle();
+        handle.seek(segment.size);
+        handle.write(record);
+
+        long offset = segment.size;
+        segment.size += record.length;
+        apply(key, new Location(segment, offset, keyBytes.length, value != null ? value.length : TOMBSTONE));
+    }
+
+    /**
+     * Appends the given values, or tombstones for null values, with as few file writes as
+     * possible: all records that fit in the active segment are written at once.
+     */
+    private void appendAll(List<String> keys, List<byte[]> values) throws IOException {
+        int count = keys.size();
+        byte[][] records = new byte[count][];
+        int[] keyLengths = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            byte[] keyBytes = keys.get(i).getBytes(KEY_CHARSET);
+            keyLengths[i] = keyBytes.length;
+            records[i] = encodeRecord(keyBytes, values.get(i));
+        }
+
+        int start = 0;
+
+        while (start < count) {
+            // A batch always holds at least one record, even if it exceeds the max segment size.
+            Segment segment = getActiveSegment(records[start].length);
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            batch.write(records[start]);
+            int end = start + 1;
+
+            while (end < count && segment.size + batch.size() + records[end].length <= maxSegmentSize) {
+                batch.write(records[end]);
+                end++;
+            }
+
+            RandomAccessFile handle = segment.getHandle();
+            handle.seek(segment.size);
+            handle.write(batch.toByteArray());
+
+            for (int i = start; i < end; i++) {
+                byte[] value = values.get(i);
+                apply(keys.get(i), new Location(segment, segment.size, keyLengths[i], value != null ? value.length : TOMBSTONE));
+                segment.size += records[i].length;
+            }
+
+            start = end;
+        }
+    }
+
+    /**
+     * Points the index at the given record, keeping track of the live bytes of each segment.
+     */
+    private void apply(String key, Location location) {
+        Location previous = location.valueLength != TOMBSTONE ?
+                index.put(key, location) :
+                index.remove(key);
+
+        if (previous != null) {
+            previous.segment.liveBytes -= previous.getRecordLength();
+        }
+
+        if (location.valueLength != TOMBSTONE) {
+            location.segment.liveBytes += location.getRecordLength();
+        }
+    }
+
+    private Segment getActiveSegment(int recordLength) throws IOException {
+        if (activeSegment != null && activeSegment.size > 0 && activeSegment.size + recordLength > maxSegmentSize) {
+            activeSegment = null;
+        }
+
+        if (activeSegment == null) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Couldn't create the store directory: " + directory);
+            }
+
+            long id = segments.isEmpty() ? 0L : segments.lastKey() + 1L;
+            activeSegment = new Segment(id, new File(directory, SEGMENT_PREFIX + id + SEGMENT_SUFFIX));
+            segments.put(id, activeSegment);
+        }
+
+        return activeSegment;
+    }
+
+    private Segment findCompactionCandidate() {
+        Segment candidate = null;
+        float candidateRatio = 0.0f;
+
+        for (Segment segment : segments.values()) {
+            if (segment == activeSegment || segment.size == 0) {
+                continue;
+            }
+
+            float garbageRatio = 1.0f - (float) segment.liveBytes / segment.size;
+
+            if (garbageRatio >= COMPACTION_GARBAGE_RATIO && garbageRatio > candidateRatio) {
+                candidate = segment;
+                candidateRatio = garbageRatio;
+            }
+        }
+
+        return candidate;
+    }
+
+    /**
+     * Copies the live records of a sealed segment to the active segment and deletes it. The
+     * segment is only deleted once all copies are written, so an interrupted compaction leaves
+     * nothing but duplicates behind, which are resolved on recovery.
+     */
+    private void compact(Segment segment) throws IOException {
+        boolean isOldestSegment = segments.firstKey() == segment.id;
+        RandomAccessFile handle = segment.getHandle();
+        long offset = 0L;
+        Record record;
+
+        while ((record = readRecord(handle, offset, segment.size)) != null) {
+            Location location = index.get(record.key);
+
+            if (record.value != null) {
+                if (location != null && location.segment == segment && location.offset == offset) {
+                    append(record.key, record.value);
+                }
+            } else if (location == null && !isOldestSegment) {
+                // The tombstone must outlive any older record of the same key.
+                append(record.key, null);
+            }
+
+            offset += record.length;
+        }
+
+        segment.close();
+        segments.remove(segment.id);
+
+        if (!segment.file.delete() && segment.file.exists()) {
+            throw new IOException("Couldn't delete compacted segment: " + segment.file);
+        }
+    }
+
+}
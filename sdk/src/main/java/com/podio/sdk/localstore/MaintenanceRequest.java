@@ -0,0 +1,47 @@
+package com.podio.sdk.localstore;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A specific {@link LocalStoreRequest} implementation, performing background maintenance of the
+ * disk store, like compacting the segments of a log structured store or saving the item index.
+ * The request is meant to be enqueued with a low priority as nobody is waiting for it.
+ *
+ */
+final class MaintenanceRequest extends LocalStoreRequest<Void> {
+
+    /**
+     * Creates a new Request for maintaining the disk store.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the disk store.
+     */
+    MaintenanceRequest(final RuntimeStoreEnabler storeEnabler) {
+        super(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                StripedLock locks = storeEnabler.getDiskStoreLocks();
+                locks.lockAll();
+
+                try {
+                    DiskBackend diskBackend = storeEnabler.getDiskBackend();
+
+                    if (diskBackend != null && diskBackend.needsMaintenance()) {
+                        diskBackend.maintain();
+                    }
+
+                    ItemIndex itemIndex = storeEnabler.getItemIndex();
+
+                    if (itemIndex != null && itemIndex.needsSave()) {
+                        itemIndex.save();
+                    }
+                } finally {
+                    locks.unlockAll();
+                }
+
+                return null;
+            }
+        });
+    }
+
+}
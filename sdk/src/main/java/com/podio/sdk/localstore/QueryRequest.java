@@ -0,0 +1,93 @@
+package com.podio.sdk.localstore;
+
+import com.podio.sdk.domain.Item;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * A specific {@link LocalStoreRequest} implementation, targeting the "query items" operation. This
+ * implementation finds the keys of the matching items in the item index and then reads the items
+ * of the requested page like a {@link GetAllRequest} does. Index entries of items that are no
+ * longer in the store, e.g. because they were evicted, are dropped along the way.
+ *
+ */
+final class QueryRequest extends LocalStoreRequest<List<Item>> {
+
+    /**
+     * Retrieves the items matching the given query.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param itemIndex
+     *         The index to find the items in.
+     * @param query
+     *         The query to match.
+     * @param buffer
+     *         The write-behind buffer holding any values not yet written to disk, may be null.
+     *
+     * @return The matching items of the requested page, in the requested order.
+     *
+     * @throws IOException
+     *         If reading from disk store failed for some reason.
+     */
+    private static List<Item> getItems(RuntimeStoreEnabler storeEnabler, ItemIndex itemIndex, ItemQuery query, WriteBehindBuffer buffer) throws IOException {
+        while (true) {
+            List<Object> keys = itemIndex.query(query);
+            int from = Math.min(query.offset, keys.size());
+            int to = (int) Math.min(keys.size(), (long) from + query.limit);
+            List<Object> page = keys.subList(from, to);
+            Map<Object, Object> knownValues = new HashMap<Object, Object>();
+
+            if (buffer != null) {
+                for (Object key : page) {
+                    Object deferred = buffer.get(key);
+
+                    if (deferred != null) {
+                        knownValues.put(key, deferred);
+                    }
+                }
+            }
+
+            Map<Object, Item> items = GetAllRequest.getValues(storeEnabler, page, knownValues, Item.class);
+
+            if (items.size() == page.size()) {
+                return new ArrayList<Item>(items.values());
+            }
+
+            // Some items are gone, drop them from the index and fill up the page with the next
+            // matches.
+            for (Object key : page) {
+                if (!items.containsKey(key)) {
+                    itemIndex.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new Request for querying the items in the local store.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param itemIndex
+     *         The index to find the items in.
+     * @param query
+     *         The query to match.
+     * @param buffer
+     *         The write-behind buffer, may be null.
+     */
+    QueryRequest(final RuntimeStoreEnabler storeEnabler, final ItemIndex itemIndex, final ItemQuery query, final WriteBehindBuffer buffer) {
+        super(new Callable<List<Item>>() {
+            @Override
+            public List<Item> call() throws Exception {
+                return getItems(storeEnabler, itemIndex, query, buffer);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,369 @@
+package com.podio.sdk.localstore;
+
+import com.podio.sdk.internal.DiskCacheUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DiskBackend} decorator keeping the total size of the values in another backend within
+ * a quota. The decorator tracks the size of each value, along with when and how often it has been
+ * accessed. Once the quota is exceeded, the least recently or least frequently used values are
+ * evicted as part of the background maintenance, until the total size is back below the quota
+ * with some headroom.
+ * <p/>
+ * The access metadata is saved to a file of its own every now and then, so the eviction order
+ * survives the app being restarted. Values that have no metadata, e.g. because the app was killed
+ * before it was saved, are considered the least used.
+ *
+ */
+final class QuotaDiskBackend implements DiskBackend {
+
+    // The max number of values evicted per maintenance run.
+    private static final int MAX_EVICTIONS_PER_RUN = 64;
+
+    // The metadata is saved after this many changes.
+    private static final int SAVE_INTERVAL = 256;
+
+    private static final int METADATA_VERSION = 1;
+
+    // Longer keys don't fit the metadata file format; they're treated as the least used.
+    private static final int MAX_SAVED_KEY_LENGTH = 8 * 1024;
+
+    private static final class Entry {
+        private long size;
+        private long lastAccess;
+        private int accessCount;
+    }
+
+    /**
+     * Opens a quota on the given backend, reading the sizes of the existing values and any saved
+     * access metadata.
+     *
+     * @param delegate
+     *         The backend actually persisting the values.
+     * @param metadataFile
+     *         Where to save the access metadata.
+     * @param maxBytes
+     *         The max total size of the values.
+     * @param evictionPolicy
+     *         Decides which values to evict first.
+     *
+     * @return The decorated backend.
+     *
+     * @throws IOException
+     *         If the existing values can't be listed.
+     */
+    static QuotaDiskBackend open(DiskBackend delegate, File metadataFile, long maxBytes, LocalStore.EvictionPolicy evictionPolicy) throws IOException {
+        QuotaDiskBackend backend = new QuotaDiskBackend(delegate, metadataFile, maxBytes, evictionPolicy);
+        backend.load();
+        return backend;
+    }
+
+    private final DiskBackend delegate;
+    private final File metadataFile;
+    private final long maxBytes;
+    private final LocalStore.EvictionPolicy evictionPolicy;
+    private final HashMap<String, Entry> entries;
+
+    private long usedBytes;
+    private long clock;
+    private int unsavedChanges;
+
+    private QuotaDiskBackend(DiskBackend delegate, File metadataFile, long maxBytes, LocalStore.EvictionPolicy evictionPolicy) {
+        this.delegate = delegate;
+        this.metadataFile = metadataFile;
+        this.maxBytes = maxBytes;
+        this.evictionPolicy = evictionPolicy;
+        this.entries = new HashMap<String, Entry>();
+        this.usedBytes = 0L;
+        this.clock = 0L;
+        this.unsavedChanges = 0;
+    }
+
+    /**
+     * Records that the value of the given key was requested, whether it was served from memory or
+     * from disk.
+     *
+     * @param key
+     *         The key of the value.
+     */
+    void onAccess(Object key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key.toString());
+
+            if (entry != null) {
+                touch(entry);
+            }
+        }
+    }
+
+    @Override
+    public byte[] read(Object key) throws IOException {
+        // Accesses are recorded by the store, as most reads are served from memory.
+        return delegate.read(key);
+    }
+
+    @Override
+    public Map<Object, byte[]> readAll(Collection<?> keys) throws IOException {
+        return delegate.readAll(keys);
+    }
+
+    @Override
+    public void write(Object key, byte[] data) throws IOException {
+        delegate.write(key, data);
+        onWritten(key, data.length);
+    }
+
+    @Override
+    public void writeAll(Map<?, byte[]> values) throws IOException {
+        delegate.writeAll(values);
+
+        for (Map.Entry<?, byte[]> value : values.entrySet()) {
+            onWritten(value.getKey(), value.getValue().length);
+        }
+    }
+
+    @Override
+    public void delete(Object key) throws IOException {
+        delegate.delete(key);
+        onDeleted(key);
+    }
+
+    @Override
+    public void deleteAll(Collection<?> keys) throws IOException {
+        delegate.deleteAll(keys);
+
+        for (Object key : keys) {
+            onDeleted(key);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getEntrySizes() throws IOException {
+        return delegate.getEntrySizes();
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+
+        synchronized (entries) {
+            entries.clear();
+            usedBytes = 0L;
+            unsavedChanges = 0;
+        }
+
+        metadataFile.delete();
+    }
+
+    @Override
+    public boolean needsMaintenance() {
+        synchronized (entries) {
+            if (usedBytes > maxBytes || unsavedChanges >= SAVE_INTERVAL) {
+                return true;
+            }
+        }
+
+        return delegate.needsMaintenance();
+    }
+
+    @Override
+    public void maintain() throws IOException {
+        List<String> victims = selectVictims();
+
+        if (!victims.isEmpty()) {
+            deleteAll(victims);
+        }
+
+        save();
+        delegate.maintain();
+    }
+
+    /**
+     * Returns the total size of the values.
+     */
+    long getUsedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    private void touch(Entry entry) {
+        entry.lastAccess = ++clock;
+        entry.accessCount++;
+        unsavedChanges++;
+    }
+
+    private void onWritten(Object key, long size) {
+        synchronized (entries) {
+            String stringKey = key.toString();
+            Entry entry = entries.get(stringKey);
+
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(stringKey, entry);
+            } else {
+                usedBytes -= entry.size;
+            }
+
+            entry.size = size;
+            usedBytes += size;
+            touch(entry);
+        }
+    }
+
+    private void onDeleted(Object key) {
+        synchronized (entries) {
+            Entry entry = entries.remove(key.toString());
+
+            if (entry != null) {
+                usedBytes -= entry.size;
+                unsavedChanges++;
+            }
+        }
+    }
+
+    /**
+     * Picks the least used values to evict, until the rest fit in the eviction target or the max
+     * number of evictions per run is reached, see {@link DiskCacheUtils#EVICTION_TARGET_RATIO}.
+     */
+    private List<String> selectVictims() {
+        synchronized (entries) {
+            if (usedBytes <= maxBytes) {
+                return Collections.emptyList();
+            }
+
+            List<Map.Entry<String, Entry>> candidates = new ArrayList<Map.Entry<String, Entry>>(entries.entrySet());
+            Collections.sort(candidates, evictionPolicy == LocalStore.EvictionPolicy.LEAST_FREQUENTLY_USED ?
+                    new Comparator<Map.Entry<String, Entry>>() {
+                        @Override
+                        public int compare(Map.Entry<String, Entry> a, Map.Entry<String, Entry> b) {
+                            int result = compareLongs(a.getValue().accessCount, b.getValue().accessCount);
+                            return result != 0 ? result : compareLongs(a.getValue().lastAccess, b.getValue().lastAccess);
+                        }
+                    } :
+                    new Comparator<Map.Entry<String, Entry>>() {
+                        @Override
+                        public int compare(Map.Entry<String, Entry> a, Map.Entry<String, Entry> b) {
+                            return compareLongs(a.getValue().lastAccess, b.getValue().lastAccess);
+                        }
+                    });
+
+            Map<String, Long> sizes = new LinkedHashMap<String, Long>();
+            for (Map.Entry<String, Entry> candidate : candidates) {
+                sizes.put(candidate.getKey(), candidate.getValue().size);
+            }
+
+            return DiskCacheUtils.selectVictims(sizes, usedBytes, maxBytes, MAX_EVICTIONS_PER_RUN);
+        }
+    }
+
+    private static int compareLongs(long a, long b) {
+        return a < b ? -1 : (a == b ? 0 : 1);
+    }
+
+    /**
+     * Reads the sizes of the existing values from the decorated backend and merges in the saved
+     * access metadata. Broken metadata is ignored.
+     */
+    private void load() throws IOException {
+        Map<String, Long> sizes = delegate.getEntrySizes();
+
+        synchronized (entries) {
+            for (Map.Entry<String, Long> size : sizes.entrySet()) {
+                Entry entry = new Entry();
+                entry.size = size.getValue();
+                entries.put(size.getKey(), entry);
+                usedBytes += entry.size;
+            }
+        }
+
+        if (!metadataFile.isFile()) {
+            return;
+        }
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(metadataFile)));
+
+        try {
+            if (input.readInt() != METADATA_VERSION) {
+                return;
+            }
+
+            synchronized (entries) {
+                clock = input.readLong();
+                int count = input.readInt();
+
+                for (int i = 0; i < count; i++) {
+                    String key = input.readUTF();
+                    long lastAccess = input.readLong();
+                    int accessCount = input.readInt();
+                    Entry entry = entries.get(key);
+
+                    if (entry != null) {
+                        entry.lastAccess = lastAccess;
+                        entry.accessCount = accessCount;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Intentionally consume this exception, the metadata is only a hint.
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Saves the access metadata. The file is replaced in one go, so a crash leaves either the old
+     * or the new metadata behind.
+     */
+    private void save() throws IOException {
+        File temporaryFile = new File(metadataFile.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+
+        try {
+            synchronized (entries) {
+                List<Map.Entry<String, Entry>> savedEntries = new ArrayList<Map.Entry<String, Entry>>(entries.size());
+
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    if (entry.getKey().length() <= MAX_SAVED_KEY_LENGTH) {
+                        savedEntries.add(entry);
+                    }
+                }
+
+                output.writeInt(METADATA_VERSION);
+                output.writeLong(clock);
+                output.writeInt(savedEntries.size());
+
+                for (Map.Entry<String, Entry> entry : savedEntries) {
+                    output.writeUTF(entry.getKey());
+                    output.writeLong(entry.getValue().lastAccess);
+                    output.writeInt(entry.getValue().accessCount);
+                }
+
+                unsavedChanges = 0;
+            }
+        } finally {
+            output.close();
+        }
+
+        if (!temporaryFile.renameTo(metadataFile)) {
+            throw new IOException("Couldn't save the access metadata: " + metadataFile);
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.podio.sdk.localstore;
+
+import android.util.LruCache;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+
+/**
+ * A specific {@link LocalStoreRequest} implementation, targeting the "remove values" operation.
+ * This implementation silently removes several values from both the memory cache and the disk
+ * store in one go.
+ *
+ */
+final class RemoveAllRequest extends LocalStoreRequest<Void> {
+
+    /**
+     * Removes the values associated with the given keys from the memory cache as well as the disk
+     * store, with the keys locked once for all of them.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param keys
+     *         The keys of the values to remove.
+     *
+     * @throws IOException
+     *         If the file system access fails for some reason.
+     */
+    private static void removeValues(RuntimeStoreEnabler storeEnabler, Collection<?> keys) throws IOException {
+        LruCache<Object, Object> memoryStore = storeEnabler.getMemoryStore();
+        if (memoryStore == null) {
+            throw new IllegalStateException("You're trying to remove content from a closed store.");
+        }
+
+        StripedLock locks = storeEnabler.getDiskStoreLocks();
+        locks.lock(keys);
+
+        try {
+            for (Object key : keys) {
+                memoryStore.remove(key);
+            }
+
+            DiskBackend diskBackend = storeEnabler.getDiskBackend();
+            if (diskBackend != null) {
+                diskBackend.deleteAll(keys);
+            }
+        } finally {
+            locks.unlock(keys);
+        }
+
+        ItemIndex itemIndex = storeEnabler.getItemIndex();
+        if (itemIndex != null) {
+            for (Object key : keys) {
+                itemIndex.remove(key);
+            }
+        }
+
+        storeEnabler.onDiskStoreModified();
+    }
+
+    /**
+     * Creates a new Request for removing several values from the local store.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param keys
+     *         The keys of the values.
+     */
+    RemoveAllRequest(final RuntimeStoreEnabler storeEnabler, final Collection<?> keys) {
+        super(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                removeValues(storeEnabler, keys);
+                return null;
+            }
+        });
+    }
+}
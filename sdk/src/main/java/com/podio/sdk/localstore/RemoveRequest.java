@@ -3,7 +3,6 @@ package com.podio.sdk.localstore;
 
 import android.util.LruCache;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.Callable;
 
@@ -34,18 +33,27 @@ final class RemoveRequest extends LocalStoreRequest<Void> {
             throw new IllegalStateException("You're trying to remove content from a closed store.");
         }
 
-        memoryStore.remove(key);
+        // Remove from memory and disk under the lock of the key. Make sure we wait for the disk
+        // store to be ready before we start accessing it.
+        StripedLock locks = storeEnabler.getDiskStoreLocks();
+        locks.lock(key);
 
-        // Remove from disk. Make sure we wait for the disk store to be ready before we start
-        // accessing it.
-        synchronized (storeEnabler.getDiskStoreLock()) {
-            File diskStore = storeEnabler.getDiskStore();
-            if (isReadableDirectory(diskStore)) {
-                String fileName = getFileName(key);
-                File file = new File(diskStore, fileName);
-                file.delete();
+        try {
+            memoryStore.remove(key);
+            DiskBackend diskBackend = storeEnabler.getDiskBackend();
+            if (diskBackend != null) {
+                diskBackend.delete(key);
             }
+        } finally {
+            locks.unlock(key);
         }
+
+        ItemIndex itemIndex = storeEnabler.getItemIndex();
+        if (itemIndex != null) {
+            itemIndex.remove(key);
+        }
+
+        storeEnabler.onDiskStoreModified();
     }
 
     /**
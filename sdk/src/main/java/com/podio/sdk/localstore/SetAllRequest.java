@@ -0,0 +1,90 @@
+package com.podio.sdk.localstore;
+
+import android.util.LruCache;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * A specific {@link LocalStoreRequest} implementation, targeting the "store values" operation.
+ * This implementation adds several values to both the memory cache and the disk store in one go,
+ * silently overwriting any previous values with the same keys.
+ *
+ */
+final class SetAllRequest extends LocalStoreRequest<Void> {
+
+    /**
+     * Puts the given values in the memory cache and persists them in the disk store, with the keys
+     * locked once for all of them.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param values
+     *         The values to store by key.
+     *
+     * @throws IOException
+     *         If the file system operation fails for some reason.
+     */
+    private static void setValues(RuntimeStoreEnabler storeEnabler, Map<?, ?> values) throws IOException {
+        LruCache<Object, Object> memoryStore = storeEnabler.getMemoryStore();
+        if (memoryStore == null) {
+            throw new IllegalStateException("You're trying to write content to a closed store.");
+        }
+
+        ValueCodec valueCodec = storeEnabler.getValueCodec();
+        Map<Object, Integer> jsonLengths = new HashMap<Object, Integer>();
+        Map<Object, byte[]> data = new LinkedHashMap<Object, byte[]>();
+
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            byte[] json = serializeValue(entry.getValue());
+            jsonLengths.put(entry.getKey(), json.length);
+            data.put(entry.getKey(), valueCodec.encode(json));
+        }
+
+        StripedLock locks = storeEnabler.getDiskStoreLocks();
+        locks.lock(values.keySet());
+
+        try {
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                putInMemoryStore(memoryStore, entry.getKey(), entry.getValue(), jsonLengths.get(entry.getKey()));
+            }
+
+            DiskBackend diskBackend = storeEnabler.getDiskBackend();
+            if (diskBackend != null) {
+                diskBackend.writeAll(data);
+            }
+        } finally {
+            locks.unlock(values.keySet());
+        }
+
+        ItemIndex itemIndex = storeEnabler.getItemIndex();
+        if (itemIndex != null) {
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                itemIndex.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        storeEnabler.onDiskStoreModified();
+    }
+
+    /**
+     * Creates a new request for storing several values.
+     *
+     * @param storeEnabler
+     *         The callback that will provide the memory and disk stores.
+     * @param values
+     *         The values to store by key.
+     */
+    SetAllRequest(final RuntimeStoreEnabler storeEnabler, final Map<?, ?> values) {
+        super(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                setValues(storeEnabler, values);
+                return null;
+            }
+        });
+    }
+}
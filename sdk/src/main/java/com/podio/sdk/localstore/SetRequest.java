@@ -3,7 +3,6 @@ package com.podio.sdk.localstore;
 
 import android.util.LruCache;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.Callable;
 
@@ -37,18 +36,33 @@ final class SetRequest extends LocalStoreRequest<Void> {
             throw new IllegalStateException("You're trying to write content to a closed store.");
         }
 
-        memoryStore.put(key, value);
+        // The JSON is needed for the disk store anyway, and also serves as the weight of the value
+        // in the memory store.
+        byte[] json = serializeValue(value);
+        byte[] data = storeEnabler.getValueCodec().encode(json);
 
-        // Update disk. Make sure we wait for the disk store to be ready before we start accessing
-        // it.
-        synchronized (storeEnabler.getDiskStoreLock()) {
-            File diskStore = storeEnabler.getDiskStore();
-            if (isWritableDirectory(diskStore)) {
-                String fileName = getFileName(key);
-                File file = new File(diskStore, fileName);
-                writeObjectToDisk(file, value);
+        // Update memory and disk under the lock of the key, so a concurrent read of the same key
+        // can't put a stale disk value back in memory. This also makes us wait for the disk store
+        // to be ready before we start accessing it.
+        StripedLock locks = storeEnabler.getDiskStoreLocks();
+        locks.lock(key);
+
+        try {
+            putInMemoryStore(memoryStore, key, value, json.length);
+            DiskBackend diskBackend = storeEnabler.getDiskBackend();
+            if (diskBackend != null) {
+                diskBackend.write(key, data);
             }
+        } finally {
+            locks.unlock(key);
+        }
+
+        ItemIndex itemIndex = storeEnabler.getItemIndex();
+        if (itemIndex != null) {
+            itemIndex.put(key, value);
         }
+
+        storeEnabler.onDiskStoreModified();
     }
 
     /**
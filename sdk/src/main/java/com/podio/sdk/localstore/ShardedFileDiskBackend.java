@@ -0,0 +1,272 @@
+package com.podio.sdk.localstore;
+
+import com.podio.sdk.internal.DiskCacheUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link DiskBackend} implementation storing each value in a file of its own, like {@link
+ * FileDiskBackend}, but named after a SHA-1 hash of the key rather than the key itself. The files
+ * are spread over two levels of sub-directories, named after the first two pairs of characters of
+ * the hash, so no directory grows very large and all file names have the same, short length.
+ * <p/>
+ * As the original key can't be derived from the file name, each file starts with a small header
+ * carrying the key, followed by the value.
+ * <p/>
+ * When opened on a directory holding files in the {@link FileDiskBackend} layout, those files are
+ * moved into the sharded layout. Each file is only deleted once its copy is written, so an
+ * interrupted migration simply continues the next time the store is opened.
+ *
+ */
+final class ShardedFileDiskBackend implements DiskBackend {
+
+    private static final Charset KEY_CHARSET = Charset.forName("UTF-8");
+
+    // The entry header: magic and key length, followed by the key.
+    private static final int ENTRY_MAGIC = 0x50534b31;
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Opens the backend on the given directory, migrating any values stored in the flat {@link
+     * FileDiskBackend} layout.
+     *
+     * @param directory
+     *         The existing directory to store the files in.
+     *
+     * @return The opened backend.
+     *
+     * @throws IOException
+     *         If the migration fails.
+     */
+    static ShardedFileDiskBackend open(File directory) throws IOException {
+        ShardedFileDiskBackend backend = new ShardedFileDiskBackend(directory);
+        backend.migrateFlatFiles();
+        return backend;
+    }
+
+    /**
+     * Returns the key stored in the header of the given entry, or null if the entry is broken.
+     */
+    private static String readKey(byte[] entry) {
+        if (entry.length < HEADER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(entry);
+        int magic = buffer.getInt();
+        int keyLength = buffer.getInt();
+
+        if (magic != ENTRY_MAGIC || keyLength < 0 || keyLength > entry.length - HEADER_SIZE) {
+            return null;
+        }
+
+        return new String(entry, HEADER_SIZE, keyLength, KEY_CHARSET);
+    }
+
+    private final File directory;
+
+    private ShardedFileDiskBackend(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public byte[] read(Object key) throws IOException {
+        String stringKey = key.toString();
+        File file = getFile(stringKey);
+
+        if (!LocalStoreRequest.isReadableFile(file)) {
+            return null;
+        }
+
+        byte[] entry = DiskCacheUtils.readFile(file);
+        if (!stringKey.equals(readKey(entry))) {
+            return null;
+        }
+
+        int valueOffset = HEADER_SIZE + stringKey.getBytes(KEY_CHARSET).length;
+        byte[] value = new byte[entry.length - valueOffset];
+        System.arraycopy(entry, valueOffset, value, 0, value.length);
+
+        return value;
+    }
+
+    @Override
+    public Map<Object, byte[]> readAll(Collection<?> keys) throws IOException {
+        Map<Object, byte[]> values = new LinkedHashMap<Object, byte[]>();
+
+        for (Object key : keys) {
+            byte[] data = read(key);
+
+            if (data != null) {
+                values.put(key, data);
+            }
+        }
+
+        return values;
+    }
+
+    @Override
+    public void write(Object key, byte[] data) throws IOException {
+        if (!LocalStoreRequest.isWritableDirectory(directory)) {
+            return;
+        }
+
+        String stringKey = key.toString();
+        File file = getFile(stringKey);
+        File shard = file.getParentFile();
+
+        if (!shard.isDirectory() && !shard.mkdirs()) {
+            throw new IOException("Couldn't create the shard directory: " + shard);
+        }
+
+        byte[] keyBytes = stringKey.getBytes(KEY_CHARSET);
+        ByteArrayOutputStream entry = new ByteArrayOutputStream(HEADER_SIZE + keyBytes.length + data.length);
+        DataOutputStream header = new DataOutputStream(entry);
+        header.writeInt(ENTRY_MAGIC);
+        header.writeInt(keyBytes.length);
+        header.write(keyBytes);
+        header.write(data);
+
+        FileOutputStream fileOutputStream = new FileOutputStream(file);
+
+        try {
+            entry.writeTo(fileOutputStream);
+        } finally {
+            fileOutputStream.close();
+        }
+    }
+
+    @Override
+    public void writeAll(Map<?, byte[]> values) throws IOException {
+        for (Map.Entry<?, byte[]> entry : values.entrySet()) {
+            write(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void delete(Object key) throws IOException {
+        File file = getFile(key.toString());
+
+        if (file.isFile()) {
+            file.delete();
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<?> keys) throws IOException {
+        for (Object key : keys) {
+            delete(key);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getEntrySizes() throws IOException {
+        Map<String, Long> sizes = new HashMap<String, Long>();
+        File[] outerShards = directory.listFiles();
+
+        if (outerShards != null) {
+            for (File outerShard : outerShards) {
+                File[] innerShards = outerShard.isDirectory() ? outerShard.listFiles() : null;
+
+                if (innerShards != null) {
+                    for (File innerShard : innerShards) {
+                        File[] files = innerShard.isDirectory() ? innerShard.listFiles() : null;
+
+                        if (files != null) {
+                            for (File file : files) {
+                                addEntrySize(file, sizes);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return sizes;
+    }
+
+    @Override
+    public void clear() {
+        LocalStoreRequest.deleteDirectoryContent(directory);
+    }
+
+    @Override
+    public boolean needsMaintenance() {
+        return false;
+    }
+
+    @Override
+    public void maintain() throws IOException {
+        // Nothing to maintain.
+    }
+
+    private File getFile(String key) {
+        String name = DiskCacheUtils.hash(key);
+        File shard = new File(new File(directory, name.substring(0, 2)), name.substring(2, 4));
+        return new File(shard, name);
+    }
+
+    /**
+     * Adds the size of the value in the given entry file, reading only the header of the file.
+     */
+    private void addEntrySize(File file, Map<String, Long> sizes) throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+
+        long length = file.length();
+        DataInputStream input = new DataInputStream(new FileInputStream(file));
+
+        try {
+            int magic = input.readInt();
+            int keyLength = input.readInt();
+
+            if (magic == ENTRY_MAGIC && keyLength >= 0 && keyLength <= length - HEADER_SIZE) {
+                byte[] key = new byte[keyLength];
+                input.readFully(key);
+                sizes.put(new String(key, KEY_CHARSET), length - HEADER_SIZE - keyLength);
+            }
+        } catch (EOFException e) {
+            // A broken entry, which is ignored.
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Moves any files stored in the flat {@link FileDiskBackend} layout into the sharded layout.
+     */
+    private void migrateFlatFiles() throws IOException {
+        File[] files = directory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (!file.isFile() || LogDiskBackend.isSegmentFile(file.getName())) {
+                continue;
+            }
+
+            byte[] data = DiskCacheUtils.readFile(file);
+            write(URLDecoder.decode(file.getName(), Charset.defaultCharset().name()), data);
+
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.podio.sdk.localstore;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The locks guarding the disk store of a {@link LocalStore}. Operations on a single key lock one
+ * of a fixed number of stripes, chosen by the hash of the key, so operations on different keys
+ * rarely wait for each other while operations on the same key are serialized. Operations on the
+ * store as a whole, like initializing or erasing it, lock all stripes at once.
+ *
+ */
+final class StripedLock {
+
+    private static final int DEFAULT_STRIPE_COUNT = 16;
+
+    private final ReentrantReadWriteLock storeLock;
+    private final ReentrantLock[] stripes;
+
+    StripedLock() {
+        this(DEFAULT_STRIPE_COUNT);
+    }
+
+    StripedLock(int stripeCount) {
+        this.storeLock = new ReentrantReadWriteLock();
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the stripe of the given key. Blocks while the whole store is locked.
+     *
+     * @param key
+     *         The key to lock.
+     */
+    void lock(Object key) {
+        storeLock.readLock().lock();
+        stripes[indexOf(key)].lock();
+    }
+
+    /**
+     * Unlocks the stripe of the given key.
+     *
+     * @param key
+     *         The key to unlock.
+     */
+    void unlock(Object key) {
+        stripes[indexOf(key)].unlock();
+        storeLock.readLock().unlock();
+    }
+
+    /**
+     * Locks the stripes of all the given keys in one go. The stripes are always locked in the same
+     * order, so two operations on overlapping sets of keys can't deadlock.
+     *
+     * @param keys
+     *         The keys to lock.
+     */
+    void lock(Collection<?> keys) {
+        storeLock.readLock().lock();
+        BitSet indices = indicesOf(keys);
+
+        for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+            stripes[i].lock();
+        }
+    }
+
+    /**
+     * Unlocks the stripes of all the given keys.
+     *
+     * @param keys
+     *         The keys to unlock, the same as given to {@link #lock(Collection)}.
+     */
+    void unlock(Collection<?> keys) {
+        BitSet indices = indicesOf(keys);
+
+        for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+            stripes[i].unlock();
+        }
+
+        storeLock.readLock().unlock();
+    }
+
+    /**
+     * Locks the whole store, waiting for any operation on a single key to finish.
+     */
+    void lockAll() {
+        storeLock.writeLock().lock();
+    }
+
+    /**
+     * Unlocks the whole store.
+     */
+    void unlockAll() {
+        storeLock.writeLock().unlock();
+    }
+
+    private BitSet indicesOf(Collection<?> keys) {
+        BitSet indices = new BitSet(stripes.length);
+
+        for (Object key : keys) {
+            indices.set(indexOf(key));
+        }
+
+        return indices;
+    }
+
+    private int indexOf(Object key) {
+        // The disk store identifies keys by their string representation.
+        int hash = key != null ? key.toString().hashCode() : 0;
+        hash ^= (hash >>> 16);
+        return (hash & 0x7fffffff) % stripes.length;
+    }
+
+}
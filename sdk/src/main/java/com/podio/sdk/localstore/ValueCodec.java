@@ -0,0 +1,143 @@
+package com.podio.sdk.localstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Encodes the serialized values of a {@link LocalStore} before they're handed to the disk
+ * backend, optionally compressing them. A compressed value starts with a small header carrying the
+ * format version, the codec and the length of the original JSON. Values that aren't compressed
+ * are stored as plain JSON, exactly as before compression was introduced. As JSON never starts
+ * with a zero byte, the two are told apart by the first byte.
+ * <p/>
+ * Decoding doesn't depend on the configuration, so values written with any codec can always be
+ * read back.
+ *
+ */
+final class ValueCodec {
+
+    /**
+     * A codec leaving all values as plain JSON.
+     */
+    static final ValueCodec PLAIN = new ValueCodec(LocalStore.Compression.NONE, 0);
+
+    private static final byte MARKER = 0x00;
+    private static final byte FORMAT_VERSION = 1;
+
+    // The header: marker, format version, codec and length of the original JSON.
+    private static final int HEADER_SIZE = 7;
+
+    private static final byte CODEC_DEFLATE = 1;
+    private static final byte CODEC_GZIP = 2;
+
+    /**
+     * Returns whether the given stored value has a header, i.e. is compressed.
+     */
+    private static boolean hasHeader(byte[] data) {
+        return data.length >= HEADER_SIZE && data[0] == MARKER;
+    }
+
+    /**
+     * Opens a stream of the original JSON of the given stored value. Compressed values are
+     * decompressed as the stream is read.
+     *
+     * @param data
+     *         The value as stored on disk.
+     *
+     * @return A stream providing the JSON bytes.
+     *
+     * @throws IOException
+     *         If the value has an unknown format or codec.
+     */
+    static InputStream openDecoded(byte[] data) throws IOException {
+        if (!hasHeader(data)) {
+            return new ByteArrayInputStream(data);
+        }
+
+        if (data[1] != FORMAT_VERSION) {
+            throw new IOException("Unsupported local store value format: " + data[1]);
+        }
+
+        InputStream compressed = new ByteArrayInputStream(data, HEADER_SIZE, data.length - HEADER_SIZE);
+
+        switch (data[2]) {
+            case CODEC_DEFLATE:
+                return new InflaterInputStream(compressed);
+            case CODEC_GZIP:
+                return new GZIPInputStream(compressed);
+            default:
+                throw new IOException("Unsupported local store value codec: " + data[2]);
+        }
+    }
+
+    /**
+     * Returns the length of the original JSON of the given stored value, without decoding it.
+     *
+     * @param data
+     *         The value as stored on disk.
+     *
+     * @return The length in bytes of the JSON.
+     */
+    static int getDecodedLength(byte[] data) {
+        return hasHeader(data) ? ByteBuffer.wrap(data, 3, 4).getInt() : data.length;
+    }
+
+    private final LocalStore.Compression compression;
+    private final int thresholdBytes;
+
+    /**
+     * @param compression
+     *         How to compress values.
+     * @param thresholdBytes
+     *         The JSON length from which values are compressed.
+     */
+    ValueCodec(LocalStore.Compression compression, int thresholdBytes) {
+        this.compression = compression != null ? compression : LocalStore.Compression.NONE;
+        this.thresholdBytes = Math.max(0, thresholdBytes);
+    }
+
+    /**
+     * Encodes the given JSON for storage on disk. Values shorter than the threshold, or that don't
+     * get any smaller, are left as plain JSON.
+     *
+     * @param json
+     *         The serialized value.
+     *
+     * @return The value to store on disk.
+     *
+     * @throws IOException
+     *         If the compression fails for some reason.
+     */
+    byte[] encode(byte[] json) throws IOException {
+        if (compression == LocalStore.Compression.NONE || json.length < thresholdBytes) {
+            return json;
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(HEADER_SIZE + json.length / 4);
+        output.write(MARKER);
+        output.write(FORMAT_VERSION);
+        output.write(compression == LocalStore.Compression.GZIP ? CODEC_GZIP : CODEC_DEFLATE);
+        output.write(ByteBuffer.allocate(4).putInt(json.length).array());
+
+        OutputStream compressor = compression == LocalStore.Compression.GZIP ?
+                new GZIPOutputStream(output) :
+                new DeflaterOutputStream(output);
+
+        try {
+            compressor.write(json);
+        } finally {
+            compressor.close();
+        }
+
+        return output.size() < json.length ? output.toByteArray() : json;
+    }
+
+}
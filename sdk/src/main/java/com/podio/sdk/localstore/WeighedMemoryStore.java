@@ -0,0 +1,159 @@
+package com.podio.sdk.localstore;
+
+import android.util.LruCache;
+
+import java.util.IdentityHashMap;
+
+/**
+ * The memory store of a {@link LocalStore}. The weight of each value is decided by a {@link
+ * Weigher} once, when the value is put in the store, and remembered for as long as the value
+ * stays there. This keeps the bookkeeping of the {@link LruCache} consistent and cheap, as it asks
+ * for the size of a value every time it's added, replaced or evicted.
+ *
+ */
+final class WeighedMemoryStore extends LruCache<Object, Object> {
+
+    private static final class Weight {
+        private final int bytes;
+        private int references;
+
+        private Weight(int bytes) {
+            this.bytes = bytes;
+            this.references = 1;
+        }
+    }
+
+    private final Weigher weigher;
+
+    // The weights are tracked by value identity, as the LruCache asks for the size of a replaced
+    // value after the new value has been put under the same key.
+    private final IdentityHashMap<Object, Weight> weights;
+
+    /**
+     * @param maxSizeInBytes
+     *         The budget of the memory store.
+     * @param weigher
+     *         The weigher deciding the weight of each value.
+     */
+    WeighedMemoryStore(int maxSizeInBytes, Weigher weigher) {
+        super(Math.max(1, maxSizeInBytes));
+        this.weigher = weigher != null ? weigher : Weigher.JSON_SIZE;
+        this.weights = new IdentityHashMap<Object, Weight>();
+    }
+
+    /**
+     * Puts a value in the memory store, weighing it with the help of the length of its JSON
+     * representation. A value that is already in the store is weighed again if the length is
+     * given, e.g. because it wasn't known when the value was first put.
+     *
+     * @param key
+     *         The key of the value.
+     * @param value
+     *         The value.
+     * @param serializedSize
+     *         The length, in bytes, of the JSON representation of the value, or -1 if unknown.
+     *
+     * @return The previous value for the key, or null.
+     */
+    Object put(Object key, Object value, int serializedSize) {
+        if (key == null || value == null) {
+            return null;
+        }
+
+        Weight weight;
+
+        synchronized (weights) {
+            weight = weights.get(value);
+        }
+
+        int bytes = weight == null || serializedSize >= 0 ? weigh(key, value, serializedSize) : weight.bytes;
+        Object previous = null;
+
+        // The LruCache expects the weight of a value to stay the same while it's in the store, so
+        // a value with a new weight is taken out before it's put back. A value that is also kept
+        // under other keys keeps its old weight.
+        if (weight != null && weight.bytes != bytes) {
+            previous = remove(key);
+        }
+
+        track(value, bytes);
+        Object replaced = put(key, value);
+        return replaced != null ? replaced : previous;
+    }
+
+    /**
+     * Puts a value in the memory store without weighing it. The value is given the weight of the
+     * value it replaces, or no weight at all, until it's put again with the length of its JSON
+     * representation, see {@link #put(Object, Object, int)}.
+     *
+     * @param key
+     *         The key of the value.
+     * @param value
+     *         The value.
+     *
+     * @return The previous value for the key, or null.
+     */
+    Object putProvisionally(Object key, Object value) {
+        if (key == null || value == null) {
+            return null;
+        }
+
+        Object current = get(key);
+        int bytes = 0;
+
+        if (current != null) {
+            synchronized (weights) {
+                Weight weight = weights.get(current);
+                bytes = weight != null ? weight.bytes : 0;
+            }
+        }
+
+        track(value, bytes);
+        return put(key, value);
+    }
+
+    @Override
+    protected int sizeOf(Object key, Object value) {
+        synchronized (weights) {
+            Weight weight = weights.get(value);
+
+            if (weight != null) {
+                return weight.bytes;
+            }
+        }
+
+        // The value was put without going through this class; weigh it now and remember it.
+        return track(value, weigh(key, value, -1));
+    }
+
+    @Override
+    protected void entryRemoved(boolean evicted, Object key, Object oldValue, Object newValue) {
+        synchronized (weights) {
+            Weight weight = weights.get(oldValue);
+
+            if (weight != null && --weight.references <= 0) {
+                weights.remove(oldValue);
+            }
+        }
+    }
+
+    private int weigh(Object key, Object value, int serializedSize) {
+        return Math.max(0, weigher.weigh(key, value, serializedSize));
+    }
+
+    private int track(Object value, int bytes) {
+        synchronized (weights) {
+            Weight weight = weights.get(value);
+
+            if (weight != null) {
+                weight.references++;
+            } else {
+                weight = new Weight(bytes);
+                weights.put(value, weight);
+            }
+
+            return weight.bytes;
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.podio.sdk.localstore;
+
+import com.podio.sdk.json.JsonParser;
+
+import java.nio.charset.Charset;
+
+/**
+ * Estimates how much memory a value takes up in the memory store of a {@link LocalStore}. The
+ * memory store evicts the least recently used values once the total weight of its values exceeds
+ * its budget.
+ * <p/>
+ * The weigher is called on the worker thread of the store, once for each value put in the memory
+ * store. A value written in write-behind mode is weighed when it's flushed. The weight of a value
+ * must not change while it's in the memory store.
+ *
+ */
+public interface Weigher {
+
+    /**
+     * Weighs values by the length, in UTF-8 bytes, of their JSON representation. This is the
+     * default weigher. The JSON is produced anyway when the value is written to, or read from, the
+     * disk store, so it seldom comes at any extra cost.
+     */
+    public static final Weigher JSON_SIZE = new Weigher() {
+        @Override
+        public int weigh(Object key, Object value, int serializedSize) {
+            if (serializedSize >= 0) {
+                return serializedSize;
+            }
+
+            String json = value != null ? JsonParser.toJson(value) : null;
+            return json != null ? json.getBytes(Charset.forName("UTF-8")).length : 0;
+        }
+    };
+
+    /**
+     * Gives each value the same weight, effectively turning the memory budget into a max number of
+     * values.
+     */
+    public static final class PerEntry implements Weigher {
+        private final int bytesPerEntry;
+
+        /**
+         * @param bytesPerEntry
+         *         The weight of each value, in bytes.
+         */
+        public PerEntry(int bytesPerEntry) {
+            this.bytesPerEntry = Math.max(1, bytesPerEntry);
+        }
+
+        @Override
+        public int weigh(Object key, Object value, int serializedSize) {
+            return bytesPerEntry;
+        }
+    }
+
+    /**
+     * Estimates the memory footprint of a value.
+     *
+     * @param key
+     *         The key of the value.
+     * @param value
+     *         The value to weigh.
+     * @param serializedSize
+     *         The length, in bytes, of the JSON representation of the value, or -1 if it isn't
+     *         known.
+     *
+     * @return The weight of the value, in bytes. Zero or more.
+     */
+    public int weigh(Object key, Object value, int serializedSize);
+
+}
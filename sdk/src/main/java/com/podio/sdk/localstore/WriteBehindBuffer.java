@@ -0,0 +1,228 @@
+package com.podio.sdk.localstore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the values written to a {@link LocalStore} in write-behind mode until they're flushed
+ * to the disk store. Only the latest value of each key is kept, so repeated writes to the same key
+ * between two flushes only hit the disk once.
+ * <p/>
+ * A flush is requested through the given flusher once the buffer holds a full batch of keys, or
+ * when the oldest unflushed value has waited for the max delay, whichever comes first. A flush
+ * request may be swallowed, e.g. because a flush is already under way, so the owner of the buffer
+ * calls {@link #rearm()} once each flush has completed.
+ *
+ */
+final class WriteBehindBuffer {
+
+    private static final long SCHEDULER_KEEP_ALIVE_SECONDS = 30L;
+
+    private static ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * Returns the timer thread shared by all write-behind buffers. The thread dies when idle.
+     */
+    private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1);
+            scheduler.setKeepAliveTime(SCHEDULER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            scheduler.allowCoreThreadTimeOut(true);
+        }
+
+        return scheduler;
+    }
+
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final Runnable flusher;
+    private final LinkedHashMap<Object, Object> dirtyValues;
+    private final Runnable timer;
+    private boolean isTimerArmed;
+
+    /**
+     * @param maxBatchSize
+     *         The number of dirty keys that triggers a flush.
+     * @param maxDelayMillis
+     *         The max time a value waits to be flushed.
+     * @param flusher
+     *         Requests a flush. Called on the writing thread or the timer thread.
+     */
+    WriteBehindBuffer(int maxBatchSize, long maxDelayMillis, Runnable flusher) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayMillis = Math.max(0L, maxDelayMillis);
+        this.flusher = flusher;
+        this.dirtyValues = new LinkedHashMap<Object, Object>();
+        this.timer = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (dirtyValues) {
+                    isTimerArmed = false;
+                }
+
+                flusher.run();
+            }
+        };
+        this.isTimerArmed = false;
+    }
+
+    /**
+     * Marks the given key as dirty, replacing any unflushed value of the same key.
+     *
+     * @param key
+     *         The key of the value.
+     * @param value
+     *         The value to write.
+     */
+    void put(Object key, Object value) {
+        boolean isFull;
+        boolean armTimer;
+
+        synchronized (dirtyValues) {
+            dirtyValues.remove(key);
+            dirtyValues.put(key, value);
+            isFull = dirtyValues.size() >= maxBatchSize;
+            armTimer = !isFull && armTimerLocked();
+        }
+
+        requestFlush(isFull, armTimer);
+    }
+
+    /**
+     * Marks all the given keys as dirty, replacing any unflushed values of the same keys.
+     *
+     * @param values
+     *         The values to write by key.
+     */
+    void putAll(Map<?, ?> values) {
+        boolean isFull;
+        boolean armTimer;
+
+        synchronized (dirtyValues) {
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                dirtyValues.remove(entry.getKey());
+                dirtyValues.put(entry.getKey(), entry.getValue());
+            }
+
+            isFull = dirtyValues.size() >= maxBatchSize;
+            armTimer = !isFull && !dirtyValues.isEmpty() && armTimerLocked();
+        }
+
+        requestFlush(isFull, armTimer);
+    }
+
+    /**
+     * Makes sure any values left unflushed get a flush requested for them, e.g. because they
+     * were written while a flush was under way, or because the last flush failed or was never
+     * performed. The flush is requested once the max delay has passed, unless the timer is armed
+     * already.
+     */
+    void rearm() {
+        boolean armTimer;
+
+        synchronized (dirtyValues) {
+            armTimer = !dirtyValues.isEmpty() && armTimerLocked();
+        }
+
+        requestFlush(false, armTimer);
+    }
+
+    /**
+     * Returns the unflushed value of the given key.
+     *
+     * @param key
+     *         The key of the value.
+     *
+     * @return The value, or null if the key isn't dirty.
+     */
+    Object get(Object key) {
+        synchronized (dirtyValues) {
+            return dirtyValues.get(key);
+        }
+    }
+
+    /**
+     * Drops any unflushed value of the given key, e.g. because the key is being removed.
+     *
+     * @param key
+     *         The key of the value.
+     */
+    void discard(Object key) {
+        synchronized (dirtyValues) {
+            dirtyValues.remove(key);
+        }
+    }
+
+    /**
+     * Drops all unflushed values.
+     */
+    void discardAll() {
+        synchronized (dirtyValues) {
+            dirtyValues.clear();
+        }
+    }
+
+    /**
+     * Takes all unflushed values out of the buffer, oldest first.
+     *
+     * @return The values to write to the disk store.
+     */
+    Map<Object, Object> drain() {
+        synchronized (dirtyValues) {
+            Map<Object, Object> batch = new LinkedHashMap<Object, Object>(dirtyValues);
+            dirtyValues.clear();
+            return batch;
+        }
+    }
+
+    /**
+     * Puts back values that were drained but couldn't be written. Values of keys that have been
+     * written again since are left out, as they're superseded. No flush is requested.
+     *
+     * @param batch
+     *         The values to put back.
+     */
+    void restore(Map<Object, Object> batch) {
+        synchronized (dirtyValues) {
+            for (Map.Entry<Object, Object> entry : batch.entrySet()) {
+                if (!dirtyValues.containsKey(entry.getKey())) {
+                    dirtyValues.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of unflushed keys.
+     */
+    int size() {
+        synchronized (dirtyValues) {
+            return dirtyValues.size();
+        }
+    }
+
+    /**
+     * Marks the timer as armed. Must be called while holding the lock of the dirty values.
+     *
+     * @return Boolean true if the caller should arm the timer, boolean false if it already is.
+     */
+    private boolean armTimerLocked() {
+        if (isTimerArmed) {
+            return false;
+        }
+
+        isTimerArmed = true;
+        return true;
+    }
+
+    private void requestFlush(boolean isFull, boolean armTimer) {
+        if (isFull) {
+            flusher.run();
+        } else if (armTimer) {
+            getScheduler().schedule(timer, maxDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+}
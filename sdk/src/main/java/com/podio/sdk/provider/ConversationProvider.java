@@ -2,6 +2,7 @@
 package com.podio.sdk.provider;
 
 import com.podio.sdk.Filter;
+import com.podio.sdk.Pager;
 import com.podio.sdk.Provider;
 import com.podio.sdk.Request;
 import com.podio.sdk.domain.Conversation;
@@ -137,6 +138,32 @@ public class ConversationProvider extends Provider {
         return get(filter, Conversation[].class);
     }
 
+    /**
+     * Creates a pager that fetches the conversations one span at a time, prefetching the next span
+     * as the caller approaches the end of the loaded ones.
+     *
+     * @param pageSize
+     *         The number of conversations to fetch per page.
+     *
+     * @return A pager delivering conversations.
+     */
+    public Pager<Conversation> getConversationsPager(int pageSize) {
+        return new Pager<Conversation>(new Pager.ArraySource<Conversation>() {
+
+            @Override
+            protected Request<Conversation[]> getPage(int limit, int offset) {
+                return getConversations(limit, offset);
+            }
+
+            @Override
+            protected Object getId(Conversation item) {
+                return item.getConversationId();
+            }
+
+
+        }, pageSize);
+    }
+
     /**
      * Fetches the Conversation with the given id.
      *
@@ -164,6 +191,34 @@ public class ConversationProvider extends Provider {
         return get(filter, Conversation.Event[].class);
     }
 
+    /**
+     * Creates a pager that fetches the events for the conversation with the given id one span at a
+     * time, prefetching the next span as the caller approaches the end of the loaded ones.
+     *
+     * @param id
+     *         The id of the conversation.
+     * @param pageSize
+     *         The number of events to fetch per page.
+     *
+     * @return A pager delivering conversation events.
+     */
+    public Pager<Conversation.Event> getConversationEventsPager(final long id, int pageSize) {
+        return new Pager<Conversation.Event>(new Pager.ArraySource<Conversation.Event>() {
+
+            @Override
+            protected Request<Conversation.Event[]> getPage(int limit, int offset) {
+                return getConversationEvents(id, limit, offset);
+            }
+
+            @Override
+            protected Object getId(Conversation.Event item) {
+                return item.getEventId();
+            }
+
+
+        }, pageSize);
+    }
+
     /**
      * Fetches a single conversation event with the given id.
      *
@@ -1,12 +1,18 @@
 
 package com.podio.sdk.provider;
 
+import com.podio.sdk.BulkFetcher;
+import com.podio.sdk.CachePolicy;
 import com.podio.sdk.Filter;
+import com.podio.sdk.Pager;
 import com.podio.sdk.Provider;
 import com.podio.sdk.Request;
 import com.podio.sdk.domain.Item;
 import com.podio.sdk.domain.ItemParticipation;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Enables access to the item API end point.
  *
@@ -199,6 +205,101 @@ public class ItemProvider extends Provider {
             Path filter = new Path().withApplicationAndViewIdFilter(applicationId, viewId);
             return post(filter, filterData, Item.FilterResult.class);
         }
+
+        /**
+         * Creates a pager that fetches the filtered items for the application with the given id
+         * one span at a time, prefetching the next span as the caller approaches the end of the
+         * loaded ones. The pager works on a copy of the filter as configured when this method is
+         * called, and manages the span of each page itself; any span configured through {@link
+         * #onSpan(int, int)} is ignored.
+         *
+         * @param applicationId
+         *         The id of the parent application.
+         * @param pageSize
+         *         The number of items to fetch per page.
+         *
+         * @return A pager delivering filtered items.
+         */
+        public Pager<Item> getPager(final long applicationId, int pageSize) {
+            final Item.FilterData snapshot = new Item.FilterData(filterData);
+
+            return new Pager<Item>(new Pager.Source<Item.FilterResult, Item>() {
+
+                @Override
+                protected Request<Item.FilterResult> getPage(int limit, int offset) {
+                    return getSpan(applicationId, snapshot, limit, offset);
+                }
+
+                @Override
+                protected List<Item> getItems(Item.FilterResult result) {
+                    List<Item> items = result != null ? result.getItems() : null;
+                    return items != null ? items : Collections.<Item> emptyList();
+                }
+
+                @Override
+                protected Object getId(Item item) {
+                    return item.getId();
+                }
+
+            }, pageSize);
+        }
+
+        /**
+         * Creates a fetcher that fetches all filtered items for the application with the given
+         * id. The first page tells the total number of matching items, after which the remaining
+         * pages are fetched concurrently. The pages are delivered in order to the page listeners
+         * of the fetcher. The fetcher works on a copy of the filter as configured when this method
+         * is called, and manages the span of each page itself; any span configured through {@link
+         * #onSpan(int, int)} is ignored.
+         * <p/>
+         * The fetch doesn't start until {@link BulkFetcher#start()} is called, and the max number
+         * of parallel requests can be configured through {@link
+         * BulkFetcher#withMaxParallelRequests(int)}.
+         *
+         * @param applicationId
+         *         The id of the parent application.
+         * @param pageSize
+         *         The number of items to fetch per request.
+         *
+         * @return A fetcher delivering all filtered items.
+         */
+        public BulkFetcher<Item> getAll(final long applicationId, int pageSize) {
+            final Item.FilterData snapshot = new Item.FilterData(filterData);
+
+            return new BulkFetcher<Item>(new BulkFetcher.CountingSource<Item.FilterResult, Item>() {
+
+                @Override
+                protected Request<Item.FilterResult> getPage(int limit, int offset) {
+                    return getSpan(applicationId, snapshot, limit, offset);
+                }
+
+                @Override
+                protected List<Item> getItems(Item.FilterResult result) {
+                    List<Item> items = result != null ? result.getItems() : null;
+                    return items != null ? items : Collections.<Item> emptyList();
+                }
+
+                @Override
+                protected int getTotalCount(Item.FilterResult result) {
+                    return result != null ? result.getFilteredCount() : 0;
+                }
+
+            }, pageSize);
+        }
+
+        /**
+         * Fetches the given span of filtered items for the application with the given id. The
+         * span is applied to a copy of the given filter data, so that concurrent page requests
+         * don't interfere with each other.
+         */
+        private Request<Item.FilterResult> getSpan(long applicationId, Item.FilterData filterData, int limit, int offset) {
+            Item.FilterData span = new Item.FilterData(filterData)
+                    .setLimit(limit)
+                    .setOffset(offset);
+
+            Path filter = new Path().withApplicationIdFilter(applicationId);
+            return post(filter, span, Item.FilterResult.class);
+        }
     }
 
     /**
@@ -252,6 +353,23 @@ public class ItemProvider extends Provider {
         return get(filter, Item.class);
     }
 
+    /**
+     * Fetches the single item with the given id, combining any cached item with a fresh one from
+     * the API as the given policy decides. The policy only has effect if the responses are cached,
+     * see {@link com.podio.sdk.Podio#setResponseCache(com.podio.sdk.Store, CachePolicy)}.
+     *
+     * @param itemId
+     *         The id of the item to fetch.
+     * @param policy
+     *         How to combine the cache and the network.
+     *
+     * @return A ticket which the caller can use to identify this request with.
+     */
+    public Request<Item> get(long itemId, CachePolicy policy) {
+        Path filter = new Path().withItemId(itemId);
+        return get(filter, Item.class, policy);
+    }
+
     /**
      * Enables filtered request of items.
      *
@@ -2,6 +2,7 @@
 package com.podio.sdk.provider;
 
 import com.podio.sdk.Filter;
+import com.podio.sdk.Pager;
 import com.podio.sdk.Provider;
 import com.podio.sdk.Request;
 import com.podio.sdk.domain.ReferenceType;
@@ -80,6 +81,60 @@ public class StreamProvider extends Provider {
         return get(filter, EventContext[].class);
     }
 
+    /**
+     * Creates a pager that fetches the global stream one span at a time, prefetching the next span
+     * as the caller approaches the end of the loaded ones.
+     *
+     * @param pageSize
+     *         The number of stream objects to fetch per page.
+     *
+     * @return A pager delivering stream objects.
+     */
+    public Pager<EventContext> getGlobalStreamPager(int pageSize) {
+        return new Pager<EventContext>(new Pager.ArraySource<EventContext>() {
+
+            @Override
+            protected Request<EventContext[]> getPage(int limit, int offset) {
+                return getGlobalStream(limit, offset);
+            }
+
+            @Override
+            protected Object getId(EventContext item) {
+                return item.getType() + ":" + item.getId();
+            }
+
+
+        }, pageSize);
+    }
+
+    /**
+     * Creates a pager that fetches the stream of the given space one span at a time, prefetching
+     * the next span as the caller approaches the end of the loaded ones.
+     *
+     * @param spaceId
+     *         The id of the space.
+     * @param pageSize
+     *         The number of stream objects to fetch per page.
+     *
+     * @return A pager delivering stream objects.
+     */
+    public Pager<EventContext> getSpaceStreamPager(final long spaceId, int pageSize) {
+        return new Pager<EventContext>(new Pager.ArraySource<EventContext>() {
+
+            @Override
+            protected Request<EventContext[]> getPage(int limit, int offset) {
+                return getSpaceStream(spaceId, limit, offset);
+            }
+
+            @Override
+            protected Object getId(EventContext item) {
+                return item.getType() + ":" + item.getId();
+            }
+
+
+        }, pageSize);
+    }
+
     /**
      * Fetches a stream object based on the reference type and it's corresponding id.
      *
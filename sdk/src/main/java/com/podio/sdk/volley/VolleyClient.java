@@ -5,13 +5,10 @@ import android.content.Context;
 import android.net.Uri;
 
 import com.android.volley.AuthFailureError;
-import com.android.volley.Cache;
 import com.android.volley.DefaultRetryPolicy;
-import com.android.volley.RequestQueue;
 import com.android.volley.RequestQueue.RequestFilter;
+import com.android.volley.RetryPolicy;
 import com.android.volley.VolleyError;
-import com.android.volley.toolbox.HurlStack;
-import com.android.volley.toolbox.Volley;
 import com.podio.sdk.Client;
 import com.podio.sdk.Filter;
 import com.podio.sdk.Request;
@@ -21,7 +18,6 @@ import com.podio.sdk.json.JsonParser;
 
 import java.util.HashMap;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLSocketFactory;
 
@@ -69,47 +65,21 @@ public class VolleyClient implements Client {
 
     }
 
-    private final class VolleyRetryPolicy extends DefaultRetryPolicy {
-        private final String originalAccessToken;
+    private static final class VolleyRetryPolicy extends DefaultRetryPolicy {
 
-        private VolleyRetryPolicy(String referenceAccessToken) {
+        private VolleyRetryPolicy() {
             super(CLIENT_DEFAULT_TIMEOUT_MS, 1, 1.0f);
-            this.originalAccessToken = referenceAccessToken;
         }
 
         @Override
         public void retry(VolleyError error) throws VolleyError {
-            super.retry(error);
-            String accessToken = Utils.notEmpty(originalAccessToken) ? originalAccessToken : "";
-
-            // If the access token has changed since this request was originally executed (say, as a
-            // result of an other request refreshing it), the 401 status isn't necessarily valid any
-            // more, hence, we should only re-authenticate if our access token is intact.
-            if (error instanceof AuthFailureError && accessToken.equals(Session.accessToken())) {
-                Uri uri = buildAuthUri();
-
-                if (uri == null) {
-                    // Opt out if we can't re-authenticate.
-                    clearRequestQueue();
-                    throw error;
-                }
-
-                String url = parseUrl(uri);
-                HashMap<String, String> params = parseParams(uri);
-
-                // Re-authenticate on a prioritized request queue.
-                VolleyRequest<Void> reAuthRequest = VolleyRequest.newAuthRequest(userAgent, url, params);
-                reAuthRequest.setRetryPolicy(new DefaultRetryPolicy(CLIENT_DEFAULT_TIMEOUT_MS, 0, 0));
-                addToRefreshQueue(reAuthRequest);
-
-                reAuthRequest.withErrorListener(new Request.ErrorListener() {
-                    @Override
-                    public boolean onErrorOccurred(Throwable cause) {
-                        clearRequestQueue();
-                        return false;
-                    }
-                }).waitForResult(TimeUnit.MILLISECONDS.toSeconds(CLIENT_DEFAULT_TIMEOUT_MS));
+            // Rejected access tokens aren't retried on the network thread. The request fails and
+            // the token manager re-sends it once the token has been refreshed.
+            if (error instanceof AuthFailureError) {
+                throw error;
             }
+
+            super.retry(error);
         }
     }
 
@@ -119,9 +89,19 @@ public class VolleyClient implements Client {
     protected String authority;
     protected String userAgent;
 
-    // All implementations and instances will share these request queues.
-    private static RequestQueue volleyRequestQueue;
-    private static RequestQueue volleyRefreshQueue;
+    // All implementations and instances share the request queue of the transport. API requests
+    // and token refreshes are told apart by their tags.
+    private static final Object REQUEST_TAG = new Object();
+    private static final Object REFRESH_TAG = new Object();
+
+    private int httpCacheMaxSizeInBytes = 0;
+
+    // Identical GET requests that are already queued are shared rather than sent again.
+    private static final VolleyInFlightRequests inFlightRequests = new VolleyInFlightRequests();
+    private volatile boolean isRequestCoalescingEnabled = true;
+
+    // Makes sure there is only one token refresh in flight and refreshes ahead of expiration.
+    private final VolleyTokenManager tokenManager = new VolleyTokenManager(this);
 
     @Override
     public Request<Void> authenticateWithUserCredentials(String username, String password) {
@@ -147,34 +127,100 @@ public class VolleyClient implements Client {
     @Override
     @Deprecated
     public Request<Void> forceRefreshTokens() {
-        // Prepare to re-authenticate.
-        Uri uri = buildAuthUri();
+        // Join any refresh already in flight rather than starting an other one.
+        Request<Void> refreshRequest = tokenManager.refresh();
 
         // Opt out if we can't re-authenticate.
-        if (uri == null) {
+        if (refreshRequest == null) {
             clearRequestQueue();
-            return null;
         }
 
-        String url = parseUrl(uri);
-        HashMap<String, String> params = parseParams(uri);
-        VolleyRequest<Void> authRequest = VolleyRequest.newAuthRequest(userAgent, url, params);
+        return refreshRequest;
+    }
 
-        // Re-authenticate on a prioritized request queue.
-        addToRefreshQueue(authRequest);
+    /**
+     * Sets how long before the access token expires it should be refreshed. Requests issued
+     * within this margin are held back until the refresh has finished. Defaults to ten minutes.
+     *
+     * @param marginSeconds
+     *         The margin in seconds. Zero or less disables the proactive refresh, in which case
+     *         the access token is only refreshed once the API rejects it.
+     */
+    public void setTokenRefreshMargin(long marginSeconds) {
+        tokenManager.setRefreshMargin(marginSeconds);
+    }
 
-        return authRequest;
+    /**
+     * Schedules the proactive refresh of the access token based on the current session. This is
+     * done automatically on authentication, but must be called if the session is restored from
+     * elsewhere.
+     */
+    public void scheduleTokenRefresh() {
+        tokenManager.scheduleRefresh();
     }
 
     @Override
     public <T> Request<T> request(Request.Method method, Filter filter, Object item, Class<T> classOfResult) {
         String url = filter.buildUri(scheme, authority).toString();
+
+        if (method == Request.Method.GET && isRequestCoalescingEnabled) {
+            return coalescedRequest(url, classOfResult);
+        }
+
         String body = item != null ? JsonParser.toJson(item) : null;
 
         VolleyRequest<T> request = VolleyRequest.newRequest(userAgent, method, url, body, classOfResult);
-        request.setRetryPolicy(new VolleyRetryPolicy(Session.accessToken()));
+        request.setShouldCache(method == Request.Method.GET && isHttpCacheEnabled());
+        request.setRetryPolicy(newRetryPolicy());
 
-        addToRequestQueue(request);
+        tokenManager.enqueue(request);
+
+        return request;
+    }
+
+    /**
+     * Enables or disables the sharing of identical, concurrently pending GET requests. When
+     * enabled, any GET request for the same URL and result type as an already pending one will not
+     * be sent to the network. Instead the caller is handed a request of its own, which is attached
+     * to the pending one and delivers the very same result object to its own listeners. Canceling
+     * it only cancels the network request once every caller sharing it has canceled. Enabled by
+     * default.
+     *
+     * @param enabled
+     *         Whether to coalesce identical GET requests or not.
+     */
+    public void setRequestCoalescingEnabled(boolean enabled) {
+        this.isRequestCoalescingEnabled = enabled;
+    }
+
+    /**
+     * Attaches a new request to the pending GET request for the given URL and result type if there
+     * is one, otherwise a new shared request is created, registered as in flight and enqueued.
+     */
+    private <T> Request<T> coalescedRequest(String url, Class<T> classOfResult) {
+        String key = VolleyInFlightRequests.buildKey(Request.Method.GET, url, classOfResult);
+
+        VolleyRequest<T> sharedRequest;
+        VolleyRequest<T> request;
+
+        synchronized (inFlightRequests) {
+            sharedRequest = inFlightRequests.get(key);
+            request = sharedRequest != null ? sharedRequest.newFollower() : null;
+
+            if (request != null) {
+                return request;
+            }
+
+            sharedRequest = VolleyRequest.newRequest(userAgent, Request.Method.GET, url, null, classOfResult);
+            sharedRequest.setShouldCache(isHttpCacheEnabled());
+            sharedRequest.setRetryPolicy(newRetryPolicy());
+            request = sharedRequest.newFollower();
+            inFlightRequests.put(key, sharedRequest);
+        }
+
+        // Enqueue outside of the registry lock as the queue lock is acquired in the opposite order
+        // when the request queue is cleared.
+        tokenManager.enqueue(sharedRequest);
 
         return request;
     }
@@ -186,60 +232,84 @@ public class VolleyClient implements Client {
         this.clientSecret = clientSecret;
         this.userAgent = userAgent;
 
-        // Ensure the expected request queues exists.
-        if (sslSocketFactory == null) {
-            if (volleyRequestQueue == null) {
-                volleyRequestQueue = Volley.newRequestQueue(context);
-                volleyRequestQueue.start();
-            }
-
-            if (volleyRefreshQueue == null) {
-                volleyRefreshQueue = Volley.newRequestQueue(context);
-                volleyRefreshQueue.start();
-            }
-        } else if (volleyRequestQueue == null || volleyRefreshQueue == null) {
-            HurlStack stack = new HurlStack(null, sslSocketFactory);
-
-            if (volleyRequestQueue == null) {
-                volleyRequestQueue = Volley.newRequestQueue(context, stack);
-                volleyRequestQueue.start();
-            }
-
-            if (volleyRefreshQueue == null) {
-                volleyRefreshQueue = Volley.newRequestQueue(context, stack);
-                volleyRefreshQueue.start();
-            }
-        }
+        // The transport isn't started until the first request is made.
+        VolleyTransport.setup(context, sslSocketFactory);
 
         // Clear out any and all queued requests.
+        tokenManager.reset();
         clearRequestQueue();
         clearRefreshQueue();
+        tokenManager.scheduleRefresh();
 
-        // Clear out any cached content in the request queues.
-        Cache requestCache = volleyRequestQueue.getCache();
-        if (requestCache != null) {
-            requestCache.clear();
+        // Clear out any cached content in the request queues, unless we're explicitly asked to
+        // persist responses between sessions.
+        if (!isHttpCacheEnabled()) {
+            clearHttpCache();
         }
+    }
 
-        Cache priorityCache = volleyRefreshQueue.getCache();
-        if (priorityCache != null) {
-            priorityCache.clear();
+    /**
+     * Enables a persistent HTTP cache for GET requests. Responses carrying an ETag or Last-Modified
+     * validator are stored on disk and any subsequent request for the same URL is sent as a
+     * conditional GET. If the server responds with "304 Not Modified", the stored body is served
+     * instead. The least recently used responses are evicted once the cache exceeds the given
+     * size.
+     * <p/>
+     * This method MUST be called before the first request is made as the disk cache is sized when
+     * the transport is started. API responses are cached apart from the images of the image
+     * loader.
+     *
+     * @param maxSizeInBytes
+     *         The maximum size of the disk cache. Zero or less disables the cache.
+     */
+    public synchronized void setHttpCacheMaxSize(int maxSizeInBytes) {
+        this.httpCacheMaxSizeInBytes = maxSizeInBytes;
+
+        if (maxSizeInBytes > 0) {
+            VolleyTransport.ensureApiCacheMaxSize(maxSizeInBytes);
         }
     }
 
+    /**
+     * Returns whether the persistent HTTP cache is enabled for GET requests.
+     *
+     * @return Boolean true if GET responses are cached, boolean false otherwise.
+     */
+    public boolean isHttpCacheEnabled() {
+        return httpCacheMaxSizeInBytes > 0;
+    }
+
+    /**
+     * Removes all responses from the HTTP cache. The actual file system operation is performed on
+     * the cache thread of the request queue, before any other pending request is processed. Images
+     * cached by the image loader are kept.
+     */
+    public synchronized void clearHttpCache() {
+        VolleyTransport.clearApiCache();
+    }
+
+    /**
+     * Enqueues a token request. These requests share the queue with the API requests, but are
+     * picked ahead of them.
+     */
     protected synchronized void addToRefreshQueue(com.android.volley.Request<?> request) {
         if (request != null) {
-            volleyRefreshQueue.add(request);
+            request.setTag(REFRESH_TAG);
+            VolleyTransport.getRequestQueue().add(request);
         }
     }
 
     protected synchronized void addToRequestQueue(com.android.volley.Request<?> request) {
         if (request != null) {
-            volleyRequestQueue.add(request);
+            request.setTag(REQUEST_TAG);
+            VolleyTransport.getRequestQueue().add(request);
         }
     }
 
     protected synchronized Request<Void> authenticate(Uri uri) {
+        // Cached responses belong to the previously authenticated user.
+        clearHttpCache();
+
         String url = parseUrl(uri);
         HashMap<String, String> params = parseParams(uri);
         VolleyRequest<Void> request = VolleyRequest.newAuthRequest(userAgent, url, params);
@@ -248,11 +318,47 @@ public class VolleyClient implements Client {
         // 2.5 seconds). This particular RetryPolicy allows a 30 second connection timeout, zero
         // retries and no back-off multiplier for this authentication request.
         request.setRetryPolicy(new DefaultRetryPolicy(CLIENT_DEFAULT_TIMEOUT_MS, 0, 0));
+        request.withResultListener(new Request.ResultListener<Void>() {
+            @Override
+            public boolean onRequestPerformed(Void content) {
+                tokenManager.scheduleRefresh();
+                return false;
+            }
+        });
         addToRefreshQueue(request);
 
         return request;
     }
 
+    /**
+     * Creates a new instance of the retry policy of API requests.
+     */
+    RetryPolicy newRetryPolicy() {
+        return new VolleyRetryPolicy();
+    }
+
+    /**
+     * Creates a request refreshing the access token with the refresh token of the current
+     * session. The request isn't enqueued.
+     *
+     * @return The refresh request, or null if there is no refresh token to refresh with.
+     */
+    VolleyRequest<Void> newRefreshRequest() {
+        Uri uri = buildAuthUri();
+
+        if (uri == null) {
+            return null;
+        }
+
+        String url = parseUrl(uri);
+        HashMap<String, String> params = parseParams(uri);
+
+        VolleyRequest<Void> request = VolleyRequest.newAuthRequest(userAgent, url, params);
+        request.setRetryPolicy(new DefaultRetryPolicy(CLIENT_DEFAULT_TIMEOUT_MS, 0, 0));
+
+        return request;
+    }
+
     protected Uri buildAuthUri() {
         Uri result = null;
         String refreshToken = Session.refreshToken();
@@ -267,19 +373,21 @@ public class VolleyClient implements Client {
     }
 
     protected synchronized void clearRefreshQueue() {
-        volleyRefreshQueue.cancelAll(new RequestFilter() {
+        VolleyTransport.cancelAll(new RequestFilter() {
             @Override
             public boolean apply(com.android.volley.Request<?> request) {
-                return true;
+                return request.getTag() == REFRESH_TAG;
             }
         });
     }
 
     protected synchronized void clearRequestQueue() {
-        volleyRequestQueue.cancelAll(new RequestFilter() {
+        inFlightRequests.clear();
+        tokenManager.clearParkedRequests();
+        VolleyTransport.cancelAll(new RequestFilter() {
             @Override
             public boolean apply(com.android.volley.Request<?> request) {
-                return true;
+                return request.getTag() == REQUEST_TAG;
             }
         });
     }
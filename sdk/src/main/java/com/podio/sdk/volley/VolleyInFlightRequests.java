@@ -0,0 +1,81 @@
+package com.podio.sdk.volley;
+
+import java.util.HashMap;
+
+/**
+ * Keeps track of the GET requests that are currently in flight, keyed on their method, URL and
+ * expected result type. This enables the {@link VolleyClient} to attach any subsequent caller
+ * asking for the exact same content to an already enqueued {@link VolleyRequest}, rather than
+ * downloading and parsing the same payload once per caller.
+ * <p/>
+ * Each caller is handed a follower request with a listener chain of its own, so a listener
+ * consuming an event only stops the bubbling for its own caller. All callers do share the
+ * delivered result object though.
+ */
+final class VolleyInFlightRequests {
+
+    /**
+     * Builds the key that identifies identical requests.
+     *
+     * @param method
+     *         The Podio request method.
+     * @param url
+     *         The fully built request URL, including query parameters.
+     * @param classOfResult
+     *         The class the response will be parsed into.
+     *
+     * @return A string uniquely identifying the request.
+     */
+    static String buildKey(com.podio.sdk.Request.Method method, String url, Class<?> classOfResult) {
+        String className = classOfResult != null ? classOfResult.getName() : Void.class.getName();
+        return method.name() + " " + url + " " + className;
+    }
+
+    private final HashMap<String, VolleyRequest<?>> requests;
+
+    VolleyInFlightRequests() {
+        this.requests = new HashMap<String, VolleyRequest<?>>();
+    }
+
+    /**
+     * Returns the in-flight request for the given key, or null if there is no pending request for
+     * it, or if the pending request has already been canceled.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T> VolleyRequest<T> get(String key) {
+        VolleyRequest<?> request = requests.get(key);
+
+        if (request != null && request.isCanceled()) {
+            requests.remove(key);
+            request = null;
+        }
+
+        return (VolleyRequest<T>) request;
+    }
+
+    /**
+     * Registers a request as in flight. The request will unregister itself once it has delivered
+     * its result or error, or when it's canceled.
+     */
+    synchronized void put(String key, VolleyRequest<?> request) {
+        requests.put(key, request);
+        request.setInFlightRegistration(this, key);
+    }
+
+    /**
+     * Unregisters the given request, but only if it's still the one registered for the key.
+     */
+    synchronized void remove(String key, VolleyRequest<?> request) {
+        if (requests.get(key) == request) {
+            requests.remove(key);
+        }
+    }
+
+    /**
+     * Forgets about all in-flight requests.
+     */
+    synchronized void clear() {
+        requests.clear();
+    }
+
+}
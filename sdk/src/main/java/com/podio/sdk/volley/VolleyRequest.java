@@ -8,6 +8,7 @@ import com.android.volley.NoConnectionError;
 import com.android.volley.ParseError;
 import com.android.volley.Request;
 import com.android.volley.Response;
+import com.android.volley.RetryPolicy;
 import com.android.volley.TimeoutError;
 import com.android.volley.VolleyError;
 import com.android.volley.toolbox.HttpHeaderParser;
@@ -22,6 +23,7 @@ import com.podio.sdk.internal.Utils;
 import com.podio.sdk.json.JsonParser;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Map;
@@ -102,12 +104,27 @@ public class VolleyRequest<T> extends Request<T> implements com.podio.sdk.Reques
     private boolean isAuthRequest;
     private boolean hasSessionChanged;
 
+    private VolleyInFlightRequests inFlightRequests;
+    private String inFlightKey;
+
+    // A request with followers is sent on their behalf and delivers to them rather than to any
+    // listeners of its own. A follower is never sent itself.
+    private final ArrayList<VolleyRequest<T>> followers;
+    private VolleyRequest<T> source;
+    private boolean isAbandoned;
+
+    private VolleyTokenManager tokenManager;
+    private volatile String sentAccessToken;
+    private boolean hasRetriedAuth;
+    private volatile boolean isAuthRetryPending;
+
     protected VolleyRequest(int method, String url, Class<T> resultType, boolean isAuthRequest) {
         super(method, url, null);
         setShouldCache(false);
 
         this.callbackManager = new VolleyCallbackManager<T>();
         this.classOfResult = resultType;
+        this.followers = new ArrayList<VolleyRequest<T>>();
 
         this.headers = new HashMap<String, String>();
         this.params = new HashMap<String, String>();
@@ -135,6 +152,34 @@ public class VolleyRequest<T> extends Request<T> implements com.podio.sdk.Reques
         return this;
     }
 
+    @Override
+    public void cancel() {
+        super.cancel();
+        releaseInFlightRegistration();
+
+        if (source != null) {
+            source.removeFollower(this);
+        }
+    }
+
+    /**
+     * API responses are cached apart from anything else sharing the request queue, see {@link
+     * VolleySplitCache}.
+     */
+    @Override
+    public String getCacheKey() {
+        return VolleySplitCache.API_KEY_PREFIX + super.getCacheKey();
+    }
+
+    /**
+     * Token requests share the request queue with everything else, but must not wait behind the
+     * requests that depend on them.
+     */
+    @Override
+    public Priority getPriority() {
+        return isAuthRequest ? Priority.IMMEDIATE : super.getPriority();
+    }
+
     @Override
     public byte[] getBody() throws AuthFailureError {
         return Utils.notEmpty(body) ? body : super.getBody();
@@ -149,12 +194,28 @@ public class VolleyRequest<T> extends Request<T> implements com.podio.sdk.Reques
     public Map<String, String> getHeaders() throws AuthFailureError {
         String accessToken = Session.accessToken();
 
+        sentAccessToken = accessToken;
+
         if (!isAuthRequest && Utils.notEmpty(accessToken)) {
             headers.put("Authorization", "Bearer " + accessToken);
         } else {
             headers.remove("Authorization");
         }
 
+        // Turn this into a conditional GET if we have a previously cached response to validate.
+        Entry cacheEntry = getCacheEntry();
+        if (shouldCache() && cacheEntry != null) {
+            String lastModified = getHeader(cacheEntry.responseHeaders, "Last-Modified");
+
+            if (Utils.notEmpty(cacheEntry.etag)) {
+                headers.put("If-None-Match", cacheEntry.etag);
+            }
+
+            if (Utils.notEmpty(lastModified)) {
+                headers.put("If-Modified-Since", lastModified);
+            }
+        }
+
         return headers;
     }
 
@@ -179,7 +240,26 @@ public class VolleyRequest<T> extends Request<T> implements com.podio.sdk.Reques
     public void deliverError(VolleyError error) {
         // This method is executed on the main thread. Extra care should be
         // taken on what is done here.
+        if (isAuthRetryPending) {
+            // Let the token manager decide whether to re-send the request with a refreshed access
+            // token or to fail it.
+            hasRetriedAuth = true;
+            tokenManager.onAuthFailure(this);
+            return;
+        }
+
         isDone = true;
+        releaseInFlightRegistration();
+
+        if (hasFollowers()) {
+            for (VolleyRequest<T> follower : getFollowers()) {
+                follower.publishError(this.error);
+                follower.deliverError(error);
+            }
+
+            return;
+        }
+
         callbackManager.deliverError(this.error);
     }
 
@@ -189,6 +269,17 @@ public class VolleyRequest<T> extends Request<T> implements com.podio.sdk.Reques
         // taken on what is done here.
 
         isDone = true;
+        releaseInFlightRegistration();
+
+        if (hasFollowers()) {
+            for (VolleyRequest<T> follower : getFollowers()) {
+                follower.hasSessionChanged = hasSessionChanged;
+                follower.publishResult(result);
+                follower.deliverResponse(result);
+            }
+
+            return;
+        }
 
         if (hasSessionChanged) {
             callbackManager.deliverSession();
@@ -233,8 +324,15 @@ public class VolleyRequest<T> extends Request<T> implements com.podio.sdk.Reques
             }
         }
 
-        synchronized (this) {
-            notifyAll();
+        // A rejected access token may be refreshed and this request re-sent, hence any threads
+        // waiting for the result shouldn't be released just yet.
+        isAuthRetryPending = volleyError instanceof AuthFailureError
+                && tokenManager != null
+                && !isAuthRequest
+                && !hasRetriedAuth;
+
+        if (!isAuthRetryPending) {
+            publishError(error);
         }
 
         return volleyError;
@@ -260,12 +358,13 @@ public class VolleyRequest<T> extends Request<T> implements com.podio.sdk.Reques
         Response<T> response;
 
         try {
-            Entry cacheHeaders = HttpHeaderParser.parseCacheHeaders(networkResponse);
+            Entry cacheHeaders = shouldCache() ?
+                    buildCacheEntry(networkResponse) :
+                    HttpHeaderParser.parseCacheHeaders(networkResponse);
             String charSet = HttpHeaderParser.parseCharset(networkResponse.headers);
-            String json = new String(networkResponse.data, charSet);
 
             if (isAuthRequest) {
-                Session.set(json);
+                Session.set(new String(networkResponse.data, charSet));
                 hasSessionChanged = true;
                 result = null;
                 response = Response.success(null, cacheHeaders);
@@ -273,7 +372,8 @@ public class VolleyRequest<T> extends Request<T> implements com.podio.sdk.Reques
                 result = null;
                 response = Response.success(null, cacheHeaders);
             } else {
-                result = JsonParser.fromJson(json, classOfResult);
+                // Parse straight from the raw bytes to avoid an intermediate copy of the body.
+                result = JsonParser.fromJson(networkResponse.data, charSet, classOfResult);
                 response = Response.success(result, cacheHeaders);
             }
         } catch (UnsupportedEncodingException e) {
@@ -282,9 +382,7 @@ public class VolleyRequest<T> extends Request<T> implements com.podio.sdk.Reques
             response = Response.error(new ParseError(e));
         }
 
-        synchronized (this) {
-            notifyAll();
-        }
+        publishResult(result);
 
         return response;
     }
@@ -301,6 +399,214 @@ public class VolleyRequest<T> extends Request<T> implements com.podio.sdk.Reques
         return callbackManager.removeSessionListener(sessionListener);
     }
 
+    /**
+     * Associates this request with the registry of in-flight requests. The request will remove
+     * itself from the registry once it's done or canceled, after which identical requests will be
+     * sent to the network again.
+     */
+    void setInFlightRegistration(VolleyInFlightRequests inFlightRequests, String key) {
+        this.inFlightRequests = inFlightRequests;
+        this.inFlightKey = key;
+    }
+
+    /**
+     * Enables the given token manager to refresh the access token and re-send this request once,
+     * should the API reject the access token.
+     */
+    void setTokenManager(VolleyTokenManager tokenManager) {
+        this.tokenManager = tokenManager;
+    }
+
+    /**
+     * Returns the access token this request was last sent with.
+     */
+    String getSentAccessToken() {
+        return sentAccessToken;
+    }
+
+    /**
+     * Creates a fresh copy of this request to re-send, after this request has been rejected due to
+     * an invalid access token, as Volley doesn't allow a finished request to be queued again. This
+     * request becomes a follower of the copy, i.e. it's handed the result or error of the copy and
+     * delivers it to its own listeners and followers. Canceling this request cancels the copy.
+     *
+     * @param retryPolicy
+     *         The retry policy of the copy. Retry policies keep state, hence they can't be shared.
+     *
+     * @return The copy to enqueue.
+     */
+    VolleyRequest<T> newAuthRetry(RetryPolicy retryPolicy) {
+        VolleyRequest<T> retry = new VolleyRequest<T>(getMethod(), getUrl(), classOfResult, isAuthRequest);
+        retry.headers.putAll(headers);
+        retry.params.putAll(params);
+        retry.contentType = contentType;
+        retry.body = body;
+        retry.setShouldCache(shouldCache());
+        retry.setRetryPolicy(retryPolicy);
+        retry.tokenManager = tokenManager;
+        retry.hasRetriedAuth = true;
+        retry.followers.add(this);
+
+        isAuthRetryPending = false;
+        error = null;
+        source = retry;
+
+        return retry;
+    }
+
+    /**
+     * Delivers the error of this request, after it has been rejected due to an invalid access
+     * token and the token couldn't be refreshed.
+     */
+    void deliverAuthFailure() {
+        isAuthRetryPending = false;
+        publishError(error);
+        deliverError(null);
+    }
+
+    /**
+     * Delivers the given error without this request ever having been sent, e.g. because it was
+     * parked while waiting for a token refresh and the request queue was cleared.
+     */
+    void deliverUnsent(PodioError error) {
+        publishError(error);
+        deliverError(null);
+    }
+
+    /**
+     * Creates a request that isn't sent itself, but is handed the result or error of this request
+     * and delivers it to its own listeners. Canceling a follower only cancels this request once
+     * all of its followers are canceled.
+     *
+     * @return The follower, or null if this request has already been abandoned by its followers.
+     */
+    VolleyRequest<T> newFollower() {
+        VolleyRequest<T> follower = new VolleyRequest<T>(getMethod(), getUrl(), classOfResult, isAuthRequest);
+
+        synchronized (followers) {
+            if (isAbandoned || isCanceled()) {
+                return null;
+            }
+
+            followers.add(follower);
+        }
+
+        follower.source = this;
+
+        return follower;
+    }
+
+    private void removeFollower(VolleyRequest<T> follower) {
+        synchronized (followers) {
+            if (!followers.remove(follower) || !followers.isEmpty()) {
+                return;
+            }
+
+            isAbandoned = true;
+        }
+
+        cancel();
+    }
+
+    private boolean hasFollowers() {
+        synchronized (followers) {
+            return !followers.isEmpty();
+        }
+    }
+
+    /**
+     * Returns the followers that still expect a result.
+     */
+    private ArrayList<VolleyRequest<T>> getFollowers() {
+        ArrayList<VolleyRequest<T>> result = new ArrayList<VolleyRequest<T>>();
+
+        synchronized (followers) {
+            for (VolleyRequest<T> follower : followers) {
+                if (!follower.isCanceled()) {
+                    result.add(follower);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Stores the given result and releases any threads waiting for it, on this request and all of
+     * its followers.
+     */
+    private void publishResult(T result) {
+        synchronized (this) {
+            this.result = result;
+            notifyAll();
+        }
+
+        for (VolleyRequest<T> follower : getFollowers()) {
+            follower.publishResult(result);
+        }
+    }
+
+    /**
+     * Stores the given error and releases any threads waiting for the result, on this request and
+     * all of its followers.
+     */
+    private void publishError(PodioError error) {
+        synchronized (this) {
+            this.error = error;
+            notifyAll();
+        }
+
+        for (VolleyRequest<T> follower : getFollowers()) {
+            follower.publishError(error);
+        }
+    }
+
+    private void releaseInFlightRegistration() {
+        if (inFlightRequests != null) {
+            inFlightRequests.remove(inFlightKey, this);
+        }
+    }
+
+    /**
+     * Builds a cache entry for the given response, provided that it carries any validators. The
+     * entry is always considered expired, which makes Volley revalidate it with a conditional GET
+     * before serving it. Responses with neither ETag nor Last-Modified headers aren't cached.
+     */
+    private Entry buildCacheEntry(NetworkResponse networkResponse) {
+        Map<String, String> responseHeaders = networkResponse.headers;
+        String etag = getHeader(responseHeaders, "ETag");
+        String lastModified = getHeader(responseHeaders, "Last-Modified");
+
+        if (Utils.isEmpty(networkResponse.data) || (Utils.isEmpty(etag) && Utils.isEmpty(lastModified))) {
+            return null;
+        }
+
+        Entry entry = new Entry();
+        entry.data = networkResponse.data;
+        entry.etag = etag;
+        String serverDate = getHeader(responseHeaders, "Date");
+        entry.serverDate = serverDate != null ? HttpHeaderParser.parseDateAsEpoch(serverDate) : 0;
+        entry.ttl = 0;
+        entry.softTtl = 0;
+        entry.responseHeaders = responseHeaders;
+
+        return entry;
+    }
+
+    private static String getHeader(Map<String, String> headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+
+        return null;
+    }
+
     private String getResponseBody(NetworkResponse networkResponse) {
         try {
             String charSet = HttpHeaderParser.parseCharset(networkResponse.headers);
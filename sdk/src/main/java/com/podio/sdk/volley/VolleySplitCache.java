@@ -0,0 +1,69 @@
+package com.podio.sdk.volley;
+
+import com.android.volley.Cache;
+
+/**
+ * The cache of the shared request queue. It keeps the responses of the API in a cache of their
+ * own, apart from the images and anything else sharing the queue, so that the API responses can be
+ * cleared without touching the rest. API requests are told apart by the prefix of their cache key,
+ * see {@link VolleyRequest#getCacheKey()}.
+ */
+final class VolleySplitCache implements Cache {
+
+    /**
+     * The prefix of the cache keys of API requests.
+     */
+    static final String API_KEY_PREFIX = "api:";
+
+    private final Cache apiCache;
+    private final Cache sharedCache;
+
+    VolleySplitCache(Cache apiCache, Cache sharedCache) {
+        this.apiCache = apiCache;
+        this.sharedCache = sharedCache;
+    }
+
+    /**
+     * Returns the cache holding the API responses.
+     */
+    Cache getApiCache() {
+        return apiCache;
+    }
+
+    @Override
+    public Entry get(String key) {
+        return getCache(key).get(key);
+    }
+
+    @Override
+    public void put(String key, Entry entry) {
+        getCache(key).put(key, entry);
+    }
+
+    @Override
+    public void initialize() {
+        apiCache.initialize();
+        sharedCache.initialize();
+    }
+
+    @Override
+    public void invalidate(String key, boolean fullExpire) {
+        getCache(key).invalidate(key, fullExpire);
+    }
+
+    @Override
+    public void remove(String key) {
+        getCache(key).remove(key);
+    }
+
+    @Override
+    public void clear() {
+        apiCache.clear();
+        sharedCache.clear();
+    }
+
+    private Cache getCache(String key) {
+        return key != null && key.startsWith(API_KEY_PREFIX) ? apiCache : sharedCache;
+    }
+
+}
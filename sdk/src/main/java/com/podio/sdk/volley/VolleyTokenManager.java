@@ -0,0 +1,383 @@
+package com.podio.sdk.volley;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.podio.sdk.PodioError;
+import com.podio.sdk.Request;
+import com.podio.sdk.Session;
+import com.podio.sdk.internal.Utils;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the access token of the {@link Session} fresh. There is only ever one token refresh in
+ * flight; any party asking for a refresh while one is pending is handed the pending request.
+ * <p/>
+ * Rather than waiting for the API to reject an expired token, the refresh is scheduled to run
+ * ahead of {@link Session#expires()}. Requests issued while a refresh is pending, or while the
+ * access token is about to expire, are parked and enqueued once the refresh has finished, and
+ * requests failing on an expired token are re-sent after a refresh. None of this blocks any
+ * thread; the parked requests are simply held on to until the refresh delivers its result. Should
+ * the parked requests be abandoned, e.g. because the request queue is cleared, each of them is
+ * failed with an error rather than left waiting forever.
+ */
+final class VolleyTokenManager {
+
+    /**
+     * Callback interface for parties waiting on a token refresh.
+     */
+    interface RefreshCallback {
+
+        /**
+         * Called on the main thread once the pending token refresh has finished.
+         *
+         * @param isSuccess
+         *         Whether the session was successfully refreshed.
+         */
+        void onRefreshFinished(boolean isSuccess);
+
+        /**
+         * Called on the main thread if the callback is dropped before the pending token refresh
+         * has finished, e.g. because the request queue is cleared.
+         */
+        void onRefreshAbandoned();
+
+    }
+
+    private static final long DEFAULT_REFRESH_MARGIN_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+
+    private final VolleyClient client;
+    private final ArrayList<RefreshCallback> pendingCallbacks;
+    private final Runnable proactiveRefresh;
+
+    private Handler handler;
+    private VolleyRequest<Void> pendingRefresh;
+    private String failedRefreshToken;
+    private long refreshMarginSeconds;
+
+    VolleyTokenManager(VolleyClient client) {
+        this.client = client;
+        this.pendingCallbacks = new ArrayList<RefreshCallback>();
+        this.refreshMarginSeconds = DEFAULT_REFRESH_MARGIN_SECONDS;
+        this.proactiveRefresh = new Runnable() {
+            @Override
+            public void run() {
+                if (isAboutToExpire()) {
+                    refresh();
+                } else {
+                    scheduleRefresh();
+                }
+            }
+        };
+    }
+
+    /**
+     * Sets how long before the access token expires it should be refreshed.
+     *
+     * @param marginSeconds
+     *         The margin in seconds. Zero or less disables the proactive refresh.
+     */
+    synchronized void setRefreshMargin(long marginSeconds) {
+        this.refreshMarginSeconds = Math.max(0L, marginSeconds);
+        scheduleRefresh();
+    }
+
+    /**
+     * Returns whether the access token has expired or will expire within the refresh margin. Only
+     * sessions that can be refreshed are considered. A refresh token that has already failed to
+     * refresh the session isn't proactively tried again, as that would hold back every request.
+     */
+    synchronized boolean isAboutToExpire() {
+        long expires = Session.expires();
+        String refreshToken = Session.refreshToken();
+
+        return refreshMarginSeconds > 0
+                && expires > 0
+                && Utils.notEmpty(refreshToken)
+                && !refreshToken.equals(failedRefreshToken)
+                && Utils.currentTimeSeconds() >= expires - refreshMarginSeconds;
+    }
+
+    /**
+     * Returns whether the given access token is the one currently held by the session.
+     */
+    static boolean isCurrentAccessToken(String accessToken) {
+        String currentAccessToken = Session.accessToken();
+        return currentAccessToken != null ? currentAccessToken.equals(accessToken) : accessToken == null;
+    }
+
+    /**
+     * Refreshes the session, unless a refresh is already pending in which case the pending
+     * request is returned.
+     *
+     * @return The refresh request, or null if the session can't be refreshed.
+     */
+    Request<Void> refresh() {
+        return refresh(null);
+    }
+
+    /**
+     * Refreshes the session and calls the given callback once the refresh has finished. If a
+     * refresh is already pending, the callback is attached to that one instead. If the session
+     * can't be refreshed at all, the callback is called immediately.
+     *
+     * @param callback
+     *         The callback to call once the refresh has finished. May be null.
+     *
+     * @return The refresh request, or null if the session can't be refreshed.
+     */
+    Request<Void> refresh(RefreshCallback callback) {
+        VolleyRequest<Void> request;
+
+        synchronized (this) {
+            if (pendingRefresh != null) {
+                if (callback != null) {
+                    pendingCallbacks.add(callback);
+                }
+
+                return pendingRefresh;
+            }
+
+            request = client.newRefreshRequest();
+
+            if (request != null) {
+                if (callback != null) {
+                    pendingCallbacks.add(callback);
+                }
+
+                pendingRefresh = request;
+                final VolleyRequest<Void> refreshRequest = request;
+                request.withResultListener(new Request.ResultListener<Void>() {
+                    @Override
+                    public boolean onRequestPerformed(Void content) {
+                        onRefreshFinished(refreshRequest, true);
+                        return false;
+                    }
+                }).withErrorListener(new Request.ErrorListener() {
+                    @Override
+                    public boolean onErrorOccurred(Throwable cause) {
+                        onRefreshFinished(refreshRequest, false);
+                        return false;
+                    }
+                });
+            }
+        }
+
+        if (request == null) {
+            if (callback != null) {
+                callback.onRefreshFinished(false);
+            }
+
+            return null;
+        }
+
+        client.addToRefreshQueue(request);
+
+        return request;
+    }
+
+    /**
+     * Calls the given callback as soon as the access token is fresh. If it already is, the
+     * callback is called immediately on the calling thread, otherwise a refresh is started (or
+     * joined) and the callback is called once it has finished.
+     *
+     * @param callback
+     *         The callback to call.
+     */
+    void whenFresh(RefreshCallback callback) {
+        boolean isFresh;
+
+        synchronized (this) {
+            isFresh = pendingRefresh == null && !isAboutToExpire();
+        }
+
+        if (isFresh) {
+            callback.onRefreshFinished(true);
+        } else {
+            refresh(callback);
+        }
+    }
+
+    /**
+     * Enqueues the given request on the request queue as soon as the access token is fresh. The
+     * request is also given the chance to have its access token refreshed and be re-sent, should
+     * the API reject it.
+     *
+     * @param request
+     *         The request to enqueue.
+     */
+    void enqueue(final VolleyRequest<?> request) {
+        request.setTokenManager(this);
+
+        whenFresh(new RefreshCallback() {
+            @Override
+            public void onRefreshFinished(boolean isSuccess) {
+                // Even if the refresh failed, the current access token may still be valid.
+                client.addToRequestQueue(request);
+            }
+
+            @Override
+            public void onRefreshAbandoned() {
+                request.deliverUnsent(new PodioError("The request was canceled before it was sent"));
+            }
+        });
+    }
+
+    /**
+     * Handles a request that was rejected due to an invalid access token. If the token has already
+     * been replaced since the request was sent, the request is simply re-sent. Otherwise it's
+     * re-sent once the token has been refreshed, or fails with its original error if the refresh
+     * fails.
+     *
+     * @param request
+     *         The rejected request.
+     */
+    void onAuthFailure(final VolleyRequest<?> request) {
+        if (!isCurrentAccessToken(request.getSentAccessToken())) {
+            resend(request);
+            return;
+        }
+
+        refresh(new RefreshCallback() {
+            @Override
+            public void onRefreshFinished(boolean isSuccess) {
+                if (isSuccess) {
+                    resend(request);
+                } else {
+                    request.deliverAuthFailure();
+                }
+            }
+
+            @Override
+            public void onRefreshAbandoned() {
+                request.deliverAuthFailure();
+            }
+        });
+    }
+
+    /**
+     * Drops all requests parked while waiting for a token refresh. Used when the request queue is
+     * cleared. The parked requests were never added to the queue, hence they aren't canceled with
+     * it; instead each of them is failed with an error.
+     */
+    void clearParkedRequests() {
+        ArrayList<RefreshCallback> callbacks;
+
+        synchronized (this) {
+            callbacks = new ArrayList<RefreshCallback>(pendingCallbacks);
+            pendingCallbacks.clear();
+        }
+
+        abandon(callbacks);
+    }
+
+    /**
+     * (Re-)schedules the proactive refresh of the access token to run the refresh margin ahead of
+     * the expiration time of the current session.
+     */
+    synchronized void scheduleRefresh() {
+        Handler handler = getHandler();
+        handler.removeCallbacks(proactiveRefresh);
+
+        long expires = Session.expires();
+        String refreshToken = Session.refreshToken();
+
+        if (refreshMarginSeconds > 0
+                && expires > 0
+                && Utils.notEmpty(refreshToken)
+                && !refreshToken.equals(failedRefreshToken)) {
+
+            long delaySeconds = expires - refreshMarginSeconds - Utils.currentTimeSeconds();
+            handler.postDelayed(proactiveRefresh, TimeUnit.SECONDS.toMillis(Math.max(0L, delaySeconds)));
+        }
+    }
+
+    /**
+     * Forgets about any pending refresh and cancels the proactive refresh. Requests parked while
+     * waiting for the refresh are failed with an error.
+     */
+    void reset() {
+        ArrayList<RefreshCallback> callbacks;
+
+        synchronized (this) {
+            pendingRefresh = null;
+            callbacks = new ArrayList<RefreshCallback>(pendingCallbacks);
+            pendingCallbacks.clear();
+
+            if (handler != null) {
+                handler.removeCallbacks(proactiveRefresh);
+            }
+        }
+
+        abandon(callbacks);
+    }
+
+    private synchronized Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+
+        return handler;
+    }
+
+    /**
+     * Calls the abandon hook of the given callbacks on the main thread.
+     */
+    private void abandon(final ArrayList<RefreshCallback> callbacks) {
+        if (callbacks.isEmpty()) {
+            return;
+        }
+
+        getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                for (RefreshCallback callback : callbacks) {
+                    callback.onRefreshAbandoned();
+                }
+            }
+        });
+    }
+
+    /**
+     * Re-sends a rejected request through a fresh copy of it, which the rejected request follows.
+     * This is posted to the main thread as Volley finishes the failed request only after its error
+     * has been delivered.
+     */
+    private void resend(final VolleyRequest<?> request) {
+        getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                if (!request.isCanceled()) {
+                    client.addToRequestQueue(request.newAuthRetry(client.newRetryPolicy()));
+                }
+            }
+        });
+    }
+
+    private void onRefreshFinished(VolleyRequest<Void> request, boolean isSuccess) {
+        ArrayList<RefreshCallback> callbacks;
+
+        synchronized (this) {
+            if (request != pendingRefresh) {
+                // This refresh was abandoned by a reset.
+                return;
+            }
+
+            pendingRefresh = null;
+            failedRefreshToken = isSuccess ? null : Session.refreshToken();
+            callbacks = new ArrayList<RefreshCallback>(pendingCallbacks);
+            pendingCallbacks.clear();
+
+            if (isSuccess) {
+                scheduleRefresh();
+            }
+        }
+
+        for (RefreshCallback callback : callbacks) {
+            callback.onRefreshFinished(isSuccess);
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.podio.sdk.volley;
+
+import android.content.Context;
+
+import com.android.volley.Network;
+import com.android.volley.RequestQueue;
+import com.android.volley.RequestQueue.RequestFilter;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.ClearCacheRequest;
+import com.android.volley.toolbox.DiskBasedCache;
+import com.android.volley.toolbox.HurlStack;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * The HTTP transport shared by all network clients of the SDK. The API requests, the token
+ * refreshes and the image downloads all go through one single Volley request queue, hence they
+ * share one pool of dispatcher threads and one {@link HurlStack}, which means one keep-alive
+ * connection pool and one TLS session cache. API responses are cached on disk apart from the
+ * images, so that they can be cleared on their own. Clients that can't be backed by Volley,
+ * like the file upload client, share a worker thread pool of the same size instead.
+ * <p/>
+ * Nothing is started until the first request is made; the setup methods only record the
+ * configuration.
+ */
+public final class VolleyTransport {
+
+    /**
+     * The default number of network dispatcher threads.
+     */
+    public static final int DEFAULT_DISPATCHER_COUNT = 4;
+
+    private static final String HTTP_CACHE_DIRECTORY = "podio-http";
+    private static final String API_CACHE_DIRECTORY = "podio-api-http";
+    private static final int DEFAULT_CACHE_MAX_SIZE_IN_BYTES = 5 * 1024 * 1024;
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 30L;
+
+    private static Context context;
+    private static SSLSocketFactory sslSocketFactory;
+    private static int dispatcherCount = DEFAULT_DISPATCHER_COUNT;
+    private static int apiCacheMaxSizeInBytes = DEFAULT_CACHE_MAX_SIZE_IN_BYTES;
+    private static boolean isApiCacheClearPending = false;
+
+    private static RequestQueue requestQueue;
+    private static VolleySplitCache cache;
+    private static ExecutorService executorService;
+
+    private VolleyTransport() {
+        // Hiding the constructor.
+    }
+
+    /**
+     * Provides the transport with the context to find the cache directory in and the SSL socket
+     * factory to open connections with. The transport isn't started by this method. Once started,
+     * a new SSL socket factory has no effect.
+     *
+     * @param context
+     *         The context to create the disk cache in.
+     * @param sslSocketFactory
+     *         Optional custom SSL socket factory to use for all connections.
+     */
+    public static synchronized void setup(Context context, SSLSocketFactory sslSocketFactory) {
+        if (context != null) {
+            VolleyTransport.context = context.getApplicationContext() != null ?
+                    context.getApplicationContext() :
+                    context;
+        }
+
+        if (sslSocketFactory != null && requestQueue == null) {
+            VolleyTransport.sslSocketFactory = sslSocketFactory;
+        }
+    }
+
+    /**
+     * Sets the number of network dispatcher threads shared by all clients. This method MUST be
+     * called before the first request is made.
+     *
+     * @param count
+     *         The number of threads. Defaults to four.
+     */
+    public static synchronized void setDispatcherCount(int count) {
+        dispatcherCount = Math.max(1, count);
+    }
+
+    /**
+     * Makes sure the disk cache of API responses can hold at least the given number of bytes. This
+     * method MUST be called before the first request is made.
+     *
+     * @param maxSizeInBytes
+     *         The requested cache size.
+     */
+    static synchronized void ensureApiCacheMaxSize(int maxSizeInBytes) {
+        apiCacheMaxSizeInBytes = Math.max(apiCacheMaxSizeInBytes, maxSizeInBytes);
+    }
+
+    /**
+     * Returns the shared request queue, creating and starting it if needed.
+     *
+     * @return The started request queue.
+     *
+     * @throws IllegalStateException
+     *         If the transport hasn't been given a context yet.
+     */
+    public static synchronized RequestQueue getRequestQueue() throws IllegalStateException {
+        if (requestQueue == null) {
+            if (context == null) {
+                throw new IllegalStateException("The transport must be set up before any request is made.");
+            }
+
+            File apiCacheDirectory = new File(context.getCacheDir(), API_CACHE_DIRECTORY);
+            File cacheDirectory = new File(context.getCacheDir(), HTTP_CACHE_DIRECTORY);
+            cache = new VolleySplitCache(
+                    new DiskBasedCache(apiCacheDirectory, apiCacheMaxSizeInBytes),
+                    new DiskBasedCache(cacheDirectory, DEFAULT_CACHE_MAX_SIZE_IN_BYTES));
+            Network network = new BasicNetwork(new HurlStack(null, sslSocketFactory));
+
+            requestQueue = new RequestQueue(cache, network, dispatcherCount);
+            requestQueue.start();
+
+            if (isApiCacheClearPending) {
+                isApiCacheClearPending = false;
+                requestQueue.add(new ClearCacheRequest(cache.getApiCache(), null));
+            }
+        }
+
+        return requestQueue;
+    }
+
+    /**
+     * Returns the shared worker thread pool for clients that aren't backed by Volley. The threads
+     * are created on demand and time out when idle.
+     *
+     * @return The shared executor service.
+     */
+    public static synchronized ExecutorService getExecutorService() {
+        if (executorService == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(dispatcherCount, dispatcherCount,
+                    IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+            executor.allowCoreThreadTimeOut(true);
+            executorService = executor;
+        }
+
+        return executorService;
+    }
+
+    /**
+     * Returns the number of network dispatcher threads.
+     */
+    public static synchronized int getDispatcherCount() {
+        return dispatcherCount;
+    }
+
+    /**
+     * Cancels all queued and in flight requests matching the given filter. Nothing is done if the
+     * transport hasn't been started.
+     *
+     * @param filter
+     *         Decides which requests to cancel.
+     */
+    public static synchronized void cancelAll(RequestFilter filter) {
+        if (requestQueue != null) {
+            requestQueue.cancelAll(filter);
+        }
+    }
+
+    /**
+     * Removes all API responses from the disk cache, leaving any cached images. The file system
+     * operation is performed on the cache thread, before any other pending request is processed.
+     * If the transport hasn't been started yet, the cache is cleared as soon as it is.
+     */
+    public static synchronized void clearApiCache() {
+        if (requestQueue != null) {
+            requestQueue.add(new ClearCacheRequest(cache.getApiCache(), null));
+        } else {
+            isApiCacheClearPending = true;
+        }
+    }
+
+}